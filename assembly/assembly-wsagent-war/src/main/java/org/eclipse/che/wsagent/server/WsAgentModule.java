@@ -12,7 +12,9 @@ package org.eclipse.che.wsagent.server;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.TypeLiteral;
 import com.google.inject.multibindings.MapBinder;
+import com.google.inject.multibindings.Multibinder;
 import com.google.inject.name.Names;
 
 import org.eclipse.che.ApiEndpointAccessibilityChecker;
@@ -39,8 +41,11 @@ import org.eclipse.che.api.project.server.ProjectApiModule;
 import org.eclipse.che.api.ssh.server.HttpSshServiceClient;
 import org.eclipse.che.api.ssh.server.SshServiceClient;
 import org.eclipse.che.api.user.server.spi.PreferenceDao;
+import org.eclipse.che.api.vfs.impl.file.event.HiEventDetector;
 import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.git.impl.jgit.JGitConnectionFactory;
+import org.eclipse.che.git.impl.jgit.JGitRepositoryCacheInvalidator;
+import org.eclipse.che.git.impl.jgit.JGitStatusChangesDetector;
 import org.eclipse.che.inject.DynaModule;
 import org.eclipse.che.plugin.java.server.rest.WsAgentURLProvider;
 import org.eclipse.che.security.oauth.RemoteOAuthTokenProvider;
@@ -74,6 +79,10 @@ public class WsAgentModule extends AbstractModule {
 
         bind(GitUserResolver.class).to(LocalGitUserResolver.class);
         bind(GitConnectionFactory.class).to(JGitConnectionFactory.class);
+        Multibinder<HiEventDetector<?>> gitEventDetectors = Multibinder.newSetBinder(binder(), new TypeLiteral<HiEventDetector<?>>() {
+        });
+        gitEventDetectors.addBinding().to(JGitRepositoryCacheInvalidator.class);
+        gitEventDetectors.addBinding().to(JGitStatusChangesDetector.class);
 
         bind(URI.class).annotatedWith(Names.named("che.api")).toProvider(UriApiEndpointProvider.class);
         bind(String.class).annotatedWith(Names.named("user.token")).toProvider(UserTokenProvider.class);
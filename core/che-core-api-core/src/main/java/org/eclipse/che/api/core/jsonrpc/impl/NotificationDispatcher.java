@@ -75,7 +75,7 @@ public class NotificationDispatcher {
     }
 
     private <P> void dispatch(String endpointId, RequestHandler<P, Void> handler, JsonObject params, Class<P> paramClass) {
-        final P param = DtoFactory.getInstance().createDtoFromJson(params.toString(), paramClass);
+        final P param = DtoFactory.getInstance().createDtoFromJson(params, paramClass);
         handler.handleNotification(endpointId, param);
     }
 }
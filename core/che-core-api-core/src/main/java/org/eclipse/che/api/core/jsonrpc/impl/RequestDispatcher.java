@@ -13,7 +13,6 @@ package org.eclipse.che.api.core.jsonrpc.impl;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 import org.eclipse.che.api.core.jsonrpc.RequestHandler;
 import org.eclipse.che.api.core.websocket.WebSocketMessageTransmitter;
@@ -55,6 +54,26 @@ public class RequestDispatcher {
      *         json object
      */
     public void dispatch(String endpointId, JsonObject incomingJson) {
+        final JsonObject response = handle(endpointId, incomingJson);
+        LOG.debug("Generated response: " + response);
+
+        transmitter.transmit(endpointId, response.toString());
+    }
+
+    /**
+     * Handles json rpc request received from endpoint identified by a high
+     * level identifier and represented as a json object, unlike
+     * {@link #dispatch(String, JsonObject)} the response is not transmitted
+     * but returned, so it can be sent as a part of a batch response.
+     *
+     * @param endpointId
+     *         high level endpoint identifier
+     * @param incomingJson
+     *         json object
+     *
+     * @return response or error represented as a json object
+     */
+    public JsonObject handle(String endpointId, JsonObject incomingJson) {
         LOG.debug("Dispatching incoming request from: " + endpointId + ", json: " + incomingJson);
 
         final String id = incomingJson.get("id").getAsString();
@@ -67,8 +86,7 @@ public class RequestDispatcher {
         if (handler == null) {
             LOG.error("Handler not found: " + method);
             // TODO make a centralized standard errors structure
-            transmitter.transmit(endpointId, error(-32601, "Method not found: " + method));
-            return;
+            return error(id, -32601, "Method not found: " + method);
         }
 
         final Class resultClass = handler.getResultClass();
@@ -88,10 +106,7 @@ public class RequestDispatcher {
             result = response(endpointId, handler, null, null, resultClass);
         }
 
-        final JsonElement response = prepareResponse(id, result);
-        LOG.debug("Generated response: " + response);
-
-        transmitter.transmit(endpointId, response.toString());
+        return prepareResponse(id, result);
     }
 
     private <P, R> JsonElement response(String endpointId,
@@ -103,7 +118,7 @@ public class RequestDispatcher {
         final R result;
 
         if (paramClass != null) {
-            final P param = DtoFactory.getInstance().createDtoFromJson(params.toString(), paramClass);
+            final P param = DtoFactory.getInstance().createDtoFromJson(params, paramClass);
             result = handler.handleRequest(endpointId, param);
         } else {
             result = handler.handleRequest(endpointId);
@@ -119,20 +134,18 @@ public class RequestDispatcher {
             return response;
         } else if (result instanceof Collection) {   // list of DTO objects
             JsonArray valueArray = new JsonArray();
-            ((Collection)result).stream().filter(r -> r instanceof JsonSerializable).forEach(r -> {
-                String resultString = DtoFactory.getInstance().toJson(r);
-                valueArray.add(new JsonParser().parse(resultString).getAsJsonObject());
-            });
+            ((Collection)result).stream()
+                                .filter(r -> r instanceof JsonSerializable)
+                                .forEach(r -> valueArray.add(DtoFactory.getInstance().toJsonElement(r)));
             return valueArray;
         }
 
         // DTO object otherwise
-        final String resultString = DtoFactory.getInstance().toJson(result);
-        return new JsonParser().parse(resultString).getAsJsonObject();
+        return DtoFactory.getInstance().toJsonElement(result);
     }
 
 
-    private JsonElement prepareResponse(String id, JsonElement result) {
+    private JsonObject prepareResponse(String id, JsonElement result) {
         final JsonObject response = new JsonObject();
 
         response.addProperty("jsonrpc", "2.0");
@@ -142,12 +155,18 @@ public class RequestDispatcher {
         return response;
     }
 
-    private String error(int code, String message) {
+    private JsonObject error(String id, int code, String message) {
+        final JsonObject error = new JsonObject();
+
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+
         final JsonObject response = new JsonObject();
 
-        response.addProperty("code", code);
-        response.addProperty("message", message);
+        response.addProperty("jsonrpc", "2.0");
+        response.addProperty("id", id);
+        response.add("error", error);
 
-        return response.toString();
+        return response;
     }
 }
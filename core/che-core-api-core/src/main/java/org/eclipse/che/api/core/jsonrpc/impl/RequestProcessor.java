@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.jsonrpc.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes json rpc messages out of the web socket container's threads.
+ *
+ * <p>Messages received from the same endpoint are processed one by one in the
+ * order they were received, as handlers may rely on that order, while messages
+ * received from different endpoints are processed concurrently. The size of
+ * the thread pool is configured by {@code che.core.jsonrpc.processor_max_pool_size}.
+ */
+@Singleton
+public class RequestProcessor {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestProcessor.class);
+
+    private final ExecutorService                   executor;
+    private final ConcurrentMap<String, TaskQueue>  queues = new ConcurrentHashMap<>();
+
+    @Inject
+    public RequestProcessor(@Named("che.core.jsonrpc.processor_max_pool_size") int maxPoolSize) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxPoolSize,
+                                                                   maxPoolSize,
+                                                                   60L,
+                                                                   TimeUnit.SECONDS,
+                                                                   new LinkedBlockingQueue<>(),
+                                                                   new ThreadFactoryBuilder().setNameFormat("JsonRpcProcessor-%d")
+                                                                                             .setDaemon(true)
+                                                                                             .build());
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules processing of a message received from the endpoint.
+     *
+     * @param endpointId
+     *         high level endpoint identifier
+     * @param task
+     *         message processing routine
+     */
+    public void process(String endpointId, Runnable task) {
+        TaskQueue queue;
+        do {
+            queue = queues.computeIfAbsent(endpointId, TaskQueue::new);
+        } while (!queue.offer(task));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Tasks of a single endpoint, executed one by one, removed from the processor as soon as it becomes empty. */
+    private class TaskQueue implements Runnable {
+        private final String               endpointId;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        private boolean running;
+        private boolean retired;
+
+        TaskQueue(String endpointId) {
+            this.endpointId = endpointId;
+        }
+
+        synchronized boolean offer(Runnable task) {
+            if (retired) {
+                return false;
+            }
+            tasks.add(task);
+            if (!running) {
+                running = true;
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    LOG.error("Json rpc processor is shut down, message from endpoint {} is not processed", endpointId);
+                    retire();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        retire();
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Error while processing json rpc message from endpoint " + endpointId, e);
+                }
+            }
+        }
+
+        /** Must be called while holding this queue's monitor. */
+        private void retire() {
+            running = false;
+            retired = true;
+            tasks.clear();
+            queues.remove(endpointId, this);
+        }
+    }
+}
@@ -10,28 +10,70 @@
  *******************************************************************************/
 package org.eclipse.che.api.core.jsonrpc.impl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Dispatches incoming json rpc responses
  *
+ * <p>Each registered request has a deadline, if the response is not received in
+ * {@code che.core.jsonrpc.request_timeout_ms} the future of the request is completed
+ * exceptionally with {@link TimeoutException}. The number of requests waiting for
+ * responses from a single endpoint is limited by {@code che.core.jsonrpc.max_requests_in_flight},
+ * futures of requests which exceed the limit are failed immediately. When endpoint
+ * is closed all the requests waiting for its responses are failed.
+ *
+ * <p>Response latency is collected per request method, see {@link #getStatistics()}.
+ *
  * @author Dmitry Kuleshov
  */
 @Singleton
 public class ResponseDispatcher {
     private static final Logger LOG = LoggerFactory.getLogger(ResponseDispatcher.class);
 
-    private final Map<String, CompletableFuture> futures       = new HashMap<>();
-    private final Map<String, Class<?>>          resultClasses = new HashMap<>();
+    private final long                                 timeoutMs;
+    private final int                                  maxInFlight;
+    private final ConcurrentMap<String, Pending>       pending;
+    private final ConcurrentMap<String, AtomicInteger> inFlight;
+    private final ConcurrentMap<String, Statistics>    statistics;
+    private final ScheduledThreadPoolExecutor          timeouts;
+
+    @Inject
+    public ResponseDispatcher(@Named("che.core.jsonrpc.request_timeout_ms") long timeoutMs,
+                              @Named("che.core.jsonrpc.max_requests_in_flight") int maxInFlight) {
+        this.timeoutMs = timeoutMs;
+        this.maxInFlight = maxInFlight;
+        this.pending = new ConcurrentHashMap<>();
+        this.inFlight = new ConcurrentHashMap<>();
+        this.statistics = new ConcurrentHashMap<>();
+        this.timeouts = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("JsonRpcResponseTimeouts")
+                                                                                      .setDaemon(true)
+                                                                                      .build());
+        this.timeouts.setRemoveOnCancelPolicy(true);
+    }
 
     /**
      * Dispatches json rpc response received from endpoint identified by a high
@@ -51,26 +93,27 @@ public class ResponseDispatcher {
         final String key = endpointId + '@' + id;
         LOG.debug("Combined response key: " + key);
 
-        final Class resultClass = resultClasses.get(key);
-        LOG.debug("Extracted result class: " + resultClass);
-
-        final CompletableFuture completableFuture = futures.get(key);
+        final Pending request = remove(key);
+        if (request == null) {
+            LOG.warn("Received response to unknown or expired request: " + key);
+            return;
+        }
+        LOG.debug("Extracted result class: " + request.resultClass);
 
         if (incomingJson.has("result")) {
             LOG.debug("Response contains result field, processing result");
 
-            final JsonObject result = incomingJson.get("result").getAsJsonObject();
-            final Object dto = DtoFactory.getInstance().createDtoFromJson(result.toString(), resultClass);
-
-            completableFuture.complete(dto);
+            final JsonElement result = incomingJson.get("result");
+            try {
+                request.future.complete(DtoFactory.getInstance().createDtoFromJson(result, request.resultClass));
+            } catch (RuntimeException e) {
+                request.future.completeExceptionally(e);
+            }
         } else {
             LOG.debug("Response contains error field, processing error");
 
-            final String error = "Error processing is not yet supported";
-            LOG.error(error);
-            throw new UnsupportedOperationException(error);
+            request.future.completeExceptionally(new ServerException(incomingJson.get("error").toString()));
         }
-
     }
 
     /**
@@ -87,9 +130,156 @@ public class ResponseDispatcher {
      * @return completable future based on result represented by DTO
      */
     public <R> CompletableFuture<R> getCompletableFuture(String endpointId, String requestId, Class<R> resultClass) {
+        return getCompletableFuture(endpointId, requestId, null, resultClass);
+    }
+
+    /**
+     * Register and get a completable future that will be resolved when specified response
+     * will be dispatched, or failed if it is not dispatched in time. If the endpoint
+     * already has too many requests waiting for responses the returned future is failed.
+     *
+     * @param endpointId
+     *         high level endpoint identifier
+     * @param requestId
+     *         request identifier
+     * @param method
+     *         method of the request, used to collect latency statistics, may be null
+     * @param resultClass
+     *         class of request result that is contained within response
+     *
+     * @return completable future based on result represented by DTO
+     */
+    public <R> CompletableFuture<R> getCompletableFuture(String endpointId, String requestId, String method, Class<R> resultClass) {
         final CompletableFuture<R> future = new CompletableFuture<>();
-        futures.put(endpointId + '@' + requestId, future);
-        resultClasses.put(endpointId + '@' + requestId, resultClass);
+
+        final AtomicInteger counter = inFlight.computeIfAbsent(endpointId, id -> new AtomicInteger());
+        if (counter.incrementAndGet() > maxInFlight) {
+            counter.decrementAndGet();
+            future.completeExceptionally(new ServerException("Too many requests in flight for endpoint " + endpointId));
+            return future;
+        }
+
+        final String key = endpointId + '@' + requestId;
+        final Pending request = new Pending(endpointId, method, resultClass, future);
+        pending.put(key, request);
+        request.timeout = timeouts.schedule(() -> {
+            final Pending expired = remove(key);
+            if (expired != null) {
+                expired.future.completeExceptionally(new TimeoutException("Response for request " + key + " not received in " +
+                                                                          timeoutMs + " ms"));
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
         return future;
     }
+
+    /**
+     * Fails all the requests waiting for responses from the endpoint,
+     * should be called when the endpoint is closed.
+     *
+     * @param endpointId
+     *         high level endpoint identifier
+     */
+    public void dispose(String endpointId) {
+        final String prefix = endpointId + '@';
+        for (String key : pending.keySet()) {
+            if (key.startsWith(prefix)) {
+                final Pending request = remove(key);
+                if (request != null) {
+                    request.future.completeExceptionally(new ServerException("Endpoint " + endpointId + " is closed"));
+                }
+            }
+        }
+    }
+
+    /** Returns the number of requests waiting for responses. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Returns response latency statistics grouped by request method. */
+    public Map<String, Statistics> getStatistics() {
+        return new HashMap<>(statistics);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
+    }
+
+    private Pending remove(String key) {
+        final Pending request = pending.remove(key);
+        if (request != null) {
+            if (request.timeout != null) {
+                request.timeout.cancel(false);
+            }
+            final AtomicInteger counter = inFlight.get(request.endpointId);
+            if (counter != null && counter.decrementAndGet() <= 0) {
+                inFlight.remove(request.endpointId, counter);
+            }
+            final String method = request.method == null ? "" : request.method;
+            statistics.computeIfAbsent(method, m -> new Statistics())
+                      .add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.startNanos));
+        }
+        return request;
+    }
+
+    private static class Pending {
+        final String               endpointId;
+        final String               method;
+        final Class                resultClass;
+        final CompletableFuture    future;
+        final long                 startNanos;
+        volatile ScheduledFuture<?> timeout;
+
+        Pending(String endpointId, String method, Class resultClass, CompletableFuture future) {
+            this.endpointId = endpointId;
+            this.method = method;
+            this.resultClass = resultClass;
+            this.future = future;
+            this.startNanos = System.nanoTime();
+        }
+    }
+
+    /** Histogram of response latencies of a single method. */
+    public static class Statistics {
+        /** Upper bounds (inclusive) of histogram buckets in milliseconds, the last bucket is unbounded. */
+        public static final long[] BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1_000, 5_000, 10_000, 60_000};
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_MS.length + 1);
+        private final AtomicLong      total  = new AtomicLong();
+        private final AtomicLong      sumMs  = new AtomicLong();
+
+        void add(long latencyMs) {
+            int bucket = 0;
+            while (bucket < BUCKETS_MS.length && latencyMs > BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            total.incrementAndGet();
+            sumMs.addAndGet(latencyMs);
+        }
+
+        /** Returns the number of completed, failed or expired requests. */
+        public long getCount() {
+            return total.get();
+        }
+
+        /** Returns the average latency in milliseconds. */
+        public long getAverageMs() {
+            final long count = total.get();
+            return count == 0 ? 0 : sumMs.get() / count;
+        }
+
+        /**
+         * Returns the number of requests in each bucket, i-th value corresponds
+         * to {@code BUCKETS_MS[i]}, the last one counts the slower requests.
+         */
+        public long[] getHistogram() {
+            final long[] histogram = new long[counts.length()];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = counts.get(i);
+            }
+            return histogram;
+        }
+    }
 }
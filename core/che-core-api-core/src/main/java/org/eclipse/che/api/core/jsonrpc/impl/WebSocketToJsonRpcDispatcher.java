@@ -10,53 +10,178 @@
  *******************************************************************************/
 package org.eclipse.che.api.core.jsonrpc.impl;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import org.eclipse.che.api.core.websocket.WebSocketMessageReceiver;
+import org.eclipse.che.api.core.websocket.WebSocketMessageTransmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Dispatches messages received from web socket endpoint throughout json rpc
  * inner infrastructure.
  *
+ * <p>Message is read with a streaming reader, only {@code jsonrpc}, {@code id}
+ * and {@code method} are read as plain values, while {@code params}, {@code result}
+ * and {@code error} are read as json trees which are passed to the DTO factory
+ * directly, other members are skipped. A json array is treated as a json rpc 2.0
+ * batch, responses to the requests of the batch are sent back as a single array.
+ * An improper element of the batch or a request which fails is answered with
+ * a json rpc error in place of its response, the other elements are still handled.
+ *
+ * <p>Requests and notifications are handled by {@link RequestProcessor} and not by
+ * the web socket container's thread which received them. Responses to the requests
+ * sent to the endpoint are dispatched directly, they only complete the pending
+ * requests, so they are never queued behind the requests of the endpoint which
+ * may be waiting for them.
+ *
  * @author Dmitry Kuleshov
  */
 @Singleton
 public class WebSocketToJsonRpcDispatcher implements WebSocketMessageReceiver {
-    private static final Logger LOG = LoggerFactory.getLogger(WebSocketToJsonRpcDispatcher.class);
+    private static final Logger     LOG    = LoggerFactory.getLogger(WebSocketToJsonRpcDispatcher.class);
+    private static final JsonParser PARSER = new JsonParser();
+
+    private static final int INVALID_REQUEST = -32600;
+    private static final int INTERNAL_ERROR  = -32603;
 
-    private final RequestDispatcher      requestDispatcher;
-    private final NotificationDispatcher notificationDispatcher;
-    private final ResponseDispatcher     responseDispatcher;
+    private final RequestDispatcher           requestDispatcher;
+    private final NotificationDispatcher      notificationDispatcher;
+    private final ResponseDispatcher          responseDispatcher;
+    private final RequestProcessor            requestProcessor;
+    private final WebSocketMessageTransmitter transmitter;
 
     @Inject
     public WebSocketToJsonRpcDispatcher(RequestDispatcher requestDispatcher,
                                         NotificationDispatcher notificationDispatcher,
-                                        ResponseDispatcher responseDispatcher) {
+                                        ResponseDispatcher responseDispatcher,
+                                        RequestProcessor requestProcessor,
+                                        WebSocketMessageTransmitter transmitter) {
         this.requestDispatcher = requestDispatcher;
         this.notificationDispatcher = notificationDispatcher;
         this.responseDispatcher = responseDispatcher;
+        this.requestProcessor = requestProcessor;
+        this.transmitter = transmitter;
     }
 
     @Override
     public void receive(String endpointId, String message) {
         LOG.debug("Receiving a message from: " + endpointId + ", message" + message);
-        final JsonParser jsonParser = new JsonParser();
-        final JsonElement jsonElement = jsonParser.parse(message);
 
-        if (!jsonElement.isJsonObject()) {
-            final String error = "Json is an array, not supported yet";
-            LOG.error(error);
-            throw new UnsupportedOperationException(error);
+        final List<JsonObject> messages = read(message);
+
+        if (!isBatch(message)) {
+            final JsonObject incomingJson = messages.get(0);
+            if (isResponse(incomingJson)) {
+                LOG.debug("It's a response, processing by response dispatcher.");
+                responseDispatcher.dispatch(endpointId, incomingJson);
+            } else {
+                requestProcessor.process(endpointId, () -> dispatch(endpointId, incomingJson));
+            }
+            return;
         }
 
-        final JsonObject incomingJson = jsonElement.getAsJsonObject();
+        final List<JsonObject> requests = new ArrayList<>(messages.size());
+        for (JsonObject incomingJson : messages) {
+            if (isResponse(incomingJson)) {
+                try {
+                    responseDispatcher.dispatch(endpointId, incomingJson);
+                } catch (RuntimeException e) {
+                    LOG.error("Error while dispatching a response of json rpc batch", e);
+                }
+            } else {
+                requests.add(incomingJson);
+            }
+        }
+        if (!requests.isEmpty()) {
+            requestProcessor.process(endpointId, () -> dispatchBatch(endpointId, requests));
+        }
+    }
+
+    @Override
+    public void onClose(String endpointId) {
+        responseDispatcher.dispose(endpointId);
+    }
+
+    private void dispatch(String endpointId, JsonObject incomingJson) {
+        switch (getType(incomingJson)) {
+            case REQUEST:
+                LOG.debug("It's a request, processing by request dispatcher.");
+                requestDispatcher.dispatch(endpointId, incomingJson);
+                break;
+            case NOTIFICATION:
+                LOG.debug("It's a notification, processing by notification dispatcher.");
+                notificationDispatcher.dispatch(endpointId, incomingJson);
+                break;
+            default:
+                throw new IllegalStateException("Response must not be dispatched by request processor.");
+        }
+    }
+
+    private void dispatchBatch(String endpointId, List<JsonObject> messages) {
+        LOG.debug("It's a batch of {} messages", messages.size());
+
+        final JsonArray responses = new JsonArray();
+        for (JsonObject incomingJson : messages) {
+            final MessageType type;
+            try {
+                type = getType(incomingJson);
+            } catch (IllegalStateException e) {
+                LOG.error("Improper json rpc message of batch: " + incomingJson);
+                responses.add(error(incomingJson.get("id"), INVALID_REQUEST, "Invalid Request"));
+                continue;
+            }
+            try {
+                switch (type) {
+                    case REQUEST:
+                        responses.add(requestDispatcher.handle(endpointId, incomingJson));
+                        break;
+                    default:
+                        notificationDispatcher.dispatch(endpointId, incomingJson);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Error while dispatching a message of json rpc batch", e);
+                // notifications are never answered
+                if (type == MessageType.REQUEST) {
+                    responses.add(error(incomingJson.get("id"),
+                                        INTERNAL_ERROR,
+                                        e.getMessage() == null ? "Internal error" : e.getMessage()));
+                }
+            }
+        }
+
+        if (responses.size() != 0) {
+            transmitter.transmit(endpointId, responses.toString());
+        }
+    }
+
+    private JsonObject error(JsonElement id, int code, String message) {
+        final JsonObject error = new JsonObject();
+        error.addProperty("code", code);
+        error.addProperty("message", message);
+
+        final JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", id == null ? JsonNull.INSTANCE : id);
+        response.add("error", error);
+        return response;
+    }
+
+    private MessageType getType(JsonObject incomingJson) {
         final boolean hasMethod = incomingJson.has("method");
         final boolean hasParams = incomingJson.has("params");
         final boolean hasId = incomingJson.has("id");
@@ -64,23 +189,97 @@ public class WebSocketToJsonRpcDispatcher implements WebSocketMessageReceiver {
         final boolean hasError = incomingJson.has("error");
 
         if (hasMethod && hasId && !hasResult && !hasError) {
-            LOG.debug("It's a request, processing by request dispatcher.");
-            requestDispatcher.dispatch(endpointId, incomingJson);
-            return;
+            return MessageType.REQUEST;
         }
 
         if (hasMethod && !hasId && !hasResult && !hasError) {
-            LOG.debug("It's a notification, processing by notification dispatcher.");
-            notificationDispatcher.dispatch(endpointId, incomingJson);
-            return;
+            return MessageType.NOTIFICATION;
         }
 
         if (!hasMethod && !hasParams && hasId && (hasError != hasResult)) {
-            LOG.debug("It's a response, processing by response dispatcher.");
-            responseDispatcher.dispatch(endpointId, incomingJson);
-            return;
+            return MessageType.RESPONSE;
         }
 
         throw new IllegalStateException("Improper json rpc message.");
     }
+
+    private boolean isResponse(JsonObject incomingJson) {
+        try {
+            return getType(incomingJson) == MessageType.RESPONSE;
+        } catch (IllegalStateException e) {
+            // improper message is answered by the request processor
+            return false;
+        }
+    }
+
+    private boolean isBatch(String message) {
+        for (int i = 0; i < message.length(); i++) {
+            final char c = message.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
+    private List<JsonObject> read(String message) {
+        final List<JsonObject> messages = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        messages.add(readObject(reader));
+                    } else {
+                        // not a json rpc message, it is answered with an error by the batch dispatching
+                        reader.skipValue();
+                        messages.add(new JsonObject());
+                    }
+                }
+                reader.endArray();
+                if (messages.isEmpty()) {
+                    throw new IllegalStateException("Improper json rpc message, batch is empty.");
+                }
+            } else {
+                messages.add(readObject(reader));
+            }
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            LOG.error("Error while reading json rpc message: " + message, e);
+            throw new IllegalStateException("Improper json rpc message.", e);
+        }
+        return messages;
+    }
+
+    private JsonObject readObject(JsonReader reader) throws IOException {
+        final JsonObject incomingJson = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            switch (name) {
+                case "jsonrpc":
+                case "id":
+                case "method":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        incomingJson.add(name, JsonNull.INSTANCE);
+                    } else {
+                        incomingJson.addProperty(name, reader.nextString());
+                    }
+                    break;
+                case "params":
+                case "result":
+                case "error":
+                    incomingJson.add(name, PARSER.parse(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return incomingJson;
+    }
+
+    private enum MessageType {
+        REQUEST, NOTIFICATION, RESPONSE
+    }
 }
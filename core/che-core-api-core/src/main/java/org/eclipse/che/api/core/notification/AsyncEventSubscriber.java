@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Event subscriber which delivers events to its delegate asynchronously.
+ *
+ * <p>Published events are put into one of {@code partitions} bounded queues, the queue
+ * is selected by the key which is computed for each event with {@code keyFunction}
+ * (e.g. workspace id). Each queue is drained by at most one task of the shared executor
+ * at a time, so events with the same key are delivered to the delegate in the order
+ * they were published, while events with different keys may be delivered concurrently.
+ *
+ * <p>When a queue is full the {@link OverflowPolicy} defines what happens with a new event.
+ *
+ * <p>Instances are created by {@link EventService#subscribeAsync(EventSubscriber, Class, int, int, OverflowPolicy, Function)},
+ * this class is not intended to be subscribed directly.
+ *
+ * @see EventService
+ */
+public class AsyncEventSubscriber<T> implements EventSubscriber<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncEventSubscriber.class);
+
+    /** Max number of events delivered by a single drain task before it yields its thread. */
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    /** Marks threads which deliver events to the delegates, see {@link OverflowPolicy#BLOCK}. */
+    private static final ThreadLocal<Boolean> DELIVERY_THREAD = new ThreadLocal<>();
+
+    /** Defines how publisher is treated when the subscriber's queue is full. */
+    public enum OverflowPolicy {
+        /**
+         * Publisher waits until there is a free slot in the queue. Publisher which is a thread delivering
+         * events, e.g. subscriber publishes an event while handling another one, doesn't wait and the oldest
+         * pending event is dropped instead, otherwise it might wait for the queue which is drained by itself
+         * or by the other delivery threads waiting for it.
+         */
+        BLOCK,
+        /** The oldest pending event is dropped in favour of the new one. */
+        DROP_OLDEST,
+        /**
+         * Pending event which has the same key as the new one is replaced with the new event,
+         * if there is no such event the oldest pending event is dropped.
+         */
+        COALESCE
+    }
+
+    private final EventSubscriber<T>    delegate;
+    private final Class<?>              eventType;
+    private final Executor              executor;
+    private final OverflowPolicy        overflowPolicy;
+    private final Function<T, ?>        keyFunction;
+    private final int                   queueCapacity;
+    private final List<Partition>       partitions;
+    private final AtomicLong            delivered;
+    private final AtomicLong            dropped;
+    private final AtomicLong            coalesced;
+    private final AtomicLong            failed;
+    private final AtomicLong            totalLatencyNanos;
+    private final AtomicLong            maxLatencyNanos;
+
+    private volatile boolean stopped;
+
+    AsyncEventSubscriber(EventSubscriber<T> delegate,
+                         Class<?> eventType,
+                         Executor executor,
+                         int partitions,
+                         int queueCapacity,
+                         OverflowPolicy overflowPolicy,
+                         Function<T, ?> keyFunction) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.delegate = requireNonNull(delegate, "Required non-null delegate");
+        this.eventType = requireNonNull(eventType, "Required non-null event type");
+        this.executor = requireNonNull(executor, "Required non-null executor");
+        this.overflowPolicy = requireNonNull(overflowPolicy, "Required non-null overflow policy");
+        this.keyFunction = keyFunction;
+        this.queueCapacity = queueCapacity;
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            this.partitions.add(new Partition());
+        }
+        this.delivered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.totalLatencyNanos = new AtomicLong();
+        this.maxLatencyNanos = new AtomicLong();
+    }
+
+    @Override
+    public void onEvent(T event) {
+        if (stopped) {
+            return;
+        }
+        final Object key = keyFunction == null ? null : keyFunction.apply(event);
+        final int idx = key == null ? 0 : (key.hashCode() & 0x7fffffff) % partitions.size();
+        partitions.get(idx).offer(key, event);
+    }
+
+    /** Returns the subscriber which receives events delivered by this subscriber. */
+    public EventSubscriber<T> getDelegate() {
+        return delegate;
+    }
+
+    /** Returns the type of the events this subscriber is subscribed to. */
+    Class<?> getEventType() {
+        return eventType;
+    }
+
+    /** Returns the number of events which are queued and not delivered yet. */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Partition partition : partitions) {
+            depth += partition.size();
+        }
+        return depth;
+    }
+
+    /** Returns the number of events delivered to the delegate. */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /** Returns the number of events dropped because of the queue overflow. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Returns the number of events replaced with the newer events with the same key. */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Returns the number of events the delegate failed to handle. */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Returns the average time in nanoseconds between publishing of an event and the end of its handling. */
+    public long getAverageLatencyNanos() {
+        final long count = delivered.get();
+        return count == 0 ? 0 : totalLatencyNanos.get() / count;
+    }
+
+    /** Returns the max time in nanoseconds between publishing of an event and the end of its handling. */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /** Discards all the pending events and stops accepting new ones. */
+    void stop() {
+        stopped = true;
+        for (Partition partition : partitions) {
+            partition.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncEventSubscriber{" +
+               "delegate=" + delegate +
+               ", overflowPolicy=" + overflowPolicy +
+               ", queueDepth=" + getQueueDepth() +
+               ", delivered=" + delivered +
+               ", dropped=" + dropped +
+               ", coalesced=" + coalesced +
+               '}';
+    }
+
+    private void deliver(Pending pending) {
+        try {
+            delegate.onEvent(pending.event);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            LOG.error(e.getMessage(), e);
+        }
+        final long latency = System.nanoTime() - pending.publishedNanos;
+        delivered.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        long max;
+        while (latency > (max = maxLatencyNanos.get()) && !maxLatencyNanos.compareAndSet(max, latency)) {
+            // retry until max latency is updated or becomes greater than current latency
+        }
+    }
+
+    private final class Pending {
+        final Object key;
+        final long   publishedNanos;
+        T event;
+
+        Pending(Object key, T event) {
+            this.key = key;
+            this.event = event;
+            this.publishedNanos = System.nanoTime();
+        }
+    }
+
+    /** Bounded queue of pending events which is drained by at most one executor task at a time. */
+    private final class Partition implements Runnable {
+        private final ArrayDeque<Pending> queue      = new ArrayDeque<>();
+        private final Map<Object, Pending> pendingByKey = new HashMap<>();
+
+        private boolean scheduled;
+
+        synchronized void offer(Object key, T event) {
+            if (overflowPolicy == OverflowPolicy.COALESCE && key != null) {
+                final Pending existing = pendingByKey.get(key);
+                if (existing != null) {
+                    existing.event = event;
+                    coalesced.incrementAndGet();
+                    return;
+                }
+            }
+            while (queue.size() >= queueCapacity && !stopped) {
+                if (overflowPolicy == OverflowPolicy.BLOCK && DELIVERY_THREAD.get() == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                } else {
+                    unindex(queue.poll());
+                    dropped.incrementAndGet();
+                }
+            }
+            if (stopped) {
+                return;
+            }
+            final Pending pending = new Pending(key, event);
+            queue.add(pending);
+            if (overflowPolicy == OverflowPolicy.COALESCE && key != null) {
+                pendingByKey.put(key, pending);
+            }
+            schedule();
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        synchronized void clear() {
+            queue.clear();
+            pendingByKey.clear();
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            DELIVERY_THREAD.set(Boolean.TRUE);
+            try {
+                for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                    final Pending pending;
+                    synchronized (this) {
+                        pending = queue.poll();
+                        if (pending == null) {
+                            return;
+                        }
+                        unindex(pending);
+                        notifyAll();
+                    }
+                    deliver(pending);
+                }
+            } finally {
+                DELIVERY_THREAD.remove();
+                // let the other partitions use the executor's threads, the partition is
+                // rescheduled even if the delegate failed with an error, so its queue is not stuck
+                synchronized (this) {
+                    scheduled = false;
+                    if (!queue.isEmpty()) {
+                        schedule();
+                    }
+                }
+            }
+        }
+
+        /** Must be called while holding this partition's monitor. */
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled = false;
+                    LOG.error("Unable to schedule delivery of events for {}, executor rejected the task", delegate);
+                }
+            }
+        }
+
+        private void unindex(Pending pending) {
+            if (pending != null && pending.key != null && pendingByKey.get(pending.key) == pending) {
+                pendingByKey.remove(pending.key);
+            }
+        }
+    }
+}
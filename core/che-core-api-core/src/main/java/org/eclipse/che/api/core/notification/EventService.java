@@ -13,10 +13,14 @@ package org.eclipse.che.api.core.notification;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.notification.AsyncEventSubscriber.OverflowPolicy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -27,6 +31,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Dispatchers events to listeners. Usage example:
@@ -41,6 +49,10 @@ import java.util.concurrent.CopyOnWriteArraySet;
  *     bus.publish(new MyEvent());
  * </pre>
  *
+ * <p>By default subscribers are called synchronously in the publisher's thread.
+ * Subscribers which may be slow should be subscribed with one of the {@code subscribeAsync}
+ * methods, then events are queued and delivered to them by the shared pool of threads.
+ *
  * @author andrew00x
  */
 @Singleton
@@ -51,12 +63,19 @@ public class EventService {
     private static final int CACHE_MASK = CACHE_NUM - 1;
     private static final int SEG_SIZE   = 32;
 
+    private static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+    private static final int ASYNC_DELIVERY_THREADS       = Math.max(2, Runtime.getRuntime().availableProcessors());
+
     private final LoadingCache<Class<?>, Set<Class<?>>>[]       typeCache;
     private final ConcurrentMap<Class<?>, Set<EventSubscriber>> subscribersByEventType;
+    private final ConcurrentMap<EventSubscriber<?>, AsyncEventSubscriber<?>> asyncSubscribers;
+
+    private volatile ExecutorService asyncExecutor;
 
     @SuppressWarnings("unchecked")
     public EventService() {
         subscribersByEventType = new ConcurrentHashMap<>();
+        asyncSubscribers = new ConcurrentHashMap<>();
         typeCache = new LoadingCache[CACHE_NUM];
         for (int i = 0; i < CACHE_NUM; i++) {
             typeCache[i] = CacheBuilder.newBuilder().concurrencyLevel(SEG_SIZE).build(
@@ -134,6 +153,109 @@ public class EventService {
         doSubscribe(subscriber, eventType);
     }
 
+    /**
+     * Subscribe to an event with asynchronous delivery. All the events are delivered to the subscriber
+     * in the order they were published, but not in the publisher's thread.
+     *
+     * @param subscriber
+     *         the subscriber to call when an event is published
+     * @param eventType
+     *         the event to subscribe to
+     * @return subscriber which queues the events and provides delivery metrics
+     * @see #subscribeAsync(EventSubscriber, Class, int, int, OverflowPolicy, Function)
+     */
+    public <T> AsyncEventSubscriber<T> subscribeAsync(EventSubscriber<T> subscriber, Class<T> eventType) {
+        return subscribeAsync(subscriber, eventType, 1, DEFAULT_ASYNC_QUEUE_CAPACITY, OverflowPolicy.BLOCK, null);
+    }
+
+    /**
+     * Subscribe to an event with asynchronous delivery.
+     *
+     * <p>Events are partitioned by the key computed with {@code keyFunction}, events with the same key
+     * are delivered in the order they were published, events with different keys may be delivered
+     * concurrently, so the subscriber must be thread-safe if more than one partition is used.
+     *
+     * @param subscriber
+     *         the subscriber to call when an event is published
+     * @param eventType
+     *         the event to subscribe to
+     * @param partitions
+     *         the number of queues the events are distributed between
+     * @param queueCapacity
+     *         the max number of pending events per queue
+     * @param overflowPolicy
+     *         defines what happens when a queue is full
+     * @param keyFunction
+     *         computes ordering key of the event, if it is null or returns null
+     *         then event is put into the first queue
+     * @return subscriber which queues the events and provides delivery metrics
+     * @throws IllegalArgumentException
+     *         when {@code partitions} or {@code queueCapacity} is not positive
+     */
+    public <T> AsyncEventSubscriber<T> subscribeAsync(EventSubscriber<T> subscriber,
+                                                      Class<T> eventType,
+                                                      int partitions,
+                                                      int queueCapacity,
+                                                      OverflowPolicy overflowPolicy,
+                                                      Function<T, ?> keyFunction) {
+        final AsyncEventSubscriber<T> async = new AsyncEventSubscriber<>(subscriber,
+                                                                         eventType,
+                                                                         getAsyncExecutor(),
+                                                                         partitions,
+                                                                         queueCapacity,
+                                                                         overflowPolicy,
+                                                                         keyFunction);
+        final AsyncEventSubscriber<?> previous = asyncSubscribers.put(subscriber, async);
+        if (previous != null) {
+            // the previous subscriber may be subscribed to another type of events
+            doUnsubscribe(previous, previous.getEventType());
+            previous.stop();
+        }
+        doSubscribe(async, eventType);
+        return async;
+    }
+
+    /** Returns the subscribers which were subscribed with one of the {@code subscribeAsync} methods. */
+    public Set<AsyncEventSubscriber<?>> getAsyncSubscribers() {
+        return new HashSet<>(asyncSubscribers.values());
+    }
+
+    /** Stops delivery of the queued events to the asynchronous subscribers. */
+    @PreDestroy
+    public void stop() {
+        for (AsyncEventSubscriber<?> async : asyncSubscribers.values()) {
+            async.stop();
+        }
+        final ExecutorService executor = asyncExecutor;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    asyncExecutor = executor = Executors.newFixedThreadPool(ASYNC_DELIVERY_THREADS,
+                                                                            new ThreadFactoryBuilder().setNameFormat("EventService-%d")
+                                                                                                      .setDaemon(true)
+                                                                                                      .build());
+                }
+            }
+        }
+        return executor;
+    }
+
     private void doSubscribe(EventSubscriber<?> subscriber, Class<?> eventType) {
         Set<EventSubscriber> entries = subscribersByEventType.get(eventType);
         if (entries == null) {
@@ -162,6 +284,12 @@ public class EventService {
     }
 
     private void doUnsubscribe(EventSubscriber<?> subscriber, Class<?> eventType) {
+        final AsyncEventSubscriber<?> async = asyncSubscribers.remove(subscriber);
+        if (async != null) {
+            async.stop();
+            subscriber = async;
+            eventType = async.getEventType();
+        }
         final Set<EventSubscriber> entries = subscribersByEventType.get(eventType);
         if (entries != null && !entries.isEmpty()) {
             boolean changed = entries.remove(subscriber);
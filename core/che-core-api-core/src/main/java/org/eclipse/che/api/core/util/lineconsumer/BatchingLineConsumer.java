@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util.lineconsumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.util.LineConsumer;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Line consumer that joins consumed lines with {@code '\n'} and passes them to the delegate as one line, so the
+ * delegate that sends a message per line, e.g. {@link org.eclipse.che.api.core.util.WebsocketLineConsumer}, sends a
+ * message per batch instead. The batch is passed to the delegate when its size reaches {@link #DEFAULT_MAX_BATCH_SIZE}
+ * characters or in {@link #DEFAULT_MAX_DELAY_MS} ms after its first line is consumed, whichever comes first. Line that
+ * ends with {@code '\r'} is passed alone since clients replace such line with the next one. Order of the lines is
+ * preserved.
+ * <p>
+ * When batches get full faster than {@link #DEFAULT_MAX_BATCHES_PER_SECOND} per second on average, the lines of the full
+ * batches that exceed the rate are skipped and the next batch passed to the delegate starts with the line
+ * {@code [N lines skipped]}. Full batches of one second are passed at once, so short bursts are not skipped.
+ * <p>
+ * This implementation is thread safe.
+ *
+ * @since 5.0
+ */
+public class BatchingLineConsumer implements LineConsumer {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingLineConsumer.class);
+
+    public static final int    DEFAULT_MAX_BATCH_SIZE         = 64 * 1024;
+    public static final long   DEFAULT_MAX_DELAY_MS           = 50;
+    public static final double DEFAULT_MAX_BATCHES_PER_SECOND = 20;
+
+    private final LineConsumer  delegate;
+    private final int           maxBatchSize;
+    private final long          maxDelayMs;
+    private final double        maxBatchesPerSecond;
+    private final double        maxPermits;
+    private final StringBuilder batch;
+
+    /** Number of full batches that may be passed now, it grows with the max rate up to {@link #maxPermits}. */
+    private double             permits;
+    private long               permitsUpdateNanos;
+    private int                batchLines;
+    private long               skippedLines;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean            isOpen;
+
+    public BatchingLineConsumer(LineConsumer delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MS, DEFAULT_MAX_BATCHES_PER_SECOND);
+    }
+
+    /**
+     * Creates batching consumer.
+     *
+     * @param delegate
+     *         consumer that receives batches of lines
+     * @param maxBatchSize
+     *         number of characters after which the batch is passed to the delegate
+     * @param maxDelayMs
+     *         max time in milliseconds the line may wait in the batch
+     * @param maxBatchesPerSecond
+     *         max average rate of the full batches, lines of the full batches that exceed it are skipped
+     */
+    public BatchingLineConsumer(LineConsumer delegate, int maxBatchSize, long maxDelayMs, double maxBatchesPerSecond) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.maxBatchesPerSecond = maxBatchesPerSecond;
+        this.maxPermits = Math.max(1, maxBatchesPerSecond);
+        this.permits = maxPermits;
+        this.permitsUpdateNanos = System.nanoTime();
+        this.batch = new StringBuilder();
+        this.isOpen = true;
+    }
+
+    @Override
+    public synchronized void writeLine(String line) throws IOException {
+        if (!isOpen) {
+            return;
+        }
+        if (line != null && line.endsWith("\r")) {
+            flush();
+            delegate.writeLine(line);
+            return;
+        }
+        if (batchLines > 0) {
+            batch.append('\n');
+        }
+        batch.append(line);
+        batchLines++;
+        if (batch.length() >= maxBatchSize) {
+            if (!tryAcquirePermit()) {
+                skippedLines += batchLines;
+                clearBatch();
+                scheduleFlush();
+            } else {
+                flush();
+            }
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    /** Passes the batch and the number of the skipped lines, if any, to the delegate and closes it. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (isOpen) {
+            isOpen = false;
+            try {
+                flush();
+            } finally {
+                delegate.close();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (skippedLines > 0) {
+            final String marker = String.format("[%d lines skipped]", skippedLines);
+            skippedLines = 0;
+            batch.insert(0, batchLines > 0 ? marker + '\n' : marker);
+            batchLines++;
+        }
+        if (batchLines > 0) {
+            final String lines = batch.toString();
+            clearBatch();
+            delegate.writeLine(lines);
+        }
+    }
+
+    private boolean tryAcquirePermit() {
+        final long now = System.nanoTime();
+        permits = Math.min(maxPermits, permits + (now - permitsUpdateNanos) * maxBatchesPerSecond / SECONDS.toNanos(1));
+        permitsUpdateNanos = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush == null) {
+            scheduledFlush = FlushScheduler.INSTANCE.schedule(this::scheduledFlush, maxDelayMs, MILLISECONDS);
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        scheduledFlush = null;
+        try {
+            flush();
+        } catch (IOException e) {
+            LOG.error(String.format("An error occurred while writing lines to the line consumer %s", delegate), e);
+        }
+    }
+
+    private void clearBatch() {
+        batch.setLength(0);
+        batchLines = 0;
+    }
+
+    /** Holds scheduler of the delayed flushes, so it is created only when the first batching consumer is used. */
+    private static class FlushScheduler {
+        static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("BatchingLineConsumer-%d")
+                                                                                     .setUncaughtExceptionHandler(
+                                                                                             LoggingUncaughtExceptionHandler
+                                                                                                     .getInstance())
+                                                                                     .setDaemon(true)
+                                                                                     .build());
+    }
+}
@@ -25,4 +25,14 @@ public interface WebSocketMessageReceiver {
      *         plain text message
      */
     void receive(String endpointId, String message);
+
+    /**
+     * Notifies that web socket session of the endpoint is closed,
+     * all the state bound to the session should be released.
+     *
+     * @param endpointId
+     *         identifier of an endpoint known to an transmitter implementation
+     */
+    default void onClose(String endpointId) {
+    }
 }
@@ -71,6 +71,7 @@ public class BasicWebSocketEndpoint {
         LOG.debug("Close reason: {}:{}", closeReason.getReasonPhrase(), closeReason.getCloseCode());
 
         registry.remove(endpointId);
+        receiver.onClose(endpointId);
     }
 
     @OnError
@@ -15,10 +15,20 @@ import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.websocket.CloseReason;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static javax.websocket.CloseReason.CloseCodes.TRY_AGAIN_LATER;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -26,15 +36,28 @@ import static org.slf4j.LoggerFactory.getLogger;
  * If WEB SOCKET session is not opened adds messages to re-sender to try to send
  * them when session will be opened again.
  *
+ * <p>Each session has its own outbound queue which is written with the session's
+ * async remote, only one message per session is in flight at a time, so a slow
+ * session does not delay the others. If the queue of a session exceeds
+ * {@link #MAX_PENDING_MESSAGES} or {@link #MAX_PENDING_BYTES} the session is
+ * considered to be a slow consumer and is closed. Messages that are not sent
+ * because the session is closed or sending failed are added to the re-sender
+ * of the session's endpoint.
+ *
  * @author Dmitry Kuleshov
  */
 @Singleton
 public class BasicWebSocketMessageTransmitter implements WebSocketMessageTransmitter {
     private static final Logger LOG = getLogger(BasicWebSocketMessageTransmitter.class);
 
+    static final int  MAX_PENDING_MESSAGES = 10_000;
+    static final long MAX_PENDING_BYTES    = 16 * 1024 * 1024;
+
     private final WebSocketSessionRegistry registry;
     private final MessagesReSender         reSender;
 
+    private final ConcurrentMap<Session, OutboundQueue> queues = new ConcurrentHashMap<>();
+
     @Inject
     public BasicWebSocketMessageTransmitter(WebSocketSessionRegistry registry, MessagesReSender reSender) {
         this.registry = registry;
@@ -42,7 +65,7 @@ public class BasicWebSocketMessageTransmitter implements WebSocketMessageTransmi
     }
 
     @Override
-    public synchronized void transmit(String endpointId, String message) {
+    public void transmit(String endpointId, String message) {
         final Optional<Session> sessionOptional = registry.get(endpointId);
 
         if (!sessionOptional.isPresent() || !sessionOptional.get().isOpen()) {
@@ -52,29 +75,172 @@ public class BasicWebSocketMessageTransmitter implements WebSocketMessageTransmi
         } else {
             LOG.debug("Session registered and open, sending message");
 
-            try {
-                sessionOptional.get().getBasicRemote().sendText(message);
-            } catch (IOException e) {
-                LOG.error("Error while trying to send a message to a basic websocket remote endpoint", e);
-            }
+            enqueue(endpointId, sessionOptional.get(), message);
         }
     }
 
     @Override
-    public synchronized void transmit(String message) {
-        LOG.debug("Broadcasting a web socket transmission: ", message);
-
-        registry.getSessions()
-                .stream()
-                .filter(Session::isOpen)
-                .map(Session::getBasicRemote)
-                .forEach(it -> {
-                    try {
-                        it.sendText(message);
-                    } catch (IOException e) {
-                        LOG.error("Error while trying to send a message to a basic websocket remote endpoint", e);
-                    }
-                });
+    public void transmit(String message) {
+        LOG.debug("Broadcasting a web socket transmission: {}", message);
+
+        for (String endpointId : registry.getEndpointIds()) {
+            registry.get(endpointId)
+                    .filter(Session::isOpen)
+                    .ifPresent(session -> enqueue(endpointId, session, message));
+        }
+    }
+
+    /** Returns the number of messages queued for the session but not sent yet. */
+    int getPendingMessages(Session session) {
+        final OutboundQueue queue = queues.get(session);
+        return queue == null ? 0 : queue.size();
     }
 
+    /**
+     * Adds the message to the outbound queue of the session, the message is sent after the already queued ones.
+     * If the message is not sent it is added to the re-sender of the given endpoint.
+     */
+    void enqueue(String endpointId, Session session, String message) {
+        OutboundQueue queue;
+        do {
+            queue = queues.computeIfAbsent(session, key -> new OutboundQueue(endpointId, key));
+        } while (!queue.offer(message));
+    }
+
+    private void reSend(String endpointId, List<String> messages) {
+        if (!messages.isEmpty()) {
+            LOG.debug("{} messages are not sent to endpoint {}, adding them to pending", messages.size(), endpointId);
+            messages.forEach(message -> reSender.add(endpointId, message));
+        }
+    }
+
+    /**
+     * Queue of the messages which are sent to the session one by one.
+     * The queue is removed from the transmitter as soon as it becomes empty.
+     */
+    private class OutboundQueue {
+        private final String              endpointId;
+        private final Session             session;
+        private final ArrayDeque<String>  messages;
+
+        private long    pendingBytes;
+        private boolean sending;
+        private boolean retired;
+
+        OutboundQueue(String endpointId, Session session) {
+            this.endpointId = endpointId;
+            this.session = session;
+            this.messages = new ArrayDeque<>();
+        }
+
+        /**
+         * Adds the message to the queue and starts sending if it is not started yet.
+         *
+         * @return false if this queue is retired and the message should be added to the new one
+         */
+        boolean offer(String message) {
+            List<String> unsent = null;
+            boolean start = false;
+            synchronized (this) {
+                if (retired) {
+                    return false;
+                }
+                if (messages.size() >= MAX_PENDING_MESSAGES || pendingBytes + message.length() > MAX_PENDING_BYTES) {
+                    messages.add(message);
+                    unsent = retire();
+                } else {
+                    messages.add(message);
+                    pendingBytes += message.length();
+                    if (!sending) {
+                        sending = start = true;
+                    }
+                }
+            }
+            if (unsent != null) {
+                evict();
+                reSend(endpointId, unsent);
+            } else if (start) {
+                drain();
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return messages.size();
+        }
+
+        /** Sends queued messages until the queue is empty or a message is sent asynchronously. */
+        private void drain() {
+            while (true) {
+                final String message;
+                final List<String> unsent;
+                synchronized (this) {
+                    if (!messages.isEmpty() && session.isOpen()) {
+                        message = messages.poll();
+                        pendingBytes -= message.length();
+                        unsent = null;
+                    } else {
+                        message = null;
+                        sending = false;
+                        unsent = retire();
+                    }
+                }
+                if (message == null) {
+                    reSend(endpointId, unsent);
+                    return;
+                }
+
+                // 0 - sending, 1 - sendText returned before completion, 2 - completed inside of sendText
+                final AtomicInteger state = new AtomicInteger();
+                try {
+                    session.getAsyncRemote().sendText(message, result -> {
+                        onSent(result, message);
+                        if (!state.compareAndSet(0, 2)) {
+                            drain();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    LOG.error("Error while trying to send a message to an async websocket remote endpoint", e);
+                    reSend(endpointId, Collections.singletonList(message));
+                    continue;
+                }
+                if (state.compareAndSet(0, 1)) {
+                    // completion handler continues draining
+                    return;
+                }
+            }
+        }
+
+        private void onSent(SendResult result, String message) {
+            if (!result.isOK()) {
+                LOG.error("Error while trying to send a message to an async websocket remote endpoint", result.getException());
+                reSend(endpointId, Collections.singletonList(message));
+            }
+        }
+
+        /**
+         * Removes this queue from the transmitter, must be called while holding this queue's monitor.
+         *
+         * @return messages that are left in the queue, they must be passed to the re-sender after the monitor is released
+         */
+        private List<String> retire() {
+            final List<String> unsent = new ArrayList<>(messages);
+            if (!retired) {
+                retired = true;
+                messages.clear();
+                pendingBytes = 0;
+                queues.remove(session, this);
+            }
+            return unsent;
+        }
+
+        private void evict() {
+            LOG.warn("Web socket session {} is too slow to consume messages, closing it", session.getId());
+            try {
+                session.close(new CloseReason(TRY_AGAIN_LATER, "Too many pending messages"));
+            } catch (IOException e) {
+                LOG.error("Error while trying to close a slow websocket session", e);
+            }
+        }
+    }
 }
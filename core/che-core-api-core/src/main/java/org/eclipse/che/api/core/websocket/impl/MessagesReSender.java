@@ -10,53 +10,90 @@
  *******************************************************************************/
 package org.eclipse.che.api.core.websocket.impl;
 
+import org.slf4j.Logger;
+
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.websocket.Session;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Instance is responsible for re-sending messages that were not sent during the period
  * when WEB SOCKET session was closed. If session is closed during re-send process it
  * stops and left messages will be re-sent as WEB SOCKET session becomes open again.
  *
+ * <p>Each endpoint keeps at most {@link #MAX_MESSAGES} latest messages, the oldest
+ * ones are dropped when the limit is reached. The same message added twice
+ * is kept only once, as the latest one. The total number of pending messages
+ * is limited by {@link #MAX_TOTAL_MESSAGES}, and messages older than
+ * {@link #MESSAGE_TTL_MS} are evicted, so endpoints that never come back
+ * do not keep their messages forever.
+ *
+ * <p>Messages are re-sent through the outbound queue of the session kept by
+ * {@link BasicWebSocketMessageTransmitter}, so they are ordered with the other
+ * messages of the session and are subject to the same slow consumer limits.
+ *
  * @author Dmitry Kuleshov
  */
 @Singleton
 public class MessagesReSender {
-    private static final int MAX_MESSAGES = 100;
+    private static final Logger LOG = getLogger(MessagesReSender.class);
+
+    static final int  MAX_MESSAGES         = 100;
+    static final int  MAX_TOTAL_MESSAGES   = 10_000;
+    static final long MESSAGE_TTL_MS       = TimeUnit.MINUTES.toMillis(5);
+    static final long SWEEP_INTERVAL_MS    = TimeUnit.MINUTES.toMillis(1);
 
-    private final WebSocketSessionRegistry registry;
+    private final WebSocketSessionRegistry                   registry;
+    private final Provider<BasicWebSocketMessageTransmitter> transmitterProvider;
 
-    private final Map<String, List<String>> messagesMap = new HashMap<>();
+    private final ConcurrentMap<String, PendingMessages> messagesMap = new ConcurrentHashMap<>();
+    private final AtomicInteger                          total       = new AtomicInteger();
+    private final AtomicLong                             dropped     = new AtomicLong();
+    private final AtomicLong                             resent      = new AtomicLong();
+    private final AtomicLong                             lastSweep   = new AtomicLong(System.currentTimeMillis());
 
     @Inject
-    public MessagesReSender(WebSocketSessionRegistry registry) {
+    public MessagesReSender(WebSocketSessionRegistry registry,
+                            Provider<BasicWebSocketMessageTransmitter> transmitterProvider) {
         this.registry = registry;
+        this.transmitterProvider = transmitterProvider;
     }
 
     public void add(String endpointId, String message) {
-        List<String> messages = messagesMap.get(endpointId);
-
-        if (messages == null) {
-            messages = new LinkedList<>();
-            messagesMap.put(endpointId, messages);
+        final long now = System.currentTimeMillis();
+        sweepIfNeeded(now);
+
+        // the slot is reserved before the message is added, so concurrent adds can't exceed the limit
+        if (total.incrementAndGet() > MAX_TOTAL_MESSAGES) {
+            total.decrementAndGet();
+            LOG.debug("Too many pending messages, dropping message for endpoint {}", endpointId);
+            dropped.incrementAndGet();
+            return;
         }
 
-        if (messages.size() <= MAX_MESSAGES) {
-            messages.add(message);
-        }
+        PendingMessages messages;
+        do {
+            messages = messagesMap.computeIfAbsent(endpointId, PendingMessages::new);
+        } while (!messages.add(message, now));
     }
 
     public void resend(String endpointId) {
-        final List<String> messages = messagesMap.remove(endpointId);
+        final PendingMessages messages = messagesMap.get(endpointId);
 
-        if (messages == null || messages.isEmpty()) {
+        if (messages == null) {
             return;
         }
 
@@ -68,18 +105,124 @@ public class MessagesReSender {
 
         final Session session = sessionOptional.get();
 
-        final List<String> backing = new ArrayList<>(messages);
-        messages.clear();
+        messages.resend(session, System.currentTimeMillis());
+    }
 
-        for (String message : backing) {
+    /** Returns the number of messages dropped because of the limits or the age. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Returns the number of re-sent messages. */
+    public long getResentCount() {
+        return resent.get();
+    }
+
+    /** Returns the number of messages waiting for their endpoints. */
+    public int getPendingCount() {
+        return total.get();
+    }
+
+    private void sweepIfNeeded(long now) {
+        final long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_MS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        for (PendingMessages messages : messagesMap.values()) {
+            messages.evictExpired(now);
+            messages.removeIfEmpty();
+        }
+    }
 
-            if (session.isOpen()) {
-                session.getAsyncRemote().sendText(message);
-            } else {
-                messages.add(message);
+    private static class Message {
+        final String text;
+        final long   added;
+
+        Message(String text, long added) {
+            this.text = text;
+            this.added = added;
+        }
+    }
+
+    /** Bounded queue of the messages of a single endpoint. */
+    private class PendingMessages {
+        private final String              endpointId;
+        private final ArrayDeque<Message> queue = new ArrayDeque<>();
+
+        private boolean removed;
+
+        PendingMessages(String endpointId) {
+            this.endpointId = endpointId;
+        }
+
+        /**
+         * Adds the message which slot is already reserved in the total number of messages.
+         * Returns false if the queue was removed from the re-sender and the message should be added to a new one.
+         */
+        synchronized boolean add(String message, long now) {
+            if (removed) {
+                return false;
+            }
+            evictExpired(now);
+
+            for (Iterator<Message> it = queue.iterator(); it.hasNext(); ) {
+                if (it.next().text.equals(message)) {
+                    it.remove();
+                    total.decrementAndGet();
+                    break;
+                }
+            }
+            if (queue.size() >= MAX_MESSAGES) {
+                queue.poll();
+                total.decrementAndGet();
+                dropped.incrementAndGet();
             }
+            queue.add(new Message(message, now));
+            return true;
         }
 
-        messagesMap.put(endpointId, messages);
+        /**
+         * Passes the messages to the transmitter. Messages are taken out while holding this queue's monitor and
+         * passed after it is released, messages that are not sent are added back to the re-sender by the transmitter.
+         */
+        void resend(Session session, long now) {
+            final List<String> messages;
+            synchronized (this) {
+                evictExpired(now);
+                if (!session.isOpen()) {
+                    return;
+                }
+                messages = new ArrayList<>(queue.size());
+                for (Message message : queue) {
+                    messages.add(message.text);
+                }
+                total.addAndGet(-queue.size());
+                queue.clear();
+                removed = true;
+                messagesMap.remove(endpointId, this);
+            }
+
+            final BasicWebSocketMessageTransmitter transmitter = transmitterProvider.get();
+            for (String message : messages) {
+                transmitter.enqueue(endpointId, session, message);
+                resent.incrementAndGet();
+            }
+        }
+
+        synchronized void evictExpired(long now) {
+            Message message;
+            while ((message = queue.peek()) != null && now - message.added > MESSAGE_TTL_MS) {
+                queue.poll();
+                total.decrementAndGet();
+                dropped.incrementAndGet();
+            }
+        }
+
+        synchronized void removeIfEmpty() {
+            if (queue.isEmpty() && !removed) {
+                removed = true;
+                messagesMap.remove(endpointId, this);
+            }
+        }
     }
 }
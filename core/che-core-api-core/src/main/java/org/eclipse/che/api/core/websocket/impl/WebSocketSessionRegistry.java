@@ -15,10 +15,14 @@ import org.slf4j.Logger;
 import javax.inject.Singleton;
 import javax.websocket.Session;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toSet;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -32,7 +36,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class WebSocketSessionRegistry {
     private static final Logger LOG = getLogger(WebSocketSessionRegistry.class);
 
-    private final Map<String, Session> sessionsMap = new ConcurrentHashMap<>();
+    private final Map<String, Session>    sessionsMap      = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
 
     public void add(String endpointId, Session session) {
         LOG.debug("Registering session with endpoint {}", session.getId(), endpointId);
@@ -44,12 +49,31 @@ public class WebSocketSessionRegistry {
         LOG.debug("Cancelling registration for session with endpoint {}", endpointId);
 
         sessionsMap.remove(endpointId);
+        for (Consumer<String> listener : removalListeners) {
+            try {
+                listener.accept(endpointId);
+            } catch (RuntimeException e) {
+                LOG.error("Error while notifying about removal of endpoint " + endpointId, e);
+            }
+        }
+    }
+
+    /**
+     * Adds listener that is notified with endpoint identifier when session of
+     * the endpoint is removed, so the state bound to the endpoint may be released.
+     */
+    public void addRemovalListener(Consumer<String> listener) {
+        removalListeners.add(listener);
     }
 
     public Optional<Session> get(String endpointId) {
         return Optional.ofNullable(sessionsMap.get(endpointId));
     }
 
+    public Set<String> getEndpointIds() {
+        return new HashSet<>(sessionsMap.keySet());
+    }
+
     public Set<Session> getSessions() {
         return sessionsMap.values().stream().collect(toSet());
     }
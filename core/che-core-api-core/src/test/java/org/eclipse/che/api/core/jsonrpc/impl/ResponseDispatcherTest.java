@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.jsonrpc.impl;
+
+import com.google.gson.JsonObject;
+
+import org.eclipse.che.api.core.ServerException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests for {@link ResponseDispatcher}
+ */
+public class ResponseDispatcherTest {
+    private static final String ENDPOINT_ID = "endpoint";
+
+    private ResponseDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+        dispatcher = new ResponseDispatcher(200, 2);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void shouldFailFutureOnErrorResponse() throws Exception {
+        final CompletableFuture<Object> future = dispatcher.getCompletableFuture(ENDPOINT_ID, "1", "method", Object.class);
+
+        dispatcher.dispatch(ENDPOINT_ID, errorResponse("1"));
+
+        assertFailedWith(future, ServerException.class);
+        assertEquals(dispatcher.getPendingCount(), 0);
+        assertEquals(dispatcher.getStatistics().get("method").getCount(), 1);
+    }
+
+    @Test
+    public void shouldIgnoreResponseToUnknownRequest() {
+        dispatcher.dispatch(ENDPOINT_ID, errorResponse("unknown"));
+
+        assertEquals(dispatcher.getPendingCount(), 0);
+    }
+
+    @Test
+    public void shouldFailFutureWhenResponseIsNotReceivedInTime() throws Exception {
+        final CompletableFuture<Object> future = dispatcher.getCompletableFuture(ENDPOINT_ID, "1", "method", Object.class);
+
+        assertFailedWith(future, TimeoutException.class);
+        assertEquals(dispatcher.getPendingCount(), 0);
+    }
+
+    @Test
+    public void shouldLimitRequestsInFlightPerEndpoint() throws Exception {
+        final CompletableFuture<Object> first = dispatcher.getCompletableFuture(ENDPOINT_ID, "1", "method", Object.class);
+        final CompletableFuture<Object> second = dispatcher.getCompletableFuture(ENDPOINT_ID, "2", "method", Object.class);
+        final CompletableFuture<Object> third = dispatcher.getCompletableFuture(ENDPOINT_ID, "3", "method", Object.class);
+        final CompletableFuture<Object> other = dispatcher.getCompletableFuture("other", "4", "method", Object.class);
+
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertFalse(other.isDone());
+        assertFailedWith(third, ServerException.class);
+
+        dispatcher.dispatch(ENDPOINT_ID, errorResponse("1"));
+
+        assertFalse(dispatcher.getCompletableFuture(ENDPOINT_ID, "5", "method", Object.class).isDone());
+    }
+
+    @Test
+    public void shouldFailPendingRequestsWhenEndpointIsDisposed() throws Exception {
+        final CompletableFuture<Object> future = dispatcher.getCompletableFuture(ENDPOINT_ID, "1", "method", Object.class);
+        final CompletableFuture<Object> other = dispatcher.getCompletableFuture("other", "1", "method", Object.class);
+
+        dispatcher.dispose(ENDPOINT_ID);
+
+        assertFailedWith(future, ServerException.class);
+        assertFalse(other.isDone());
+        assertEquals(dispatcher.getPendingCount(), 1);
+    }
+
+    private static JsonObject errorResponse(String id) {
+        final JsonObject error = new JsonObject();
+        error.addProperty("code", -32000);
+        error.addProperty("message", "error");
+        final JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.addProperty("id", id);
+        response.add("error", error);
+        return response;
+    }
+
+    private static void assertFailedWith(CompletableFuture<?> future, Class<? extends Throwable> exceptionClass) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Future is expected to be failed");
+        } catch (ExecutionException e) {
+            assertTrue(exceptionClass.isInstance(e.getCause()), "Unexpected exception " + e.getCause());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.jsonrpc.impl;
+
+import com.google.gson.JsonObject;
+
+import org.eclipse.che.api.core.websocket.WebSocketMessageTransmitter;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for {@link WebSocketToJsonRpcDispatcher}
+ */
+@Listeners(MockitoTestNGListener.class)
+public class WebSocketToJsonRpcDispatcherTest {
+    private static final String ENDPOINT_ID = "endpoint";
+
+    @Mock
+    private RequestDispatcher           requestDispatcher;
+    @Mock
+    private NotificationDispatcher      notificationDispatcher;
+    @Mock
+    private ResponseDispatcher          responseDispatcher;
+    @Mock
+    private RequestProcessor            requestProcessor;
+    @Mock
+    private WebSocketMessageTransmitter transmitter;
+
+    private WebSocketToJsonRpcDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+        doAnswer(invocation -> {
+            ((Runnable)invocation.getArguments()[1]).run();
+            return null;
+        }).when(requestProcessor).process(anyString(), any(Runnable.class));
+
+        dispatcher = new WebSocketToJsonRpcDispatcher(requestDispatcher,
+                                                      notificationDispatcher,
+                                                      responseDispatcher,
+                                                      requestProcessor,
+                                                      transmitter);
+    }
+
+    @Test
+    public void shouldDispatchRequest() {
+        dispatcher.receive(ENDPOINT_ID, "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"method\",\"params\":{\"a\":\"b\"}}");
+
+        final ArgumentCaptor<JsonObject> captor = ArgumentCaptor.forClass(JsonObject.class);
+        verify(requestDispatcher).dispatch(eq(ENDPOINT_ID), captor.capture());
+        assertEquals(captor.getValue().get("method").getAsString(), "method");
+        assertEquals(captor.getValue().get("params").getAsJsonObject().get("a").getAsString(), "b");
+    }
+
+    @Test
+    public void shouldDispatchNotification() {
+        dispatcher.receive(ENDPOINT_ID, "{\"jsonrpc\":\"2.0\",\"method\":\"method\"}");
+
+        verify(notificationDispatcher).dispatch(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(requestDispatcher, never()).dispatch(anyString(), any(JsonObject.class));
+    }
+
+    @Test
+    public void shouldDispatchResponseWithoutRequestProcessor() {
+        dispatcher.receive(ENDPOINT_ID, "{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":{\"a\":\"b\"}}");
+
+        verify(responseDispatcher).dispatch(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(requestProcessor, never()).process(anyString(), any(Runnable.class));
+    }
+
+    @Test
+    public void shouldDispatchResponsesOfBatchWithoutRequestProcessor() {
+        dispatcher.receive(ENDPOINT_ID, "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"a\"}," +
+                                        "{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"error\":{\"code\":1,\"message\":\"b\"}}]");
+
+        verify(responseDispatcher, times(2)).dispatch(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(requestProcessor, never()).process(anyString(), any(Runnable.class));
+        verify(transmitter, never()).transmit(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldDispatchBatchAndSendResponsesAsArray() {
+        final JsonObject response = new JsonObject();
+        response.addProperty("id", "1");
+        when(requestDispatcher.handle(eq(ENDPOINT_ID), any(JsonObject.class))).thenReturn(response);
+
+        dispatcher.receive(ENDPOINT_ID, "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"request\"}," +
+                                        "{\"jsonrpc\":\"2.0\",\"method\":\"notification\"}]");
+
+        verify(requestDispatcher).handle(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(notificationDispatcher).dispatch(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(transmitter).transmit(ENDPOINT_ID, "[{\"id\":\"1\"}]");
+    }
+
+    @Test
+    public void shouldAnswerImproperElementOfBatchWithError() {
+        final JsonObject response = new JsonObject();
+        response.addProperty("id", "1");
+        when(requestDispatcher.handle(eq(ENDPOINT_ID), any(JsonObject.class))).thenReturn(response);
+
+        dispatcher.receive(ENDPOINT_ID, "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"request\"}," +
+                                        "{\"jsonrpc\":\"2.0\",\"id\":\"2\"}]");
+
+        verify(requestDispatcher).handle(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(transmitter).transmit(ENDPOINT_ID, "[{\"id\":\"1\"}," +
+                                                  "{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}]");
+    }
+
+    @Test
+    public void shouldAnswerFailedRequestOfBatchWithError() {
+        final JsonObject response = new JsonObject();
+        response.addProperty("id", "1");
+        when(requestDispatcher.handle(eq(ENDPOINT_ID), any(JsonObject.class))).thenReturn(response)
+                                                                              .thenThrow(new IllegalStateException("failure"));
+
+        dispatcher.receive(ENDPOINT_ID, "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"request\"}," +
+                                        "{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"method\":\"request\"}," +
+                                        "1]");
+
+        verify(transmitter).transmit(ENDPOINT_ID, "[{\"id\":\"1\"}," +
+                                                  "{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"error\":{\"code\":-32603,\"message\":\"failure\"}}," +
+                                                  "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"}}]");
+    }
+
+    @Test
+    public void shouldNotSendResponseForBatchOfNotifications() {
+        dispatcher.receive(ENDPOINT_ID, "[{\"jsonrpc\":\"2.0\",\"method\":\"notification\"}]");
+
+        verify(notificationDispatcher).dispatch(eq(ENDPOINT_ID), any(JsonObject.class));
+        verify(transmitter, never()).transmit(anyString(), anyString());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldFailOnEmptyBatch() {
+        dispatcher.receive(ENDPOINT_ID, "[]");
+    }
+}
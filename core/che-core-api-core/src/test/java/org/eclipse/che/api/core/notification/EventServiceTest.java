@@ -10,13 +10,18 @@
  *******************************************************************************/
 package org.eclipse.che.api.core.notification;
 
+import org.eclipse.che.api.core.notification.AsyncEventSubscriber.OverflowPolicy;
 import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author andrew00x
@@ -29,6 +34,11 @@ public class EventServiceTest {
         bus = new EventService();
     }
 
+    @AfterMethod
+    public void tearDown() {
+        bus.stop();
+    }
+
     @Test
     public void testSimpleEvent() {
         final List<Object> events = new ArrayList<>();
@@ -218,4 +228,167 @@ public class EventServiceTest {
             super("message");
         }
     }
+
+    @Test
+    public void shouldDeliverEventsAsynchronouslyPreservingOrder() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(100);
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(event -> {
+            events.add(event.data);
+            latch.countDown();
+        }, Event.class);
+
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("event-" + i);
+            bus.publish(new Event("event-" + i));
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(events, expected);
+        Assert.assertEquals(async.getDeliveredCount(), 100);
+        Assert.assertEquals(async.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void shouldNotBlockPublisherWithSlowAsyncSubscriber() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribeAsync(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.countDown();
+        }, Event.class);
+
+        bus.publish(new Event());
+        release.countDown();
+
+        Assert.assertTrue(delivered.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldCoalescePendingEventsWithTheSameKey() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(event -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event.data);
+        }, Event.class, 1, 10, OverflowPolicy.COALESCE, event -> event.data.substring(0, 1));
+
+        bus.publish(new Event("a0"));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        bus.publish(new Event("a1"));
+        bus.publish(new Event("b1"));
+        bus.publish(new Event("a2"));
+        release.countDown();
+
+        waitUntilDelivered(async, 3);
+        Assert.assertEquals(events, asList("a0", "a2", "b1"));
+        Assert.assertEquals(async.getCoalescedCount(), 1);
+    }
+
+    @Test
+    public void shouldDropOldestPendingEventWhenQueueIsFull() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(event -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event.data);
+        }, Event.class, 1, 2, OverflowPolicy.DROP_OLDEST, null);
+
+        bus.publish(new Event("e0"));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        bus.publish(new Event("e1"));
+        bus.publish(new Event("e2"));
+        bus.publish(new Event("e3"));
+        release.countDown();
+
+        waitUntilDelivered(async, 3);
+        Assert.assertEquals(events, asList("e0", "e2", "e3"));
+        Assert.assertEquals(async.getDroppedCount(), 1);
+    }
+
+    @Test(timeOut = 10_000)
+    public void shouldNotBlockSubscriberWhichPublishesToItsOwnFullQueue() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(event -> {
+            if (event.data.equals("e0")) {
+                bus.publish(new Event("e1"));
+                bus.publish(new Event("e2"));
+                bus.publish(new Event("e3"));
+            }
+            events.add(event.data);
+        }, Event.class, 1, 2, OverflowPolicy.BLOCK, null);
+
+        bus.publish(new Event("e0"));
+
+        waitUntilDelivered(async, 3);
+        Assert.assertEquals(events, asList("e0", "e2", "e3"));
+        Assert.assertEquals(async.getDroppedCount(), 1);
+    }
+
+    @Test
+    public void shouldUnsubscribeAsyncSubscriber() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final EventSubscriber<Event> subscriber = event -> events.add(event.data);
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(subscriber, Event.class);
+        bus.publish(new Event());
+        waitUntilDelivered(async, 1);
+
+        bus.unsubscribe(subscriber, Event.class);
+        bus.publish(new Event());
+
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertTrue(bus.getAsyncSubscribers().isEmpty());
+    }
+
+    @Test
+    public void shouldKeepDeliveringEventsAfterAsyncSubscriberFailsWithError() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncEventSubscriber<Event> async = bus.subscribeAsync(event -> {
+            if (event.data.equals("e0")) {
+                throw new AssertionError("test error");
+            }
+            events.add(event.data);
+        }, Event.class);
+
+        bus.publish(new Event("e0"));
+        bus.publish(new Event("e1"));
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(events, asList("e1"));
+        Assert.assertEquals(async.getQueueDepth(), 0);
+    }
+
+    private static void waitUntilDelivered(AsyncEventSubscriber<?> async, long count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (async.getDeliveredCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(async.getDeliveredCount(), count);
+    }
+
+    private static List<String> asList(String... values) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
 }
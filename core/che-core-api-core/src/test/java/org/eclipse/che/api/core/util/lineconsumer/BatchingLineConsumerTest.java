@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util.lineconsumer;
+
+import org.eclipse.che.api.core.util.LineConsumer;
+import org.eclipse.che.api.core.util.ListLineConsumer;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link BatchingLineConsumer}
+ */
+@Listeners(value = {MockitoTestNGListener.class})
+public class BatchingLineConsumerTest {
+    private static final long LONG_DELAY_MS = 60_000;
+
+    @Mock
+    private LineConsumer delegate;
+
+    @Test
+    public void shouldPassBatchWhenItsSizeIsReached() throws Exception {
+        final ListLineConsumer lines = new ListLineConsumer();
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(lines, 10, LONG_DELAY_MS, 1000);
+
+        consumer.writeLine("12345");
+        assertTrue(lines.getLines().isEmpty());
+        consumer.writeLine("67890");
+
+        assertEquals(lines.getLines(), Arrays.asList("12345\n67890"));
+    }
+
+    @Test
+    public void shouldPassBatchAfterDelay() throws Exception {
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(delegate, 1024, 50, 1000);
+
+        consumer.writeLine("line 1");
+        consumer.writeLine("line 2");
+
+        verify(delegate, timeout(5000)).writeLine("line 1\nline 2");
+    }
+
+    @Test
+    public void shouldPassLineThatEndsWithCarriageReturnAlone() throws Exception {
+        final ListLineConsumer lines = new ListLineConsumer();
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(lines, 1024, LONG_DELAY_MS, 1000);
+
+        consumer.writeLine("line 1");
+        consumer.writeLine("50%\r");
+        consumer.writeLine("line 2");
+        consumer.close();
+
+        assertEquals(lines.getLines(), Arrays.asList("line 1", "50%\r", "line 2"));
+    }
+
+    @Test
+    public void shouldSkipFullBatchesWhenRateIsExceeded() throws Exception {
+        final ListLineConsumer lines = new ListLineConsumer();
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(lines, 3, LONG_DELAY_MS, 1);
+
+        consumer.writeLine("abc");
+        consumer.writeLine("def");
+        consumer.writeLine("ghi");
+        consumer.writeLine("j");
+        consumer.close();
+
+        assertEquals(lines.getLines(), Arrays.asList("abc", "[2 lines skipped]\nj"));
+    }
+
+    @Test
+    public void shouldPassBatchesWithMaxRateWhenRateIsExceeded() throws Exception {
+        final ListLineConsumer lines = new ListLineConsumer();
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(lines, 3, LONG_DELAY_MS, 10);
+
+        // about 200 full batches per second for half a second
+        for (int i = 0; i < 100; i++) {
+            consumer.writeLine("abc");
+            Thread.sleep(5);
+        }
+        consumer.close();
+
+        // 10 batches of the first second are passed at once, the next ones are passed with the max rate
+        final long passed = lines.getLines().stream().filter(line -> line.endsWith("abc")).count();
+        assertTrue(passed > 10 && passed < 100, "passed " + passed + " of 100 batches");
+    }
+
+    @Test
+    public void shouldPassBatchAndCloseDelegateOnClose() throws Exception {
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(delegate, 1024, LONG_DELAY_MS, 1000);
+
+        consumer.writeLine("line");
+        consumer.close();
+
+        verify(delegate).writeLine("line");
+        verify(delegate).close();
+    }
+
+    @Test
+    public void shouldIgnoreLinesAfterClose() throws Exception {
+        final BatchingLineConsumer consumer = new BatchingLineConsumer(delegate, 1024, 50, 1000);
+
+        consumer.close();
+        consumer.writeLine("line");
+
+        Thread.sleep(200);
+        verify(delegate, never()).writeLine(anyString());
+    }
+}
@@ -17,19 +17,30 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import javax.websocket.CloseReason;
 import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static java.util.Collections.emptySet;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 
 /**
  * Test for {@link BasicWebSocketMessageTransmitter}
@@ -51,23 +62,24 @@ public class BasicWebSocketMessageTransmitterTest {
     @Mock
     private Session              session;
     @Mock
-    private RemoteEndpoint.Basic remote;
+    private RemoteEndpoint.Async remote;
 
     @BeforeMethod
     public void setUp() throws Exception {
-        when(session.getBasicRemote()).thenReturn(remote);
+        when(session.getAsyncRemote()).thenReturn(remote);
         when(session.isOpen()).thenReturn(true);
+        completeSendingImmediately(remote);
 
         when(registry.get(ENDPOINT_ID)).thenReturn(Optional.of(session));
-        when(registry.getSessions()).thenReturn(emptySet());
+        when(registry.getEndpointIds()).thenReturn(emptySet());
     }
 
     @Test
     public void shouldSendDirectMessageIfSessionIsOpenAndEndpointIsSet() throws IOException {
         transmitter.transmit(ENDPOINT_ID, MESSAGE);
 
-        verify(session).getBasicRemote();
-        verify(remote).sendText(MESSAGE);
+        verify(session).getAsyncRemote();
+        verify(remote).sendText(eq(MESSAGE), any(SendHandler.class));
         verify(reSender, never()).add(eq(ENDPOINT_ID), anyString());
     }
 
@@ -75,11 +87,108 @@ public class BasicWebSocketMessageTransmitterTest {
     public void shouldSendBroadcastingMessageIfSessionIsOpen() throws IOException {
         transmitter.transmit(MESSAGE);
 
-        verify(session, never()).getBasicRemote();
-        verify(remote, never()).sendText(MESSAGE);
+        verify(session, never()).getAsyncRemote();
+        verify(remote, never()).sendText(eq(MESSAGE), any(SendHandler.class));
         verify(reSender, never()).add(any(), anyString());
 
-        verify(registry).getSessions();
+        verify(registry).getEndpointIds();
+    }
+
+    @Test
+    public void shouldQueueMessagesWhileThePreviousOneIsNotSent() throws IOException {
+        final List<SendHandler> handlers = new ArrayList<>();
+        doAnswer(invocation -> {
+            handlers.add((SendHandler)invocation.getArguments()[1]);
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+
+        transmitter.transmit(ENDPOINT_ID, "first");
+        transmitter.transmit(ENDPOINT_ID, "second");
+
+        verify(remote).sendText(eq("first"), any(SendHandler.class));
+        verify(remote, never()).sendText(eq("second"), any(SendHandler.class));
+        assertEquals(transmitter.getPendingMessages(session), 1);
+
+        handlers.get(0).onResult(new SendResult());
+
+        verify(remote).sendText(eq("second"), any(SendHandler.class));
+        assertEquals(transmitter.getPendingMessages(session), 0);
+    }
+
+    @Test
+    public void shouldCloseSlowSession() throws IOException {
+        doAnswer(invocation -> null).when(remote).sendText(anyString(), any(SendHandler.class));
+
+        for (int i = 0; i <= BasicWebSocketMessageTransmitter.MAX_PENDING_MESSAGES + 1; i++) {
+            transmitter.transmit(ENDPOINT_ID, MESSAGE);
+        }
+
+        verify(session).close(any(CloseReason.class));
+        assertEquals(transmitter.getPendingMessages(session), 0);
+        verify(reSender, times(BasicWebSocketMessageTransmitter.MAX_PENDING_MESSAGES + 1)).add(ENDPOINT_ID, MESSAGE);
+    }
+
+    @Test
+    public void shouldAddQueuedMessagesToPendingIfSessionIsClosed() throws IOException {
+        final List<SendHandler> handlers = new ArrayList<>();
+        doAnswer(invocation -> {
+            handlers.add((SendHandler)invocation.getArguments()[1]);
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+
+        transmitter.transmit(ENDPOINT_ID, "first");
+        transmitter.transmit(ENDPOINT_ID, "second");
+        transmitter.transmit(ENDPOINT_ID, "third");
+        when(session.isOpen()).thenReturn(false);
+        handlers.get(0).onResult(new SendResult());
+
+        verify(remote, never()).sendText(eq("second"), any(SendHandler.class));
+        verify(reSender).add(ENDPOINT_ID, "second");
+        verify(reSender).add(ENDPOINT_ID, "third");
+        verify(reSender, never()).add(ENDPOINT_ID, "first");
+        assertEquals(transmitter.getPendingMessages(session), 0);
+    }
+
+    @Test
+    public void shouldAddMessageToPendingIfSendingFailed() throws IOException {
+        doAnswer(invocation -> {
+            ((SendHandler)invocation.getArguments()[1]).onResult(new SendResult(new IOException("broken pipe")));
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+
+        transmitter.transmit(ENDPOINT_ID, MESSAGE);
+
+        verify(reSender).add(ENDPOINT_ID, MESSAGE);
+    }
+
+    @Test
+    public void shouldBroadcastToManySessions() throws IOException {
+        final Set<String> endpointIds = new HashSet<>();
+        final Set<Session> sessions = new HashSet<>();
+        final Set<RemoteEndpoint.Async> remotes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            final Session session = mock(Session.class);
+            final RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+            when(session.isOpen()).thenReturn(true);
+            when(session.getAsyncRemote()).thenReturn(remote);
+            completeSendingImmediately(remote);
+            when(registry.get(ENDPOINT_ID + i)).thenReturn(Optional.of(session));
+            endpointIds.add(ENDPOINT_ID + i);
+            sessions.add(session);
+            remotes.add(remote);
+        }
+        when(registry.getEndpointIds()).thenReturn(endpointIds);
+
+        for (int i = 0; i < 10; i++) {
+            transmitter.transmit(MESSAGE);
+        }
+
+        for (RemoteEndpoint.Async remote : remotes) {
+            verify(remote, times(10)).sendText(eq(MESSAGE), any(SendHandler.class));
+        }
+        for (Session session : sessions) {
+            assertEquals(transmitter.getPendingMessages(session), 0);
+        }
     }
 
     @Test
@@ -88,8 +197,15 @@ public class BasicWebSocketMessageTransmitterTest {
 
         transmitter.transmit(ENDPOINT_ID, MESSAGE);
 
-        verify(session, never()).getBasicRemote();
-        verify(remote, never()).sendText(MESSAGE);
+        verify(session, never()).getAsyncRemote();
+        verify(remote, never()).sendText(eq(MESSAGE), any(SendHandler.class));
         verify(reSender).add(ENDPOINT_ID, MESSAGE);
     }
+
+    private static void completeSendingImmediately(RemoteEndpoint.Async remote) {
+        doAnswer(invocation -> {
+            ((SendHandler)invocation.getArguments()[1]).onResult(new SendResult());
+            return null;
+        }).when(remote).sendText(anyString(), any(SendHandler.class));
+    }
 }
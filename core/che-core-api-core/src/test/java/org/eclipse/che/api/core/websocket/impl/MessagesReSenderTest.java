@@ -17,18 +17,24 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
-import javax.websocket.RemoteEndpoint;
 import javax.websocket.Session;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 
 /**
  * Tests for {@link MessagesReSender}
@@ -46,20 +52,19 @@ public class MessagesReSenderTest {
     private MessagesReSender         reSender;
 
     @Mock
-    private Session               session;
+    private Session                          session;
     @Mock
-    private RemoteEndpoint.Async  endpoint;
+    private BasicWebSocketMessageTransmitter transmitter;
 
     @BeforeMethod
     public void beforeMethod() {
         when(sessionRegistry.get(anyString())).thenReturn(Optional.of(session));
-        when(session.getAsyncRemote()).thenReturn(endpoint);
         when(session.isOpen()).thenReturn(true);
     }
 
     @BeforeMethod
     public void before() {
-        reSender = new MessagesReSender(sessionRegistry);
+        reSender = new MessagesReSender(sessionRegistry, () -> transmitter);
     }
 
     @Test
@@ -71,8 +76,7 @@ public class MessagesReSenderTest {
         reSender.resend(ENDPOINT_ID);
 
         verify(sessionRegistry).get(ENDPOINT_ID);
-        verify(session, never()).getAsyncRemote();
-        verify(endpoint, never()).sendText(MESSAGE);
+        verify(transmitter, never()).enqueue(ENDPOINT_ID, session, MESSAGE);
     }
 
     @Test
@@ -82,14 +86,12 @@ public class MessagesReSenderTest {
         when(session.isOpen()).thenReturn(false);
         reSender.resend(ENDPOINT_ID);
 
-        verify(session, never()).getAsyncRemote();
-        verify(endpoint, never()).sendText(MESSAGE);
+        verify(transmitter, never()).enqueue(ENDPOINT_ID, session, MESSAGE);
 
         when(session.isOpen()).thenReturn(true);
         reSender.resend(ENDPOINT_ID);
 
-        verify(session).getAsyncRemote();
-        verify(endpoint).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
     }
 
     @Test
@@ -99,8 +101,7 @@ public class MessagesReSenderTest {
         reSender.resend(ENDPOINT_ID);
 
         verify(sessionRegistry).get(ENDPOINT_ID);
-        verify(session).getAsyncRemote();
-        verify(endpoint).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
     }
 
     @Test
@@ -113,8 +114,8 @@ public class MessagesReSenderTest {
 
         verify(sessionRegistry).get(ENDPOINT_ID);
         verify(sessionRegistry).get("1");
-        verify(session, times(2)).getAsyncRemote();
-        verify(endpoint, times(2)).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
+        verify(transmitter).enqueue("1", session, MESSAGE);
     }
 
     @Test
@@ -123,13 +124,11 @@ public class MessagesReSenderTest {
 
         reSender.resend(ENDPOINT_ID);
         verify(sessionRegistry).get(ENDPOINT_ID);
-        verify(session).getAsyncRemote();
-        verify(endpoint).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
 
         reSender.resend(ENDPOINT_ID);
         verify(sessionRegistry).get(ENDPOINT_ID);
-        verify(session).getAsyncRemote();
-        verify(endpoint).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
     }
 
     @Test
@@ -142,15 +141,78 @@ public class MessagesReSenderTest {
 
         verify(sessionRegistry).get(ENDPOINT_ID);
         verify(sessionRegistry).get("1");
-        verify(session, times(2)).getAsyncRemote();
-        verify(endpoint, times(2)).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
+        verify(transmitter).enqueue("1", session, MESSAGE);
 
         reSender.resend(ENDPOINT_ID);
         reSender.resend("1");
 
         verify(sessionRegistry).get(ENDPOINT_ID);
         verify(sessionRegistry).get("1");
-        verify(session, times(2)).getAsyncRemote();
-        verify(endpoint, times(2)).sendText(MESSAGE);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
+        verify(transmitter).enqueue("1", session, MESSAGE);
+    }
+
+    @Test
+    public void shouldKeepOnlyLatestOfTheSameMessages() {
+        reSender.add(ENDPOINT_ID, MESSAGE);
+        reSender.add(ENDPOINT_ID, MESSAGE);
+
+        assertEquals(reSender.getPendingCount(), 1);
+
+        reSender.resend(ENDPOINT_ID);
+
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE);
+        assertEquals(reSender.getResentCount(), 1);
+        assertEquals(reSender.getPendingCount(), 0);
+    }
+
+    @Test
+    public void shouldDropOldestMessagesWhenEndpointLimitIsReached() {
+        for (int i = 0; i < MessagesReSender.MAX_MESSAGES + 10; i++) {
+            reSender.add(ENDPOINT_ID, MESSAGE + i);
+        }
+
+        assertEquals(reSender.getPendingCount(), MessagesReSender.MAX_MESSAGES);
+        assertEquals(reSender.getDroppedCount(), 10);
+
+        reSender.resend(ENDPOINT_ID);
+
+        verify(transmitter, never()).enqueue(ENDPOINT_ID, session, MESSAGE + 9);
+        verify(transmitter).enqueue(ENDPOINT_ID, session, MESSAGE + 10);
+        verify(transmitter, times(MessagesReSender.MAX_MESSAGES)).enqueue(eq(ENDPOINT_ID), eq(session), anyString());
+    }
+
+    @Test
+    public void shouldDropMessagesWhenTotalLimitIsReached() {
+        for (int i = 0; i < MessagesReSender.MAX_TOTAL_MESSAGES / MessagesReSender.MAX_MESSAGES + 1; i++) {
+            for (int j = 0; j < MessagesReSender.MAX_MESSAGES; j++) {
+                reSender.add("endpoint" + i, MESSAGE + j);
+            }
+        }
+
+        assertEquals(reSender.getPendingCount(), MessagesReSender.MAX_TOTAL_MESSAGES);
+        assertEquals(reSender.getDroppedCount(), MessagesReSender.MAX_MESSAGES);
+    }
+
+    @Test
+    public void shouldNotExceedTotalLimitWhenMessagesAreAddedConcurrently() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final String endpointId = "endpoint" + i;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < MessagesReSender.MAX_TOTAL_MESSAGES / 4; j++) {
+                    reSender.add(endpointId + '/' + j / MessagesReSender.MAX_MESSAGES, MESSAGE + j);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(reSender.getPendingCount(), MessagesReSender.MAX_TOTAL_MESSAGES);
+        assertEquals(reSender.getDroppedCount(), MessagesReSender.MAX_TOTAL_MESSAGES);
     }
 }
@@ -18,6 +18,11 @@ import org.testng.annotations.Test;
 
 import javax.websocket.Session;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.Mockito.mock;
@@ -87,4 +92,22 @@ public class WebSocketSessionRegistryTest {
         assertEquals(2, registry.getSessions().size());
     }
 
+    @Test
+    public void shouldGetEndpointIds() {
+        registry.add("0", session);
+        registry.add("1", mock(Session.class));
+
+        assertEquals(registry.getEndpointIds(), new HashSet<>(Arrays.asList("0", "1")));
+    }
+
+    @Test
+    public void shouldNotifyRemovalListeners() {
+        final List<String> removed = new ArrayList<>();
+        registry.addRemovalListener(removed::add);
+        registry.add("0", session);
+
+        registry.remove("0");
+
+        assertEquals(removed, Collections.singletonList("0"));
+    }
 }
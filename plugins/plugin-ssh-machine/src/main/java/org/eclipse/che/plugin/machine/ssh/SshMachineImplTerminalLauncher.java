@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.che.plugin.machine.ssh;
 
+import org.eclipse.che.api.agent.server.launcher.AgentReadinessMonitor;
 import org.eclipse.che.api.agent.server.terminal.WebsocketTerminalFilesPathProvider;
 import org.eclipse.che.api.agent.shared.model.Agent;
 import org.eclipse.che.api.core.ConflictException;
@@ -55,8 +56,9 @@ public class SshMachineImplTerminalLauncher extends TerminalAgentLauncherImpl {
                                           @Named("che.agent.dev.ping_delay_ms") long agentPingDelayMs,
                                           @Named("machine.ssh.server.terminal.location") String terminalLocation,
                                           @Named("machine.terminal_agent.run_command") String terminalRunCommand,
-                                          WebsocketTerminalFilesPathProvider terminalPathProvider) {
-        super(agentMaxStartTimeMs, agentPingDelayMs, terminalRunCommand);
+                                          WebsocketTerminalFilesPathProvider terminalPathProvider,
+                                          AgentReadinessMonitor readinessMonitor) {
+        super(agentMaxStartTimeMs, agentPingDelayMs, terminalRunCommand, readinessMonitor);
         this.archivePathProvider = terminalPathProvider;
         this.terminalLocation = terminalLocation;
     }
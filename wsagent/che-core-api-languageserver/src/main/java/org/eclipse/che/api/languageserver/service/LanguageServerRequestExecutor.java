@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.languageserver.service;
+
+import io.typefox.lsapi.services.LanguageServer;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.eclipse.che.api.languageserver.exception.LanguageServerException;
+import org.eclipse.che.api.languageserver.registry.LanguageServerDescription;
+import org.eclipse.che.api.languageserver.registry.ServerInitializer;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Waits for responses of the language servers within the deadline of the request method, the request is cancelled
+ * when the deadline is exceeded so the request thread is not blocked by a slow language server.
+ * <p>
+ * Requests that are sent while the user is typing ({@link #INTERACTIVE_METHODS}) are superseded by the next request
+ * of the same method for the same document: the previous request is cancelled and its caller gets {@code null}
+ * immediately instead of the stale result. Cancelling the future of the JSON based language server sends
+ * {@code $/cancelRequest} to the server. Request cancelled otherwise, e.g. by the language server, fails.
+ * <p>
+ * Latency of the requests is collected per language and method, see {@link #getStatistics()}.
+ *
+ * @since 5.0
+ */
+@Singleton
+public class LanguageServerRequestExecutor {
+    private static final Logger LOG = getLogger(LanguageServerRequestExecutor.class);
+
+    static final Set<String> INTERACTIVE_METHODS = ImmutableSet.of("textDocument/completion",
+                                                                   "textDocument/hover",
+                                                                   "textDocument/signatureHelp");
+
+    private final ServerInitializer                 initializer;
+    private final long                              requestTimeoutMs;
+    private final long                              interactiveRequestTimeoutMs;
+    private final Map<String, CompletableFuture<?>> pending;
+    private final Map<String, RequestStatistics>    statistics;
+
+    @Inject
+    public LanguageServerRequestExecutor(ServerInitializer initializer,
+                                         @Named("languageserver.request.timeout_ms") long requestTimeoutMs,
+                                         @Named("languageserver.interactive_request.timeout_ms") long interactiveRequestTimeoutMs) {
+        this.initializer = initializer;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.interactiveRequestTimeoutMs = interactiveRequestTimeoutMs;
+        this.pending = new ConcurrentHashMap<>();
+        this.statistics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sends the request and waits for its result.
+     *
+     * @param server
+     *         language server which the request is sent to
+     * @param method
+     *         method of the request
+     * @param documentUri
+     *         document the request is sent for
+     * @param request
+     *         sends the request to the server
+     * @return result of the request or {@code null} if the request was superseded by the later request
+     * @throws LanguageServerException
+     *         when the request failed or was cancelled not because of the later request,
+     *         or the language server didn't respond within the deadline
+     */
+    public <T> T execute(LanguageServer server,
+                         String method,
+                         String documentUri,
+                         Supplier<CompletableFuture<T>> request) throws LanguageServerException {
+        final boolean interactive = INTERACTIVE_METHODS.contains(method);
+        final long timeoutMs = interactive ? interactiveRequestTimeoutMs : requestTimeoutMs;
+        final RequestStatistics requestStatistics = statistics.computeIfAbsent(getLanguageId(server) + ' ' + method,
+                                                                              key -> new RequestStatistics());
+        final String key = method + ' ' + documentUri;
+        final long start = System.nanoTime();
+
+        final CompletableFuture<T> future = request.get();
+        if (interactive) {
+            final CompletableFuture<?> superseded = pending.put(key, future);
+            if (superseded != null) {
+                superseded.cancel(true);
+            }
+        }
+        try {
+            final T result = future.get(timeoutMs, MILLISECONDS);
+            requestStatistics.completed(System.nanoTime() - start);
+            return result;
+        } catch (CancellationException e) {
+            requestStatistics.cancelled();
+            // the request is removed from the pending ones before its finally block only when it is superseded
+            if (interactive && pending.get(key) != future) {
+                return null;
+            }
+            throw new LanguageServerException("Request " + method + " was cancelled", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            requestStatistics.timedOut();
+            LOG.warn("Language server didn't respond to {} for {} in {} ms", method, documentUri, timeoutMs);
+            throw new LanguageServerException("Language server didn't respond to " + method + " in " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            requestStatistics.failed();
+            throw new LanguageServerException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LanguageServerException("Request " + method + " was interrupted", e);
+        } finally {
+            if (interactive) {
+                pending.remove(key, future);
+            }
+        }
+    }
+
+    /** Returns statistics of the requests by language identifier and request method separated by space. */
+    public Map<String, RequestStatistics> getStatistics() {
+        return new HashMap<>(statistics);
+    }
+
+    /** Returns {@code true} if the interactive request of the given method for the document is awaited. */
+    boolean isPending(String method, String documentUri) {
+        return pending.containsKey(method + ' ' + documentUri);
+    }
+
+    private String getLanguageId(LanguageServer server) {
+        final LanguageServerDescription description = initializer.getInitializedServers().get(server);
+        return description == null ? "unknown" : description.getLanguageDescription().getLanguageId();
+    }
+
+    /** Number of the requests by outcome, total and max duration of the completed requests. */
+    public static class RequestStatistics {
+        private long completed;
+        private long failed;
+        private long timedOut;
+        private long cancelled;
+        private long totalTimeNanos;
+        private long maxTimeNanos;
+
+        synchronized void completed(long timeNanos) {
+            completed++;
+            totalTimeNanos += timeNanos;
+            maxTimeNanos = Math.max(maxTimeNanos, timeNanos);
+        }
+
+        synchronized void failed() {
+            failed++;
+        }
+
+        synchronized void timedOut() {
+            timedOut++;
+        }
+
+        synchronized void cancelled() {
+            cancelled++;
+        }
+
+        public synchronized long getCompleted() {
+            return completed;
+        }
+
+        public synchronized long getFailed() {
+            return failed;
+        }
+
+        public synchronized long getTimedOut() {
+            return timedOut;
+        }
+
+        public synchronized long getCancelled() {
+            return cancelled;
+        }
+
+        /** Returns average duration of the completed requests in milliseconds. */
+        public synchronized long getAverageTimeMs() {
+            return completed == 0 ? 0 : NANOSECONDS.toMillis(totalTimeNanos / completed);
+        }
+
+        /** Returns max duration of the completed requests in milliseconds. */
+        public synchronized long getMaxTimeMs() {
+            return NANOSECONDS.toMillis(maxTimeNanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "RequestStatistics{" +
+                   "completed=" + completed +
+                   ", failed=" + failed +
+                   ", timedOut=" + timedOut +
+                   ", cancelled=" + cancelled +
+                   ", averageTimeMs=" + getAverageTimeMs() +
+                   ", maxTimeMs=" + getMaxTimeMs() +
+                   '}';
+        }
+    }
+}
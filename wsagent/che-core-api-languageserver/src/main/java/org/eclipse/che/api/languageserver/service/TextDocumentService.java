@@ -44,13 +44,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 
 import static java.util.Collections.emptyList;
 
 /**
  * REST API for the textDocument/* services defined in https://github.com/Microsoft/vscode-languageserver-protocol
- * Dispatches onto the {@link LanguageServerRegistryImpl}.
+ * Dispatches onto the {@link LanguageServerRegistryImpl}, responses of the language servers are awaited by
+ * {@link LanguageServerRequestExecutor}.
  */
 @Singleton
 @Path("languageserver/textDocument")
@@ -58,11 +58,13 @@ public class TextDocumentService {
 
     private static final String FILE_PROJECTS = "file:///projects";
 
-    private final LanguageServerRegistry languageServerRegistry;
+    private final LanguageServerRegistry        languageServerRegistry;
+    private final LanguageServerRequestExecutor requestExecutor;
 
     @Inject
-    public TextDocumentService(LanguageServerRegistry languageServerRegistry) {
+    public TextDocumentService(LanguageServerRegistry languageServerRegistry, LanguageServerRequestExecutor requestExecutor) {
         this.languageServerRegistry = languageServerRegistry;
+        this.requestExecutor = requestExecutor;
     }
 
     static String prefixURI(String relativePath) {
@@ -80,49 +82,48 @@ public class TextDocumentService {
     @Path("completion")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public CompletionList completion(TextDocumentPositionParamsDTO textDocumentPositionParams) throws InterruptedException,
-                                                                                                      ExecutionException,
-                                                                                                      LanguageServerException {
+    public CompletionList completion(TextDocumentPositionParamsDTO textDocumentPositionParams) throws LanguageServerException {
         textDocumentPositionParams.getTextDocument().setUri(prefixURI(textDocumentPositionParams.getTextDocument().getUri()));
         textDocumentPositionParams.setUri(prefixURI(textDocumentPositionParams.getUri()));
         LanguageServer server = getServer(textDocumentPositionParams.getTextDocument().getUri());
         if (server == null) {
             return null;
         }
-        return server.getTextDocumentService()
-                     .completion(textDocumentPositionParams).get();
+        return requestExecutor.execute(server, "textDocument/completion", textDocumentPositionParams.getTextDocument().getUri(),
+                                       () -> server.getTextDocumentService().completion(textDocumentPositionParams));
     }
 
     @POST
     @Path("documentSymbol")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public List<? extends SymbolInformation> documentSymbol(DocumentSymbolParamsDTO documentSymbolParams) throws ExecutionException,
-                                                                                                                 InterruptedException,
-                                                                                                                 LanguageServerException {
+    public List<? extends SymbolInformation> documentSymbol(DocumentSymbolParamsDTO documentSymbolParams) throws LanguageServerException {
         documentSymbolParams.getTextDocument().setUri(prefixURI(documentSymbolParams.getTextDocument().getUri()));
         LanguageServer server = getServer(documentSymbolParams.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
 
-        return server.getTextDocumentService().documentSymbol(documentSymbolParams).get();
+        return requestExecutor.execute(server, "textDocument/documentSymbol", documentSymbolParams.getTextDocument().getUri(),
+                                       () -> server.getTextDocumentService().documentSymbol(documentSymbolParams));
     }
 
     @POST
     @Path("references")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public List<? extends Location> references(ReferenceParamsDTO params) throws ExecutionException,
-                                                                                 InterruptedException,
-                                                                                 LanguageServerException {
+    public List<? extends Location> references(ReferenceParamsDTO params) throws LanguageServerException {
         params.getTextDocument().setUri(prefixURI(params.getTextDocument().getUri()));
         LanguageServer server = getServer(params.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
 
-        List<? extends Location> locations = server.getTextDocumentService().references(params).get();
+        List<? extends Location> locations = requestExecutor.execute(server, "textDocument/references", params.getTextDocument().getUri(),
+                                                                     () -> server.getTextDocumentService().references(params));
+        if (locations == null) {
+            return emptyList();
+        }
         locations.forEach(o -> {
             if (o instanceof LocationImpl) {
                 ((LocationImpl)o).setUri(removePrefixUri(o.getUri()));
@@ -136,16 +137,18 @@ public class TextDocumentService {
     @Path("definition")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public List<? extends Location> definition(TextDocumentPositionParamsDTO params) throws ExecutionException,
-                                                                                            InterruptedException,
-                                                                                            LanguageServerException {
+    public List<? extends Location> definition(TextDocumentPositionParamsDTO params) throws LanguageServerException {
         params.getTextDocument().setUri(prefixURI(params.getTextDocument().getUri()));
         LanguageServer server = getServer(params.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
 
-        List<? extends Location> locations = server.getTextDocumentService().definition(params).get();
+        List<? extends Location> locations = requestExecutor.execute(server, "textDocument/definition", params.getTextDocument().getUri(),
+                                                                     () -> server.getTextDocumentService().definition(params));
+        if (locations == null) {
+            return emptyList();
+        }
         locations.forEach(o -> {
             if (o instanceof LocationImpl) {
                 ((LocationImpl)o).setUri(removePrefixUri(o.getUri()));
@@ -159,12 +162,11 @@ public class TextDocumentService {
     @Path("completionItem/resolve")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public CompletionItem resolveCompletionItem(CompletionItemDTO unresolved) throws InterruptedException,
-                                                                                     ExecutionException,
-                                                                                     LanguageServerException {
+    public CompletionItem resolveCompletionItem(CompletionItemDTO unresolved) throws LanguageServerException {
         LanguageServer server = getServer(prefixURI(unresolved.getTextDocumentIdentifier().getUri()));
         if (server != null) {
-            return server.getTextDocumentService().resolveCompletionItem(unresolved).get();
+            return requestExecutor.execute(server, "completionItem/resolve", unresolved.getTextDocumentIdentifier().getUri(),
+                                           () -> server.getTextDocumentService().resolveCompletionItem(unresolved));
         } else {
             return unresolved;
         }
@@ -175,12 +177,13 @@ public class TextDocumentService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Hover hover(TextDocumentPositionParamsDTO positionParams)
-            throws LanguageServerException, ExecutionException, InterruptedException {
+            throws LanguageServerException {
         positionParams.getTextDocument().setUri(prefixURI(positionParams.getTextDocument().getUri()));
         positionParams.setUri(prefixURI(positionParams.getUri()));
         LanguageServer server = getServer(positionParams.getTextDocument().getUri());
         if (server != null) {
-            return server.getTextDocumentService().hover(positionParams).get();
+            return requestExecutor.execute(server, "textDocument/hover", positionParams.getTextDocument().getUri(),
+                                           () -> server.getTextDocumentService().hover(positionParams));
         } else {
             return null;
         }
@@ -191,12 +194,13 @@ public class TextDocumentService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public SignatureHelp signatureHelp(TextDocumentPositionParamsDTO positionParams)
-            throws LanguageServerException, ExecutionException, InterruptedException {
+            throws LanguageServerException {
         positionParams.getTextDocument().setUri(prefixURI(positionParams.getTextDocument().getUri()));
         positionParams.setUri(prefixURI(positionParams.getUri()));
         LanguageServer server = getServer(positionParams.getTextDocument().getUri());
         if (server != null) {
-            return server.getTextDocumentService().signatureHelp(positionParams).get();
+            return requestExecutor.execute(server, "textDocument/signatureHelp", positionParams.getTextDocument().getUri(),
+                                           () -> server.getTextDocumentService().signatureHelp(positionParams));
         } else {
             return null;
         }
@@ -207,13 +211,14 @@ public class TextDocumentService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public List<? extends TextEdit> formatting(DocumentFormattingParamsDTO params)
-            throws InterruptedException, ExecutionException, LanguageServerException {
+            throws LanguageServerException {
         params.getTextDocument().setUri(prefixURI(params.getTextDocument().getUri()));
         LanguageServer server = getServer(params.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
-        return server.getTextDocumentService().formatting(params).get();
+        return requestExecutor.execute(server, "textDocument/formatting", params.getTextDocument().getUri(),
+                                       () -> server.getTextDocumentService().formatting(params));
 
     }
 
@@ -222,13 +227,14 @@ public class TextDocumentService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public List<? extends TextEdit> rangeFormatting(DocumentRangeFormattingParamsDTO params)
-            throws InterruptedException, ExecutionException, LanguageServerException {
+            throws LanguageServerException {
         params.getTextDocument().setUri(prefixURI(params.getTextDocument().getUri()));
         LanguageServer server = getServer(params.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
-        return server.getTextDocumentService().rangeFormatting(params).get();
+        return requestExecutor.execute(server, "textDocument/rangeFormatting", params.getTextDocument().getUri(),
+                                       () -> server.getTextDocumentService().rangeFormatting(params));
 
     }
 
@@ -237,13 +243,14 @@ public class TextDocumentService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public List<? extends TextEdit> onTypeFormatting(DocumentOnTypeFormattingParamsDTO params)
-            throws InterruptedException, ExecutionException, LanguageServerException {
+            throws LanguageServerException {
         params.getTextDocument().setUri(prefixURI(params.getTextDocument().getUri()));
         LanguageServer server = getServer(params.getTextDocument().getUri());
         if (server == null) {
             return emptyList();
         }
-        return server.getTextDocumentService().onTypeFormatting(params).get();
+        return requestExecutor.execute(server, "textDocument/onTypeFormatting", params.getTextDocument().getUri(),
+                                       () -> server.getTextDocumentService().onTypeFormatting(params));
 
     }
 
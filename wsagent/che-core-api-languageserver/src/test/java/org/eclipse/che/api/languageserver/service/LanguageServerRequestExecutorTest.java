@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.languageserver.service;
+
+import io.typefox.lsapi.services.LanguageServer;
+
+import org.eclipse.che.api.languageserver.exception.LanguageServerException;
+import org.eclipse.che.api.languageserver.registry.LanguageServerDescription;
+import org.eclipse.che.api.languageserver.registry.ServerInitializer;
+import org.eclipse.che.api.languageserver.shared.model.LanguageDescription;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Test class for {@link LanguageServerRequestExecutor}
+ */
+@Listeners(MockitoTestNGListener.class)
+public class LanguageServerRequestExecutorTest {
+    private static final String COMPLETION = "textDocument/completion";
+    private static final String REFERENCES = "textDocument/references";
+    private static final String URI        = "file:///projects/1/test.txt";
+
+    @Mock
+    private ServerInitializer         initializer;
+    @Mock
+    private LanguageServer            server;
+    @Mock
+    private LanguageServerDescription serverDescription;
+    @Mock
+    private LanguageDescription       languageDescription;
+
+    private ExecutorService               executor;
+    private LanguageServerRequestExecutor requestExecutor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        when(initializer.getInitializedServers()).thenReturn(Collections.singletonMap(server, serverDescription));
+        when(serverDescription.getLanguageDescription()).thenReturn(languageDescription);
+        when(languageDescription.getLanguageId()).thenReturn("id");
+        executor = Executors.newSingleThreadExecutor();
+        requestExecutor = new LanguageServerRequestExecutor(initializer, 200, 5000);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldReturnResultOfRequest() throws Exception {
+        assertEquals(requestExecutor.execute(server, REFERENCES, URI, () -> CompletableFuture.completedFuture("result")), "result");
+
+        assertEquals(requestExecutor.getStatistics().get("id " + REFERENCES).getCompleted(), 1);
+    }
+
+    @Test
+    public void shouldCancelRequestWhenDeadlineIsExceeded() throws Exception {
+        final CompletableFuture<String> request = new CompletableFuture<>();
+
+        try {
+            requestExecutor.execute(server, REFERENCES, URI, () -> request);
+            fail("LanguageServerException expected");
+        } catch (LanguageServerException e) {
+            assertTrue(request.isCancelled());
+        }
+        assertEquals(requestExecutor.getStatistics().get("id " + REFERENCES).getTimedOut(), 1);
+    }
+
+    @Test
+    public void shouldCancelSupersededRequestForTheSameDocument() throws Exception {
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final Future<String> firstResult = executor.submit(() -> requestExecutor.execute(server, COMPLETION, URI, () -> first));
+        while (!requestExecutor.isPending(COMPLETION, URI)) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(requestExecutor.execute(server, COMPLETION, URI, () -> CompletableFuture.completedFuture("second")), "second");
+
+        assertNull(firstResult.get(5, SECONDS));
+        assertTrue(first.isCancelled());
+        assertEquals(requestExecutor.getStatistics().get("id " + COMPLETION).getCancelled(), 1);
+    }
+
+    @Test(expectedExceptions = LanguageServerException.class)
+    public void shouldFailWhenRequestIsCancelledNotBecauseOfLaterRequest() throws Exception {
+        final CompletableFuture<String> request = new CompletableFuture<>();
+        request.cancel(true);
+
+        requestExecutor.execute(server, REFERENCES, URI, () -> request);
+    }
+
+    @Test(expectedExceptions = LanguageServerException.class)
+    public void shouldFailWhenInteractiveRequestIsCancelledNotBecauseOfLaterRequest() throws Exception {
+        final CompletableFuture<String> request = new CompletableFuture<>();
+        request.cancel(true);
+
+        requestExecutor.execute(server, COMPLETION, URI, () -> request);
+    }
+}
@@ -85,4 +85,11 @@ public interface ItemReference extends Hyperlinks {
     ProjectConfigDto getProjectConfig();
 
     void setProjectConfig(ProjectConfigDto config);
+
+    /** Occurrences of the searched text, set only for items found by text search. */
+    List<SearchOccurrenceDto> getContentOccurrences();
+
+    void setContentOccurrences(List<SearchOccurrenceDto> occurrences);
+
+    ItemReference withContentOccurrences(List<SearchOccurrenceDto> occurrences);
 }
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.shared.dto.event;
+
+import com.google.common.annotations.Beta;
+
+import org.eclipse.che.dto.shared.DTO;
+
+import java.util.List;
+
+/**
+ * To transfer changes of git status of a repository. Previous status of each of the {@link #getFiles() files}
+ * is replaced with the status listed in this event, the files that are not listed in any of the status lists
+ * became unchanged. Paths of the files are relative to the working directory of the repository.
+ *
+ * @since 5.0
+ */
+@Beta
+@DTO
+public interface GitStatusChangedEventDto {
+    /** Path of the working directory of the repository. */
+    String getPath();
+
+    GitStatusChangedEventDto withPath(String path);
+
+    /** Files which status is changed. */
+    List<String> getFiles();
+
+    GitStatusChangedEventDto withFiles(List<String> files);
+
+    List<String> getAdded();
+
+    GitStatusChangedEventDto withAdded(List<String> added);
+
+    List<String> getChanged();
+
+    GitStatusChangedEventDto withChanged(List<String> changed);
+
+    List<String> getRemoved();
+
+    GitStatusChangedEventDto withRemoved(List<String> removed);
+
+    List<String> getMissing();
+
+    GitStatusChangedEventDto withMissing(List<String> missing);
+
+    List<String> getModified();
+
+    GitStatusChangedEventDto withModified(List<String> modified);
+
+    List<String> getUntracked();
+
+    GitStatusChangedEventDto withUntracked(List<String> untracked);
+
+    List<String> getUntrackedFolders();
+
+    GitStatusChangedEventDto withUntrackedFolders(List<String> untrackedFolders);
+
+    List<String> getConflicting();
+
+    GitStatusChangedEventDto withConflicting(List<String> conflicting);
+}
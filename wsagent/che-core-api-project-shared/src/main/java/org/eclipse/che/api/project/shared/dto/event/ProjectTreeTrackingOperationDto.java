@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.shared.dto.event;
+
+import org.eclipse.che.dto.shared.DTO;
+
+/**
+ * Subscribes a client to changes of the project tree under the given path or cancels the subscription.
+ */
+@DTO
+public interface ProjectTreeTrackingOperationDto {
+    String getPath();
+
+    ProjectTreeTrackingOperationDto withPath(String path);
+
+    Type getType();
+
+    ProjectTreeTrackingOperationDto withType(Type type);
+
+    enum Type {
+        START,
+        STOP
+    }
+}
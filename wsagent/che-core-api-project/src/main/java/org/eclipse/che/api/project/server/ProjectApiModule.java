@@ -33,13 +33,16 @@ import org.eclipse.che.api.vfs.impl.file.event.HiEventDetector;
 import org.eclipse.che.api.vfs.impl.file.event.HiEventService;
 import org.eclipse.che.api.vfs.impl.file.event.LoEventListener;
 import org.eclipse.che.api.vfs.impl.file.event.LoEventService;
+import org.eclipse.che.api.vfs.impl.file.event.VfsEventQueueMonitor;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.FileStatusDetector;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.FileTrackingOperationReceiver;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.FileTrackingOperationTransmitter;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.ProjectTreeChangesDetector;
+import org.eclipse.che.api.vfs.impl.file.event.detectors.ProjectTreeTrackingOperationReceiver;
 import org.eclipse.che.api.vfs.search.MediaTypeFilter;
 import org.eclipse.che.api.vfs.search.SearcherProvider;
 import org.eclipse.che.api.vfs.search.impl.FSLuceneSearcherProvider;
+import org.eclipse.che.api.vfs.util.MediaTypeDetector;
 
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
@@ -78,6 +81,7 @@ public class ProjectApiModule extends AbstractModule {
                 newSetBinder(binder(), VirtualFileFilter.class, Names.named("vfs.index_filter"));
 
         filtersMultibinder.addBinding().to(MediaTypeFilter.class);
+        bind(MediaTypeDetector.class);
 
         Multibinder<PathMatcher> excludeMatcher = newSetBinder(binder(), PathMatcher.class, Names.named("vfs.index_filter_matcher"));
 
@@ -110,6 +114,7 @@ public class ProjectApiModule extends AbstractModule {
         bind(LoEventListener.class);
         bind(LoEventService.class);
         bind(HiEventService.class);
+        bind(VfsEventQueueMonitor.class).asEagerSingleton();
 
         Multibinder<HiEventDetector<?>> highLevelVfsEventDetectorMultibinder =
                 newSetBinder(binder(), new TypeLiteral<HiEventDetector<?>>() {
@@ -121,8 +126,8 @@ public class ProjectApiModule extends AbstractModule {
         bind(FileTrackingOperationTransmitter.class).asEagerSingleton();
 
 
-        MapBinder.newMapBinder(binder(), String.class, RequestHandler.class)
-                 .addBinding("track:editor-file")
-                 .to(FileTrackingOperationReceiver.class);
+        MapBinder<String, RequestHandler> requestHandlers = MapBinder.newMapBinder(binder(), String.class, RequestHandler.class);
+        requestHandlers.addBinding("track:editor-file").to(FileTrackingOperationReceiver.class);
+        requestHandlers.addBinding("track:project-tree").to(ProjectTreeTrackingOperationReceiver.class);
     }
 }
@@ -23,6 +23,7 @@ import org.eclipse.che.api.core.model.project.ProjectConfig;
 import org.eclipse.che.api.core.model.project.SourceStorage;
 import org.eclipse.che.api.core.model.project.type.ProjectType;
 import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.core.util.LineConsumerFactory;
 import org.eclipse.che.api.project.server.RegisteredProject.Problem;
 import org.eclipse.che.api.project.server.handlers.CreateProjectHandler;
@@ -42,7 +43,9 @@ import org.eclipse.che.api.vfs.VirtualFileSystemProvider;
 import org.eclipse.che.api.vfs.impl.file.FileTreeWatcher;
 import org.eclipse.che.api.vfs.impl.file.FileWatcherNotificationHandler;
 import org.eclipse.che.api.vfs.impl.file.FileWatcherNotificationListener;
+import org.eclipse.che.api.vfs.impl.file.LocalVirtualFileSystem;
 import org.eclipse.che.api.vfs.impl.file.event.LoEvent;
+import org.eclipse.che.api.vfs.impl.file.event.LoEventsDroppedEvent;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.ProjectTreeChangesDetector;
 import org.eclipse.che.api.vfs.search.Searcher;
 import org.eclipse.che.api.vfs.search.SearcherProvider;
@@ -62,6 +65,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -87,6 +91,8 @@ public class ProjectManager {
     private final ExecutorService                executor;
     private final WorkspaceProjectsSyncer        workspaceProjectsHolder;
     private final ProjectTreeChangesDetector     projectTreeChangesDetector;
+    private final EventSubscriber<LoEventsDroppedEvent> eventsDroppedSubscriber;
+    private final AtomicBoolean                  reconcileScheduled;
 
     @Inject
     public ProjectManager(VirtualFileSystemProvider vfsProvider,
@@ -115,6 +121,8 @@ public class ProjectManager {
                                                                           .setUncaughtExceptionHandler(
                                                                                   LoggingUncaughtExceptionHandler.getInstance())
                                                                           .setDaemon(true).build());
+        eventsDroppedSubscriber = this::eventsDropped;
+        reconcileScheduled = new AtomicBoolean();
     }
 
     @PostConstruct
@@ -136,6 +144,7 @@ public class ProjectManager {
                     }
                 };
         fileWatchNotifier.addNotificationListener(defaultListener);
+        eventService.subscribe(eventsDroppedSubscriber, LoEventsDroppedEvent.class);
         try {
             fileWatcher.startup();
         } catch (IOException e) {
@@ -146,6 +155,7 @@ public class ProjectManager {
 
     @PreDestroy
     void stop() {
+        eventService.unsubscribe(eventsDroppedSubscriber, LoEventsDroppedEvent.class);
         executor.shutdownNow();
     }
 
@@ -178,6 +188,14 @@ public class ProjectManager {
         fileWatcher.removeExcludeMatcher(matcher);
     }
 
+    /**
+     * Reports changes of the folder without delay when file watcher rescans the tree lazily.
+     * Called for folders which content is shown to the user, e.g. expanded in the project explorer.
+     */
+    public void watchFolder(String path) {
+        fileWatcher.watchDirectory(path);
+    }
+
     /**
      * @return all the projects
      *
@@ -763,6 +781,30 @@ public class ProjectManager {
         return (FileEntry)entry;
     }
 
+    /**
+     * Changes of the files reported by the dropped events are not known, so cached listings and digests of folders
+     * are dropped and search index is reconciled with the whole tree. Reconciliation requested while another one is
+     * waiting in the queue is skipped.
+     */
+    private void eventsDropped(LoEventsDroppedEvent event) {
+        LOG.warn("{} file watcher events were dropped, search index is going to be reconciled", event.getDroppedEvents());
+        if (vfs instanceof LocalVirtualFileSystem) {
+            ((LocalVirtualFileSystem)vfs).invalidateAllChildren();
+        }
+        if (reconcileScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                reconcileScheduled.set(false);
+                try {
+                    getSearcher().reconcile();
+                } catch (NotFoundException e) {
+                    LOG.warn(e.getLocalizedMessage());
+                } catch (Exception e) {
+                    LOG.warn("Can't reconcile search index", e);
+                }
+            });
+        }
+    }
+
     /**
      * Some importers don't use virtual file system API and changes are not indexed.
      * Force searcher to reindex project to fix such issues.
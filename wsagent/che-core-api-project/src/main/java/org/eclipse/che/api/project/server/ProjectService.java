@@ -17,7 +17,6 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
 import org.apache.commons.fileupload.FileItem;
-import org.apache.tika.Tika;
 import org.eclipse.che.WorkspaceIdProvider;
 import org.eclipse.che.api.core.BadRequestException;
 import org.eclipse.che.api.core.ConflictException;
@@ -40,10 +39,12 @@ import org.eclipse.che.api.project.shared.dto.MoveOptions;
 import org.eclipse.che.api.project.shared.dto.SourceEstimation;
 import org.eclipse.che.api.project.shared.dto.TreeElement;
 import org.eclipse.che.api.vfs.VirtualFile;
+import org.eclipse.che.api.vfs.VirtualFileFilter;
 import org.eclipse.che.api.vfs.search.QueryExpression;
 import org.eclipse.che.api.vfs.search.SearchResult;
 import org.eclipse.che.api.vfs.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.search.Searcher;
+import org.eclipse.che.api.vfs.util.MediaTypeDetector;
 import org.eclipse.che.api.workspace.shared.dto.NewProjectConfigDto;
 import org.eclipse.che.api.workspace.shared.dto.ProjectConfigDto;
 import org.eclipse.che.api.workspace.shared.dto.SourceStorageDto;
@@ -71,6 +72,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
@@ -83,6 +85,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import static javax.ws.rs.HttpMethod.DELETE;
@@ -100,6 +104,9 @@ import static org.eclipse.che.api.project.shared.Constants.LINK_REL_GET_PROJECTS
 import static org.eclipse.che.api.project.shared.Constants.LINK_REL_TREE;
 import static org.eclipse.che.api.project.shared.Constants.LINK_REL_UPDATE_CONTENT;
 import static org.eclipse.che.api.project.shared.Constants.LINK_REL_UPDATE_PROJECT;
+import static org.eclipse.che.api.vfs.VirtualFileFilters.createAndFilter;
+import static org.eclipse.che.api.vfs.VirtualFileFilters.dotGitFilter;
+import static org.eclipse.che.api.vfs.VirtualFileFilters.modifiedSince;
 import static org.eclipse.che.dto.server.DtoFactory.newDto;
 
 /**
@@ -115,17 +122,18 @@ import static org.eclipse.che.dto.server.DtoFactory.newDto;
 @Path("/project")
 @Singleton
 public class ProjectService extends Service {
-    private static final Logger LOG  = LoggerFactory.getLogger(ProjectService.class);
-    private static final Tika   TIKA = new Tika();
+    private static final Logger LOG = LoggerFactory.getLogger(ProjectService.class);
 
-    private final ProjectManager projectManager;
-    private final EventService   eventService;
-    private final String         workspace;
+    private final ProjectManager    projectManager;
+    private final EventService      eventService;
+    private final MediaTypeDetector mediaTypeDetector;
+    private final String            workspace;
 
     @Inject
-    public ProjectService(ProjectManager projectManager, EventService eventService) {
+    public ProjectService(ProjectManager projectManager, EventService eventService, MediaTypeDetector mediaTypeDetector) {
         this.projectManager = projectManager;
         this.eventService = eventService;
+        this.mediaTypeDetector = mediaTypeDetector;
         this.workspace = WorkspaceIdProvider.getWorkspaceId();
     }
 
@@ -501,7 +509,10 @@ public class ProjectService extends Service {
         if (file == null) {
             throw new NotFoundException("File not found for " + path);
         }
-        return Response.ok().entity(file.getInputStream()).type(TIKA.detect(file.getName())).build();
+        return Response.ok()
+                       .entity(file.getInputStream())
+                       .type(mediaTypeDetector.detect(file.getVirtualFile()).toString())
+                       .build();
     }
 
     @PUT
@@ -726,13 +737,18 @@ public class ProjectService extends Service {
     @Path("/export/{path:.*}")
     @Produces(ExtMediaType.APPLICATION_ZIP)
     @ApiOperation(value = "Download ZIP",
-                  notes = "Export resource as zip. It can be an entire project or folder")
+                  notes = "Export resource as zip. It can be an entire project or folder. Archive is streamed to the client while " +
+                          "files are compressed in parallel")
     @ApiResponses({@ApiResponse(code = 201, message = ""),
                    @ApiResponse(code = 403, message = "User not authorized to call this operation"),
                    @ApiResponse(code = 404, message = "Not found"),
                    @ApiResponse(code = 500, message = "Internal Server Error")})
-    public InputStream exportZip(@ApiParam(value = "Path to resource to be exported")
-                                 @PathParam("path") String path) throws NotFoundException, ForbiddenException, ServerException {
+    public Response exportZip(@ApiParam(value = "Path to resource to be exported")
+                              @PathParam("path") String path,
+                              @ApiParam(value = "Export only files modified after this time, in milliseconds since the epoch")
+                              @QueryParam("modifiedSince") Long modifiedSince) throws NotFoundException,
+                                                                                      ForbiddenException,
+                                                                                      ServerException {
 
         final FolderEntry folder = projectManager.asFolder(path);
 
@@ -740,7 +756,18 @@ public class ProjectService extends Service {
             throw new NotFoundException("Folder not found " + path);
         }
 
-        return folder.getVirtualFile().zip();
+        final VirtualFileFilter filter = modifiedSince == null
+                                         ? dotGitFilter()
+                                         : createAndFilter(dotGitFilter(), modifiedSince(modifiedSince));
+        final VirtualFile virtualFile = folder.getVirtualFile();
+        final StreamingOutput archive = output -> {
+            try {
+                virtualFile.zip(output, filter);
+            } catch (ForbiddenException | ServerException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        };
+        return Response.ok(archive, ExtMediaType.APPLICATION_ZIP).build();
     }
 
     @GET
@@ -757,7 +784,7 @@ public class ProjectService extends Service {
 
         final VirtualFile virtualFile = file.getVirtualFile();
 
-        return Response.ok(virtualFile.getContent(), TIKA.detect(virtualFile.getName()))
+        return Response.ok(virtualFile.getContent(), mediaTypeDetector.detect(virtualFile).toString())
                        .lastModified(new Date(virtualFile.getLastModificationDate()))
                        .header(HttpHeaders.CONTENT_LENGTH, Long.toString(virtualFile.getLength()))
                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + virtualFile.getName() + '"')
@@ -784,6 +811,7 @@ public class ProjectService extends Service {
         if (folder == null) {
             throw new NotFoundException("Parent not found for " + path);
         }
+        projectManager.watchFolder(path);
 
         final List<VirtualFileEntry> children = folder.getChildren();
         final ArrayList<ItemReference> result = new ArrayList<>(children.size());
@@ -861,37 +889,57 @@ public class ProjectService extends Service {
                    @ApiResponse(code = 404, message = "Not found"),
                    @ApiResponse(code = 409, message = "Conflict error"),
                    @ApiResponse(code = 500, message = "Internal Server Error")})
-    public List<ItemReference> search(@ApiParam(value = "Path to resource, i.e. where to search?", required = true)
-                                      @PathParam("path") String path,
-                                      @ApiParam(value = "Resource name")
-                                      @QueryParam("name") String name,
-                                      @ApiParam(value = "Search keywords")
-                                      @QueryParam("text") String text,
-                                      @ApiParam(value = "Maximum items to display. If this parameter is dropped, there are no limits")
-                                      @QueryParam("maxItems") @DefaultValue("-1") int maxItems,
-                                      @ApiParam(value = "Skip count")
-                                      @QueryParam("skipCount") int skipCount) throws NotFoundException,
-                                                                                     ForbiddenException,
-                                                                                     ConflictException,
-                                                                                     ServerException {
+    public Response search(@ApiParam(value = "Path to resource, i.e. where to search?", required = true)
+                           @PathParam("path") String path,
+                           @ApiParam(value = "Resource name")
+                           @QueryParam("name") String name,
+                           @ApiParam(value = "Search keywords")
+                           @QueryParam("text") String text,
+                           @ApiParam(value = "How the text is interpreted: query over words, literal substring or regular expression",
+                                     allowableValues = "text,literal,regex")
+                           @QueryParam("mode") @DefaultValue("text") String mode,
+                           @ApiParam(value = "Maximum items to display. If this parameter is dropped, there are no limits")
+                           @QueryParam("maxItems") @DefaultValue("-1") int maxItems,
+                           @ApiParam(value = "Skip count")
+                           @QueryParam("skipCount") int skipCount,
+                           @ApiParam(value = "Cursor returned in the 'Link' header of the previous page, takes precedence over skip count")
+                           @QueryParam("searchAfter") String searchAfter) throws NotFoundException,
+                                                                                 ForbiddenException,
+                                                                                 ConflictException,
+                                                                                 ServerException {
         final Searcher searcher;
         try {
             searcher = projectManager.getSearcher();
         } catch (NotFoundException e) {
             LOG.warn(e.getLocalizedMessage());
-            return Collections.emptyList();
+            return Response.ok(Collections.emptyList()).build();
         }
 
         if (skipCount < 0) {
             throw new ConflictException(String.format("Invalid 'skipCount' parameter: %d.", skipCount));
         }
+        final QueryExpression.Mode searchMode;
+        try {
+            searchMode = QueryExpression.Mode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConflictException(String.format("Invalid 'mode' parameter: %s.", mode));
+        }
+        if (searchMode == QueryExpression.Mode.REGEX && text != null) {
+            try {
+                Pattern.compile(text);
+            } catch (PatternSyntaxException e) {
+                throw new ConflictException(String.format("Invalid regular expression: %s", e.getMessage()));
+            }
+        }
 
         final QueryExpression expr = new QueryExpression()
                 .setPath(path.startsWith("/") ? path : ('/' + path))
                 .setName(name)
                 .setText(text)
+                .setMode(searchMode)
                 .setMaxItems(maxItems)
-                .setSkipCount(skipCount);
+                .setSkipCount(skipCount)
+                .setSearchAfter(searchAfter);
 
         final SearchResult result = searcher.search(expr);
         final List<SearchResultEntry> searchResultEntries = result.getResults();
@@ -902,11 +950,28 @@ public class ProjectService extends Service {
             final VirtualFileEntry child = root.getChild(searchResultEntry.getFilePath());
 
             if (child != null && child.isFile()) {
-                items.add(injectFileLinks(asDto((FileEntry)child)));
+                final ItemReference item = injectFileLinks(asDto((FileEntry)child));
+                if (!searchResultEntry.getOccurrences().isEmpty()) {
+                    item.setContentOccurrences(searchResultEntry.getOccurrences()
+                                                                .stream()
+                                                                .map(DtoConverter::asDto)
+                                                                .collect(Collectors.toList()));
+                }
+                items.add(item);
             }
         }
 
-        return items;
+        final Response.ResponseBuilder response = Response.ok(items);
+        final QueryExpression nextPage = result.getNextPageQueryExpression().orElse(null);
+        if (nextPage != null) {
+            // the cursor is used for the next page, so it is not shifted when files are indexed between requests
+            final URI next = uriInfo.getRequestUriBuilder()
+                                    .replaceQueryParam("skipCount")
+                                    .replaceQueryParam("searchAfter", nextPage.getSearchAfter())
+                                    .build();
+            response.header("Link", String.format("<%s>; rel=\"next\"", next));
+        }
+        return response.build();
     }
 
     private void logProjectCreatedEvent(@NotNull String projectName, @NotNull String projectType) {
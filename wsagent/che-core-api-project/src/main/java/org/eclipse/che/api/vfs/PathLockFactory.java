@@ -10,6 +10,14 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Advisory file locks. It does not prevent access to the file from other programs.
  * <p/>
@@ -30,15 +38,33 @@ package org.eclipse.che.api.vfs;
  *         }
  *      }
  * </pre>
+ * <p/>
+ * Lock of a path conflicts with the locks of its parents and children held by other threads if any of them is exclusive.
+ * Thread which already holds lock of a path may lock it again without blocking. Paths which may conflict always have the
+ * same first element, so the lock table is split into stripes by the first element of path and each stripe is guarded by
+ * its own monitor. Each locked path also registers its lock in all its parents, so checking for conflicts takes time
+ * proportional to the depth of the path rather than to the number of held locks. Lock of the root path is registered in
+ * all the stripes. Shared locks are not granted to the threads which do not hold any lock of the stripe while exclusive
+ * lock of the same path is awaited, so exclusive locks are not starved by the stream of shared ones.
  *
  * @author andrew00x>
  */
 public final class PathLockFactory {
     private static final int MAX_RECURSIVE_LOCKS = (1 << 10) - 1;
+    private static final int STRIPES             = 32;
+
     /** Max number of threads allowed to access file. */
-    private final int maxThreads;
-    // Tail of the "lock table".
-    private final Node tail = new Node(null, 0, null);
+    private final int           maxThreads;
+    private final Stripe[]      stripes;
+    /** Number of threads waiting for lock of the root path, they wait for the condition of the first stripe. */
+    private final AtomicInteger rootWaiters;
+
+    private final AtomicLong acquired;
+    private final AtomicLong contended;
+    private final AtomicLong timedOut;
+    private final AtomicLong released;
+    private final AtomicLong totalHoldNanos;
+    private final AtomicLong maxHoldNanos;
 
     /**
      * @param maxThreads
@@ -50,145 +76,414 @@ public final class PathLockFactory {
             throw new IllegalArgumentException();
         }
         this.maxThreads = maxThreads;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.rootWaiters = new AtomicInteger();
+        this.acquired = new AtomicLong();
+        this.contended = new AtomicLong();
+        this.timedOut = new AtomicLong();
+        this.released = new AtomicLong();
+        this.totalHoldNanos = new AtomicLong();
+        this.maxHoldNanos = new AtomicLong();
     }
 
     public PathLock getLock(Path path, boolean exclusive) {
-        return new PathLock(path, exclusive ? maxThreads : 1);
+        return new PathLock(path, exclusive);
+    }
+
+    /** Returns the number of granted locks. */
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /** Returns the number of locks which were not granted immediately because of conflicting locks. */
+    public long getContendedCount() {
+        return contended.get();
+    }
+
+    /** Returns the number of lock requests failed because of timeout. */
+    public long getTimeoutCount() {
+        return timedOut.get();
+    }
+
+    /** Returns the average time in nanoseconds a thread holds lock of a path, recursive locks are counted once. */
+    public long getAverageHoldNanos() {
+        final long count = released.get();
+        return count == 0 ? 0 : totalHoldNanos.get() / count;
+    }
+
+    /** Returns the max time in nanoseconds a thread held lock of a path, recursive locks are counted once. */
+    public long getMaxHoldNanos() {
+        return maxHoldNanos.get();
     }
 
-    private synchronized void acquire(Path path, int permits) {
-        while (!tryAcquire(path, permits)) {
+    public void checkClean() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
             try {
-                wait();
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
+                assert stripe.nodes.isEmpty() && stripe.root.isEmpty() && stripe.threads.isEmpty();
+            } finally {
+                stripe.lock.unlock();
             }
         }
     }
 
-    private synchronized void acquire(Path path, int permits, long timeoutMilliseconds) {
-        final long endTime = System.currentTimeMillis() + timeoutMilliseconds;
-        long waitTime = timeoutMilliseconds;
-        while (!tryAcquire(path, permits)) {
-            try {
-                wait(waitTime);
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
-            }
-            long now = System.currentTimeMillis();
-            if (now >= endTime) {
-                throw new RuntimeException(String.format("Get lock timeout for '%s'. ", path));
-            }
-            waitTime = endTime - now;
-        }
-    }
-
-    private synchronized void release(Path path, int permits) {
-        Node node = tail;
-        while (node != null) {
-            Node prev = node.prev;
-            if (prev == null) {
-                break;
-            }
-            if (prev.path.equals(path)) {
-                if (prev.threadDeep == 1) {
-                    // If last recursive lock.
-                    prev.permits += permits;
-                    if (prev.permits >= maxThreads) {
-                        // remove
-                        node.prev = prev.prev;
-                        prev.prev = null;
+    /**
+     * Acquires lock of the path for the thread.
+     *
+     * @param timeoutNanos
+     *         max time to wait for the lock, negative value means waiting without timeout
+     */
+    private void acquire(Path path, Thread thread, boolean exclusive, long timeoutNanos) {
+        if (path.length() == 0) {
+            acquireRoot(path, thread, exclusive, timeoutNanos);
+            return;
+        }
+        final Stripe stripe = stripes[(path.element(0).hashCode() & 0x7fffffff) % STRIPES];
+        final long deadline = System.nanoTime() + timeoutNanos;
+        Node awaited = null;
+        stripe.lock.lock();
+        try {
+            while (!stripe.canAcquire(path, thread, exclusive)) {
+                if (awaited == null) {
+                    contended.incrementAndGet();
+                    if (exclusive) {
+                        awaited = stripe.getOrCreate(path);
+                        awaited.exclusiveWaiters++;
                     }
+                }
+                if (timeoutNanos < 0) {
+                    stripe.released.await();
                 } else {
-                    --prev.threadDeep;
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timedOut.incrementAndGet();
+                        throw new RuntimeException(String.format("Get lock timeout for '%s'. ", path));
+                    }
+                    stripe.released.awaitNanos(remaining);
                 }
             }
-            node = node.prev;
+            stripe.register(path, thread, exclusive);
+            acquired.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            if (awaited != null) {
+                awaited.exclusiveWaiters--;
+                stripe.removeIfEmpty(path, awaited);
+                // shared locks might wait for this exclusive one
+                stripe.released.signalAll();
+            }
+            stripe.lock.unlock();
         }
-        notifyAll();
-        //System.err.printf(">>>>> release: %s : %d%n", path, permits);
     }
 
-    private boolean tryAcquire(Path path, int permits) {
-        //System.err.printf(">>>>> acquire: %s : %d%n", path, permits);
-        Node node = tail.prev;
-        final Thread current = Thread.currentThread();
-        while (node != null) {
-            if (node.path.equals(path)) {
-                if (node.threadId == current.getId()) {
-                    // Current thread already has direct lock for this path
-                    if (node.threadDeep > MAX_RECURSIVE_LOCKS) {
+    private void acquireRoot(Path path, Thread thread, boolean exclusive, long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        boolean awaited = false;
+        lockStripes(0);
+        try {
+            while (!canAcquireRoot(thread, exclusive)) {
+                if (!awaited) {
+                    awaited = true;
+                    contended.incrementAndGet();
+                    if (exclusive) {
+                        for (Stripe stripe : stripes) {
+                            stripe.root.exclusiveWaiters++;
+                        }
+                    }
+                }
+                long remaining = Long.MAX_VALUE;
+                if (timeoutNanos >= 0 && (remaining = deadline - System.nanoTime()) <= 0) {
+                    timedOut.incrementAndGet();
+                    throw new RuntimeException(String.format("Get lock timeout for '%s'. ", path));
+                }
+                // Release of any lock signals the first stripe while there are root waiters.
+                // Counter is incremented while holding all the stripes, so a release can't be missed.
+                rootWaiters.incrementAndGet();
+                unlockStripes(1);
+                try {
+                    if (timeoutNanos < 0) {
+                        stripes[0].released.await();
+                    } else {
+                        stripes[0].released.awaitNanos(remaining);
+                    }
+                } finally {
+                    rootWaiters.decrementAndGet();
+                    lockStripes(1);
+                }
+            }
+            for (Stripe stripe : stripes) {
+                stripe.register(path, thread, exclusive);
+            }
+            acquired.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            if (awaited && exclusive) {
+                for (Stripe stripe : stripes) {
+                    stripe.root.exclusiveWaiters--;
+                    stripe.released.signalAll();
+                }
+            }
+            unlockStripes(0);
+        }
+    }
+
+    private boolean canAcquireRoot(Thread thread, boolean exclusive) {
+        for (Stripe stripe : stripes) {
+            if (!stripe.canAcquire(Path.ROOT, thread, exclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void release(Path path, Thread thread, boolean exclusive) {
+        if (path.length() == 0) {
+            lockStripes(0);
+            try {
+                for (Stripe stripe : stripes) {
+                    stripe.unregister(path, thread, exclusive);
+                    stripe.released.signalAll();
+                }
+            } finally {
+                unlockStripes(0);
+            }
+            return;
+        }
+        final int index = (path.element(0).hashCode() & 0x7fffffff) % STRIPES;
+        final Stripe stripe = stripes[index];
+        stripe.lock.lock();
+        try {
+            stripe.unregister(path, thread, exclusive);
+            stripe.released.signalAll();
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (index != 0 && rootWaiters.get() > 0) {
+            stripes[0].lock.lock();
+            try {
+                stripes[0].released.signalAll();
+            } finally {
+                stripes[0].lock.unlock();
+            }
+        }
+    }
+
+    /** Locks monitors of the stripes starting from {@code from} in the order of their indexes. */
+    private void lockStripes(int from) {
+        for (int i = from; i < STRIPES; i++) {
+            stripes[i].lock.lock();
+        }
+    }
+
+    private void unlockStripes(int from) {
+        for (int i = STRIPES - 1; i >= from; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private void onHoldReleased(Hold hold) {
+        final long holdNanos = System.nanoTime() - hold.since;
+        released.incrementAndGet();
+        totalHoldNanos.addAndGet(holdNanos);
+        long max;
+        while (holdNanos > (max = maxHoldNanos.get()) && !maxHoldNanos.compareAndSet(max, holdNanos)) {
+            // retry until max is updated or becomes greater than current hold time
+        }
+    }
+
+   /* =============================================== */
+
+    /** Locks of the paths which have the same first element. All the methods must be called while holding {@link #lock}. */
+    private final class Stripe {
+        final ReentrantLock        lock     = new ReentrantLock();
+        final Condition            released = lock.newCondition();
+        final Node                 root     = new Node();
+        final Map<Path, Node>      nodes    = new HashMap<>();
+        /** Number of locks of the stripe held by each thread. */
+        final Map<Thread, Integer> threads  = new HashMap<>();
+
+        Node get(Path path) {
+            return path.length() == 0 ? root : nodes.get(path);
+        }
+
+        Node getOrCreate(Path path) {
+            return path.length() == 0 ? root : nodes.computeIfAbsent(path, p -> new Node());
+        }
+
+        void removeIfEmpty(Path path, Node node) {
+            if (path.length() != 0 && node.isEmpty()) {
+                nodes.remove(path);
+            }
+        }
+
+        boolean canAcquire(Path path, Thread thread, boolean exclusive) {
+            final Node node = get(path);
+            if (node != null) {
+                final Hold own = node.holders.get(thread);
+                if (own != null) {
+                    if (own.count() > MAX_RECURSIVE_LOCKS) {
                         throw new Error("Max number of recursive locks exceeded. ");
                     }
-                    ++node.threadDeep;
+                    // Current thread already has direct lock for this path
                     return true;
                 }
-                if (node.permits > permits) {
-                    // Lock already exists and current thread is not owner of this lock,
-                    // but lock is not exclusive and we can "share" it for other thread.
-                    node.permits -= permits; // decrement number of allowed concurrent threads
-                    return true;
+                if (node.holders.conflicts(thread, exclusive) || node.descendants.conflicts(thread, exclusive)) {
+                    return false;
                 }
-                // Lock is exclusive or max number of allowed concurrent thread is reached.
-                return false;
-            } else if ((node.path.isChild(path) || path.isChild(node.path)) && node.permits <= permits) {
-                // Found some path which already has lock that prevents us to get required permits.
-                // There is two possibilities:
-                // 1. Parent of the path we try to lock already locked
-                // 2. Child of the path we try to lock already locked
-                // Need to check is such lock obtained by current thread or not.
-                // If such lock obtained by other thread stop here immediately there is no reasons to continue.
-                if (node.threadId != current.getId()) {
+                if (!exclusive && (node.holders.size() >= maxThreads
+                                   || node.exclusiveWaiters > 0 && !threads.containsKey(thread))) {
                     return false;
                 }
             }
-            node = node.prev;
+            if (path.length() > 0) {
+                if (root.holders.conflicts(thread, exclusive)) {
+                    return false;
+                }
+                for (int i = 1; i < path.length(); i++) {
+                    final Node parent = nodes.get(path.subPath(0, i));
+                    if (parent != null && parent.holders.conflicts(thread, exclusive)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void register(Path path, Thread thread, boolean exclusive) {
+            getOrCreate(path).holders.add(thread, exclusive);
+            if (path.length() > 0) {
+                root.descendants.add(thread, exclusive);
+                for (int i = 1; i < path.length(); i++) {
+                    getOrCreate(path.subPath(0, i)).descendants.add(thread, exclusive);
+                }
+            }
+            threads.merge(thread, 1, Integer::sum);
+        }
+
+        void unregister(Path path, Thread thread, boolean exclusive) {
+            final Node node = get(path);
+            if (node == null || !node.holders.contains(thread)) {
+                return;
+            }
+            final Hold hold = node.holders.remove(thread, exclusive);
+            if (hold != null) {
+                onHoldReleased(hold);
+            }
+            removeIfEmpty(path, node);
+            if (path.length() > 0) {
+                root.descendants.remove(thread, exclusive);
+                for (int i = 1; i < path.length(); i++) {
+                    final Path parentPath = path.subPath(0, i);
+                    final Node parent = nodes.get(parentPath);
+                    if (parent != null) {
+                        parent.descendants.remove(thread, exclusive);
+                        removeIfEmpty(parentPath, parent);
+                    }
+                }
+            }
+            threads.computeIfPresent(thread, (t, count) -> count == 1 ? null : count - 1);
         }
-        // If we are here there is no lock for path yet.
-        tail.prev = new Node(path, maxThreads - permits, tail.prev);
-        return true;
     }
 
-    public synchronized void checkClean() {
-        assert tail.prev == null;
+    /** Locks of a single path. */
+    private static final class Node {
+        /** Locks of the path itself. */
+        final Holders holders     = new Holders();
+        /** Locks of the children of the path. */
+        final Holders descendants = new Holders();
+
+        int exclusiveWaiters;
+
+        boolean isEmpty() {
+            return holders.size() == 0 && descendants.size() == 0 && exclusiveWaiters == 0;
+        }
     }
 
-   /* =============================================== */
+    /** Locks held by threads, grouped by thread. */
+    private static final class Holders {
+        private final Map<Thread, Hold> holds = new HashMap<>(4);
 
-    private static class Node {
-        final Path path;
-        final long threadId = Thread.currentThread().getId();
-        int  permits;
-        int  threadDeep;
-        Node prev;
+        private int exclusiveThreads;
 
-        Node(Path path, int permits, Node prev) {
-            this.path = path;
-            this.permits = permits;
-            this.prev = prev;
-            threadDeep = 1;
+        int size() {
+            return holds.size();
         }
 
-        @Override
-        public String toString() {
-            return "Node{" +
-                   "path=" + path +
-                   ", threadId=" + threadId +
-                   ", permits=" + permits +
-                   ", prev=" + prev +
-                   '}';
+        boolean contains(Thread thread) {
+            return holds.containsKey(thread);
+        }
+
+        Hold get(Thread thread) {
+            return holds.get(thread);
+        }
+
+        /** Checks whether lock requested by the thread conflicts with the locks held by other threads. */
+        boolean conflicts(Thread thread, boolean exclusive) {
+            final Hold own = holds.get(thread);
+            if (exclusive) {
+                return holds.size() > (own == null ? 0 : 1);
+            }
+            return exclusiveThreads > (own != null && own.exclusive > 0 ? 1 : 0);
+        }
+
+        void add(Thread thread, boolean exclusive) {
+            final Hold hold = holds.computeIfAbsent(thread, t -> new Hold());
+            if (exclusive) {
+                if (hold.exclusive++ == 0) {
+                    exclusiveThreads++;
+                }
+            } else {
+                hold.shared++;
+            }
+        }
+
+        /** Returns the hold of the thread if it is released completely or {@code null} otherwise. */
+        Hold remove(Thread thread, boolean exclusive) {
+            final Hold hold = holds.get(thread);
+            if (hold == null) {
+                return null;
+            }
+            if (exclusive && hold.exclusive > 0 || hold.shared == 0) {
+                if (--hold.exclusive == 0) {
+                    exclusiveThreads--;
+                }
+            } else {
+                hold.shared--;
+            }
+            if (hold.count() == 0) {
+                holds.remove(thread);
+                return hold;
+            }
+            return null;
+        }
+    }
+
+    private static final class Hold {
+        final long since = System.nanoTime();
+        int shared;
+        int exclusive;
+
+        int count() {
+            return shared + exclusive;
         }
     }
 
     public final class PathLock {
-        private final Path path;
-        private final int  permits;
+        private final Path    path;
+        private final boolean exclusive;
+
+        private volatile Thread owner;
 
-        private PathLock(Path path, int permits) {
+        private PathLock(Path path, boolean exclusive) {
             this.path = path;
-            this.permits = permits;
+            this.exclusive = exclusive;
         }
 
         /**
@@ -197,7 +492,9 @@ public final class PathLockFactory {
          * @return this PathLock instance
          */
         public PathLock acquire() {
-            PathLockFactory.this.acquire(path, permits);
+            final Thread current = Thread.currentThread();
+            PathLockFactory.this.acquire(path, current, exclusive, -1);
+            owner = current;
             return this;
         }
 
@@ -212,18 +509,23 @@ public final class PathLockFactory {
          *         if waiting timeout reached
          */
         public PathLock acquire(long timeoutMilliseconds) {
-            PathLockFactory.this.acquire(path, permits, timeoutMilliseconds);
+            final Thread current = Thread.currentThread();
+            PathLockFactory.this.acquire(path, current, exclusive, TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMilliseconds)));
+            owner = current;
             return this;
         }
 
         /** Release file permit. */
         public void release() {
-            PathLockFactory.this.release(path, permits);
+            final Thread thread = owner;
+            if (thread != null) {
+                PathLockFactory.this.release(path, thread, exclusive);
+            }
         }
 
         /** Returns <code>true</code> if this lock is exclusive and <code>false</code> otherwise. */
         public boolean isExclusive() {
-            return permits == PathLockFactory.this.maxThreads;
+            return exclusive;
         }
     }
 }
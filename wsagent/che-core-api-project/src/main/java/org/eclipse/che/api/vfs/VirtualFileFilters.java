@@ -94,6 +94,16 @@ public class VirtualFileFilters {
 
     private static final VirtualFileFilter DOT_GIT_FILTER = file -> !(".git".equals(file.getName()));
 
+    /**
+     * Accepts files modified after the given time. All folders are accepted so files under them are checked as well.
+     *
+     * @param time
+     *         time in milliseconds since the epoch
+     */
+    public static VirtualFileFilter modifiedSince(long time) {
+        return file -> file.isFolder() || file.getLastModificationDate() > time;
+    }
+
     public static VirtualFileFilter wrap(PathMatcher pathMatcher) {
         return file -> pathMatcher.matches(file.toIoFile().toPath());
     }
@@ -10,22 +10,52 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.vfs.util.NotClosableInputStream;
 import org.eclipse.che.api.vfs.util.ZipContent;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 public class ZipArchiver extends Archiver {
+    /** Number of threads that compress files for {@link #compress(OutputStream, VirtualFileFilter)}. */
+    static final int COMPRESSION_THREADS = Runtime.getRuntime().availableProcessors();
+    /** Max number of entries that are compressed ahead of the output. */
+    static final int PENDING_ENTRIES     = 2 * COMPRESSION_THREADS;
+    /** Files bigger than this are not buffered in memory. */
+    static final int MAX_BUFFERED_SIZE   = 4 * 1024 * 1024;
+
+    /** Files of these formats are already compressed so they are stored in the archive as is. */
+    static final Set<String> STORED_EXTENSIONS = ImmutableSet.of("zip", "jar", "war", "ear", "gz", "tgz", "bz2", "xz", "7z",
+                                                                 "rar", "png", "jpg", "jpeg", "gif", "webp", "ico", "mp3",
+                                                                 "ogg", "flac", "mp4", "m4v", "webm", "avi", "mov", "woff",
+                                                                 "woff2", "pdf");
+
     public ZipArchiver(VirtualFile folder) {
         super(folder);
     }
@@ -35,15 +65,31 @@ public class ZipArchiver extends Archiver {
         compress(zipOutput, VirtualFileFilter.ACCEPT_ALL);
     }
 
+    /**
+     * Writes compressed content of folder to specified output. Files are compressed in parallel on the shared pool of
+     * {@link #COMPRESSION_THREADS} threads while entries are written in the same order as they are visited, at most
+     * {@link #PENDING_ENTRIES} entries are compressed ahead of the output. Files of the already compressed formats,
+     * see {@link #STORED_EXTENSIONS}, are written without compression. Files bigger than {@link #MAX_BUFFERED_SIZE}
+     * are compressed in the calling thread when they are written, so their content is read only once.
+     *
+     * @param zipOutput
+     *         output for compressed content
+     * @param filter
+     *         only files that match to this filter are written in {@code zipOutput}
+     */
     @Override
     public void compress(OutputStream zipOutput, VirtualFileFilter filter) throws IOException, ServerException {
-        try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipOutput)) {
+        final Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+        try (ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(zipOutput)) {
             folder.accept(new VirtualFileVisitor() {
                 @Override
                 public void visit(VirtualFile visitedVirtualFile) throws ServerException {
                     if (filter.accept(visitedVirtualFile)) {
                         if (!visitedVirtualFile.equals(folder)) {
-                            addZipEntry(visitedVirtualFile, zipOutputStream);
+                            if (pending.size() == PENDING_ENTRIES) {
+                                writeCompressedEntry(pending.poll(), zipOutputStream);
+                            }
+                            pending.add(submitCompressedEntry(visitedVirtualFile));
                         }
                         if (visitedVirtualFile.isFolder()) {
                             for (VirtualFile child : visitedVirtualFile.getChildren()) {
@@ -53,30 +99,90 @@ public class ZipArchiver extends Archiver {
                     }
                 }
             });
+            while (!pending.isEmpty()) {
+                writeCompressedEntry(pending.poll(), zipOutputStream);
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
         }
     }
 
-    private String getZipEntryName(VirtualFile virtualFile) {
-        Path zipPath = virtualFile.getPath().subPath(folder.getPath());
+    private Future<CompressedEntry> submitCompressedEntry(VirtualFile virtualFile) throws ServerException {
+        final ZipArchiveEntry zipEntry = new ZipArchiveEntry(getZipEntryName(virtualFile));
         if (virtualFile.isFolder()) {
-            return zipPath.toString() + '/';
+            zipEntry.setTime(0);
+            return CompletableFuture.completedFuture(new CompressedEntry(zipEntry, virtualFile, null));
         }
-        return zipPath.toString();
+        zipEntry.setTime(virtualFile.getLastModificationDate());
+        if (virtualFile.getLength() > MAX_BUFFERED_SIZE) {
+            // checksum of the big file is counted while it is written, stored size and checksum must be known
+            // before the content, so already compressed content is written in deflate format without compression
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            zipEntry.setSize(virtualFile.getLength());
+            return CompletableFuture.completedFuture(new CompressedEntry(zipEntry, virtualFile, null));
+        }
+        return CompressionExecutor.INSTANCE.submit(() -> compressEntry(zipEntry, virtualFile));
     }
 
-    private void addZipEntry(VirtualFile virtualFile, ZipOutputStream zipOutputStream) throws ServerException {
+    private CompressedEntry compressEntry(ZipArchiveEntry zipEntry, VirtualFile virtualFile) throws ServerException {
+        final CRC32 crc = new CRC32();
+        try (InputStream content = new CheckedInputStream(virtualFile.getContent(), crc)) {
+            if (isStored(virtualFile)) {
+                zipEntry.setMethod(ZipEntry.STORED);
+                final byte[] data = ByteStreams.toByteArray(content);
+                setSizesAndCrc(zipEntry, data.length, data.length, crc);
+                return new CompressedEntry(zipEntry, virtualFile, data);
+            }
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            final ByteArrayOutputStream data = new ByteArrayOutputStream();
+            final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(data, deflater)) {
+                    ByteStreams.copy(content, deflaterOutput);
+                }
+                setSizesAndCrc(zipEntry, deflater.getBytesRead(), data.size(), crc);
+            } finally {
+                deflater.end();
+            }
+            return new CompressedEntry(zipEntry, virtualFile, data.toByteArray());
+        } catch (ForbiddenException e) {
+            throw new ServerException(e.getServiceError());
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    private void writeCompressedEntry(Future<CompressedEntry> future, ZipArchiveOutputStream zipOutputStream)
+            throws ServerException {
+        final CompressedEntry compressedEntry;
         try {
-            ZipEntry zipEntry = new ZipEntry(getZipEntryName(virtualFile));
-            zipOutputStream.putNextEntry(zipEntry);
-            if (virtualFile.isFolder()) {
-                zipEntry.setTime(0);
+            compressedEntry = future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServerException) {
+                throw (ServerException)e.getCause();
+            }
+            throw new ServerException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Compression of the folder was interrupted", e);
+        }
+
+        final ZipArchiveEntry zipEntry = compressedEntry.zipEntry;
+        try {
+            if (compressedEntry.data != null) {
+                zipOutputStream.addRawArchiveEntry(zipEntry, new ByteArrayInputStream(compressedEntry.data));
+            } else if (zipEntry.isDirectory()) {
+                zipOutputStream.putArchiveEntry(zipEntry);
+                zipOutputStream.closeArchiveEntry();
             } else {
-                try (InputStream content = virtualFile.getContent()) {
+                zipOutputStream.setLevel(isStored(compressedEntry.virtualFile) ? Deflater.NO_COMPRESSION
+                                                                               : Deflater.DEFAULT_COMPRESSION);
+                zipOutputStream.putArchiveEntry(zipEntry);
+                try (InputStream content = compressedEntry.virtualFile.getContent()) {
                     ByteStreams.copy(content, zipOutputStream);
                 }
-                zipEntry.setTime(virtualFile.getLastModificationDate());
+                zipOutputStream.closeArchiveEntry();
             }
-            zipOutputStream.closeEntry();
         } catch (ForbiddenException e) {
             throw new ServerException(e.getServiceError());
         } catch (IOException e) {
@@ -84,6 +190,26 @@ public class ZipArchiver extends Archiver {
         }
     }
 
+    private static void setSizesAndCrc(ZipArchiveEntry zipEntry, long size, long compressedSize, CRC32 crc) {
+        zipEntry.setSize(size);
+        zipEntry.setCompressedSize(compressedSize);
+        zipEntry.setCrc(crc.getValue());
+    }
+
+    private static boolean isStored(VirtualFile virtualFile) {
+        final String name = virtualFile.getName();
+        final int dot = name.lastIndexOf('.');
+        return dot > 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    private String getZipEntryName(VirtualFile virtualFile) {
+        Path zipPath = virtualFile.getPath().subPath(folder.getPath());
+        if (virtualFile.isFolder()) {
+            return zipPath.toString() + '/';
+        }
+        return zipPath.toString();
+    }
+
     @Override
     public void extract(InputStream zipInput, boolean overwrite, int stripNumber)
             throws IOException, ForbiddenException, ConflictException, ServerException {
@@ -133,4 +259,24 @@ public class ZipArchiver extends Archiver {
             }
         }
     }
+
+    private static class CompressedEntry {
+        final ZipArchiveEntry zipEntry;
+        final VirtualFile     virtualFile;
+        /** Compressed or stored content of the file, {@code null} if the content is read when the entry is written. */
+        final byte[]          data;
+
+        CompressedEntry(ZipArchiveEntry zipEntry, VirtualFile virtualFile, byte[] data) {
+            this.zipEntry = zipEntry;
+            this.virtualFile = virtualFile;
+            this.data = data;
+        }
+    }
+
+    private static class CompressionExecutor {
+        static final ExecutorService INSTANCE = Executors.newFixedThreadPool(COMPRESSION_THREADS,
+                                                                             new ThreadFactoryBuilder().setNameFormat("ZipArchiver-%d")
+                                                                                                       .setDaemon(true)
+                                                                                                       .build());
+    }
 }
@@ -54,10 +54,12 @@ public class DefaultFileWatcherNotificationHandler implements FileWatcherNotific
 
     public void started(File watchRoot) {
         LOG.debug("Start watching file events on {}", watchRoot);
+        setFileWatcherRunning(true);
     }
 
     public void errorOccurred(File watchRoot, Throwable cause) {
         LOG.warn("Error occurs while watching file events on {}: {}", watchRoot, cause.getMessage());
+        setFileWatcherRunning(false);
     }
 
     @Override
@@ -70,10 +72,19 @@ public class DefaultFileWatcherNotificationHandler implements FileWatcherNotific
         return fileWatcherNotificationListeners.remove(fileWatcherNotificationListener);
     }
 
+    private void setFileWatcherRunning(boolean running) {
+        try {
+            ((LocalVirtualFileSystem)virtualFileSystemProvider.getVirtualFileSystem(true)).setFileWatcherRunning(running);
+        } catch (ServerException e) {
+            LOG.warn(e.getMessage());
+        }
+    }
+
     private VirtualFile convertToVirtualFile(File root, String subPath, boolean isDir) {
         try {
             LocalVirtualFileSystem virtualFileSystem = (LocalVirtualFileSystem)virtualFileSystemProvider.getVirtualFileSystem(true);
             Path vfsPath = Path.of(subPath);
+            virtualFileSystem.invalidateChildren(ROOT.newPath(vfsPath));
             VirtualFile virtualFile = virtualFileSystem.getRoot().getChild(vfsPath);
             if (virtualFile == null) {
                 virtualFile = new DeletedLocalVirtualFile(new File(root, subPath), ROOT.newPath(vfsPath), virtualFileSystem, isDir);
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+/**
+ * Immutable list of the entries of a directory used by {@link FileTreeWatcher} to find out what is changed in the directory.
+ *
+ * <p>Entries are kept in two arrays sorted by name: interned names and states, each state packs the last modification
+ * time of the entry and a flag whether the entry is a directory. Names of the same files in different directories and
+ * in the subsequent snapshots of the same directory share a single string instance.
+ */
+final class DirectorySnapshot {
+    /** Snapshot of a directory without entries. */
+    static final DirectorySnapshot EMPTY = new DirectorySnapshot(new String[0], new long[0]);
+
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+    /** Receives differences between two snapshots of the same directory. */
+    interface ChangeListener {
+        void created(String name, boolean directory) throws IOException;
+
+        void deleted(String name, boolean directory) throws IOException;
+
+        void modified(String name) throws IOException;
+    }
+
+    /**
+     * Lists the directory and reads attributes of its entries, symbolic links are not followed.
+     * Entries that are deleted while the directory is listed are skipped.
+     */
+    static DirectorySnapshot read(Path directory) throws IOException {
+        String[] names = new String[16];
+        long[] states = new long[16];
+        int size = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                final BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                    states = Arrays.copyOf(states, size * 2);
+                }
+                names[size] = NAMES.intern(entry.getFileName().toString());
+                states[size] = pack(attributes.lastModifiedTime().toMillis(), attributes.isDirectory());
+                size++;
+            }
+        }
+        return sorted(Arrays.copyOf(names, size), Arrays.copyOf(states, size));
+    }
+
+    private static DirectorySnapshot sorted(String[] names, long[] states) {
+        final Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+        final String[] sortedNames = new String[names.length];
+        final long[] sortedStates = new long[states.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedNames[i] = names[order[i]];
+            sortedStates[i] = states[order[i]];
+        }
+        return new DirectorySnapshot(sortedNames, sortedStates);
+    }
+
+    private static long pack(long lastModified, boolean directory) {
+        return lastModified << 1 | (directory ? 1 : 0);
+    }
+
+    private final String[] names;
+    private final long[]   states;
+
+    private DirectorySnapshot(String[] names, long[] states) {
+        this.names = names;
+        this.states = states;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    boolean isDirectory(int index) {
+        return (states[index] & 1) != 0;
+    }
+
+    long getLastModified(int index) {
+        return states[index] >>> 1;
+    }
+
+    /**
+     * Compares this snapshot with the newer snapshot of the same directory. Entry that changed its type is reported
+     * as deleted and created again, changes of the last modification time are reported only for files.
+     */
+    void compareTo(DirectorySnapshot newer, ChangeListener listener) throws IOException {
+        int i = 0;
+        int j = 0;
+        while (i < names.length || j < newer.names.length) {
+            final int cmp = i == names.length ? 1 : j == newer.names.length ? -1 : names[i].compareTo(newer.names[j]);
+            if (cmp < 0) {
+                listener.deleted(names[i], isDirectory(i));
+                i++;
+            } else if (cmp > 0) {
+                listener.created(newer.names[j], newer.isDirectory(j));
+                j++;
+            } else {
+                if (isDirectory(i) != newer.isDirectory(j)) {
+                    listener.deleted(names[i], isDirectory(i));
+                    listener.created(newer.names[j], newer.isDirectory(j));
+                } else if (!isDirectory(i) && getLastModified(i) != newer.getLastModified(j)) {
+                    listener.modified(names[i]);
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+}
@@ -23,34 +23,29 @@ import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.ClosedWatchServiceException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newLinkedHashSet;
-import static java.nio.file.FileVisitResult.CONTINUE;
-import static java.nio.file.Files.getLastModifiedTime;
-import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
@@ -60,6 +55,15 @@ import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.
 import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.DELETED;
 import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.MODIFIED;
 
+/**
+ * Watches the tree of files and notifies {@link FileWatcherNotificationHandler} about created, modified and deleted items.
+ * Excluded directories are not watched.
+ *
+ * <p>Content of each directory is kept as {@link DirectorySnapshot}, changes of the directory are found by comparing
+ * the snapshot with the current content of the directory. By default every directory is registered in the {@link WatchService}.
+ * In lazy mode only the root directory and directories passed to {@link #watchDirectory(String)}, e.g. expanded in the IDE,
+ * are registered, the rest of directories are rescanned periodically by a low priority thread.
+ */
 @Singleton
 public class FileTreeWatcher {
     private static final Logger LOG = LoggerFactory.getLogger(FileTreeWatcher.class);
@@ -72,19 +76,43 @@ public class FileTreeWatcher {
     private final List<PathMatcher>              excludePatterns;
     private final FileWatcherNotificationHandler fileWatcherNotificationHandler;
     private final ExecutorService                executor;
+    private final ScheduledExecutorService       rescanExecutor;
+    private final boolean                        lazy;
+    private final long                           rescanIntervalSec;
     private final AtomicBoolean                  running;
     private       WatchService                   watchService;
     private       WatchEvent.Modifier[]          watchEventModifiers;
 
+    public FileTreeWatcher(File watchRoot,
+                           Set<PathMatcher> excludePatterns,
+                           FileWatcherNotificationHandler fileWatcherNotificationHandler) {
+        this(watchRoot, excludePatterns, fileWatcherNotificationHandler, false, 0);
+    }
+
+    /**
+     * @param lazy
+     *         whether only the root directory and directories passed to {@link #watchDirectory(String)} are registered
+     *         in the {@link WatchService}
+     * @param rescanIntervalSec
+     *         interval between rescans of directories that are not registered in the {@link WatchService},
+     *         used only in lazy mode
+     */
     @Inject
     public FileTreeWatcher(@Named("che.user.workspaces.storage") File watchRoot,
                            @Named("vfs.index_filter_matcher") Set<PathMatcher> excludePatterns,
-                           FileWatcherNotificationHandler fileWatcherNotificationHandler) {
+                           FileWatcherNotificationHandler fileWatcherNotificationHandler,
+                           @Named("vfs.watcher.lazy") boolean lazy,
+                           @Named("vfs.watcher.rescan_interval_sec") long rescanIntervalSec) {
+        if (lazy && rescanIntervalSec < 1) {
+            throw new IllegalArgumentException("Rescan interval must be greater than 0");
+        }
         watchEventModifiers = new WatchEvent.Modifier[0];
         this.watchRoot = toCanonicalFile(watchRoot);
         this.watchRootPath = this.watchRoot.toPath();
         this.excludePatterns = newArrayList(excludePatterns);
         this.fileWatcherNotificationHandler = fileWatcherNotificationHandler;
+        this.lazy = lazy;
+        this.rescanIntervalSec = rescanIntervalSec;
 
         ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
                                                                 .setUncaughtExceptionHandler(
@@ -92,8 +120,20 @@ public class FileTreeWatcher {
                                                                 .setNameFormat("FileTreeWatcher-%d")
                                                                 .build();
         executor = Executors.newSingleThreadExecutor(threadFactory);
+        if (lazy) {
+            ThreadFactory rescanThreadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                                                                          .setPriority(Thread.MIN_PRIORITY)
+                                                                          .setUncaughtExceptionHandler(
+                                                                                  LoggingUncaughtExceptionHandler.getInstance())
+                                                                          .setNameFormat("FileTreeWatcherRescan-%d")
+                                                                          .build();
+            rescanExecutor = Executors.newSingleThreadScheduledExecutor(rescanThreadFactory);
+        } else {
+            rescanExecutor = null;
+        }
         running = new AtomicBoolean();
-        watchedDirectories = newHashMap();
+        // read without lock by watchDirectory, modified under the lock of the watcher
+        watchedDirectories = new ConcurrentHashMap<>();
     }
 
     private static File toCanonicalFile(File file) {
@@ -110,8 +150,11 @@ public class FileTreeWatcher {
             watchEventModifiers = new WatchEvent.Modifier[]{createSensitivityWatchEventModifier()};
         }
         running.set(true);
-        walkTreeAndSetupWatches(watchRootPath);
+        setupDirectoryWatcher(watchRootPath, false);
         executor.execute(new WatchEventTask());
+        if (rescanExecutor != null) {
+            rescanExecutor.scheduleWithFixedDelay(this::rescan, rescanIntervalSec, rescanIntervalSec, SECONDS);
+        }
         fileWatcherNotificationHandler.started(watchRoot);
     }
 
@@ -132,6 +175,9 @@ public class FileTreeWatcher {
 
     public void shutdown() {
         boolean interrupted = false;
+        if (rescanExecutor != null) {
+            rescanExecutor.shutdownNow();
+        }
         executor.shutdown();
         try {
             if (!executor.awaitTermination(3, SECONDS)) {
@@ -145,11 +191,7 @@ public class FileTreeWatcher {
             executor.shutdownNow();
         }
 
-        try {
-            walkTreeAndRemoveWatches(watchRootPath);
-        } catch (IOException e) {
-            LOG.warn(e.getMessage());
-        }
+        cancelDirectoryWatchers();
 
         try {
             watchService.close();
@@ -170,17 +212,39 @@ public class FileTreeWatcher {
         this.excludePatterns.remove(exclude);
     }
 
-    private void walkTreeAndSetupWatches(Path root) throws IOException {
-        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path relativePath = watchRootPath.relativize(dir);
-                if (shouldNotify(relativePath)) {
-                    setupDirectoryWatcher(dir);
-                }
-                return CONTINUE;
+    /**
+     * Registers the directory in the {@link WatchService} in lazy mode, so its changes are reported immediately instead of
+     * waiting for the next rescan. Does nothing in regular mode, for excluded and for unknown directories.
+     *
+     * @param path
+     *         path of the directory relative to the root of the watched tree
+     */
+    public void watchDirectory(String path) {
+        if (!lazy || !running.get()) {
+            return;
+        }
+        final Path directory = watchRootPath.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        // directories are listed much more often than they become watched, so the lock is taken only for registration
+        if (isUnknownOrRegistered(directory)) {
+            return;
+        }
+        synchronized (this) {
+            if (isUnknownOrRegistered(directory)) {
+                return;
+            }
+            try {
+                watchedDirectories.get(directory).setWatchKey(register(directory));
+                // catch up with changes made since the last rescan
+                updateDirectory(directory);
+            } catch (IOException e) {
+                LOG.warn("Unable to watch directory {}: {}", directory, e.getMessage());
             }
-        });
+        }
+    }
+
+    private boolean isUnknownOrRegistered(Path directory) {
+        final WatchedDirectory watchedDirectory = watchedDirectories.get(directory);
+        return watchedDirectory == null || watchedDirectory.getWatchKey() != null;
     }
 
     private boolean shouldNotify(Path subPath) {
@@ -192,58 +256,66 @@ public class FileTreeWatcher {
         return true;
     }
 
-    private void walkTreeAndRemoveWatches(Path root) throws IOException {
-        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                cancelDirectoryWatcher(dir);
-                return CONTINUE;
+    /**
+     * Takes snapshots of the directory and its sub-directories which are not excluded and not watched yet. In lazy mode
+     * only the root directory is registered in the {@link WatchService}.
+     *
+     * @param fireCreated
+     *         whether to notify about entries of the directories, used for directories that have just been created
+     */
+    private synchronized void setupDirectoryWatcher(Path directory, boolean fireCreated) throws IOException {
+        if (watchedDirectories.get(directory) == null) {
+            WatchKey watchKey = lazy && !directory.equals(watchRootPath) ? null : register(directory);
+            DirectorySnapshot snapshot;
+            try {
+                snapshot = DirectorySnapshot.read(directory);
+            } catch (IOException e) {
+                if (watchKey != null) {
+                    watchKey.cancel();
+                }
+                throw e;
             }
-        });
-    }
-
-    private void walkTreeAndFireCreatedEvents(Path root) throws IOException {
-        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (!dir.equals(root)) {
-                    fireWatchEvent(CREATED, dir, true);
+            watchedDirectories.put(directory, new WatchedDirectory(watchKey, snapshot));
+            for (int i = 0; i < snapshot.size(); i++) {
+                Path entry = directory.resolve(snapshot.getName(i));
+                if (fireCreated) {
+                    fireWatchEvent(CREATED, entry, snapshot.isDirectory(i));
+                }
+                if (snapshot.isDirectory(i) && shouldNotify(watchRootPath.relativize(entry))) {
+                    try {
+                        setupDirectoryWatcher(entry, fireCreated);
+                    } catch (NoSuchFileException ignored) {
+                        // deleted after the parent directory is listed, deletion is reported with the next change of parent
+                    }
                 }
-                return CONTINUE;
             }
+        }
+    }
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                fireWatchEvent(CREATED, file, false);
-                return CONTINUE;
-            }
-        });
+    private WatchKey register(Path directory) throws IOException {
+        return directory.register(watchService,
+                                  new WatchEvent.Kind[]{ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY, OVERFLOW},
+                                  watchEventModifiers);
     }
 
-    private void setupDirectoryWatcher(Path directory) throws IOException {
-        if (watchedDirectories.get(directory) == null) {
-            WatchKey watchKey = directory.register(watchService,
-                                                   new WatchEvent.Kind[]{ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY, OVERFLOW},
-                                                   watchEventModifiers);
-            WatchedDirectory watchedDirectory = new WatchedDirectory(directory, watchKey);
-            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
-                for (Path entry : entries) {
-                    watchedDirectory
-                            .addItem(new DirectoryItem(entry.getFileName(), Files.isDirectory(entry), getLastModifiedInMillis(entry)));
-
-                    if (Files.isDirectory(entry)) {
-                        setupDirectoryWatcher(entry);
-                    }
-                }
+    /** Forgets the directory and its sub-directories, notifies about deletion of their entries. */
+    private void removeDirectory(Path directory) throws IOException {
+        WatchedDirectory watchedDirectory = watchedDirectories.remove(directory);
+        if (watchedDirectory != null) {
+            if (watchedDirectory.getWatchKey() != null) {
+                watchedDirectory.getWatchKey().cancel();
             }
-            watchedDirectories.put(directory, watchedDirectory);
+            watchedDirectory.getSnapshot().compareTo(DirectorySnapshot.EMPTY, new DirectoryChangeListener(directory, false));
         }
     }
 
-    private void cancelDirectoryWatcher(Path path) {
-        WatchedDirectory watchedDirectory = watchedDirectories.remove(path);
-        if (watchedDirectory != null) {
-            watchedDirectory.getWatchKey().cancel();
+    private synchronized void cancelDirectoryWatchers() {
+        for (Iterator<WatchedDirectory> iterator = watchedDirectories.values().iterator(); iterator.hasNext(); ) {
+            WatchedDirectory watchedDirectory = iterator.next();
+            if (watchedDirectory.getWatchKey() != null) {
+                watchedDirectory.getWatchKey().cancel();
+            }
+            iterator.remove();
         }
     }
 
@@ -279,72 +351,59 @@ public class FileTreeWatcher {
         }
     }
 
+    /** Lock is taken for each directory separately, so {@link #watchDirectory(String)} doesn't wait for the whole batch. */
     private void processPendingEvents(Collection<PendingEvent> pendingEvents) throws IOException {
         for (PendingEvent pendingEvent : pendingEvents) {
-            Path eventDirectoryPath = pendingEvent.getPath();
-            WatchedDirectory watchedDirectory = watchedDirectories.get(eventDirectoryPath);
-            if (watchedDirectory == null){
-                continue;
+            synchronized (this) {
+                updateDirectory(pendingEvent.getPath());
             }
-            if (Files.exists(eventDirectoryPath)) {
-                boolean isModifiedNotYetReported = true;
-
-                final int hitCounter = watchedDirectory.incrementHitCounter();
-                try (DirectoryStream<Path> entries = Files.newDirectoryStream(eventDirectoryPath)) {
-                    for (Path fsItem : entries) {
-                        DirectoryItem directoryItem = watchedDirectory.getItem(fsItem.getFileName());
-                        if (directoryItem == null) {
-                            try {
-                                boolean directory = Files.isDirectory(fsItem);
-                                directoryItem = new DirectoryItem(fsItem.getFileName(), directory, getLastModifiedInMillis(fsItem));
-                                watchedDirectory.addItem(directoryItem);
-                                if (isModifiedNotYetReported){
-                                    isModifiedNotYetReported = false;
-                                    fireWatchEvent(MODIFIED, eventDirectoryPath, true);
-                                }
-                                fireWatchEvent(CREATED, fsItem, directoryItem.isDirectory());
-                                if (directory) {
-                                    walkTreeAndFireCreatedEvents(fsItem);
-                                    setupDirectoryWatcher(fsItem);
-                                }
-                            } catch (IOException ignored) {
-                            }
-                        } else {
-                            long lastModified;
-                            try {
-                                lastModified = getLastModifiedInMillis(fsItem);
-                            } catch (IOException ignored) {
-                                continue;
-                            }
-                            if (lastModified != directoryItem.getLastModified() && Files.isRegularFile(fsItem)) {
-                                fireWatchEvent(MODIFIED, fsItem, false);
-                            }
-                            directoryItem.touch(lastModified);
-                            directoryItem.updateHitCounter(hitCounter);
-                        }
-                    }
-                }
+        }
+    }
 
-                for (Iterator<DirectoryItem> iterator = watchedDirectory.getItems().iterator(); iterator.hasNext(); ) {
-                    DirectoryItem directoryItem = iterator.next();
-                    if (hitCounter != directoryItem.getHitCount()) {
-                        iterator.remove();
-                        if (isModifiedNotYetReported){
-                            isModifiedNotYetReported = false;
-                            fireWatchEvent(MODIFIED, eventDirectoryPath, true);
-                        }
-                        fireWatchEvent(DELETED, eventDirectoryPath.resolve(directoryItem.getName()), directoryItem.isDirectory());
+    /**
+     * Compares directories which are not registered in the {@link WatchService} with their snapshots. Lock is taken
+     * for each directory separately so events of the watched directories are not delayed until the whole tree is rescanned.
+     */
+    private void rescan() {
+        final List<Path> directories;
+        synchronized (this) {
+            directories = newArrayList(watchedDirectories.keySet());
+        }
+        for (Path directory : directories) {
+            if (!running.get() || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            synchronized (this) {
+                WatchedDirectory watchedDirectory = watchedDirectories.get(directory);
+                if (watchedDirectory != null && watchedDirectory.getWatchKey() == null) {
+                    try {
+                        updateDirectory(directory);
+                    } catch (IOException e) {
+                        LOG.warn("Unable to rescan directory {}: {}", directory, e.getMessage());
+                    } catch (RuntimeException e) {
+                        fileWatcherNotificationHandler.errorOccurred(watchRoot, e);
                     }
                 }
-            } else {
-                for (DirectoryItem directoryItem : watchedDirectory.getItems()) {
-                    fireWatchEvent(DELETED, eventDirectoryPath.resolve(directoryItem.getName()), directoryItem.isDirectory());
-                }
-                watchedDirectories.remove(eventDirectoryPath);
             }
         }
     }
 
+    private void updateDirectory(Path directory) throws IOException {
+        WatchedDirectory watchedDirectory = watchedDirectories.get(directory);
+        if (watchedDirectory == null) {
+            return;
+        }
+        DirectorySnapshot snapshot;
+        try {
+            snapshot = DirectorySnapshot.read(directory);
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            removeDirectory(directory);
+            return;
+        }
+        watchedDirectory.getSnapshot().compareTo(snapshot, new DirectoryChangeListener(directory, true));
+        watchedDirectory.setSnapshot(snapshot);
+    }
+
     private void fireWatchEvent(FileWatcherEventType eventType, Path eventPath, boolean isDirectory) {
         Path relativePath = watchRootPath.relativize(eventPath);
         if (shouldNotify(relativePath)) {
@@ -352,8 +411,51 @@ public class FileTreeWatcher {
         }
     }
 
-    private long getLastModifiedInMillis(Path path) throws IOException {
-        return getLastModifiedTime(path, NOFOLLOW_LINKS).toMillis();
+    /** Notifies about changes of the directory, modification of the directory itself is reported once before the first change. */
+    private class DirectoryChangeListener implements DirectorySnapshot.ChangeListener {
+        final Path directory;
+        boolean    isModifiedNotYetReported;
+
+        DirectoryChangeListener(Path directory, boolean reportModified) {
+            this.directory = directory;
+            this.isModifiedNotYetReported = reportModified;
+        }
+
+        @Override
+        public void created(String name, boolean isDirectory) throws IOException {
+            reportModified();
+            Path entry = directory.resolve(name);
+            fireWatchEvent(CREATED, entry, isDirectory);
+            if (isDirectory && shouldNotify(watchRootPath.relativize(entry))) {
+                try {
+                    setupDirectoryWatcher(entry, true);
+                } catch (NoSuchFileException | NotDirectoryException ignored) {
+                    // already deleted or replaced, it is reported with the next change of the directory
+                }
+            }
+        }
+
+        @Override
+        public void deleted(String name, boolean isDirectory) throws IOException {
+            reportModified();
+            Path entry = directory.resolve(name);
+            fireWatchEvent(DELETED, entry, isDirectory);
+            if (isDirectory) {
+                removeDirectory(entry);
+            }
+        }
+
+        @Override
+        public void modified(String name) {
+            fireWatchEvent(MODIFIED, directory.resolve(name), false);
+        }
+
+        private void reportModified() {
+            if (isModifiedNotYetReported) {
+                isModifiedNotYetReported = false;
+                fireWatchEvent(MODIFIED, directory, true);
+            }
+        }
     }
 
     static class PendingEvent {
@@ -385,83 +487,30 @@ public class FileTreeWatcher {
         }
     }
 
+    /** Snapshot of the directory and its watch key, the key is {@code null} if the directory is only rescanned. */
     static class WatchedDirectory {
-        final Path                path;
-        final WatchKey            watchKey;
-        final List<DirectoryItem> items;
-        int hitCounter;
+        volatile WatchKey watchKey;
+        DirectorySnapshot snapshot;
 
-        WatchedDirectory(Path path, WatchKey watchKey) {
-            this.path = path;
+        WatchedDirectory(WatchKey watchKey, DirectorySnapshot snapshot) {
             this.watchKey = watchKey;
-            items = newArrayList();
+            this.snapshot = snapshot;
         }
 
         WatchKey getWatchKey() {
             return watchKey;
         }
 
-        Path getPath() {
-            return path;
-        }
-
-        DirectoryItem getItem(Path name) {
-            for (DirectoryItem item : items) {
-                if (item.getName().equals(name)) {
-                    return item;
-                }
-            }
-            return null;
-        }
-
-        void addItem(DirectoryItem item) {
-            item.updateHitCounter(this.hitCounter);
-            items.add(item);
-        }
-
-        List<DirectoryItem> getItems() {
-            return items;
-        }
-
-        int incrementHitCounter() {
-            return ++hitCounter;
-        }
-    }
-
-    static class DirectoryItem {
-        final Path    name;
-        final boolean directory;
-        long lastModified;
-        int  hitCounter;
-
-        DirectoryItem(Path name, boolean directory, long lastModified) {
-            this.name = name;
-            this.directory = directory;
-            this.lastModified = lastModified;
-        }
-
-        long getLastModified() {
-            return lastModified;
-        }
-
-        Path getName() {
-            return name;
-        }
-
-        boolean isDirectory() {
-            return directory;
-        }
-
-        void touch(long lastModified) {
-            this.lastModified = lastModified;
+        void setWatchKey(WatchKey watchKey) {
+            this.watchKey = watchKey;
         }
 
-        int getHitCount() {
-            return hitCounter;
+        DirectorySnapshot getSnapshot() {
+            return snapshot;
         }
 
-        void updateHitCounter(int hitCounter) {
-            this.hitCounter = hitCounter;
+        void setSnapshot(DirectorySnapshot snapshot) {
+            this.snapshot = snapshot;
         }
     }
 }
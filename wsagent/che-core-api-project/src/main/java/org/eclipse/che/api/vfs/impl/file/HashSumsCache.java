@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file;
+
+import com.google.common.hash.HashCode;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.Path;
+import org.eclipse.che.api.vfs.VirtualFile;
+import org.eclipse.che.commons.lang.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Counts md5 sums of the files of {@link LocalVirtualFileSystem} and keeps them between the calls:
+ * <ul>
+ * <li>md5 sum of the file is cached by path of the file and validated by the file key (inode on the unix file
+ * systems), last modification date and length of the file. The sums are saved in the file given in the constructor
+ * when the file system is closed and are loaded on the first use.</li>
+ * <li>each folder has digest of the names and sums of its children and digests of its sub-folders, the same as
+ * Merkle tree. Digest of the folder is dropped when the folder or any item under it is changed, see
+ * {@link #invalidate(Path)}. While the file watcher is running, see {@link #setFileWatcherRunning(boolean)}, digest of
+ * the not changed folder is used without reading of the folder, otherwise each file is checked.</li>
+ * <li>sub-folders are walked in parallel in the fork-join pool, files bigger than {@link #MAPPED_READ_SIZE} are read
+ * through the memory mapped buffers.</li>
+ * </ul>
+ * Note that the file watcher doesn't report changes in the excluded folders, so their digests may be stale while the
+ * watcher is running.
+ *
+ * @since 5.0
+ */
+class HashSumsCache {
+    private static final Logger LOG = LoggerFactory.getLogger(HashSumsCache.class);
+
+    static final long MAPPED_READ_SIZE = 1024 * 1024;
+
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final int  READ_BUFFER_SIZE   = 8 * 1024;
+    private static final int  FORMAT_VERSION     = 1;
+    /**
+     * Sum of the file and digest of the folder modified less than this amount of milliseconds before they were read
+     * are not cached, timestamp may not change after the next modification on the file systems with coarse timestamps.
+     */
+    private static final long RACY_MODIFICATION_MS = 2000;
+
+    private final File                                         hashesFile;
+    private final ConcurrentNavigableMap<String, FileHash>     fileHashes;
+    private final ConcurrentNavigableMap<String, FolderDigest> folderDigests;
+    private final AtomicBoolean                                loaded;
+    private final AtomicLong                                   invalidations;
+
+    private volatile boolean fileHashesChanged;
+    private volatile boolean fileWatcherRunning;
+    private ForkJoinPool pool;
+
+    HashSumsCache(File hashesFile) {
+        this.hashesFile = hashesFile;
+        this.fileHashes = new ConcurrentSkipListMap<>();
+        this.folderDigests = new ConcurrentSkipListMap<>();
+        this.loaded = new AtomicBoolean();
+        this.invalidations = new AtomicLong();
+    }
+
+    /**
+     * Returns md5 sums of all the files under the folder. Each {@code Pair} contains md5 sum of the file represented as
+     * HEX string and path of the file relative to the folder.
+     */
+    List<Pair<String, String>> countMd5Sums(LocalVirtualFile folder) throws ServerException {
+        final List<Pair<String, String>> hashSums = new ArrayList<>();
+        getDigest(folder).collect("", hashSums);
+        return hashSums;
+    }
+
+    /** Returns Merkle digest of the folder, it changes when any file under the folder is added, removed or modified. */
+    String getFolderDigest(LocalVirtualFile folder) throws ServerException {
+        return getDigest(folder).digest;
+    }
+
+    /**
+     * Drops digests of the item, items under it and its parent folders. Should be called when item is created, removed,
+     * renamed or modified, inside or outside of this file system, e.g. on the file watcher events.
+     */
+    void invalidate(Path path) {
+        invalidations.incrementAndGet();
+        if (path.isRoot()) {
+            folderDigests.clear();
+            return;
+        }
+        final String key = path.toString();
+        // '0' is the next character after '/' so the sub-map contains all the items under the path
+        folderDigests.subMap(key + '/', key + '0').clear();
+        fileHashes.subMap(key + '/', key + '0').clear();
+        fileHashes.remove(key);
+        for (Path folder = path; ; folder = folder.getParent()) {
+            folderDigests.remove(folder.toString());
+            if (folder.isRoot()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Digests of the folders are trusted without reading of the folders only while the file watcher reports changes
+     * of the file system. Digests are dropped when the watcher is started, since the changes made before aren't reported.
+     */
+    void setFileWatcherRunning(boolean running) {
+        invalidations.incrementAndGet();
+        folderDigests.clear();
+        fileWatcherRunning = running;
+    }
+
+    /** Saves md5 sums of the files and stops hashing threads. */
+    synchronized void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        folderDigests.clear();
+        if (fileHashesChanged) {
+            save();
+        }
+    }
+
+    private FolderDigest getDigest(LocalVirtualFile folder) throws ServerException {
+        load();
+        try {
+            return getPool().invoke(new DigestTask(folder, invalidations.get()));
+        } catch (RuntimeException e) {
+            // tasks completed in the other threads may be rethrown as copies so check the whole chain of causes
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ServerException) {
+                    throw (ServerException)cause;
+                }
+                if (cause instanceof IOException) {
+                    throw new ServerException(cause.getMessage(), cause);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+    private String getFileHash(LocalVirtualFile file) throws IOException {
+        final java.nio.file.Path ioPath = file.toIoFile().toPath();
+        final BasicFileAttributes attributes = Files.readAttributes(ioPath, BasicFileAttributes.class);
+        final String fileKey = attributes.fileKey() == null ? "" : attributes.fileKey().toString();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final long length = attributes.size();
+        final String path = file.getPath().toString();
+
+        final FileHash cached = fileHashes.get(path);
+        if (cached != null && cached.matches(fileKey, modified, length)) {
+            return cached.hash;
+        }
+        final String hash = md5(ioPath);
+        if (System.currentTimeMillis() - modified > RACY_MODIFICATION_MS) {
+            fileHashes.put(path, new FileHash(fileKey, modified, length, hash));
+            fileHashesChanged = true;
+        }
+        return hash;
+    }
+
+    private void load() {
+        if (!loaded.compareAndSet(false, true) || !hashesFile.exists()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(hashesFile)))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                final String path = input.readUTF();
+                fileHashes.put(path, new FileHash(input.readUTF(), input.readLong(), input.readLong(), input.readUTF()));
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to read file hashes from {}: {}", hashesFile, e.getMessage());
+            fileHashes.clear();
+        }
+    }
+
+    private void save() {
+        final File tmpFile = new File(hashesFile.getParentFile(), hashesFile.getName() + ".tmp");
+        if (!(hashesFile.getParentFile().isDirectory() || hashesFile.getParentFile().mkdirs())) {
+            LOG.warn("Unable to create directory {}", hashesFile.getParentFile());
+            return;
+        }
+        final List<Map.Entry<String, FileHash>> records = new ArrayList<>(fileHashes.entrySet());
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(records.size());
+            for (Map.Entry<String, FileHash> record : records) {
+                output.writeUTF(record.getKey());
+                output.writeUTF(record.getValue().fileKey);
+                output.writeLong(record.getValue().modified);
+                output.writeLong(record.getValue().length);
+                output.writeUTF(record.getValue().hash);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to save file hashes to {}: {}", hashesFile, e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmpFile.toPath(), hashesFile.toPath(), REPLACE_EXISTING);
+            fileHashesChanged = false;
+        } catch (IOException e) {
+            LOG.warn("Unable to save file hashes to {}: {}", hashesFile, e.getMessage());
+        }
+    }
+
+    private static String md5(java.nio.file.Path path) throws IOException {
+        final MessageDigest md5 = newMd5();
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            final long size = channel.size();
+            if (size >= MAPPED_READ_SIZE) {
+                for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                    md5.update(channel.map(READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+                }
+            } else {
+                final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    md5.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return HashCode.fromBytes(md5.digest()).toString();
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            // every implementation of the Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class DigestTask extends RecursiveTask<FolderDigest> {
+        private final LocalVirtualFile folder;
+        private final long             invalidationsBefore;
+
+        DigestTask(LocalVirtualFile folder, long invalidationsBefore) {
+            this.folder = folder;
+            this.invalidationsBefore = invalidationsBefore;
+        }
+
+        @Override
+        protected FolderDigest compute() {
+            final String path = folder.getPath().toString();
+            final long modified = folder.toIoFile().lastModified();
+            final FolderDigest cached = folderDigests.get(path);
+            if (cached != null && fileWatcherRunning && cached.modified == modified) {
+                return cached;
+            }
+
+            final List<VirtualFile> children;
+            try {
+                children = folder.getChildren();
+            } catch (ServerException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            final List<String> folderNames = new ArrayList<>();
+            final List<DigestTask> folderTasks = new ArrayList<>();
+            final List<String> fileNames = new ArrayList<>();
+            final List<String> fileHashes = new ArrayList<>();
+            for (VirtualFile child : children) {
+                if (child.isFolder()) {
+                    final DigestTask task = new DigestTask((LocalVirtualFile)child, invalidationsBefore);
+                    task.fork();
+                    folderNames.add(child.getName());
+                    folderTasks.add(task);
+                }
+            }
+            for (VirtualFile child : children) {
+                if (child.isFile()) {
+                    try {
+                        fileHashes.add(getFileHash((LocalVirtualFile)child));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    fileNames.add(child.getName());
+                }
+            }
+            final List<FolderDigest> folders = new ArrayList<>(folderTasks.size());
+            for (DigestTask task : folderTasks) {
+                folders.add(task.join());
+            }
+
+            final FolderDigest digest = new FolderDigest(modified, folderNames, folders, fileNames, fileHashes);
+            if (System.currentTimeMillis() - modified > RACY_MODIFICATION_MS && invalidations.get() == invalidationsBefore) {
+                folderDigests.put(path, digest);
+            }
+            return digest;
+        }
+    }
+
+    private static class FolderDigest {
+        final long               modified;
+        final List<String>       folderNames;
+        final List<FolderDigest> folders;
+        final List<String>       fileNames;
+        final List<String>       fileHashes;
+        final String             digest;
+
+        FolderDigest(long modified, List<String> folderNames, List<FolderDigest> folders, List<String> fileNames,
+                     List<String> fileHashes) {
+            this.modified = modified;
+            this.folderNames = folderNames;
+            this.folders = folders;
+            this.fileNames = fileNames;
+            this.fileHashes = fileHashes;
+
+            final MessageDigest md5 = newMd5();
+            for (int i = 0; i < folderNames.size(); i++) {
+                md5.update(("d " + folderNames.get(i) + ' ' + folders.get(i).digest + '\n').getBytes(UTF_8));
+            }
+            for (int i = 0; i < fileNames.size(); i++) {
+                md5.update(("f " + fileNames.get(i) + ' ' + fileHashes.get(i) + '\n').getBytes(UTF_8));
+            }
+            this.digest = HashCode.fromBytes(md5.digest()).toString();
+        }
+
+        void collect(String prefix, List<Pair<String, String>> hashSums) {
+            for (int i = 0; i < folderNames.size(); i++) {
+                folders.get(i).collect(prefix + folderNames.get(i) + '/', hashSums);
+            }
+            for (int i = 0; i < fileNames.size(); i++) {
+                hashSums.add(Pair.of(fileHashes.get(i), prefix + fileNames.get(i)));
+            }
+        }
+    }
+
+    private static class FileHash {
+        final String fileKey;
+        final long   modified;
+        final long   length;
+        final String hash;
+
+        FileHash(String fileKey, long modified, long length, String hash) {
+            this.fileKey = fileKey;
+            this.modified = modified;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        boolean matches(String fileKey, long modified, long length) {
+            return this.fileKey.equals(fileKey) && this.modified == modified && this.length == length;
+        }
+    }
+}
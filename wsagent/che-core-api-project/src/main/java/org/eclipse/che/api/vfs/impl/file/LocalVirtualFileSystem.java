@@ -10,11 +10,11 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.impl.file;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
@@ -25,7 +25,6 @@ import org.eclipse.che.api.core.util.FileCleaner;
 import org.eclipse.che.api.vfs.AbstractVirtualFileSystemProvider;
 import org.eclipse.che.api.vfs.Archiver;
 import org.eclipse.che.api.vfs.ArchiverFactory;
-import org.eclipse.che.api.vfs.HashSumsCounter;
 import org.eclipse.che.api.vfs.LockedFileFinder;
 import org.eclipse.che.api.vfs.Path;
 import org.eclipse.che.api.vfs.PathLockFactory;
@@ -52,7 +51,11 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -88,8 +91,24 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     private static final FileLock NO_LOCK                = new FileLock("no_lock", 0);
     private static final String   FILE_PROPERTIES_DIR    = VFS_SERVICE_DIR + File.separatorChar + "props";
     private static final String   PROPERTIES_FILE_SUFFIX = "_props";
+    private static final String   HASHES_FILE            = VFS_SERVICE_DIR + File.separatorChar + "hashes";
 
-    private static final FilenameFilter DOT_VFS_DIR_FILTER = (dir, name) -> !(VFS_SERVICE_DIR.equals(name));
+    /** Max number of folders which listings are cached. */
+    private static final int  CHILDREN_CACHE_SIZE = 10_000;
+    /**
+     * Listing of folder modified less than this amount of milliseconds before it was read is not cached.
+     * Timestamp of such folder may not change after the next modification on the file systems with
+     * coarse timestamps, so the cached listing can't be validated by the timestamp.
+     */
+    private static final long RACY_LISTING_MS     = 2000;
+
+    private static final Comparator<ChildEntry> CHILDREN_COMPARATOR = (one, two) -> {
+        // folders first, then files, as LocalVirtualFile.compareTo does
+        if (one.directory != two.directory) {
+            return one.directory ? -1 : 1;
+        }
+        return one.name.compareTo(two.name);
+    };
 
     private static final FilenameFilter VFS_LOCK_FILTER =
             (dir, name) -> !(dir.getAbsolutePath().endsWith(FILE_LOCKS_DIR) || name.endsWith(LOCK_FILE_SUFFIX));
@@ -136,6 +155,10 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     private final FileMetadataSerializer                  metadataSerializer;
     private final LoadingCache<Path, Map<String, String>> metadataCache;
 
+    private final Cache<Path, ChildrenListing> childrenCache;
+
+    private final HashSumsCache hashSumsCache;
+
     @SuppressWarnings("unchecked")
     public LocalVirtualFileSystem(File ioRoot,
                                   ArchiverFactory archiverFactory,
@@ -162,6 +185,13 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
                                     .maximumSize(256)
                                     .expireAfterAccess(10, MINUTES)
                                     .build(new FilePropertiesCacheLoader());
+
+        childrenCache = CacheBuilder.newBuilder()
+                                    .concurrencyLevel(8)
+                                    .maximumSize(CHILDREN_CACHE_SIZE)
+                                    .build();
+
+        hashSumsCache = new HashSumsCache(new File(ioRoot, HASHES_FILE));
     }
 
     @Override
@@ -177,6 +207,7 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     @Override
     public void close() throws ServerException {
         cleanUpCaches();
+        hashSumsCache.close();
         if (searcherProvider != null) {
             Searcher searcher = searcherProvider.getSearcher(this, false);
             if (searcher != null) {
@@ -208,6 +239,36 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     private void cleanUpCaches() {
         lockTokensCache.invalidateAll();
         metadataCache.invalidateAll();
+        childrenCache.invalidateAll();
+    }
+
+    /**
+     * Drops cached listings of the item and its parent. Should be called when item is created,
+     * removed or renamed outside of this file system, e.g. on the file watcher events. Cached
+     * listings are also validated by the folder's timestamp, so it is not required for consistency
+     * but lets to release the stale listings early. Cached md5 sums of the item and digests of its parents are
+     * dropped as well.
+     */
+    void invalidateChildren(Path path) {
+        childrenCache.invalidate(path);
+        if (!path.isRoot()) {
+            childrenCache.invalidate(path.getParent());
+        }
+        hashSumsCache.invalidate(path);
+    }
+
+    /**
+     * Drops all cached listings of folders and digests of folders. Should be called when changes of the file system
+     * may be not reported, e.g. when events of the file watcher are dropped.
+     */
+    public void invalidateAllChildren() {
+        childrenCache.invalidateAll();
+        hashSumsCache.invalidate(Path.ROOT);
+    }
+
+    /** Should be called when the file watcher is started or stopped, see {@link HashSumsCache}. */
+    void setFileWatcherRunning(boolean running) {
+        hashSumsCache.setFileWatcherRunning(running);
     }
 
     /** Used in tests. Need this to check state of PathLockFactory. All locks MUST be released at the end of request lifecycle. */
@@ -243,41 +304,91 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
         return newArrayList(path.elements()).contains(".vfs");
     }
 
-    synchronized List<VirtualFile> getChildren(LocalVirtualFile parent, VirtualFileFilter filter) throws ServerException {
+    List<VirtualFile> getChildren(LocalVirtualFile parent, VirtualFileFilter filter) throws ServerException {
         if (parent.isFolder()) {
-            final List<VirtualFile> children = doGetChildren(parent, DOT_VFS_DIR_FILTER, filter);
-            Collections.sort(children);
+            final ChildrenListing listing = getChildrenListing(parent);
+            final VirtualFileFilter vfsFilter = filter == null ? VirtualFileFilter.ACCEPT_ALL : filter;
+
+            // listing is already sorted in the order of LocalVirtualFile.compareTo
+            final List<VirtualFile> children = newArrayListWithCapacity(listing.names.length);
+            for (String name : listing.names) {
+                final Path childPath = parent.getPath().newPath(name);
+                final LocalVirtualFile child = new LocalVirtualFile(new File(ioRoot, toIoPath(childPath)), childPath, this);
+                if (vfsFilter.accept(child)) {
+                    children.add(child);
+                }
+            }
             return children;
         }
         return emptyList();
     }
 
-
-    private List<VirtualFile> doGetChildren(LocalVirtualFile parent, FilenameFilter ioFileFilter, VirtualFileFilter vfsFilter)
-            throws ServerException {
-        if (ioFileFilter == null) {
-            ioFileFilter = IoUtil.ANY_FILTER;
+    private ChildrenListing getChildrenListing(LocalVirtualFile parent) throws ServerException {
+        final java.nio.file.Path ioPath = parent.toIoFile().toPath();
+        final long modified = parent.toIoFile().lastModified();
+        final ChildrenListing cached = childrenCache.getIfPresent(parent.getPath());
+        if (cached != null && cached.modified == modified) {
+            return cached;
         }
 
-        final String[] names = parent.toIoFile().list(ioFileFilter);
-        if (names == null) {
+        final List<ChildEntry> entries = new ArrayList<>();
+        try (DirectoryStream<java.nio.file.Path> stream = java.nio.file.Files.newDirectoryStream(ioPath)) {
+            for (java.nio.file.Path child : stream) {
+                final String name = child.getFileName().toString();
+                if (VFS_SERVICE_DIR.equals(name)) {
+                    continue;
+                }
+                try {
+                    final BasicFileAttributes attributes = java.nio.file.Files.readAttributes(child, BasicFileAttributes.class);
+                    entries.add(new ChildEntry(name, attributes.isDirectory()));
+                } catch (IOException e) {
+                    // removed item or broken link, java.io.File based implementation treats it as a file
+                    entries.add(new ChildEntry(name, false));
+                }
+            }
+        } catch (IOException e) {
             throw new ServerException(String.format("Unable get children of '%s'", parent.getPath()));
         }
+        entries.sort(CHILDREN_COMPARATOR);
 
-        if (vfsFilter == null) {
-            vfsFilter = VirtualFileFilter.ACCEPT_ALL;
+        final String[] names = new String[entries.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = entries.get(i).name;
+        }
+        final ChildrenListing listing = new ChildrenListing(modified, names);
+        if (System.currentTimeMillis() - modified > RACY_LISTING_MS) {
+            childrenCache.put(parent.getPath(), listing);
+        } else {
+            childrenCache.invalidate(parent.getPath());
         }
+        return listing;
+    }
 
-        final List<VirtualFile> children = newArrayListWithCapacity(names.length);
-        for (String name : names) {
-            final Path childPath = parent.getPath().newPath(name);
-            final LocalVirtualFile child = new LocalVirtualFile(new File(ioRoot, toIoPath(childPath)), childPath, this);
-            if (vfsFilter.accept(child)) {
-                children.add(child);
-            }
+    private static class ChildEntry {
+        final String  name;
+        final boolean directory;
+
+        ChildEntry(String name, boolean directory) {
+            this.name = name;
+            this.directory = directory;
         }
+    }
 
-        return children;
+    /**
+     * Sorted names of folder's children, valid while the folder's timestamp is not changed.
+     * <p>
+     * Attributes of the children are not kept. Size and modification time of a child change without
+     * changing the folder's timestamp, so they can't be validated the way the names are, and kind of
+     * a child is only used for sorting since {@link LocalVirtualFile} reads it from the disk when asked.
+     */
+    private static class ChildrenListing {
+        final long     modified;
+        final String[] names;
+
+        ChildrenListing(long modified, String[] names) {
+            this.modified = modified;
+            this.names = names;
+        }
     }
 
 
@@ -608,6 +719,18 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     }
 
 
+    void zip(LocalVirtualFile folder, OutputStream zipOutput, VirtualFileFilter filter) throws ForbiddenException, ServerException {
+        if(archiverFactory == null)
+            throw new ServerException("VFS: Could not create zip archiver. Archiver Factory is not properly configured (is null)");
+
+        if (folder.isFolder()) {
+            compress(archiverFactory.createArchiver(folder, "zip"), zipOutput, filter);
+        } else {
+            throw new ForbiddenException(String.format("Unable export to zip. Item '%s' is not a folder", folder.getPath()));
+        }
+    }
+
+
     void unzip(LocalVirtualFile parent, InputStream zipped, boolean overwrite, int stripNumber)
             throws ForbiddenException, ConflictException, ServerException {
         if(archiverFactory == null)
@@ -662,6 +785,14 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
         }
     }
 
+    private void compress(Archiver archiver, OutputStream compressOutput, VirtualFileFilter filter) throws ServerException {
+        try {
+            archiver.compress(compressOutput, filter);
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
     private void extract(Archiver archiver, InputStream compressed, boolean overwrite, int stripNumber)
             throws ConflictException, ServerException, ForbiddenException {
         try {
@@ -908,7 +1039,7 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
         if (virtualFile.isFile()) {
             return emptyList();
         }
-        return new HashSumsCounter(virtualFile, Hashing.md5()).countHashSums();
+        return hashSumsCache.countMd5Sums(virtualFile);
     }
 
 
@@ -931,6 +1062,7 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
 
 
     private void addInSearcher(LocalVirtualFile newVirtualFile) {
+        hashSumsCache.invalidate(newVirtualFile.getPath());
         if (searcherProvider != null) {
             try {
                 searcherProvider.getSearcher(this).add(newVirtualFile);
@@ -941,6 +1073,7 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     }
 
     private void updateInSearcher(LocalVirtualFile virtualFile) {
+        hashSumsCache.invalidate(virtualFile.getPath());
         if (searcherProvider != null) {
             try {
                 searcherProvider.getSearcher(this).update(virtualFile);
@@ -951,6 +1084,7 @@ public class LocalVirtualFileSystem implements VirtualFileSystem {
     }
 
     private void deleteInSearcher(Path path, boolean isFile) {
+        hashSumsCache.invalidate(path);
         if (searcherProvider != null) {
             try {
                 searcherProvider.getSearcher(this).delete(path.toString(), isFile);
@@ -18,14 +18,17 @@ import javax.inject.Singleton;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
+import static java.lang.System.currentTimeMillis;
 import static java.util.Optional.empty;
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Simple holder to benefit from Guice DI routines.
+ * <p>
+ *     Queue is bounded, {@link LoEventService} waits while the queue is full,
+ *     so low level events are accumulated in {@link LoEventQueueHolder}.
+ * </p>
  *
  * @author Dmitry Kuleshov
  *
@@ -36,15 +39,21 @@ import static org.slf4j.LoggerFactory.getLogger;
 class EventTreeQueueHolder {
     private static final Logger LOG = getLogger(EventTreeQueueHolder.class);
 
-    private final BlockingQueue<EventTreeNode> loVfsEventQueue;
+    static final int CAPACITY = 100;
+
+    private final BlockingQueue<QueuedTree> loVfsEventQueue;
 
     public EventTreeQueueHolder() {
-        this.loVfsEventQueue = new LinkedBlockingQueue<>();
+        this(CAPACITY);
+    }
+
+    EventTreeQueueHolder(int capacity) {
+        this.loVfsEventQueue = new LinkedBlockingQueue<>(capacity);
     }
 
     public void put(EventTreeNode loVfsEventTreeRoot) {
         try {
-            loVfsEventQueue.put(loVfsEventTreeRoot);
+            loVfsEventQueue.put(new QueuedTree(loVfsEventTreeRoot, currentTimeMillis()));
         } catch (InterruptedException e) {
             LOG.error("Error trying to put an event tree to an event tree queue: {}", loVfsEventTreeRoot, e);
         }
@@ -52,10 +61,31 @@ class EventTreeQueueHolder {
 
     public Optional<EventTreeNode> take() {
         try {
-            return Optional.ofNullable(loVfsEventQueue.take());
+            return Optional.ofNullable(loVfsEventQueue.take().tree);
         } catch (InterruptedException e) {
             LOG.error("Error trying to take an event tree out of an event tree queue", e);
         }
         return empty();
     }
+
+    /** Returns number of event trees waiting in the queue. */
+    int size() {
+        return loVfsEventQueue.size();
+    }
+
+    /** Returns how long the oldest event tree waits in the queue or {@code 0} if the queue is empty. */
+    long getLagMillis() {
+        final QueuedTree oldest = loVfsEventQueue.peek();
+        return oldest == null ? 0 : Math.max(0, currentTimeMillis() - oldest.time);
+    }
+
+    private static class QueuedTree {
+        final EventTreeNode tree;
+        final long          time;
+
+        QueuedTree(EventTreeNode tree, long time) {
+            this.tree = tree;
+            this.time = time;
+        }
+    }
 }
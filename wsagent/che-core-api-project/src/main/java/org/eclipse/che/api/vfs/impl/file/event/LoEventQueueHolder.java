@@ -12,18 +12,37 @@ package org.eclipse.che.api.vfs.impl.file.event;
 
 import com.google.common.annotations.Beta;
 
+import org.eclipse.che.api.core.notification.EventService;
 import org.slf4j.Logger;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static java.lang.System.currentTimeMillis;
 import static java.util.Optional.empty;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
+ * Bounded queue of low level events waiting to be added to an event tree.
+ * <p>
+ *     Producer of an event waits while the queue is full, so file watcher is
+ *     slowed down when events are not processed fast enough. If there is still
+ *     no free space after {@link #PUT_TIMEOUT_MILLIS} the event is dropped and
+ *     the next events are dropped without waiting until the queue is drained,
+ *     so the producer is not blocked for each event of a burst.
+ * </p>
+ * <p>
+ *     When the queue is drained after events were dropped {@link LoEventsDroppedEvent}
+ *     is published, so that the state built from the events is resynchronized
+ *     with the file system.
+ * </p>
+ *
  * @author Dmitry Kuleshov
  *
  * @since 4.5
@@ -33,15 +52,40 @@ import static org.slf4j.LoggerFactory.getLogger;
 class LoEventQueueHolder {
     private static final Logger LOG = getLogger(LoEventQueueHolder.class);
 
+    static final int  CAPACITY           = 10_000;
+    static final long PUT_TIMEOUT_MILLIS = 5_000L;
+
+    private final EventService           eventService;
     private final BlockingQueue<LoEvent> loEventQueue;
+    private final long                   putTimeoutMillis;
+    private final AtomicLong             droppedEvents;
+    /** Number of events dropped since the queue was drained last time, {@code null} if no events were dropped. */
+    private final AtomicReference<Long>  overflow;
 
-    public LoEventQueueHolder() {
-        this.loEventQueue = new LinkedBlockingQueue<>();
+    @Inject
+    public LoEventQueueHolder(EventService eventService) {
+        this(eventService, CAPACITY, PUT_TIMEOUT_MILLIS);
+    }
+
+    LoEventQueueHolder(EventService eventService, int capacity, long putTimeoutMillis) {
+        this.eventService = eventService;
+        this.loEventQueue = new LinkedBlockingQueue<>(capacity);
+        this.putTimeoutMillis = putTimeoutMillis;
+        this.droppedEvents = new AtomicLong();
+        this.overflow = new AtomicReference<>();
     }
 
     void put(LoEvent loEvent) {
         try {
-            loEventQueue.put(loEvent);
+            final boolean added = overflow.get() == null ? loEventQueue.offer(loEvent, putTimeoutMillis, MILLISECONDS)
+                                                         : loEventQueue.offer(loEvent);
+            if (!added) {
+                overflow.accumulateAndGet(1L, (dropped, one) -> dropped == null ? one : dropped + one);
+                // the first dropped event and then every CAPACITY-th are logged not to flood the log
+                if (droppedEvents.incrementAndGet() % CAPACITY == 1) {
+                    LOG.warn("Event queue is full, dropping event: {}, dropped {} events in total", loEvent, droppedEvents.get());
+                }
+            }
         } catch (InterruptedException e) {
             LOG.error("Error trying to put an event to an event queue: {}", loEvent, e);
         }
@@ -49,10 +93,34 @@ class LoEventQueueHolder {
 
     Optional<LoEvent> poll(long timeout) {
         try {
-            return Optional.ofNullable(loEventQueue.poll(timeout, MILLISECONDS));
+            final LoEvent loEvent = loEventQueue.poll(timeout, MILLISECONDS);
+            if (loEventQueue.isEmpty()) {
+                final Long dropped = overflow.getAndSet(null);
+                if (dropped != null) {
+                    LOG.warn("Event queue is drained after {} events were dropped", dropped);
+                    eventService.publish(new LoEventsDroppedEvent(dropped));
+                }
+            }
+            return Optional.ofNullable(loEvent);
         } catch (InterruptedException e) {
             LOG.error("Error trying to poll an event out of an event queue", e);
         }
         return empty();
     }
+
+    /** Returns number of events waiting in the queue. */
+    int size() {
+        return loEventQueue.size();
+    }
+
+    /** Returns how long the oldest event waits in the queue or {@code 0} if the queue is empty. */
+    long getLagMillis() {
+        final LoEvent oldest = loEventQueue.peek();
+        return oldest == null ? 0 : Math.max(0, currentTimeMillis() - oldest.getTime());
+    }
+
+    /** Returns number of events dropped because the queue was full. */
+    long getDroppedEvents() {
+        return droppedEvents.get();
+    }
 }
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file.event;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Published when low level events were dropped because {@link LoEventQueueHolder} was full. It is
+ * published once the queue is drained, subscribers that keep state built from the file watcher
+ * events, e.g. search index or git status, should resynchronize it with the file system.
+ *
+ * @since 5.0
+ */
+@Beta
+public class LoEventsDroppedEvent {
+    private final long droppedEvents;
+
+    public LoEventsDroppedEvent(long droppedEvents) {
+        this.droppedEvents = droppedEvents;
+    }
+
+    /** Returns number of events dropped since the previous {@code LoEventsDroppedEvent}. */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    @Override
+    public String toString() {
+        return "LoEventsDroppedEvent{droppedEvents=" + droppedEvents + '}';
+    }
+}
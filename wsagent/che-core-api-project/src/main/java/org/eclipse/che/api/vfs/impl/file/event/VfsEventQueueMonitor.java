@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file.event;
+
+import com.google.common.annotations.Beta;
+
+import org.eclipse.che.commons.schedule.executor.ThreadPullLauncher;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Periodically reports depth and lag of the queues of VFS event pipeline.
+ * <p>
+ *     Lag is the time the oldest item waits in a queue. State of the queues is
+ *     logged as a warning if any of them lags more than {@link #MAX_LAG_MILLIS}
+ *     or if events were dropped since the previous report, otherwise it is
+ *     logged with debug level.
+ * </p>
+ *
+ * @since 5.0
+ */
+@Beta
+@Singleton
+public class VfsEventQueueMonitor {
+    private static final Logger LOG = getLogger(VfsEventQueueMonitor.class);
+
+    static final long REPORT_INTERVAL_MILLIS = 10_000L;
+    static final long MAX_LAG_MILLIS         = 5_000L;
+
+    private final LoEventQueueHolder   loEventQueueHolder;
+    private final EventTreeQueueHolder eventTreeQueueHolder;
+    private final ThreadPullLauncher   launcher;
+
+    private long droppedEvents;
+
+    @Inject
+    VfsEventQueueMonitor(LoEventQueueHolder loEventQueueHolder,
+                         EventTreeQueueHolder eventTreeQueueHolder,
+                         ThreadPullLauncher launcher) {
+        this.loEventQueueHolder = loEventQueueHolder;
+        this.eventTreeQueueHolder = eventTreeQueueHolder;
+        this.launcher = launcher;
+    }
+
+    @PostConstruct
+    void postConstruct() {
+        launcher.scheduleWithFixedDelay(this::report, REPORT_INTERVAL_MILLIS, REPORT_INTERVAL_MILLIS, MILLISECONDS);
+    }
+
+    void report() {
+        final long loEventLag = loEventQueueHolder.getLagMillis();
+        final long eventTreeLag = eventTreeQueueHolder.getLagMillis();
+        final long dropped = loEventQueueHolder.getDroppedEvents();
+        final String format = "VFS event queues: {} low level events with lag {} ms, {} event trees with lag {} ms, {} events dropped";
+        final Object[] arguments = {loEventQueueHolder.size(), loEventLag, eventTreeQueueHolder.size(), eventTreeLag, dropped};
+
+        if (loEventLag > MAX_LAG_MILLIS || eventTreeLag > MAX_LAG_MILLIS || dropped > droppedEvents) {
+            LOG.warn(format, arguments);
+        } else {
+            LOG.debug(format, arguments);
+        }
+        droppedEvents = dropped;
+    }
+}
@@ -67,7 +67,12 @@ abstract class VfsEventService {
 
     private void runAsASingleThread() {
         while (running.get()) {
-            run();
+            try {
+                run();
+            } catch (RuntimeException e) {
+                // keep consuming events, otherwise producers are blocked by the full queue
+                LOG.error("Error processing virtual file system events in {}", getClass().getSimpleName(), e);
+            }
         }
     }
 
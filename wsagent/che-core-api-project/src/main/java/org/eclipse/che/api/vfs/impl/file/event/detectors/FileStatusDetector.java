@@ -31,12 +31,13 @@ import java.util.Optional;
 @Beta
 @Singleton
 public class FileStatusDetector implements HiEventDetector<FileStatusDetector> {
-    private final EventService eventService;
-
+    private final EventService         eventService;
+    private final FileTrackingRegistry registry;
 
     @Inject
-    public FileStatusDetector(EventService eventService) {
+    public FileStatusDetector(EventService eventService, FileTrackingRegistry registry) {
         this.eventService = eventService;
+        this.registry = registry;
     }
 
     @Override
@@ -48,6 +49,8 @@ public class FileStatusDetector implements HiEventDetector<FileStatusDetector> {
         eventTreeNode.stream()
                      .filter(EventTreeNode::modificationOccurred)
                      .filter(EventTreeNode::isFile)
+                     // bulk changes touch thousands of files, only few of them are tracked
+                     .filter(node -> registry.contains(node.getPath()))
                      .forEach(node -> eventService.publish(new FileTrackingEvent(node.getLastEventType(), node.getPath())));
 
         return Optional.empty();
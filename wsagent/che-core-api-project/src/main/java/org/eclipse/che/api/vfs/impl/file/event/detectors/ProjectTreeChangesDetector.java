@@ -13,6 +13,7 @@ package org.eclipse.che.api.vfs.impl.file.event.detectors;
 import com.google.common.annotations.Beta;
 
 import org.eclipse.che.api.core.jsonrpc.RequestTransmitter;
+import org.eclipse.che.api.core.websocket.impl.WebSocketSessionRegistry;
 import org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType;
 import org.eclipse.che.api.project.shared.dto.event.ProjectTreeStatusUpdateDto;
 import org.eclipse.che.api.vfs.impl.file.event.EventTreeNode;
@@ -24,9 +25,10 @@ import org.slf4j.Logger;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.Math.min;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -34,6 +36,22 @@ import static org.eclipse.che.dto.server.DtoFactory.newDto;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
+ * Notifies clients about changes of the project tree.
+ * <p>
+ *     Changes of all event trees detected between transmissions are collapsed to
+ *     the closest common folder, so a bulk change (e.g. checkout of a branch or
+ *     installation of dependencies) results in a single notification that the
+ *     subtree is changed.
+ * </p>
+ * <p>
+ *     Clients may subscribe to changes under specific paths with
+ *     {@link #subscribe(String, String)}, those clients are notified only if the
+ *     changed subtree and one of their paths contain each other. Clients without
+ *     subscriptions are notified about all the changes, notification is broadcast
+ *     while there are no subscriptions at all. Subscriptions of the endpoint are
+ *     removed when its web socket session is closed.
+ * </p>
+ *
  * @author Dmitry Kuleshov
  */
 @Beta
@@ -41,17 +59,26 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class ProjectTreeChangesDetector implements HiEventDetector<ProjectTreeChangesDetector> {
     private static final Logger LOG = getLogger(ProjectTreeChangesDetector.class);
 
-    private final RequestTransmitter transmitter;
-    private final ThreadPullLauncher launcher;
+    private static final String METHOD = "event:project-tree-status-changed";
+
+    private final RequestTransmitter       transmitter;
+    private final ThreadPullLauncher       launcher;
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
 
-    private final Set<EventTreeNode> trees = new HashSet<>();
+    /** Common prefix of paths changed since the last transmission. */
+    private String changedPrefix;
 
     private State state;
 
     @Inject
-    public ProjectTreeChangesDetector(RequestTransmitter transmitter, ThreadPullLauncher launcher) {
+    public ProjectTreeChangesDetector(RequestTransmitter transmitter,
+                                      ThreadPullLauncher launcher,
+                                      WebSocketSessionRegistry sessionRegistry) {
         this.transmitter = transmitter;
         this.launcher = launcher;
+        this.sessionRegistry = sessionRegistry;
     }
 
     public static String findLongestPrefix(String s1, String s2) {
@@ -69,6 +96,7 @@ public class ProjectTreeChangesDetector implements HiEventDetector<ProjectTreeCh
     @PostConstruct
     public void postConstruct() {
         this.state = State.RESUMED;
+        sessionRegistry.addRemovalListener(subscriptions::remove);
         launcher.scheduleWithFixedDelay(this::transmit, 20_000L, 1_500L, MILLISECONDS);
     }
 
@@ -89,43 +117,85 @@ public class ProjectTreeChangesDetector implements HiEventDetector<ProjectTreeCh
         this.state = State.RESUMED;
     }
 
+    /** Notifies the endpoint about changes of the project tree under the path. */
+    public void subscribe(String endpointId, String path) {
+        subscriptions.computeIfAbsent(endpointId, id -> ConcurrentHashMap.newKeySet()).add(normalize(path));
+        if (!sessionRegistry.get(endpointId).isPresent()) {
+            // session is closed while subscription was processed
+            subscriptions.remove(endpointId);
+        }
+    }
+
+    public void unsubscribe(String endpointId, String path) {
+        subscriptions.computeIfPresent(endpointId, (id, paths) -> {
+            paths.remove(normalize(path));
+            return paths.isEmpty() ? null : paths;
+        });
+    }
+
     @Override
     public Optional<HiEvent<ProjectTreeChangesDetector>> detect(EventTreeNode eventTreeNode) {
         if (eventTreeNode.isRoot() && !eventTreeNode.getChildren().isEmpty()) {
-            trees.add(eventTreeNode);
+            eventTreeNode.stream()
+                         .filter(EventTreeNode::modificationOccurred)
+                         .map(EventTreeNode::getPath)
+                         .reduce(ProjectTreeChangesDetector::findLongestPrefix)
+                         .ifPresent(this::addChangedPrefix);
         }
 
         return Optional.empty();
     }
 
+    private synchronized void addChangedPrefix(String prefix) {
+        changedPrefix = findLongestPrefix(changedPrefix, prefix);
+    }
+
     private void transmit() {
         if (state == State.SUSPENDED) {
             return;
         }
 
-        final Optional<String> commonSubstring = trees.stream()
-                                                      .flatMap(EventTreeNode::stream)
-                                                      .filter(EventTreeNode::modificationOccurred)
-                                                      .map(EventTreeNode::getPath)
-                                                      .reduce(ProjectTreeChangesDetector::findLongestPrefix);
-        if (commonSubstring.isPresent()) {
-            final String s = commonSubstring.get();
+        final String s;
+        synchronized (this) {
+            s = changedPrefix;
+            changedPrefix = null;
+        }
+        if (s != null) {
             final String path = s.substring(0, s.lastIndexOf('/'));
             transmit(path, FileWatcherEventType.MODIFIED);
         }
-
-        trees.clear();
     }
 
     private void transmit(String path, FileWatcherEventType type) {
         final ProjectTreeStatusUpdateDto params = getParams(path, type);
-        transmitter.broadcast("event:project-tree-status-changed", params);
+        if (subscriptions.isEmpty()) {
+            transmitter.broadcast(METHOD, params);
+            return;
+        }
+
+        for (String endpointId : sessionRegistry.getEndpointIds()) {
+            final Set<String> paths = subscriptions.get(endpointId);
+            if (paths == null || paths.stream().anyMatch(subscribed -> contains(subscribed, path) || contains(path, subscribed))) {
+                transmitter.transmitNotification(endpointId, METHOD, params);
+            }
+        }
     }
 
     private ProjectTreeStatusUpdateDto getParams(String path, FileWatcherEventType type) {
         return newDto(ProjectTreeStatusUpdateDto.class).withPath(path).withType(type);
     }
 
+    /** Returns absolute path without trailing separator, root is represented by an empty string the same way as in notifications. */
+    private static String normalize(String path) {
+        final String absolute = path.startsWith("/") ? path : '/' + path;
+        return absolute.endsWith("/") ? absolute.substring(0, absolute.length() - 1) : absolute;
+    }
+
+    /** Checks whether the folder contains the path or is the same path. */
+    private static boolean contains(String folder, String path) {
+        return folder.isEmpty() || path.equals(folder) || path.startsWith(folder + '/');
+    }
+
     private enum State {
         SUSPENDED,
         RESUMED
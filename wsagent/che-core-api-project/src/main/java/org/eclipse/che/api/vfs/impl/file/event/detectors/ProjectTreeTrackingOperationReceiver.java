@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file.event.detectors;
+
+import org.eclipse.che.api.core.jsonrpc.RequestHandler;
+import org.eclipse.che.api.project.shared.dto.event.ProjectTreeTrackingOperationDto;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Receives calls from client to start or stop notifications about changes of the
+ * project tree under specific path, see {@link ProjectTreeChangesDetector}.
+ */
+@Singleton
+public class ProjectTreeTrackingOperationReceiver extends RequestHandler<ProjectTreeTrackingOperationDto, Void> {
+    private static final Logger LOG = getLogger(ProjectTreeTrackingOperationReceiver.class);
+
+    private final ProjectTreeChangesDetector detector;
+
+    @Inject
+    public ProjectTreeTrackingOperationReceiver(ProjectTreeChangesDetector detector) {
+        super(ProjectTreeTrackingOperationDto.class, Void.class);
+        this.detector = detector;
+    }
+
+    @Override
+    public void handleNotification(String endpointId, ProjectTreeTrackingOperationDto operation) {
+        switch (operation.getType()) {
+            case START: {
+                LOG.debug("Received project tree tracking operation START trigger.");
+
+                detector.subscribe(endpointId, operation.getPath());
+
+                break;
+            }
+            case STOP: {
+                LOG.debug("Received project tree tracking operation STOP trigger.");
+
+                detector.unsubscribe(endpointId, operation.getPath());
+
+                break;
+            }
+            default: {
+                LOG.error("Received project tree tracking operation UNKNOWN trigger.");
+
+                break;
+            }
+        }
+    }
+}
@@ -10,17 +10,14 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.search;
 
-import org.apache.tika.config.TikaConfig;
-import org.apache.tika.exception.TikaException;
-import org.apache.tika.metadata.Metadata;
 import org.apache.tika.mime.MediaType;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.vfs.VirtualFile;
 import org.eclipse.che.api.vfs.VirtualFileFilter;
+import org.eclipse.che.api.vfs.util.MediaTypeDetector;
 
-import java.io.IOException;
-import java.io.InputStream;
+import javax.inject.Inject;
 import java.util.Set;
 
 import static com.google.common.collect.Sets.newHashSet;
@@ -29,29 +26,36 @@ import static com.google.common.collect.Sets.newHashSet;
  * Filter based on media type of the file.
  * The filter includes in result files with media type different from the specified types in the set {@link MediaTypeFilter#excludedMediaTypes}
  * Note: if media type can not be detected a file will be not include in result as well.
+ * Media types are detected by the injected {@link MediaTypeDetector}, filter created without it uses its own detector.
  *
  * @author Valeriy Svydenko
  * @author Roman Nikitenko
  */
 public class MediaTypeFilter implements VirtualFileFilter {
-    private final Set<MediaType> excludedMediaTypes;
-    private final Set<String> excludedTypes;
+    private final MediaTypeDetector mediaTypeDetector;
+    private final Set<MediaType>    excludedMediaTypes;
+    private final Set<String>       excludedTypes;
 
     public MediaTypeFilter() {
+        this(new MediaTypeDetector());
+    }
+
+    @Inject
+    public MediaTypeFilter(MediaTypeDetector mediaTypeDetector) {
+        this.mediaTypeDetector = mediaTypeDetector;
         this.excludedMediaTypes = newHashSet(MediaType.APPLICATION_ZIP, MediaType.OCTET_STREAM);
         this.excludedTypes = newHashSet("video", "audio", "image");
     }
 
     @Override
     public boolean accept(VirtualFile file) {
-        try (InputStream content = file.getContent()) {
-            TikaConfig tikaConfig = new TikaConfig();
-            MediaType mimeType = tikaConfig.getDetector().detect(content, new Metadata());
+        try {
+            MediaType mimeType = mediaTypeDetector.detect(file);
             if (excludedMediaTypes.contains(mimeType) || excludedTypes.contains(mimeType.getType())) {
                 return true;
             }
             return false;
-        } catch (TikaException | ForbiddenException | ServerException | IOException e) {
+        } catch (ForbiddenException | ServerException e) {
             return true;
         }
     }
@@ -12,10 +12,22 @@ package org.eclipse.che.api.vfs.search;
 
 /** Container for parameters of query that executed by Searcher.*/
 public class QueryExpression {
+    /** Defines how {@link #getText() text} of the query is interpreted. */
+    public enum Mode {
+        /** Text is a query in Lucene syntax over words of the file content, e.g. {@code apollo AND miss*}. */
+        TEXT,
+        /** Text is a substring of the file content, it is matched case-insensitively and might span a few words. */
+        LITERAL,
+        /** Text is a regular expression in {@link java.util.regex.Pattern} syntax that should be found in the file content. */
+        REGEX
+    }
+
     private String name;
     private String path;
     private String text;
+    private Mode   mode = Mode.TEXT;
     private int    skipCount;
+    private String searchAfter;
     private int    maxItems;
 
     /** Optional file path parameter. Only file with the specified path or children are included in result. */
@@ -48,7 +60,24 @@ public class QueryExpression {
         return this;
     }
 
-    /** Number of items in search result that should be skipped. This parameter used for paging through large set of search result. */
+    /**
+     * Mode of the text search, {@link Mode#TEXT} by default. For {@link Mode#LITERAL} and {@link Mode#REGEX}
+     * total hits of the search result is the number of candidate files, it might be greater than number
+     * of files that actually contain the text.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    public QueryExpression setMode(Mode mode) {
+        this.mode = mode == null ? Mode.TEXT : mode;
+        return this;
+    }
+
+    /**
+     * Number of items in search result that should be skipped. This parameter used for paging through large set of search result.
+     * It is ignored if {@link #getSearchAfter() cursor} is set, which is cheaper to use for paging.
+     */
     public int getSkipCount() {
         return skipCount;
     }
@@ -58,6 +87,19 @@ public class QueryExpression {
         return this;
     }
 
+    /**
+     * Opaque cursor, only items that follow the item the cursor points to are included in result.
+     * Cursor for retrieving the next page is set in {@link SearchResult#getNextPageQueryExpression()}.
+     */
+    public String getSearchAfter() {
+        return searchAfter;
+    }
+
+    public QueryExpression setSearchAfter(String searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
     /** Max number of results that might be returned after executing this query. */
     public int getMaxItems() {
         return maxItems;
@@ -72,9 +114,11 @@ public class QueryExpression {
     public String toString() {
         return "QueryExpression{" +
                "text='" + text + '\'' +
+               ", mode=" + mode +
                ", name='" + name + '\'' +
                ", path='" + path + '\'' +
                ", skipCount=" + skipCount +
+               ", searchAfter='" + searchAfter + '\'' +
                ", maxItems=" + maxItems +
                '}';
     }
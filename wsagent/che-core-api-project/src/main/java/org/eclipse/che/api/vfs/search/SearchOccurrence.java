@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search;
+
+/**
+ * Single occurrence of the searched text in the file from {@code SearchResultEntry}.
+ */
+public class SearchOccurrence {
+    private final String phrase;
+    private final int    startOffset;
+    private final int    endOffset;
+    private final int    lineNumber;
+    private final String lineContent;
+
+    public SearchOccurrence(String phrase, int startOffset, int endOffset, int lineNumber, String lineContent) {
+        this.phrase = phrase;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.lineNumber = lineNumber;
+        this.lineContent = lineContent;
+    }
+
+    /** Text of the file that matches the search criteria. */
+    public String getPhrase() {
+        return phrase;
+    }
+
+    /** Offset of the first character of the occurrence from the start of the file. */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /** Offset after the last character of the occurrence from the start of the file. */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /** Number of the line that contains the occurrence, starting from 1. */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /** Content of the line that contains the occurrence, long lines are cut around the occurrence. */
+    public String getLineContent() {
+        return lineContent;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchOccurrence{" +
+               "phrase='" + phrase + '\'' +
+               ", startOffset=" + startOffset +
+               ", endOffset=" + endOffset +
+               ", lineNumber=" + lineNumber +
+               ", lineContent='" + lineContent + '\'' +
+               '}';
+    }
+}
@@ -56,6 +56,15 @@ public interface Searcher {
      */
     void update(VirtualFile virtualFile) throws ServerException;
 
+    /**
+     * Brings index in sync with the virtual filesystem, e.g. when changes of the files were not reported to the
+     * searcher. Only new and changed files are indexed, documents of removed files are deleted from index.
+     *
+     * @throws ServerException
+     *         if an error occurs
+     */
+    void reconcile() throws ServerException;
+
     /** Close Searcher. */
     void close();
 
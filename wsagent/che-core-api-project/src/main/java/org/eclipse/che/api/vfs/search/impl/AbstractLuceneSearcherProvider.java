@@ -54,9 +54,12 @@ public abstract class AbstractLuceneSearcherProvider implements SearcherProvider
         if (fileIndexFilters.isEmpty()) {
             filter = new MediaTypeFilter();
         } else {
-            final List<VirtualFileFilter> myFilters = newArrayList(new MediaTypeFilter());
-            myFilters.addAll(fileIndexFilters);
-            filter = VirtualFileFilters.createOrFilter(myFilters);
+            final List<VirtualFileFilter> myFilters = newArrayList(fileIndexFilters);
+            // filter which is bound in the container uses the shared media type detector
+            if (myFilters.stream().noneMatch(MediaTypeFilter.class::isInstance)) {
+                myFilters.add(0, new MediaTypeFilter());
+            }
+            filter = myFilters.size() == 1 ? myFilters.get(0) : VirtualFileFilters.createOrFilter(myFilters);
         }
         return filter;
     }
@@ -26,7 +26,8 @@ import static com.google.common.collect.Sets.newHashSet;
 
 @Singleton
 public class FSLuceneSearcherProvider extends AbstractLuceneSearcherProvider {
-    private final File indexRootDirectory;
+    private final File                indexRootDirectory;
+    private final LuceneIndexSettings settings;
 
     /**
      * @param indexRootDirectory
@@ -35,16 +36,51 @@ public class FSLuceneSearcherProvider extends AbstractLuceneSearcherProvider {
      *         set filter for files that should not be indexed
      * @see LuceneSearcher
      */
+    public FSLuceneSearcherProvider(File indexRootDirectory, Set<PathMatcher> excludePatterns) throws IOException {
+        this(indexRootDirectory, excludePatterns, LuceneIndexSettings.DEFAULT);
+    }
+
+    /**
+     * @param indexRootDirectory
+     *         root directory for creation index
+     * @param excludePatterns
+     *         set filter for files that should not be indexed
+     * @param indexThreads
+     *         number of threads that add files to the index
+     * @param queueSize
+     *         max number of found files that wait to be added to the index
+     * @param ramBufferSizeMb
+     *         amount of RAM used for buffering of added documents
+     * @param segmentsPerTier
+     *         allowed number of index segments per tier
+     * @param trigramIndex
+     *         whether trigrams of the file content are indexed for literal and regular expression search
+     * @see LuceneIndexSettings
+     */
     @Inject
     public FSLuceneSearcherProvider(@Named("vfs.local.fs_index_root_dir") File indexRootDirectory,
-                                    @Named("vfs.index_filter_matcher") Set<PathMatcher> excludePatterns) throws IOException {
+                                    @Named("vfs.index_filter_matcher") Set<PathMatcher> excludePatterns,
+                                    @Named("vfs.index.threads") int indexThreads,
+                                    @Named("vfs.index.queue_size") int queueSize,
+                                    @Named("vfs.index.ram_buffer_size_mb") double ramBufferSizeMb,
+                                    @Named("vfs.index.segments_per_tier") double segmentsPerTier,
+                                    @Named("vfs.index.trigrams") boolean trigramIndex) throws IOException {
+        this(indexRootDirectory,
+             excludePatterns,
+             new LuceneIndexSettings(indexThreads, queueSize, ramBufferSizeMb, segmentsPerTier, trigramIndex));
+    }
+
+    private FSLuceneSearcherProvider(File indexRootDirectory,
+                                     Set<PathMatcher> excludePatterns,
+                                     LuceneIndexSettings settings) throws IOException {
         super(newHashSet(transform(excludePatterns, VirtualFileFilters::wrap)));
         this.indexRootDirectory = indexRootDirectory;
+        this.settings = settings;
         Files.createDirectories(indexRootDirectory.toPath());
     }
 
     @Override
     protected LuceneSearcher createLuceneSearcher(CloseCallback closeCallback) {
-        return new FSLuceneSearcher(indexRootDirectory, excludeFileIndexFilters, closeCallback);
+        return new FSLuceneSearcher(indexRootDirectory, excludeFileIndexFilters, closeCallback, settings);
     }
 }
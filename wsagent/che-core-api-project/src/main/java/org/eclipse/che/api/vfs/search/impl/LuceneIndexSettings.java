@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+
+/**
+ * Settings of indexing of {@link LuceneSearcher}.
+ */
+public final class LuceneIndexSettings {
+    /** Settings used when nothing is configured. */
+    public static final LuceneIndexSettings DEFAULT = new LuceneIndexSettings(Math.min(4, Runtime.getRuntime().availableProcessors()),
+                                                                              1000,
+                                                                              IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB,
+                                                                              10,
+                                                                              true);
+
+    private final int     indexThreads;
+    private final int     queueSize;
+    private final double  ramBufferSizeMb;
+    private final double  segmentsPerTier;
+    private final boolean trigramIndex;
+
+    /**
+     * @param indexThreads
+     *         number of threads that read files and add them to the index, files of the tree are found by another
+     *         {@code indexThreads / 4} threads but at least by one
+     * @param queueSize
+     *         max number of found files that wait to be added to the index
+     * @param ramBufferSizeMb
+     *         amount of RAM that may be used for buffering added documents before they are flushed to the directory
+     * @param segmentsPerTier
+     *         allowed number of segments per tier of {@link TieredMergePolicy}, smaller values mean more merging
+     *         while indexing but less segments to search in
+     */
+    public LuceneIndexSettings(int indexThreads, int queueSize, double ramBufferSizeMb, double segmentsPerTier) {
+        this(indexThreads, queueSize, ramBufferSizeMb, segmentsPerTier, true);
+    }
+
+    /**
+     * @param trigramIndex
+     *         whether content of files is split on trigrams for literal and regular expression search, see {@link TrigramIndex}.
+     *         Without trigrams such search reads content of all the files that match other criteria of the query
+     * @see #LuceneIndexSettings(int, int, double, double)
+     */
+    public LuceneIndexSettings(int indexThreads, int queueSize, double ramBufferSizeMb, double segmentsPerTier, boolean trigramIndex) {
+        if (indexThreads < 1) {
+            throw new IllegalArgumentException("Number of index threads must be greater than 0");
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Size of index queue must be greater than 0");
+        }
+        this.indexThreads = indexThreads;
+        this.queueSize = queueSize;
+        this.ramBufferSizeMb = ramBufferSizeMb;
+        this.segmentsPerTier = segmentsPerTier;
+        this.trigramIndex = trigramIndex;
+    }
+
+    public int getIndexThreads() {
+        return indexThreads;
+    }
+
+    public int getWalkerThreads() {
+        return Math.max(1, indexThreads / 4);
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public double getRamBufferSizeMb() {
+        return ramBufferSizeMb;
+    }
+
+    public double getSegmentsPerTier() {
+        return segmentsPerTier;
+    }
+
+    public boolean isTrigramIndex() {
+        return trigramIndex;
+    }
+}
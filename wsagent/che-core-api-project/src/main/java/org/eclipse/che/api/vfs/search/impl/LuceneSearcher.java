@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.search.impl;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
@@ -17,53 +21,98 @@ import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.core.WhitespaceTokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexFormatTooNewException;
+import org.apache.lucene.index.IndexFormatTooOldException;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.Path;
 import org.eclipse.che.api.vfs.VirtualFile;
 import org.eclipse.che.api.vfs.VirtualFileFilter;
 import org.eclipse.che.api.vfs.VirtualFileFilters;
 import org.eclipse.che.api.vfs.VirtualFileSystem;
 import org.eclipse.che.api.vfs.search.MediaTypeFilter;
 import org.eclipse.che.api.vfs.search.QueryExpression;
+import org.eclipse.che.api.vfs.search.SearchOccurrence;
 import org.eclipse.che.api.vfs.search.SearchResult;
 import org.eclipse.che.api.vfs.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.search.Searcher;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
 
 /**
  * Lucene based searcher.
  *
+ * <p>Besides path and name each document keeps modification date and length of the indexed file.
+ * If the directory of the index already contains complete index on initialization, e.g. created
+ * by the previous run, the index is reconciled with virtual filesystem and only new or changed
+ * files are indexed again. State of the index is saved in user data of Lucene commit, index that
+ * is not marked as complete, e.g. because the previous run crashed while indexing, is rebuilt
+ * from scratch.
+ *
+ * <p>Trees of files are indexed by {@link TreeIndexer} with a few threads, see {@link LuceneIndexSettings}.
+ *
+ * <p>Text of the query is searched in words of the file content, literal and regular expression
+ * queries use trigrams of the content to find candidate files, see {@link TrigramIndex}.
+ *
  * @author andrew00x
  */
 public abstract class LuceneSearcher implements Searcher {
@@ -71,11 +120,60 @@ public abstract class LuceneSearcher implements Searcher {
 
     private static final int RESULT_LIMIT = 1000;
 
+    static final String PATH_FIELD     = "path";
+    static final String NAME_FIELD     = "name";
+    static final String TEXT_FIELD     = "text";
+    static final String MODIFIED_FIELD = "modified";
+    static final String LENGTH_FIELD   = "length";
+
+    private static final Sort        PATH_SORT   = new Sort(new SortField(PATH_FIELD, SortField.Type.STRING));
+    private static final Set<String> PATH_FIELDS = Collections.singleton(PATH_FIELD);
+
+    /** Number of candidates of literal or regular expression search that are verified at once. */
+    private static final int VERIFY_BATCH_SIZE = 256;
+    /** Content of the candidate is verified in windows of this number of characters, see {@link #findOffsets}. */
+    private static final int VERIFY_WINDOW_SIZE = 1024 * 1024;
+    /** Regular expression matches longer than this number of characters might be not found in the bigger files. */
+    private static final int MAX_MATCH_LENGTH = 64 * 1024;
+
+    /** Text is indexed with offsets of terms in term vectors, they are used for finding occurrences of the searched text. */
+    private static final FieldType TEXT_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        TEXT_TYPE.setStoreTermVectors(true);
+        TEXT_TYPE.setStoreTermVectorPositions(true);
+        TEXT_TYPE.setStoreTermVectorOffsets(true);
+        TEXT_TYPE.freeze();
+    }
+
+    static final String INDEX_STATE_KEY      = "che.index.state";
+    static final String INDEX_FORMAT_KEY     = "che.index.format";
+    static final String INDEX_TIMESTAMP_KEY  = "che.index.timestamp";
+    static final String INDEX_STATE_COMPLETE = "complete";
+    static final String INDEX_STATE_PARTIAL  = "partial";
+    /** Should be changed each time when structure of indexed documents is changed. */
+    static final String INDEX_FORMAT         = "3";
+
+    /**
+     * Files modified that close to the time when index was committed might be changed
+     * again without changing of modification date, such files are always indexed again.
+     */
+    private static final long RACY_INTERVAL_MS = 2000;
+
+    /** Files that have zero byte in this number of first bytes are considered as binary and their content is not indexed. */
+    static final int BINARY_SNIFF_LENGTH = 8000;
+
     private final List<VirtualFileFilter>                      excludeFileIndexFilters;
     private final AbstractLuceneSearcherProvider.CloseCallback closeCallback;
+    private final LuceneIndexSettings                          settings;
 
     private IndexWriter     luceneIndexWriter;
     private SearcherManager searcherManager;
+    private ExecutorService verifyExecutor;
+    private ExecutorService indexExecutor;
+
+    /** Used for reading lines of the found occurrences. */
+    private volatile VirtualFileSystem virtualFileSystem;
 
     private boolean closed = true;
 
@@ -93,7 +191,20 @@ public abstract class LuceneSearcher implements Searcher {
      *         with {@link VirtualFileFilters#createAndFilter} or {@link VirtualFileFilters#createOrFilter} methods
      */
     protected LuceneSearcher(VirtualFileFilter excludeFileIndexFilter, AbstractLuceneSearcherProvider.CloseCallback closeCallback) {
+        this(excludeFileIndexFilter, closeCallback, LuceneIndexSettings.DEFAULT);
+    }
+
+    /**
+     * @param excludeFileIndexFilter
+     *         common filter for files that should not be indexed
+     * @param settings
+     *         settings of indexing
+     */
+    protected LuceneSearcher(VirtualFileFilter excludeFileIndexFilter,
+                             AbstractLuceneSearcherProvider.CloseCallback closeCallback,
+                             LuceneIndexSettings settings) {
         this.closeCallback = closeCallback;
+        this.settings = settings;
         excludeFileIndexFilters = new CopyOnWriteArrayList<>();
         excludeFileIndexFilters.add(excludeFileIndexFilter);
     }
@@ -121,8 +232,16 @@ public abstract class LuceneSearcher implements Searcher {
 
     protected abstract Directory makeDirectory() throws ServerException;
 
+    protected IndexWriterConfig makeIndexWriterConfig() {
+        final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(settings.getSegmentsPerTier());
+        return new IndexWriterConfig(makeAnalyzer()).setRAMBufferSizeMB(settings.getRamBufferSizeMb())
+                                                    .setMergePolicy(mergePolicy);
+    }
+
     /**
-     * Init lucene index. Need call this method if index directory is clean. Scan all files in virtual filesystem and add to index.
+     * Init lucene index. Scan all files in virtual filesystem and add to index, if index directory already contains complete
+     * index then only new and changed files are added and documents of removed files are deleted from index.
      *
      * @param virtualFileSystem
      *         VirtualFileSystem
@@ -131,15 +250,17 @@ public abstract class LuceneSearcher implements Searcher {
      */
     public void init(VirtualFileSystem virtualFileSystem) throws ServerException {
         doInit();
-        addTree(virtualFileSystem.getRoot());
+        this.virtualFileSystem = virtualFileSystem;
+        indexTree(virtualFileSystem.getRoot());
     }
 
     public void initAsynchronously(ExecutorService executor, VirtualFileSystem virtualFileSystem) throws ServerException {
         doInit();
+        this.virtualFileSystem = virtualFileSystem;
         if (!executor.isShutdown()) {
             executor.execute(() -> {
                 try {
-                    LuceneSearcher.this.addTree(virtualFileSystem.getRoot());
+                    LuceneSearcher.this.indexTree(virtualFileSystem.getRoot());
                 } catch (ServerException e) {
                     LOG.error(e.getMessage());
                 }
@@ -149,17 +270,147 @@ public abstract class LuceneSearcher implements Searcher {
 
     protected final synchronized void doInit() throws ServerException {
         try {
-            luceneIndexWriter = new IndexWriter(makeDirectory(), new IndexWriterConfig(makeAnalyzer()));
+            final Directory directory = makeDirectory();
+            try {
+                luceneIndexWriter = new IndexWriter(directory, makeIndexWriterConfig());
+            } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException e) {
+                LOG.warn("Unable open existed index, it is going to be rebuilt. Error: {}", e.getMessage());
+                luceneIndexWriter = new IndexWriter(directory, makeIndexWriterConfig().setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+            }
             searcherManager = new SearcherManager(luceneIndexWriter, true, new SearcherFactory());
+            verifyExecutor = Executors.newFixedThreadPool(settings.getIndexThreads(),
+                                                          new ThreadFactoryBuilder().setDaemon(true)
+                                                                                    .setUncaughtExceptionHandler(
+                                                                                            LoggingUncaughtExceptionHandler.getInstance())
+                                                                                    .setNameFormat("LuceneSearchVerifier-%d")
+                                                                                    .build());
+            // stages of the tree indexers wait for each other, so number of threads is not limited by the executor
+            indexExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                    .setUncaughtExceptionHandler(
+                                                                                            LoggingUncaughtExceptionHandler.getInstance())
+                                                                                    .setNameFormat("LuceneTreeIndexer-%d")
+                                                                                    .build());
             closed = false;
         } catch (IOException e) {
             throw new ServerException(e);
         }
     }
 
+    /**
+     * Brings index in sync with the tree. Index is reconciled with the tree if it is complete, otherwise it is rebuilt
+     * from scratch. Index is marked as complete after that.
+     */
+    protected void indexTree(VirtualFile tree) throws ServerException {
+        final Map<String, String> commitData = getIndexWriter().getCommitData();
+        if (INDEX_STATE_COMPLETE.equals(commitData.get(INDEX_STATE_KEY)) && INDEX_FORMAT.equals(commitData.get(INDEX_FORMAT_KEY))) {
+            long indexedAt;
+            try {
+                indexedAt = Long.parseLong(commitData.get(INDEX_TIMESTAMP_KEY));
+            } catch (NumberFormatException e) {
+                indexedAt = Long.MAX_VALUE;
+            }
+            reconcileTree(tree, indexedAt);
+        } else {
+            rebuildTree(tree);
+        }
+        commit(INDEX_STATE_COMPLETE);
+    }
+
+    private void rebuildTree(VirtualFile tree) throws ServerException {
+        try {
+            getIndexWriter().deleteAll();
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        // index that is closed or crashed before it is rebuilt must be rebuilt again on the next run
+        commit(INDEX_STATE_PARTIAL);
+        addTree(tree);
+    }
+
+    private void reconcileTree(VirtualFile tree, long indexedAt) throws ServerException {
+        final long start = System.currentTimeMillis();
+        final Map<String, long[]> indexedFiles = readIndexedFiles();
+        final int updatedFiles = new TreeIndexer(this, settings, indexExecutor, tree, file -> {
+            final long[] indexed = indexedFiles.remove(file.getPath().toString());
+            return indexed == null
+                   || indexed[0] != file.getLastModificationDate()
+                   || indexed[1] != file.getLength()
+                   || indexed[0] >= indexedAt - RACY_INTERVAL_MS;
+        }).run();
+        try {
+            for (String removed : indexedFiles.keySet()) {
+                getIndexWriter().deleteDocuments(new Term(PATH_FIELD, removed));
+            }
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        final long end = System.currentTimeMillis();
+        LOG.debug("Reconciled index of {}, updated {} files, removed {} files, time: {} ms",
+                  tree.getPath(), updatedFiles, indexedFiles.size(), (end - start));
+    }
+
+    /** Returns modification date and length of indexed files mapped to path of file. */
+    private Map<String, long[]> readIndexedFiles() throws ServerException {
+        final Set<String> fields = newHashSet(PATH_FIELD, MODIFIED_FIELD, LENGTH_FIELD);
+        final Map<String, long[]> indexedFiles = new ConcurrentHashMap<>();
+        IndexSearcher luceneSearcher = null;
+        try {
+            searcherManager.maybeRefresh();
+            luceneSearcher = searcherManager.acquire();
+            final IndexReader reader = luceneSearcher.getIndexReader();
+            final Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (liveDocs == null || liveDocs.get(i)) {
+                    final Document doc = reader.document(i, fields);
+                    indexedFiles.put(doc.get(PATH_FIELD), new long[]{longValue(doc, MODIFIED_FIELD), longValue(doc, LENGTH_FIELD)});
+                }
+            }
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        } finally {
+            try {
+                searcherManager.release(luceneSearcher);
+            } catch (IOException e) {
+                LOG.error(e.getMessage());
+            }
+        }
+        return indexedFiles;
+    }
+
+    private static long longValue(Document doc, String name) {
+        final IndexableField field = doc.getField(name);
+        return field == null || field.numericValue() == null ? -1 : field.numericValue().longValue();
+    }
+
+    private void commit(String state) throws ServerException {
+        try {
+            final IndexWriter writer = getIndexWriter();
+            writer.setCommitData(indexState(state));
+            writer.commit();
+        } catch (OutOfMemoryError oome) {
+            close();
+            throw oome;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, String> indexState(String state) {
+        return ImmutableMap.of(INDEX_STATE_KEY, state,
+                               INDEX_FORMAT_KEY, INDEX_FORMAT,
+                               INDEX_TIMESTAMP_KEY, Long.toString(System.currentTimeMillis()));
+    }
+
     public final synchronized void close() {
         if (!closed) {
             try {
+                final IndexWriter writer = getIndexWriter();
+                if (INDEX_STATE_COMPLETE.equals(writer.getCommitData().get(INDEX_STATE_KEY))) {
+                    // index is committed on close, files modified before that are up to date
+                    writer.setCommitData(indexState(INDEX_STATE_COMPLETE));
+                }
+                verifyExecutor.shutdownNow();
+                indexExecutor.shutdownNow();
                 IOUtils.close(getIndexWriter(), getIndexWriter().getDirectory(), searcherManager);
                 afterClose();
             } catch (IOException e) {
@@ -192,31 +443,49 @@ public abstract class LuceneSearcher implements Searcher {
             searcherManager.maybeRefresh();
             luceneSearcher = searcherManager.acquire();
 
-            Query luceneQuery = createLuceneQuery(query);
+            if (query.getText() != null && query.getMode() != QueryExpression.Mode.TEXT) {
+                return searchContent(luceneSearcher, query, startTime);
+            }
+
+            final Query textQuery = createTextQuery(query.getText());
+            final Query luceneQuery = createLuceneQuery(query, textQuery);
 
             ScoreDoc after = null;
             final int numSkipDocs = Math.max(0, query.getSkipCount());
-            if (numSkipDocs > 0) {
+            if (query.getSearchAfter() != null) {
+                after = cursorToScoreDoc(query.getSearchAfter());
+            } else if (numSkipDocs > 0) {
                 after = skipScoreDocs(luceneSearcher, luceneQuery, numSkipDocs);
             }
 
             final int numDocs = query.getMaxItems() > 0 ? Math.min(query.getMaxItems(), RESULT_LIMIT) : RESULT_LIMIT;
-            TopDocs topDocs = luceneSearcher.searchAfter(after, luceneQuery, numDocs);
+            // one more document is requested to find out whether there is the next page
+            TopDocs topDocs = luceneSearcher.searchAfter(after, luceneQuery, numDocs + 1, PATH_SORT);
             final int totalHitsNum = topDocs.totalHits;
+            final int numFoundDocs = Math.min(topDocs.scoreDocs.length, numDocs);
 
+            final OccurrencesFinder occurrencesFinder = textQuery == null ? null : new OccurrencesFinder(textQuery);
             List<SearchResultEntry> results = newArrayList();
-            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+            for (int i = 0; i < numFoundDocs; i++) {
                 ScoreDoc scoreDoc = topDocs.scoreDocs[i];
-                String filePath = luceneSearcher.doc(scoreDoc.doc).getField("path").stringValue();
-                results.add(new SearchResultEntry(filePath));
+                String filePath = luceneSearcher.doc(scoreDoc.doc, PATH_FIELDS).getField(PATH_FIELD).stringValue();
+                if (occurrencesFinder == null) {
+                    results.add(new SearchResultEntry(filePath));
+                } else {
+                    results.add(new SearchResultEntry(filePath, findOccurrences(occurrencesFinder,
+                                                                                luceneSearcher.getIndexReader(),
+                                                                                scoreDoc.doc,
+                                                                                filePath)));
+                }
             }
 
             final long elapsedTimeMillis = System.currentTimeMillis() - startTime;
 
-            boolean hasMoreToRetrieve = numSkipDocs + topDocs.scoreDocs.length + 1 < totalHitsNum;
             QueryExpression nextPageQueryExpression = null;
-            if (hasMoreToRetrieve) {
-                nextPageQueryExpression = createNextPageQuery(query, numSkipDocs + topDocs.scoreDocs.length);
+            if (topDocs.scoreDocs.length > numDocs) {
+                nextPageQueryExpression = createNextPageQuery(query,
+                                                              numSkipDocs + numFoundDocs,
+                                                              pathToCursor(results.get(numFoundDocs - 1).getFilePath()));
             }
 
             return SearchResult.aSearchResult()
@@ -236,25 +505,233 @@ public abstract class LuceneSearcher implements Searcher {
         }
     }
 
-    private Query createLuceneQuery(QueryExpression query) throws ServerException {
+    /**
+     * Finds occurrences of the text query in the file. Offsets are taken from the index and the file content is read
+     * only up to the last occurrence to find out their lines. File that is removed or not readable has no occurrences.
+     */
+    private List<SearchOccurrence> findOccurrences(OccurrencesFinder finder,
+                                                   IndexReader reader,
+                                                   int doc,
+                                                   String filePath) throws IOException {
+        final List<int[]> offsets = finder.findOffsets(reader, doc);
+        final VirtualFileSystem vfs = virtualFileSystem;
+        if (offsets.isEmpty() || vfs == null) {
+            return emptyList();
+        }
+        try {
+            final VirtualFile file = vfs.getRoot().getChild(Path.of(filePath));
+            if (file == null || !file.isFile()) {
+                return emptyList();
+            }
+            // the same charset as for indexing, otherwise offsets do not match
+            try (Reader content = new BufferedReader(new InputStreamReader(file.getContent()))) {
+                return OccurrencesFinder.toOccurrences(content, offsets);
+            }
+        } catch (ServerException | ForbiddenException e) {
+            LOG.warn("Unable read content of {} for search occurrences. Error: {}", filePath, e.getMessage());
+            return emptyList();
+        }
+    }
+
+    /**
+     * Finds files that contain the literal or match the regular expression of the query. Candidate files are found
+     * with {@link TrigramIndex} in order of their paths, their content is verified in parallel by batches until the
+     * page is filled. Total hits is the number of candidates.
+     */
+    private SearchResult searchContent(IndexSearcher luceneSearcher, QueryExpression query, long startTime) throws IOException,
+                                                                                                                ServerException {
+        final boolean literal = query.getMode() == QueryExpression.Mode.LITERAL;
+        final Pattern pattern = compilePattern(query.getText(), literal);
+        final Query luceneQuery = createLuceneQuery(query, literal ? TrigramIndex.literalQuery(query.getText())
+                                                                   : TrigramIndex.regexQuery(query.getText()));
+
+        final int numDocs = query.getMaxItems() > 0 ? Math.min(query.getMaxItems(), RESULT_LIMIT) : RESULT_LIMIT;
+        int numSkipDocs = 0;
+        ScoreDoc after = null;
+        if (query.getSearchAfter() != null) {
+            after = cursorToScoreDoc(query.getSearchAfter());
+        } else {
+            numSkipDocs = Math.max(0, query.getSkipCount());
+        }
+
+        final List<SearchResultEntry> results = newArrayList();
+        int totalHitsNum = 0;
+        boolean hasMoreToRetrieve = false;
+        TopDocs candidates;
+        do {
+            candidates = luceneSearcher.searchAfter(after, luceneQuery, VERIFY_BATCH_SIZE, PATH_SORT);
+            totalHitsNum = Math.max(totalHitsNum, candidates.totalHits);
+            final List<String> paths = new ArrayList<>(candidates.scoreDocs.length);
+            for (ScoreDoc scoreDoc : candidates.scoreDocs) {
+                paths.add(luceneSearcher.doc(scoreDoc.doc, PATH_FIELDS).get(PATH_FIELD));
+                after = scoreDoc;
+            }
+            for (SearchResultEntry match : verify(paths, pattern)) {
+                if (numSkipDocs > 0) {
+                    numSkipDocs--;
+                } else if (results.size() < numDocs) {
+                    results.add(match);
+                } else {
+                    hasMoreToRetrieve = true;
+                    break;
+                }
+            }
+        } while (!hasMoreToRetrieve && candidates.scoreDocs.length == VERIFY_BATCH_SIZE);
+
+        QueryExpression nextPageQueryExpression = null;
+        if (hasMoreToRetrieve) {
+            nextPageQueryExpression = createNextPageQuery(query,
+                                                          Math.max(0, query.getSkipCount()) + results.size(),
+                                                          pathToCursor(results.get(results.size() - 1).getFilePath()));
+        }
+        return SearchResult.aSearchResult()
+                           .withResults(results)
+                           .withTotalHits(totalHitsNum)
+                           .withNextPageQueryExpression(nextPageQueryExpression)
+                           .withElapsedTimeMillis(System.currentTimeMillis() - startTime)
+                           .build();
+    }
+
+    private static Pattern compilePattern(String text, boolean literal) throws ServerException {
+        try {
+            return literal ? Pattern.compile(Pattern.quote(text), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)
+                           : Pattern.compile(text, Pattern.MULTILINE);
+        } catch (PatternSyntaxException e) {
+            throw new ServerException(e.getMessage());
+        }
+    }
+
+    /** Reads content of the files in parallel and returns entries for files which content matches the pattern, order is kept. */
+    private List<SearchResultEntry> verify(List<String> paths, Pattern pattern) throws ServerException {
+        final List<Future<List<SearchOccurrence>>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            futures.add(verifyExecutor.submit(() -> findMatches(path, pattern)));
+        }
+        final List<SearchResultEntry> matches = new ArrayList<>();
+        try {
+            for (int i = 0; i < paths.size(); i++) {
+                final List<SearchOccurrence> occurrences = futures.get(i).get();
+                if (!occurrences.isEmpty()) {
+                    matches.add(new SearchResultEntry(paths.get(i), occurrences));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Search is interrupted");
+        } catch (ExecutionException e) {
+            throw new ServerException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return matches;
+    }
+
+    /** Returns not empty matches of the pattern in the file content, file that is removed or not readable has no matches. */
+    private List<SearchOccurrence> findMatches(String filePath, Pattern pattern) throws IOException {
+        final VirtualFileSystem vfs = virtualFileSystem;
+        if (vfs == null) {
+            return emptyList();
+        }
+        try {
+            final VirtualFile file = vfs.getRoot().getChild(Path.of(filePath));
+            if (file == null || !file.isFile()) {
+                return emptyList();
+            }
+            final List<int[]> offsets;
+            try (Reader reader = new InputStreamReader(file.getContent())) {
+                offsets = findOffsets(reader, pattern, VERIFY_WINDOW_SIZE, MAX_MATCH_LENGTH);
+            }
+            if (offsets.isEmpty()) {
+                return emptyList();
+            }
+            // content is read again instead of being kept in memory, lines of occurrences are found while it is read
+            try (Reader reader = new InputStreamReader(file.getContent())) {
+                return OccurrencesFinder.toOccurrences(reader, offsets);
+            }
+        } catch (ServerException | ForbiddenException e) {
+            LOG.warn("Unable read content of {} for search. Error: {}", filePath, e.getMessage());
+            return emptyList();
+        }
+    }
+
+    /**
+     * Finds not empty matches of the pattern in the content that is read in windows of {@code windowSize} characters,
+     * so content of any length is searched in bounded memory. Match that might go on after the end of the window is
+     * searched again in the next window, which keeps up to {@code maxMatchLength} characters of the previous one.
+     * Matches longer than {@code maxMatchLength} characters might be not found or found shorter, {@code windowSize}
+     * must be bigger than double {@code maxMatchLength}.
+     *
+     * @return start and end offsets of at most {@link OccurrencesFinder#MAX_OCCURRENCES} matches
+     */
+    static List<int[]> findOffsets(Reader content, Pattern pattern, int windowSize, int maxMatchLength) throws IOException {
+        final List<int[]> offsets = new ArrayList<>();
+        final StringBuilder window = new StringBuilder();
+        final char[] buffer = new char[8192];
+        // offset of the window in the content and position in the window from which search is continued
+        int windowOffset = 0;
+        int from = 0;
+        boolean eof = false;
+        while (true) {
+            while (!eof && window.length() < windowSize) {
+                final int read = content.read(buffer, 0, Math.min(buffer.length, windowSize - window.length()));
+                if (read == -1) {
+                    eof = true;
+                } else {
+                    window.append(buffer, 0, read);
+                }
+            }
+            // characters before the region are visible for anchors, boundaries and lookbehind
+            final Matcher matcher = pattern.matcher(window)
+                                           .useTransparentBounds(true)
+                                           .useAnchoringBounds(false)
+                                           .region(from, window.length());
+            int keep = from;
+            while (offsets.size() < OccurrencesFinder.MAX_OCCURRENCES && matcher.find()) {
+                if (!eof && matcher.hitEnd()) {
+                    keep = matcher.start();
+                    break;
+                }
+                if (matcher.end() > matcher.start()) {
+                    offsets.add(new int[]{windowOffset + matcher.start(), windowOffset + matcher.end()});
+                }
+                keep = matcher.end();
+            }
+            if (eof || offsets.size() >= OccurrencesFinder.MAX_OCCURRENCES) {
+                return offsets;
+            }
+            keep = Math.max(keep, window.length() - maxMatchLength);
+            final int retained = keep - Math.min(keep, maxMatchLength);
+            window.delete(0, retained);
+            windowOffset += retained;
+            from = keep - retained;
+        }
+    }
+
+    private Query createTextQuery(String text) throws ServerException {
+        if (text == null) {
+            return null;
+        }
+        QueryParser qParser = new QueryParser(TEXT_FIELD, makeAnalyzer());
+        qParser.setAllowLeadingWildcard(true);
+        try {
+            return qParser.parse(text);
+        } catch (ParseException e) {
+            throw new ServerException(e.getMessage());
+        }
+    }
+
+    private Query createLuceneQuery(QueryExpression query, Query textQuery) {
         final BooleanQuery luceneQuery = new BooleanQuery();
         final String name = query.getName();
         final String path = query.getPath();
-        final String text = query.getText();
         if (path != null) {
-            luceneQuery.add(new PrefixQuery(new Term("path", path)), BooleanClause.Occur.MUST);
+            luceneQuery.add(new PrefixQuery(new Term(PATH_FIELD, path)), BooleanClause.Occur.MUST);
         }
         if (name != null) {
-            luceneQuery.add(new WildcardQuery(new Term("name", name)), BooleanClause.Occur.MUST);
+            luceneQuery.add(new WildcardQuery(new Term(NAME_FIELD, name)), BooleanClause.Occur.MUST);
         }
-        if (text != null) {
-            QueryParser qParser = new QueryParser("text", makeAnalyzer());
-            qParser.setAllowLeadingWildcard(true);
-            try {
-                luceneQuery.add(qParser.parse(text), BooleanClause.Occur.MUST);
-            } catch (ParseException e) {
-                throw new ServerException(e.getMessage());
-            }
+        if (textQuery != null) {
+            luceneQuery.add(textQuery, BooleanClause.Occur.MUST);
         }
         return luceneQuery;
     }
@@ -265,7 +742,7 @@ public abstract class LuceneSearcher implements Searcher {
         int retrievedDocs = 0;
         TopDocs topDocs;
         do {
-            topDocs = luceneSearcher.searchAfter(scoreDoc, luceneQuery, readFrameSize);
+            topDocs = luceneSearcher.searchAfter(scoreDoc, luceneQuery, readFrameSize, PATH_SORT);
             if (topDocs.scoreDocs.length > 0) {
                 scoreDoc = topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
             }
@@ -280,14 +757,41 @@ public abstract class LuceneSearcher implements Searcher {
         return scoreDoc;
     }
 
-    private QueryExpression createNextPageQuery(QueryExpression originalQuery, int newSkipCount) {
+    /**
+     * Cursor is an encoded path of the last file of the page. Results are sorted by path, so the cursor stays
+     * valid when index is changed between requests of pages, unlike number of skipped documents.
+     */
+    static String pathToCursor(String path) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(UTF_8));
+    }
+
+    private static ScoreDoc cursorToScoreDoc(String cursor) throws ServerException {
+        final String path;
+        try {
+            path = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ServerException(String.format("Invalid search cursor '%s'", cursor));
+        }
+        return new FieldDoc(Integer.MAX_VALUE, Float.NaN, new Object[]{new BytesRef(path)});
+    }
+
+    private QueryExpression createNextPageQuery(QueryExpression originalQuery, int newSkipCount, String searchAfter) {
         return new QueryExpression().setText(originalQuery.getText())
                                     .setName(originalQuery.getName())
                                     .setPath(originalQuery.getPath())
+                                    .setMode(originalQuery.getMode())
                                     .setSkipCount(newSkipCount)
+                                    .setSearchAfter(searchAfter)
                                     .setMaxItems(originalQuery.getMaxItems());
     }
 
+    @Override
+    public void reconcile() throws ServerException {
+        if (virtualFileSystem != null) {
+            indexTree(virtualFileSystem.getRoot());
+        }
+    }
+
     @Override
     public final void add(VirtualFile virtualFile) throws ServerException {
         doAdd(virtualFile);
@@ -303,33 +807,16 @@ public abstract class LuceneSearcher implements Searcher {
 
     protected void addTree(VirtualFile tree) throws ServerException {
         final long start = System.currentTimeMillis();
-        final LinkedList<VirtualFile> q = new LinkedList<>();
-        q.add(tree);
-        int indexedFiles = 0;
-        while (!q.isEmpty()) {
-            final VirtualFile folder = q.pop();
-            if (folder.exists()) {
-                for (VirtualFile child : folder.getChildren()) {
-                    if (child.isFolder()) {
-                        q.push(child);
-                    } else {
-                        addFile(child);
-                        indexedFiles++;
-                    }
-                }
-            }
-        }
+        final int indexedFiles = new TreeIndexer(this, settings, indexExecutor, tree, file -> true).run();
         final long end = System.currentTimeMillis();
         LOG.debug("Indexed {} files from {}, time: {} ms", indexedFiles, tree.getPath(), (end - start));
     }
 
     protected void addFile(VirtualFile virtualFile) throws ServerException {
         if (virtualFile.exists()) {
-            try (Reader fContentReader = shouldIndexContent(virtualFile)
-                                         ? new BufferedReader(new InputStreamReader(virtualFile.getContent()))
-                                         : null) {
+            try (Reader fContentReader = openContentReader(virtualFile)) {
                 getIndexWriter()
-                        .updateDocument(new Term("path", virtualFile.getPath().toString()), createDocument(virtualFile, fContentReader));
+                        .updateDocument(new Term(PATH_FIELD, virtualFile.getPath().toString()), createDocument(virtualFile, fContentReader));
             } catch (OutOfMemoryError oome) {
                 close();
                 throw oome;
@@ -345,10 +832,10 @@ public abstract class LuceneSearcher implements Searcher {
     public final void delete(String path, boolean isFile) throws ServerException {
         try {
             if (isFile) {
-                Term term = new Term("path", path);
+                Term term = new Term(PATH_FIELD, path);
                 getIndexWriter().deleteDocuments(term);
             } else {
-                Term term = new Term("path", path + "/");
+                Term term = new Term(PATH_FIELD, path + "/");
                 getIndexWriter().deleteDocuments(new PrefixQuery(term));
             }
         } catch (OutOfMemoryError oome) {
@@ -361,13 +848,11 @@ public abstract class LuceneSearcher implements Searcher {
 
     @Override
     public final void update(VirtualFile virtualFile) throws ServerException {
-        doUpdate(new Term("path", virtualFile.getPath().toString()), virtualFile);
+        doUpdate(new Term(PATH_FIELD, virtualFile.getPath().toString()), virtualFile);
     }
 
     protected void doUpdate(Term deleteTerm, VirtualFile virtualFile) throws ServerException {
-        try (Reader fContentReader = shouldIndexContent(virtualFile)
-                                     ? new BufferedReader(new InputStreamReader(virtualFile.getContent()))
-                                     : null) {
+        try (Reader fContentReader = openContentReader(virtualFile)) {
             getIndexWriter().updateDocument(deleteTerm, createDocument(virtualFile, fContentReader));
         } catch (OutOfMemoryError oome) {
             close();
@@ -381,14 +866,66 @@ public abstract class LuceneSearcher implements Searcher {
 
     protected Document createDocument(VirtualFile virtualFile, Reader reader) throws ServerException {
         final Document doc = new Document();
-        doc.add(new StringField("path", virtualFile.getPath().toString(), Field.Store.YES));
-        doc.add(new StringField("name", virtualFile.getName(), Field.Store.YES));
+        doc.add(new StringField(PATH_FIELD, virtualFile.getPath().toString(), Field.Store.YES));
+        doc.add(new SortedDocValuesField(PATH_FIELD, new BytesRef(virtualFile.getPath().toString())));
+        doc.add(new StringField(NAME_FIELD, virtualFile.getName(), Field.Store.YES));
+        doc.add(new StoredField(MODIFIED_FIELD, virtualFile.getLastModificationDate()));
+        doc.add(new StoredField(LENGTH_FIELD, virtualFile.getLength()));
         if (reader != null) {
-            doc.add(new TextField("text", reader));
+            if (settings.isTrigramIndex() && virtualFile.getLength() <= TrigramIndex.MAX_FILE_LENGTH) {
+                final String content;
+                try {
+                    content = CharStreams.toString(reader);
+                } catch (IOException e) {
+                    throw new ServerException(e.getMessage(), e);
+                }
+                doc.add(new Field(TEXT_FIELD, content, TEXT_TYPE));
+                doc.add(new Field(TrigramIndex.TRIGRAM_FIELD, TrigramIndex.tokens(content), TrigramIndex.TRIGRAM_TYPE));
+                doc.add(new StringField(TrigramIndex.STATE_FIELD, TrigramIndex.STATE_INDEXED, Field.Store.NO));
+            } else {
+                doc.add(new Field(TEXT_FIELD, reader, TEXT_TYPE));
+                doc.add(new StringField(TrigramIndex.STATE_FIELD, TrigramIndex.STATE_SKIPPED, Field.Store.NO));
+            }
         }
         return doc;
     }
 
+    /** Returns reader of the file content, or null if content of the file should not be indexed. */
+    private Reader openContentReader(VirtualFile virtualFile) throws ForbiddenException, ServerException, IOException {
+        final BufferedInputStream content = new BufferedInputStream(virtualFile.getContent(), BINARY_SNIFF_LENGTH);
+        try {
+            if (isBinary(content) || !shouldIndexContent(virtualFile)) {
+                content.close();
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            content.close();
+            throw e;
+        }
+        return new BufferedReader(new InputStreamReader(content));
+    }
+
+    /** Checks whether the stream starts with binary content, the same way git does it, the stream is reset after that. */
+    static boolean isBinary(BufferedInputStream content) throws IOException {
+        content.mark(BINARY_SNIFF_LENGTH);
+        try {
+            final byte[] buffer = new byte[BINARY_SNIFF_LENGTH];
+            int read = 0;
+            int n;
+            while (read < buffer.length && (n = content.read(buffer, read, buffer.length - read)) != -1) {
+                read += n;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == 0) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            content.reset();
+        }
+    }
+
     private boolean shouldIndexContent(VirtualFile virtualFile) {
         for (VirtualFileFilter indexFilter : excludeFileIndexFilters) {
             if (indexFilter.accept(virtualFile)) {
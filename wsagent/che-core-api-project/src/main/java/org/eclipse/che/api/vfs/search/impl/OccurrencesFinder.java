@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.eclipse.che.api.vfs.search.SearchOccurrence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Finds occurrences of the text query in the indexed files.
+ *
+ * <p>Offsets of the matched terms are taken from the term vector of the document, so
+ * the file content is read only to find out lines of the occurrences. Terms of boolean,
+ * term and multi-term (wildcard, prefix, fuzzy etc.) queries are matched separately,
+ * exact phrases are matched as a whole.
+ */
+class OccurrencesFinder {
+    /** Max number of occurrences found in a single file. */
+    static final int MAX_OCCURRENCES = 100;
+    /** Content of longer lines is cut around the occurrence. */
+    static final int MAX_LINE_LENGTH = 256;
+
+    private final Query textQuery;
+
+    OccurrencesFinder(Query textQuery) {
+        this.textQuery = textQuery;
+    }
+
+    /**
+     * Returns offsets of the occurrences in the document, each item is a pair of start and end offsets.
+     * Occurrences are sorted by start offset.
+     */
+    List<int[]> findOffsets(IndexReader reader, int doc) throws IOException {
+        final Terms vector = reader.getTermVector(doc, LuceneSearcher.TEXT_FIELD);
+        if (vector == null || !vector.hasOffsets()) {
+            return emptyList();
+        }
+        final List<int[]> offsets = new ArrayList<>();
+        collect(textQuery, vector, offsets);
+        offsets.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+        final List<int[]> result = new ArrayList<>(Math.min(offsets.size(), MAX_OCCURRENCES));
+        for (int[] offset : offsets) {
+            // the same term may be matched by a few clauses of the query
+            if (result.isEmpty() || offset[0] >= result.get(result.size() - 1)[1]) {
+                result.add(offset);
+                if (result.size() == MAX_OCCURRENCES) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the content and creates occurrences for the given offsets.
+     *
+     * @param content
+     *         content of the file, read in the same way it was read for indexing
+     * @param offsets
+     *         offsets of the occurrences sorted by start offset
+     */
+    static List<SearchOccurrence> toOccurrences(Reader content, List<int[]> offsets) throws IOException {
+        final List<SearchOccurrence> occurrences = new ArrayList<>(offsets.size());
+        final StringBuilder line = new StringBuilder();
+        int lineNumber = 1;
+        int lineStart = 0;
+        int next = 0;
+        int c;
+        do {
+            c = content.read();
+            if (c != -1 && c != '\n') {
+                line.append((char)c);
+                continue;
+            }
+            final int lineEnd = lineStart + line.length();
+            while (next < offsets.size() && (offsets.get(next)[0] <= lineEnd || c == -1)) {
+                final int[] offset = offsets.get(next++);
+                final int start = Math.max(0, Math.min(offset[0] - lineStart, line.length()));
+                final int end = Math.max(start, Math.min(offset[1] - lineStart, line.length()));
+                occurrences.add(new SearchOccurrence(line.substring(start, end),
+                                                     offset[0],
+                                                     offset[1],
+                                                     lineNumber,
+                                                     cutLine(line, start)));
+            }
+            line.setLength(0);
+            lineStart = lineEnd + 1;
+            lineNumber++;
+        } while (c != -1 && next < offsets.size());
+        return occurrences;
+    }
+
+    private static String cutLine(StringBuilder line, int occurrenceStart) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        if (end <= MAX_LINE_LENGTH) {
+            return line.substring(0, end);
+        }
+        final int start = Math.max(0, Math.min(occurrenceStart - MAX_LINE_LENGTH / 4, end - MAX_LINE_LENGTH));
+        return line.substring(start, start + MAX_LINE_LENGTH);
+    }
+
+    private void collect(Query query, Terms vector, List<int[]> offsets) throws IOException {
+        if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery)query).clauses()) {
+                if (!clause.isProhibited()) {
+                    collect(clause.getQuery(), vector, offsets);
+                }
+            }
+        } else if (query instanceof TermQuery) {
+            final TermsEnum termsEnum = vector.iterator(null);
+            if (termsEnum.seekExact(((TermQuery)query).getTerm().bytes())) {
+                addOffsets(termsEnum, offsets);
+            }
+        } else if (query instanceof MultiTermQuery) {
+            final TermsEnum termsEnum = ((MultiTermQuery)query).getTermsEnum(vector);
+            while (termsEnum.next() != null) {
+                addOffsets(termsEnum, offsets);
+            }
+        } else if (query instanceof PhraseQuery) {
+            collectPhrase((PhraseQuery)query, vector, offsets);
+        }
+    }
+
+    private void collectPhrase(PhraseQuery query, Terms vector, List<int[]> offsets) throws IOException {
+        final Term[] terms = query.getTerms();
+        if (terms.length == 0) {
+            return;
+        }
+        final int[] positions = query.getPositions();
+        final List<Map<Integer, int[]>> termPositions = new ArrayList<>(terms.length);
+        final TermsEnum termsEnum = vector.iterator(null);
+        for (Term term : terms) {
+            final Map<Integer, int[]> byPosition = new HashMap<>();
+            if (termsEnum.seekExact(term.bytes())) {
+                final PostingsEnum postings = termsEnum.postings(null, null, PostingsEnum.OFFSETS);
+                if (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    for (int i = 0, freq = postings.freq(); i < freq; i++) {
+                        final int position = postings.nextPosition();
+                        byPosition.put(position, new int[]{postings.startOffset(), postings.endOffset()});
+                    }
+                }
+            }
+            termPositions.add(byPosition);
+        }
+        if (query.getSlop() != 0) {
+            // sloppy phrase, terms might be in any order, so they are highlighted separately
+            termPositions.forEach(byPosition -> offsets.addAll(byPosition.values()));
+            return;
+        }
+        for (Map.Entry<Integer, int[]> first : termPositions.get(0).entrySet()) {
+            int[] last = first.getValue();
+            for (int i = 1; i < terms.length && last != null; i++) {
+                last = termPositions.get(i).get(first.getKey() + positions[i] - positions[0]);
+            }
+            if (last != null) {
+                offsets.add(new int[]{first.getValue()[0], last[1]});
+            }
+        }
+    }
+
+    private void addOffsets(TermsEnum termsEnum, List<int[]> offsets) throws IOException {
+        final PostingsEnum postings = termsEnum.postings(null, null, PostingsEnum.OFFSETS);
+        if (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            for (int i = 0, freq = postings.freq(); i < freq; i++) {
+                postings.nextPosition();
+                offsets.add(new int[]{postings.startOffset(), postings.endOffset()});
+            }
+        }
+    }
+}
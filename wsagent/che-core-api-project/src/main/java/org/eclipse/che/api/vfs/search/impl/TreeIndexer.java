@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.VirtualFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adds files of the tree to the index of {@link LuceneSearcher} in two stages that run in parallel.
+ *
+ * <p>Walkers list folders of the tree and put found files in the bounded queue, so walking is
+ * paused when documents are not added fast enough. Builders take files from the queue in batches,
+ * read their content and add documents to the index, Lucene index writer accepts documents from
+ * many threads concurrently. Stages run on the executor of the searcher, it must not limit number of threads
+ * because stages wait for each other. Progress is logged every {@link #PROGRESS_INTERVAL_MS}.
+ *
+ * <p>Instance of this class indexes a single tree once, it is not thread safe.
+ */
+class TreeIndexer {
+    private static final Logger LOG = LoggerFactory.getLogger(TreeIndexer.class);
+
+    static final long PROGRESS_INTERVAL_MS = 10_000;
+
+    private static final int  BATCH_SIZE   = 64;
+    private static final long POLL_TIME_MS = 100;
+
+    /** Decides whether a found file should be added to the index. */
+    @FunctionalInterface
+    interface IndexFilter {
+        boolean accept(VirtualFile file) throws ServerException;
+    }
+
+    private final LuceneSearcher             searcher;
+    private final LuceneIndexSettings        settings;
+    private final ExecutorService            executor;
+    private final VirtualFile                tree;
+    private final IndexFilter                filter;
+    private final BlockingDeque<VirtualFile> folders;
+    private final BlockingQueue<VirtualFile> files;
+    private final AtomicInteger              pendingFolders;
+    private final AtomicInteger              foundFiles;
+    private final AtomicInteger              indexedFiles;
+    private final AtomicLong                 lastProgress;
+    private final AtomicReference<Exception> failure;
+
+    private volatile boolean walked;
+
+    TreeIndexer(LuceneSearcher searcher,
+                LuceneIndexSettings settings,
+                ExecutorService executor,
+                VirtualFile tree,
+                IndexFilter filter) {
+        this.searcher = searcher;
+        this.settings = settings;
+        this.executor = executor;
+        this.tree = tree;
+        this.filter = filter;
+        this.folders = new LinkedBlockingDeque<>();
+        this.files = new ArrayBlockingQueue<>(settings.getQueueSize());
+        this.pendingFolders = new AtomicInteger();
+        this.foundFiles = new AtomicInteger();
+        this.indexedFiles = new AtomicInteger();
+        this.lastProgress = new AtomicLong(System.currentTimeMillis());
+        this.failure = new AtomicReference<>();
+    }
+
+    /**
+     * Indexes the tree and waits until all the files are added to the index.
+     *
+     * @return number of files added to the index
+     * @throws ServerException
+     *         if any virtual filesystem or index error occurs, or if indexing is interrupted
+     */
+    int run() throws ServerException {
+        pendingFolders.incrementAndGet();
+        folders.push(tree);
+
+        final List<Future<?>> stages = new ArrayList<>();
+        try {
+            for (int i = 0; i < settings.getWalkerThreads(); i++) {
+                stages.add(executor.submit(() -> stage(this::walk)));
+            }
+            for (int i = 0; i < settings.getIndexThreads(); i++) {
+                stages.add(executor.submit(() -> stage(this::build)));
+            }
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, new ServerException(e.getCause().getMessage(), e.getCause()));
+        } catch (RejectedExecutionException e) {
+            failure.compareAndSet(null, new ServerException(String.format("Unable index %s, searcher is closed", tree.getPath())));
+        } finally {
+            stages.forEach(stage -> stage.cancel(true));
+        }
+
+        final Exception error = failure.get();
+        if (error instanceof ServerException) {
+            throw (ServerException)error;
+        } else if (error instanceof InterruptedException) {
+            throw new ServerException(String.format("Indexing of %s is interrupted", tree.getPath()));
+        } else if (error != null) {
+            throw new ServerException(error.getMessage(), error);
+        }
+        return indexedFiles.get();
+    }
+
+    private void stage(Stage stage) {
+        try {
+            stage.run();
+        } catch (ServerException | InterruptedException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void walk() throws ServerException, InterruptedException {
+        while (!walked && failure.get() == null) {
+            final VirtualFile folder = folders.poll(POLL_TIME_MS, TimeUnit.MILLISECONDS);
+            if (folder == null) {
+                continue;
+            }
+            try {
+                if (folder.exists()) {
+                    for (VirtualFile child : folder.getChildren()) {
+                        if (child.isFolder()) {
+                            pendingFolders.incrementAndGet();
+                            folders.push(child);
+                        } else {
+                            foundFiles.incrementAndGet();
+                            while (!files.offer(child, POLL_TIME_MS, TimeUnit.MILLISECONDS)) {
+                                if (failure.get() != null) {
+                                    return;
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                // all the files of the tree are in the queue when there are no folders to list
+                if (pendingFolders.decrementAndGet() == 0) {
+                    walked = true;
+                }
+            }
+        }
+    }
+
+    private void build() throws ServerException, InterruptedException {
+        final List<VirtualFile> batch = new ArrayList<>(BATCH_SIZE);
+        while (failure.get() == null) {
+            final VirtualFile first = files.poll(POLL_TIME_MS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                if (walked && files.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            files.drainTo(batch, BATCH_SIZE - 1);
+            for (VirtualFile file : batch) {
+                if (filter.accept(file)) {
+                    searcher.addFile(file);
+                    indexedFiles.incrementAndGet();
+                }
+            }
+            batch.clear();
+            logProgress();
+        }
+    }
+
+    private void logProgress() {
+        final long now = System.currentTimeMillis();
+        final long last = lastProgress.get();
+        if (now - last >= PROGRESS_INTERVAL_MS && lastProgress.compareAndSet(last, now)) {
+            LOG.info("Indexing {}: found {} files, indexed {} files, {} files in queue",
+                     tree.getPath(), foundFiles.get(), indexedFiles.get(), files.size());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws ServerException, InterruptedException;
+    }
+}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram index of the file content that narrows files which might contain a substring or
+ * a match of a regular expression, the candidate files are verified by reading their content.
+ *
+ * <p>Each lower-cased sequence of three characters of the content, including whitespaces, is
+ * indexed as a term of {@link #TRIGRAM_FIELD}. File may contain a substring only if it has all
+ * the trigrams of the substring. For a regular expression only literals that must be present in
+ * any match are used, expression without such literals of at least three characters does not
+ * narrow the candidates.
+ *
+ * <p>Content of a file might be indexed without trigrams, e.g. if it is too large, such files
+ * are marked as {@link #STATE_SKIPPED} and are always included in the candidates.
+ */
+final class TrigramIndex {
+    static final String TRIGRAM_FIELD = "trigram";
+    /** Documents of files which content is indexed have this field set to one of the states below. */
+    static final String STATE_FIELD   = "trigram.state";
+    static final String STATE_INDEXED = "indexed";
+    static final String STATE_SKIPPED = "skipped";
+
+    /** Content of larger files is not split on trigrams. */
+    static final long MAX_FILE_LENGTH = 4 * 1024 * 1024;
+
+    static final FieldType TRIGRAM_TYPE = new FieldType();
+
+    private static final Pattern COMMENTS_FLAG = Pattern.compile("\\(\\?[a-zA-Z-]*x");
+
+    static {
+        TRIGRAM_TYPE.setIndexOptions(IndexOptions.DOCS);
+        TRIGRAM_TYPE.setTokenized(true);
+        TRIGRAM_TYPE.setOmitNorms(true);
+        TRIGRAM_TYPE.freeze();
+    }
+
+    /** Returns stream of trigrams of the content. */
+    static TokenStream tokens(String content) {
+        final Tokenizer tokenizer = new NGramTokenizer(3, 3);
+        tokenizer.setReader(new StringReader(content));
+        return new LowerCaseFilter(tokenizer);
+    }
+
+    /** Returns distinct trigrams of the text, the same way they are indexed. */
+    static Set<String> trigrams(String text) {
+        final Set<String> trigrams = new LinkedHashSet<>();
+        try (TokenStream tokens = tokens(text)) {
+            final CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                trigrams.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            // reading from the string never fails
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return trigrams;
+    }
+
+    /** Returns query for files that might contain the literal. */
+    static Query literalQuery(String literal) {
+        return candidatesQuery(trigrams(literal));
+    }
+
+    /** Returns query for files that might contain a match of the regular expression. */
+    static Query regexQuery(String regex) {
+        final Set<String> trigrams = new LinkedHashSet<>();
+        for (String literal : requiredLiterals(regex)) {
+            trigrams.addAll(trigrams(literal));
+        }
+        return candidatesQuery(trigrams);
+    }
+
+    private static Query candidatesQuery(Set<String> trigrams) {
+        final BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term(STATE_FIELD, STATE_SKIPPED)), BooleanClause.Occur.SHOULD);
+        if (trigrams.isEmpty()) {
+            query.add(new TermQuery(new Term(STATE_FIELD, STATE_INDEXED)), BooleanClause.Occur.SHOULD);
+        } else {
+            final BooleanQuery allTrigrams = new BooleanQuery();
+            for (String trigram : trigrams) {
+                allTrigrams.add(new TermQuery(new Term(TRIGRAM_FIELD, trigram)), BooleanClause.Occur.MUST);
+            }
+            query.add(allTrigrams, BooleanClause.Occur.SHOULD);
+        }
+        return query;
+    }
+
+    /**
+     * Returns literals that are present in any match of the regular expression. Analysis is conservative:
+     * groups, character classes, character class escapes and optional characters end the literal, and
+     * the expression with alternation on the top level or with {@link Pattern#COMMENTS} flag has no required literals.
+     */
+    static List<String> requiredLiterals(String regex) {
+        final List<String> literals = new ArrayList<>();
+        if (COMMENTS_FLAG.matcher(regex).find()) {
+            // whitespaces are not part of the literals in this mode
+            return literals;
+        }
+        final StringBuilder literal = new StringBuilder();
+        final int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            final char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                final char next = regex.charAt(i + 1);
+                if (next == 'Q') {
+                    final int end = regex.indexOf("\\E", i + 2);
+                    literal.append(regex, i + 2, end == -1 ? length : end);
+                    i = end == -1 ? length : end + 2;
+                    continue;
+                }
+                if (Character.isLetterOrDigit(next)) {
+                    // \d, \w, \s, \b, back references, \n, \xhh, \p{Lu} etc.
+                    flush(literal, literals);
+                    i = skipEscape(regex, i);
+                } else {
+                    literal.append(next);
+                    i += 2;
+                }
+            } else if (c == '[') {
+                flush(literal, literals);
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                flush(literal, literals);
+                i = skipGroup(regex, i);
+            } else if (c == '|') {
+                return new ArrayList<>();
+            } else if (c == '*' || c == '?' || c == '{') {
+                final boolean optional = c != '{' || regex.startsWith("{0", i) || regex.startsWith("{,", i);
+                if (optional && literal.length() > 0) {
+                    literal.setLength(literal.length() - 1);
+                }
+                flush(literal, literals);
+                i = c == '{' ? skipTo(regex, i, '}') : i + 1;
+                i = skipQuantifierModifier(regex, i);
+            } else if (c == '+') {
+                flush(literal, literals);
+                i = skipQuantifierModifier(regex, i + 1);
+            } else if (c == '.' || c == '^' || c == '$') {
+                flush(literal, literals);
+                i++;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        flush(literal, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder literal, List<String> literals) {
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    /**
+     * Returns index after the escape sequence that starts with a backslash followed by a letter or a digit at the given
+     * index, so characters of sequences like {@code \\x20}, {@code \\u00e9} or {@code \\k<name>} are not taken as literals.
+     */
+    private static int skipEscape(String regex, int i) {
+        final int length = regex.length();
+        final char next = regex.charAt(i + 1);
+        switch (next) {
+            case 'x':
+                if (i + 2 < length && regex.charAt(i + 2) == '{') {
+                    return skipTo(regex, i + 2, '}');
+                }
+                return Math.min(i + 4, length);
+            case 'u':
+                return Math.min(i + 6, length);
+            case 'c':
+                return Math.min(i + 3, length);
+            case 'k':
+                return i + 2 < length && regex.charAt(i + 2) == '<' ? skipTo(regex, i + 2, '>') : i + 2;
+            case 'p':
+            case 'P':
+                if (i + 2 < length && regex.charAt(i + 2) == '{') {
+                    return skipTo(regex, i + 2, '}');
+                }
+                return Math.min(i + 3, length);
+            case '0':
+                // octal value \0n, \0nn or \0mnn where m is not greater than 3
+                int end = i + 2;
+                final int maxEnd = Math.min(i + 2 + (i + 2 < length && regex.charAt(i + 2) <= '3' ? 3 : 2), length);
+                while (end < maxEnd && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                    end++;
+                }
+                return end;
+            default:
+                if (Character.isDigit(next)) {
+                    // back reference may have more than one digit
+                    int index = i + 2;
+                    while (index < length && Character.isDigit(regex.charAt(index))) {
+                        index++;
+                    }
+                    return index;
+                }
+                return i + 2;
+        }
+    }
+
+    private static int skipQuantifierModifier(String regex, int i) {
+        return i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+') ? i + 1 : i;
+    }
+
+    private static int skipTo(String regex, int i, char end) {
+        final int index = regex.indexOf(end, i);
+        return index == -1 ? regex.length() : index + 1;
+    }
+
+    /** Returns index after the character class that starts at the given index, nested classes are taken into account. */
+    private static int skipClass(String regex, int i) {
+        int depth = 0;
+        // ']' right after the opening bracket is a character of the class
+        boolean first = true;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                first = false;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && !first) {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            }
+            first = c == '[' || (c == '^' && regex.charAt(i - 1) == '[');
+            i++;
+        }
+        return i;
+    }
+
+    /** Returns index after the group that starts at the given index, escapes and character classes are taken into account. */
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private TrigramIndex() {
+    }
+}
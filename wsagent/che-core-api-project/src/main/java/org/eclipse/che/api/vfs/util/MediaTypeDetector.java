@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.eclipse.che.api.core.ForbiddenException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.util.ContentTypeGuesser;
+import org.eclipse.che.api.vfs.VirtualFile;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Detects media types of the files, the cheapest way that gives the answer is used:
+ * <ul>
+ * <li>by name of the file with {@link ContentTypeGuesser}, the result is trusted only for text types and images,
+ * audio and video</li>
+ * <li>by magic bytes at the beginning of the content, the first {@link #PREFIX_SIZE} bytes of the content are read</li>
+ * <li>the prefix that is valid UTF-8 without zero bytes is text</li>
+ * <li>by Apache Tika detector applied to the prefix</li>
+ * </ul>
+ * Detected types of the files are cached by path, last modification date and length of the file, the cache keeps
+ * types of {@link #MAX_CACHED_FILES} recently checked files. The detector is bound as a singleton, so all the
+ * components that inject it share the cache.
+ *
+ * @since 5.0
+ */
+@Singleton
+public class MediaTypeDetector {
+    static final int PREFIX_SIZE      = 8 * 1024;
+    static final int MAX_CACHED_FILES = 100_000;
+
+    private static final Set<String> TRUSTED_BY_NAME  = ImmutableSet.of("image", "audio", "video");
+    private static final Set<String> TEXT_APPLICATION = ImmutableSet.of("json",
+                                                                        "javascript",
+                                                                        "x-javascript",
+                                                                        "xml",
+                                                                        "jsp",
+                                                                        "x-sh",
+                                                                        "x-csh",
+                                                                        "x-php",
+                                                                        "x-ruby",
+                                                                        "x-groovy",
+                                                                        "x-tcl",
+                                                                        "x-tex",
+                                                                        "x-latex");
+    private static final Magic[]     MAGICS           = {new Magic("application/zip", 0, 'P', 'K', 3, 4),
+                                                         new Magic("application/pdf", 0, '%', 'P', 'D', 'F'),
+                                                         new Magic("application/gzip", 0, 0x1F, 0x8B),
+                                                         new Magic("application/java-vm", 0, 0xCA, 0xFE, 0xBA, 0xBE),
+                                                         new Magic("application/x-executable", 0, 0x7F, 'E', 'L', 'F'),
+                                                         new Magic("image/png", 0, 0x89, 'P', 'N', 'G'),
+                                                         new Magic("image/gif", 0, 'G', 'I', 'F', '8'),
+                                                         new Magic("image/jpeg", 0, 0xFF, 0xD8, 0xFF),
+                                                         new Magic("image/tiff", 0, 'I', 'I', '*', 0),
+                                                         new Magic("image/tiff", 0, 'M', 'M', 0, '*'),
+                                                         new Magic("audio/mpeg", 0, 'I', 'D', '3'),
+                                                         new Magic("audio/ogg", 0, 'O', 'g', 'g', 'S'),
+                                                         new Magic("audio/x-flac", 0, 'f', 'L', 'a', 'C'),
+                                                         new Magic("audio/vnd.wave", 8, 'W', 'A', 'V', 'E'),
+                                                         new Magic("video/x-msvideo", 8, 'A', 'V', 'I', ' '),
+                                                         new Magic("video/mp4", 4, 'f', 't', 'y', 'p'),
+                                                         new Magic("video/webm", 0, 0x1A, 0x45, 0xDF, 0xA3)};
+
+    private final Cache<String, DetectedType> detectedTypes;
+    private final Detector                    detector;
+
+    @Inject
+    public MediaTypeDetector() {
+        this(MAX_CACHED_FILES);
+    }
+
+    MediaTypeDetector(int maxCachedFiles) {
+        this.detectedTypes = CacheBuilder.newBuilder().maximumSize(maxCachedFiles).build();
+        this.detector = TikaConfig.getDefaultConfig().getDetector();
+    }
+
+    /**
+     * Detects media type of the file or returns type that is detected before if the file is not modified since then.
+     *
+     * @throws ServerException
+     *         if content of the file can't be read
+     * @throws ForbiddenException
+     *         if the file is not a file
+     */
+    public MediaType detect(VirtualFile file) throws ServerException, ForbiddenException {
+        final String path = file.getPath() == null ? null : file.getPath().toString();
+        final long modified = file.getLastModificationDate();
+        final long length = file.getLength();
+        if (path != null) {
+            final DetectedType detected = detectedTypes.getIfPresent(path);
+            if (detected != null && detected.modified == modified && detected.length == length) {
+                return detected.type;
+            }
+        }
+
+        MediaType type = detectByName(file.getName());
+        if (type == null) {
+            try (InputStream content = file.getContent()) {
+                type = detectByContent(content);
+            } catch (IOException e) {
+                throw new ServerException(e.getMessage(), e);
+            }
+        }
+        if (path != null) {
+            detectedTypes.put(path, new DetectedType(modified, length, type));
+        }
+        return type;
+    }
+
+    private MediaType detectByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        final MediaType type = MediaType.parse(ContentTypeGuesser.guessContentType(name));
+        if (type == null) {
+            return null;
+        }
+        if ("text".equals(type.getType())
+            || TRUSTED_BY_NAME.contains(type.getType())
+            || "application".equals(type.getType()) && (TEXT_APPLICATION.contains(type.getSubtype())
+                                                        || type.getSubtype().endsWith("+xml"))) {
+            return type;
+        }
+        return null;
+    }
+
+    private MediaType detectByContent(InputStream content) throws IOException {
+        final byte[] prefix = new byte[PREFIX_SIZE];
+        int length = 0;
+        int read;
+        while (length < prefix.length && (read = content.read(prefix, length, prefix.length - length)) != -1) {
+            length += read;
+        }
+        for (Magic magic : MAGICS) {
+            if (magic.matches(prefix, length)) {
+                return magic.type;
+            }
+        }
+        if (length > 0 && isText(prefix, length)) {
+            return MediaType.TEXT_PLAIN;
+        }
+        return detector.detect(new ByteArrayInputStream(prefix, 0, length), new Metadata());
+    }
+
+    private static boolean isText(byte[] prefix, int length) {
+        for (int i = 0; i < length; i++) {
+            if (prefix[i] == 0) {
+                return false;
+            }
+        }
+        final CharsetDecoder decoder = UTF_8.newDecoder()
+                                            .onMalformedInput(CodingErrorAction.REPORT)
+                                            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // the prefix may end in the middle of a character so it is not the end of input
+        return !decoder.decode(ByteBuffer.wrap(prefix, 0, length), CharBuffer.allocate(length), false).isError();
+    }
+
+    private static class Magic {
+        final MediaType type;
+        final int       offset;
+        final byte[]    bytes;
+
+        Magic(String type, int offset, int... bytes) {
+            this.type = MediaType.parse(type);
+            this.offset = offset;
+            this.bytes = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                this.bytes[i] = (byte)bytes[i];
+            }
+        }
+
+        boolean matches(byte[] prefix, int length) {
+            if (length < offset + bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (prefix[offset + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class DetectedType {
+        final long      modified;
+        final long      length;
+        final MediaType type;
+
+        DetectedType(long modified, long length, MediaType type) {
+            this.modified = modified;
+            this.length = length;
+            this.type = type;
+        }
+    }
+}
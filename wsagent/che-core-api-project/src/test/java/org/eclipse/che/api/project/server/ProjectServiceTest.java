@@ -51,6 +51,7 @@ import org.eclipse.che.api.vfs.impl.file.FileWatcherNotificationHandler;
 import org.eclipse.che.api.vfs.impl.file.LocalVirtualFileSystemProvider;
 import org.eclipse.che.api.vfs.impl.file.event.detectors.ProjectTreeChangesDetector;
 import org.eclipse.che.api.vfs.search.impl.FSLuceneSearcherProvider;
+import org.eclipse.che.api.vfs.util.MediaTypeDetector;
 import org.eclipse.che.api.workspace.shared.dto.ProjectConfigDto;
 import org.eclipse.che.api.workspace.shared.dto.SourceStorageDto;
 import org.eclipse.che.api.workspace.shared.dto.WorkspaceConfigDto;
@@ -86,6 +87,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.file.PathMatcher;
 import java.util.ArrayList;
@@ -274,6 +276,7 @@ public class ProjectServiceTest {
         dependencies.addInstance(ProjectImporterRegistry.class, importerRegistry);
         dependencies.addInstance(ProjectHandlerRegistry.class, phRegistry);
         dependencies.addInstance(EventService.class, eventService);
+        dependencies.addInstance(MediaTypeDetector.class, new MediaTypeDetector());
 
         ResourceBinder resources = new ResourceBinderImpl();
         ProviderBinder providers = ProviderBinder.getInstance();
@@ -1926,6 +1929,56 @@ public class ProjectServiceTest {
                             });
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSearchReturnsOccurrencesAndLinkToNextPage() throws Exception {
+        RegisteredProject myProject = pm.getProject("my_project");
+        myProject.getBaseFolder().createFolder("a").createFile("test.txt", "first line\nsearchhit".getBytes(Charset.defaultCharset()));
+        myProject.getBaseFolder().createFolder("b").createFile("test.txt", "searchhit".getBytes(Charset.defaultCharset()));
+        myProject.getBaseFolder().createFolder("c").createFile("test.txt", "searchhit".getBytes(Charset.defaultCharset()));
+
+        ContainerResponse response = launcher.service(GET,
+                                                      "http://localhost:8080/api/project/search/my_project?text=searchhit&maxItems=2",
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        List<ItemReference> result = (List<ItemReference>)response.getEntity();
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getPath(), "/my_project/a/test.txt");
+        assertEquals(result.get(0).getContentOccurrences().size(), 1);
+        assertEquals(result.get(0).getContentOccurrences().get(0).getLineNumber(), 2);
+        assertEquals(result.get(0).getContentOccurrences().get(0).getLineContent(), "searchhit");
+        String link = (String)response.getHttpHeaders().getFirst("Link");
+        Assert.assertTrue(link.contains("searchAfter="), link);
+        Assert.assertTrue(link.endsWith("; rel=\"next\""), link);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSearchByRegularExpression() throws Exception {
+        RegisteredProject myProject = pm.getProject("my_project");
+        myProject.getBaseFolder().createFolder("a").createFile("test.txt", "value = 42;".getBytes(Charset.defaultCharset()));
+        myProject.getBaseFolder().createFolder("b").createFile("test.txt", "value = x;".getBytes(Charset.defaultCharset()));
+
+        ContainerResponse response = launcher.service(GET,
+                                                      "http://localhost:8080/api/project/search/my_project?mode=regex&text=" +
+                                                      URLEncoder.encode("value = \\d+;", "UTF-8"),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        List<ItemReference> result = (List<ItemReference>)response.getEntity();
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getPath(), "/my_project/a/test.txt");
+        assertEquals(result.get(0).getContentOccurrences().get(0).getPhrase(), "value = 42;");
+    }
+
+    @Test
+    public void testSearchByInvalidRegularExpression() throws Exception {
+        ContainerResponse response = launcher.service(GET,
+                                                      "http://localhost:8080/api/project/search/my_project?mode=regex&text=" +
+                                                      URLEncoder.encode("value[", "UTF-8"),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 409, "Error: " + response.getEntity());
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testSearchFromWSRoot() throws Exception {
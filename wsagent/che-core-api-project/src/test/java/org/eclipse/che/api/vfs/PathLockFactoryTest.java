@@ -14,6 +14,7 @@ import junit.framework.TestCase;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -236,4 +237,145 @@ public class PathLockFactoryTest extends TestCase {
         waiter.await();
         assertEquals(2, acquired.get());
     }
+
+    public void testSiblingPathsAreLockedConcurrently() throws Exception {
+        PathLockFactory.PathLock lock1 = pathLockFactory.getLock(Path.of("/a/b/c"), true).acquire();
+        PathLockFactory.PathLock lock2 = pathLockFactory.getLock(Path.of("/a/b/d"), true);
+        PathLockFactory.PathLock lock3 = pathLockFactory.getLock(Path.of("/x/y"), true);
+        final CountDownLatch waiter = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        new Thread(() -> {
+            try {
+                lock2.acquire(1000);
+                lock3.acquire(1000);
+                acquired.set(true);
+                lock3.release();
+                lock2.release();
+            } finally {
+                waiter.countDown();
+            }
+        }).start();
+        waiter.await();
+        lock1.release();
+        assertTrue(acquired.get());
+        pathLockFactory.checkClean();
+    }
+
+    public void testRootLockWaitsForChildLock() throws Exception {
+        final PathLockFactory.PathLock childLock = pathLockFactory.getLock(path, false).acquire();
+        final CountDownLatch waiter = new CountDownLatch(1);
+        final AtomicBoolean timedOut = new AtomicBoolean(false);
+        new Thread(() -> {
+            try {
+                pathLockFactory.getLock(Path.ROOT, true).acquire(100);
+            } catch (RuntimeException e) {
+                timedOut.set(true);
+            } finally {
+                waiter.countDown();
+            }
+        }).start();
+        waiter.await();
+        assertTrue(timedOut.get());
+        assertEquals(1, pathLockFactory.getTimeoutCount());
+
+        final CountDownLatch rootWaiter = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        new Thread(() -> {
+            try {
+                PathLockFactory.PathLock rootLock = pathLockFactory.getLock(Path.ROOT, true).acquire(5000);
+                acquired.set(true);
+                rootLock.release();
+            } finally {
+                rootWaiter.countDown();
+            }
+        }).start();
+        Thread.sleep(100);
+        childLock.release();
+        rootWaiter.await();
+        assertTrue(acquired.get());
+        pathLockFactory.checkClean();
+    }
+
+    public void testExclusiveLockIsNotStarvedBySharedLocks() throws Exception {
+        final PathLockFactory.PathLock sharedLock = pathLockFactory.getLock(path, false).acquire();
+        final CountDownLatch exclusiveStarted = new CountDownLatch(1);
+        final CountDownLatch exclusiveDone = new CountDownLatch(1);
+        new Thread(() -> {
+            exclusiveStarted.countDown();
+            try {
+                pathLockFactory.getLock(path, true).acquire(5000).release();
+            } finally {
+                exclusiveDone.countDown();
+            }
+        }).start();
+        exclusiveStarted.await();
+        Thread.sleep(100);
+
+        final CountDownLatch sharedDone = new CountDownLatch(1);
+        final AtomicBoolean sharedTimedOut = new AtomicBoolean(false);
+        new Thread(() -> {
+            try {
+                pathLockFactory.getLock(path, false).acquire(100).release();
+            } catch (RuntimeException e) {
+                sharedTimedOut.set(true);
+            } finally {
+                sharedDone.countDown();
+            }
+        }).start();
+        sharedDone.await();
+        // new shared lock waits while exclusive lock is awaited
+        assertTrue(sharedTimedOut.get());
+
+        sharedLock.release();
+        exclusiveDone.await();
+        pathLockFactory.checkClean();
+    }
+
+    public void testParallelHierarchyLocks() throws Throwable {
+        final Path[] paths = {Path.of("/a"), Path.of("/a/b"), Path.of("/a/b/c"), Path.of("/a/d"), Path.of("/e/f")};
+        final AtomicInteger[] readers = new AtomicInteger[paths.length];
+        final AtomicInteger[] writers = new AtomicInteger[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            readers[i] = new AtomicInteger();
+            writers[i] = new AtomicInteger();
+        }
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final int threads = 8;
+        final CountDownLatch waiter = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread(() -> {
+                try {
+                    for (int n = 0; n < 500; n++) {
+                        final int i = (seed + n * 7) % paths.length;
+                        final boolean exclusive = (seed + n) % 3 == 0;
+                        final PathLockFactory.PathLock lock = pathLockFactory.getLock(paths[i], exclusive).acquire(10000);
+                        try {
+                            (exclusive ? writers : readers)[i].incrementAndGet();
+                            for (int j = 0; j < paths.length; j++) {
+                                final boolean related = i == j || paths[i].isChild(paths[j]) || paths[j].isChild(paths[i]);
+                                if (related && (writers[j].get() > (i == j && exclusive ? 1 : 0)
+                                                || exclusive && readers[j].get() > 0)) {
+                                    throw new AssertionError("Conflicting locks of " + paths[i] + " and " + paths[j]);
+                                }
+                            }
+                        } finally {
+                            (exclusive ? writers : readers)[i].decrementAndGet();
+                            lock.release();
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    waiter.countDown();
+                }
+            }).start();
+        }
+        waiter.await();
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        assertEquals(threads * 500, pathLockFactory.getAcquiredCount());
+        pathLockFactory.checkClean();
+    }
 }
@@ -34,17 +34,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ZipArchiverTest {
@@ -105,6 +112,79 @@ public class ZipArchiverTest {
         assertThatZipArchiveContainsAllEntries(new ByteArrayInputStream(compressedFolder.toByteArray()), entries);
     }
 
+    @Test
+    public void compressesFolderWithLargeFilesToArchive() throws Exception {
+        VirtualFile folder = createFileTreeForArchiving();
+        StringBuilder largeContent = new StringBuilder();
+        while (largeContent.length() <= ZipArchiver.MAX_BUFFERED_SIZE) {
+            largeContent.append(TEST_CONTENT);
+        }
+        folder.getChild(Path.of("a")).createFile("large.txt", largeContent.toString());
+        folder.getChild(Path.of("b")).createFile("picture.png", TEST_CONTENT);
+        ByteArrayOutputStream compressedFolder = new ByteArrayOutputStream();
+        Map<String, String> entries = getFileTreeAsList(folder).stream()
+                                                               .collect(toMap(f -> getZipEntryName(folder, f),
+                                                                              this::readContentUnchecked));
+
+        new ZipArchiver(folder).compress(compressedFolder);
+        assertThatZipArchiveContainsAllEntries(new ByteArrayInputStream(compressedFolder.toByteArray()), entries);
+    }
+
+    @Test
+    public void writesEntriesInTheSameOrderAsFilesAreVisited() throws Exception {
+        VirtualFile folder = vfsRoot.createFolder("arc");
+        for (int i = 0; i < ZipArchiver.PENDING_ENTRIES * 3; i++) {
+            folder.createFolder("folder" + i).createFile("file" + i + ".txt", TEST_CONTENT + i);
+        }
+        ByteArrayOutputStream compressedFolder = new ByteArrayOutputStream();
+        List<String> visitedNames = getFileTreeAsList(folder).stream()
+                                                             .map(f -> getZipEntryName(folder, f))
+                                                             .collect(toList());
+
+        new ZipArchiver(folder).compress(compressedFolder);
+
+        assertEquals(visitedNames, readArchiveEntryNames(new ByteArrayInputStream(compressedFolder.toByteArray())));
+    }
+
+    @Test
+    public void readsContentOfLargeAlreadyCompressedFileOnce() throws Exception {
+        byte[] largeContent = new byte[ZipArchiver.MAX_BUFFERED_SIZE + 1];
+        new Random().nextBytes(largeContent);
+        VirtualFile folder = mockVirtualFile(Path.of("/arc"), true);
+        VirtualFile largeFile = mockVirtualFile(Path.of("/arc/large.zip"), false);
+        when(folder.getChildren()).thenReturn(singletonList(largeFile));
+        when(largeFile.getLength()).thenReturn((long)largeContent.length);
+        when(largeFile.getContent()).thenReturn(new ByteArrayInputStream(largeContent));
+        ByteArrayOutputStream compressedFolder = new ByteArrayOutputStream();
+
+        new ZipArchiver(folder).compress(compressedFolder);
+
+        verify(largeFile).getContent();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(compressedFolder.toByteArray()))) {
+            assertEquals("large.zip", zip.getNextEntry().getName());
+            assertArrayEquals(largeContent, ByteStreams.toByteArray(zip));
+        }
+    }
+
+    @Test
+    public void storesAlreadyCompressedFilesWithoutCompression() throws Exception {
+        VirtualFile folder = createFileTreeForArchiving();
+        folder.createFile("picture.png", TEST_CONTENT);
+        ByteArrayOutputStream compressedFolder = new ByteArrayOutputStream();
+
+        new ZipArchiver(folder).compress(compressedFolder);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(compressedFolder.toByteArray()))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                if (!zipEntry.isDirectory()) {
+                    int expectedMethod = zipEntry.getName().endsWith(".png") ? ZipEntry.STORED : ZipEntry.DEFLATED;
+                    assertEquals(zipEntry.getName(), expectedMethod, zipEntry.getMethod());
+                }
+            }
+        }
+    }
+
     @Test
     public void extractsArchiveToFolder() throws Exception {
         byte[] archive = createTestZipArchive();
@@ -199,6 +279,17 @@ public class ZipArchiverTest {
         return entries;
     }
 
+    private List<String> readArchiveEntryNames(InputStream archive) throws Exception {
+        List<String> names = newArrayList();
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                names.add(zipEntry.getName());
+            }
+        }
+        return names;
+    }
+
     private String readContentUnchecked(VirtualFile virtualFile) {
         if (virtualFile.isFolder()) {
             return "<none>";
@@ -218,6 +309,18 @@ public class ZipArchiverTest {
         return entryName;
     }
 
+    private VirtualFile mockVirtualFile(Path path, boolean folder) throws Exception {
+        VirtualFile virtualFile = mock(VirtualFile.class);
+        when(virtualFile.getPath()).thenReturn(path);
+        when(virtualFile.getName()).thenReturn(path.getName());
+        when(virtualFile.isFolder()).thenReturn(folder);
+        doAnswer(invocation -> {
+            ((VirtualFileVisitor)invocation.getArguments()[0]).visit(virtualFile);
+            return null;
+        }).when(virtualFile).accept(any(VirtualFileVisitor.class));
+        return virtualFile;
+    }
+
     private VirtualFile createFileTreeForArchiving() throws Exception {
         VirtualFile arc = vfsRoot.createFolder("arc");
         arc.createFolder("a").createFile("_a.txt", TEST_CONTENT);
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.NameGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class DirectorySnapshotTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        File targetDir = new File(Thread.currentThread().getContextClassLoader().getResource(".").getPath()).getParentFile();
+        directory = new File(targetDir, NameGenerator.generate("snapshot-", 4)).toPath();
+        Files.createDirectory(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        IoUtil.deleteRecursive(directory.toFile());
+    }
+
+    @Test
+    public void readsEntriesSortedByName() throws Exception {
+        Files.createDirectory(directory.resolve("b"));
+        Files.write(directory.resolve("c"), new byte[0]);
+        Files.write(directory.resolve("a"), new byte[0]);
+        Files.setLastModifiedTime(directory.resolve("a"), FileTime.fromMillis(1_000_000));
+
+        DirectorySnapshot snapshot = DirectorySnapshot.read(directory);
+
+        assertEquals(3, snapshot.size());
+        assertEquals("a", snapshot.getName(0));
+        assertEquals("b", snapshot.getName(1));
+        assertEquals("c", snapshot.getName(2));
+        assertFalse(snapshot.isDirectory(0));
+        assertTrue(snapshot.isDirectory(1));
+        assertFalse(snapshot.isDirectory(2));
+        assertEquals(1_000_000, snapshot.getLastModified(0));
+    }
+
+    @Test
+    public void sharesNamesBetweenSnapshots() throws Exception {
+        Files.write(directory.resolve("file"), new byte[0]);
+
+        assertSame(DirectorySnapshot.read(directory).getName(0), DirectorySnapshot.read(directory).getName(0));
+    }
+
+    @Test
+    public void reportsCreatedDeletedAndModifiedEntries() throws Exception {
+        Files.write(directory.resolve("deleted"), new byte[0]);
+        Files.write(directory.resolve("modified"), new byte[0]);
+        Files.write(directory.resolve("same"), new byte[0]);
+        Files.createDirectory(directory.resolve("replaced"));
+        Files.setLastModifiedTime(directory.resolve("modified"), FileTime.fromMillis(1_000_000));
+        DirectorySnapshot older = DirectorySnapshot.read(directory);
+
+        Files.delete(directory.resolve("deleted"));
+        Files.setLastModifiedTime(directory.resolve("modified"), FileTime.fromMillis(2_000_000));
+        Files.delete(directory.resolve("replaced"));
+        Files.write(directory.resolve("replaced"), new byte[0]);
+        Files.createDirectory(directory.resolve("created"));
+        DirectorySnapshot newer = DirectorySnapshot.read(directory);
+
+        DirectorySnapshot.ChangeListener listener = mock(DirectorySnapshot.ChangeListener.class);
+        older.compareTo(newer, listener);
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).created("created", true);
+        inOrder.verify(listener).deleted("deleted", false);
+        inOrder.verify(listener).modified("modified");
+        inOrder.verify(listener).deleted("replaced", true);
+        inOrder.verify(listener).created("replaced", false);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void doesNotReportModificationOfDirectories() throws Exception {
+        Files.createDirectory(directory.resolve("dir"));
+        Files.setLastModifiedTime(directory.resolve("dir"), FileTime.fromMillis(1_000_000));
+        DirectorySnapshot older = DirectorySnapshot.read(directory);
+        Files.setLastModifiedTime(directory.resolve("dir"), FileTime.fromMillis(2_000_000));
+
+        DirectorySnapshot.ChangeListener listener = mock(DirectorySnapshot.ChangeListener.class);
+        older.compareTo(DirectorySnapshot.read(directory), listener);
+
+        verify(listener, never()).modified(anyString());
+        verify(listener, never()).created(anyString(), anyBoolean());
+        verify(listener, never()).deleted(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void reportsAllEntriesDeletedWhenComparedWithEmptySnapshot() throws Exception {
+        Files.write(directory.resolve("file"), new byte[0]);
+        Files.createDirectory(directory.resolve("dir"));
+
+        DirectorySnapshot.ChangeListener listener = mock(DirectorySnapshot.ChangeListener.class);
+        DirectorySnapshot.read(directory).compareTo(DirectorySnapshot.EMPTY, listener);
+
+        verify(listener).deleted("dir", true);
+        verify(listener).deleted("file", false);
+        verifyNoMoreInteractions(listener);
+    }
+}
@@ -28,6 +28,7 @@ import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.
 import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.DELETED;
 import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.MODIFIED;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -324,6 +325,71 @@ public class FileTreeWatcherTest {
         assertEquals(newHashSet(created), newHashSet(createdEvents.getAllValues()));
     }
 
+    @Test
+    public void rescansDirectoriesThatAreNotWatchedInLazyMode() throws Exception {
+        fileWatcherTestTree.createDirectory("", "watched");
+        final String nestedDir = fileWatcherTestTree.createDirectory("watched", "nested");
+
+        FileWatcherNotificationHandler notificationHandler = aNotificationHandler();
+        fileWatcher = new FileTreeWatcher(testDirectory, newHashSet(), notificationHandler, true, 1);
+        fileWatcher.startup();
+
+        Thread.sleep(500);
+
+        Set<String> created = newHashSet(fileWatcherTestTree.createFile(nestedDir));
+
+        Thread.sleep(5000);
+
+        verify(notificationHandler, never()).errorOccurred(eq(testDirectory), any(Throwable.class));
+        verify(notificationHandler, never()).handleFileWatcherEvent(eq(DELETED), eq(testDirectory), anyString(), anyBoolean());
+
+        ArgumentCaptor<String> createdEvents = ArgumentCaptor.forClass(String.class);
+        verify(notificationHandler, times(1)).handleFileWatcherEvent(eq(CREATED), eq(testDirectory), createdEvents.capture(), anyBoolean());
+        assertEquals(created, newHashSet(createdEvents.getAllValues()));
+
+        ArgumentCaptor<String> modifiedEvents = ArgumentCaptor.forClass(String.class);
+        verify(notificationHandler, times(1)).handleFileWatcherEvent(eq(MODIFIED), eq(testDirectory), modifiedEvents.capture(), anyBoolean());
+        assertEquals(newHashSet(nestedDir), newHashSet(modifiedEvents.getAllValues()));
+    }
+
+    @Test
+    public void watchesExpandedDirectoryInLazyMode() throws Exception {
+        final String expandedDir = fileWatcherTestTree.createDirectory("", "expanded");
+
+        FileWatcherNotificationHandler notificationHandler = aNotificationHandler();
+        fileWatcher = new FileTreeWatcher(testDirectory, newHashSet(), notificationHandler, true, 3600);
+        fileWatcher.startup();
+        fileWatcher.watchDirectory("/" + expandedDir);
+
+        Thread.sleep(500);
+
+        Set<String> created = newHashSet(fileWatcherTestTree.createFile(expandedDir));
+
+        Thread.sleep(5000);
+
+        verify(notificationHandler, never()).errorOccurred(eq(testDirectory), any(Throwable.class));
+        verify(notificationHandler, never()).handleFileWatcherEvent(eq(DELETED), eq(testDirectory), anyString(), anyBoolean());
+
+        ArgumentCaptor<String> createdEvents = ArgumentCaptor.forClass(String.class);
+        verify(notificationHandler, times(1)).handleFileWatcherEvent(eq(CREATED), eq(testDirectory), createdEvents.capture(), anyBoolean());
+        assertEquals(created, newHashSet(createdEvents.getAllValues()));
+    }
+
+    @Test
+    public void doesNotTakeWatcherLockToWatchDirectoryInRegularMode() throws Exception {
+        final String directory = fileWatcherTestTree.createDirectory("", "listed");
+
+        fileWatcher = new FileTreeWatcher(testDirectory, newHashSet(), aNotificationHandler());
+        fileWatcher.startup();
+
+        Thread thread = new Thread(() -> fileWatcher.watchDirectory("/" + directory));
+        synchronized (fileWatcher) {
+            thread.start();
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+    }
+
     @Test
     public void notifiesNotificationListenerWhenStarted() throws Exception {
         FileWatcherNotificationHandler notificationHandler = aNotificationHandler();
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file;
+
+import com.google.common.hash.Hashing;
+
+import org.eclipse.che.api.vfs.ArchiverFactory;
+import org.eclipse.che.api.vfs.HashSumsCounter;
+import org.eclipse.che.api.vfs.Path;
+import org.eclipse.che.api.vfs.VirtualFile;
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.NameGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class HashSumsCacheTest {
+    /** Modification date of the files far enough in the past so their sums are cached. */
+    private static final long OLD_MODIFICATION_DATE = System.currentTimeMillis() - 60_000;
+
+    private File                   testDirectory;
+    private File                   hashesFile;
+    private LocalVirtualFileSystem fileSystem;
+    private HashSumsCache          hashSumsCache;
+
+    private LocalVirtualFile folder;
+    private VirtualFile      file;
+
+    @Before
+    public void setUp() throws Exception {
+        File targetDir = new File(Thread.currentThread().getContextClassLoader().getResource(".").getPath()).getParentFile();
+        testDirectory = new File(targetDir, NameGenerator.generate("hashes-", 4));
+        assertTrue(testDirectory.mkdir());
+        hashesFile = new File(targetDir, NameGenerator.generate("hashes-", 4));
+
+        fileSystem = new LocalVirtualFileSystem(testDirectory, mock(ArchiverFactory.class), null, null);
+        hashSumsCache = new HashSumsCache(hashesFile);
+
+        folder = (LocalVirtualFile)fileSystem.getRoot().createFolder("folder");
+        VirtualFile subFolder = folder.createFolder("sub-folder");
+        file = folder.createFile("file.txt", "to be or not to be");
+        subFolder.createFile("file.txt", "that is the question");
+        makeOld(subFolder.getChild(Path.of("file.txt")));
+        makeOld(file);
+        makeOld(subFolder);
+        makeOld(folder);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hashSumsCache.close();
+        IoUtil.deleteRecursive(testDirectory);
+        hashesFile.delete();
+    }
+
+    @Test
+    public void countsTheSameSumsAsHashSumsCounter() throws Exception {
+        assertEquals(newHashSet(new HashSumsCounter(folder, Hashing.md5()).countHashSums()),
+                     newHashSet(hashSumsCache.countMd5Sums(folder)));
+    }
+
+    @Test
+    public void countsSumsOfLargeFilesReadThroughMappedBuffers() throws Exception {
+        byte[] content = new byte[(int)HashSumsCache.MAPPED_READ_SIZE + 1];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+        folder.createFile("large.bin", content);
+
+        assertEquals(newHashSet(new HashSumsCounter(folder, Hashing.md5()).countHashSums()),
+                     newHashSet(hashSumsCache.countMd5Sums(folder)));
+    }
+
+    @Test
+    public void usesSavedSumsOfNotModifiedFiles() throws Exception {
+        String digest = hashSumsCache.getFolderDigest(folder);
+        hashSumsCache.close();
+        replaceContentKeepingLengthAndDate(file, "TO BE OR NOT TO BE");
+
+        hashSumsCache = new HashSumsCache(hashesFile);
+
+        assertEquals(digest, hashSumsCache.getFolderDigest(folder));
+    }
+
+    @Test
+    public void countsSumsOfModifiedFilesAgain() throws Exception {
+        String digest = hashSumsCache.getFolderDigest(folder);
+
+        Files.write(((LocalVirtualFile)file).toIoFile().toPath(), "to be".getBytes());
+        makeOld(file);
+
+        assertNotEquals(digest, hashSumsCache.getFolderDigest(folder));
+    }
+
+    @Test
+    public void usesFolderDigestWhileFileWatcherIsRunningUntilFolderIsInvalidated() throws Exception {
+        hashSumsCache.setFileWatcherRunning(true);
+        String digest = hashSumsCache.getFolderDigest(folder);
+
+        Files.write(((LocalVirtualFile)file).toIoFile().toPath(), "to be".getBytes());
+        makeOld(file);
+
+        assertEquals(digest, hashSumsCache.getFolderDigest(folder));
+
+        hashSumsCache.invalidate(file.getPath());
+
+        assertNotEquals(digest, hashSumsCache.getFolderDigest(folder));
+    }
+
+    @Test
+    public void checksFilesWhenFileWatcherIsNotRunning() throws Exception {
+        hashSumsCache.setFileWatcherRunning(true);
+        String digest = hashSumsCache.getFolderDigest(folder);
+        hashSumsCache.setFileWatcherRunning(false);
+
+        Files.write(((LocalVirtualFile)file).toIoFile().toPath(), "to be".getBytes());
+        makeOld(file);
+
+        assertNotEquals(digest, hashSumsCache.getFolderDigest(folder));
+    }
+
+    private static void replaceContentKeepingLengthAndDate(VirtualFile file, String content) throws Exception {
+        File ioFile = ((LocalVirtualFile)file).toIoFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(ioFile, "rw")) {
+            randomAccessFile.write(content.getBytes());
+        }
+        makeOld(file);
+    }
+
+    private static void makeOld(VirtualFile file) {
+        assertTrue(((LocalVirtualFile)file).toIoFile().setLastModified(OLD_MODIFICATION_DATE));
+    }
+}
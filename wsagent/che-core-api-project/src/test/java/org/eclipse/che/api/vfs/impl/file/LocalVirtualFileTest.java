@@ -341,6 +341,26 @@ public class LocalVirtualFileTest {
         assertEquals(expectedResult, root.getChildren());
     }
 
+    @Test
+    public void getsChildrenCreatedAndRemovedOutsideOfVirtualFileSystem() throws Exception {
+        VirtualFile root = getRoot();
+        VirtualFile file1 = root.createFile(generateFileName(), DEFAULT_CONTENT);
+        assertEquals(newArrayList(file1), root.getChildren());
+
+        String name = generateFileName();
+        assertTrue(new File(root.toIoFile(), name).createNewFile());
+        VirtualFile file2 = root.getChild(Path.of(name));
+
+        List<VirtualFile> expectedResult = newArrayList(file1, file2);
+        Collections.sort(expectedResult);
+
+        assertEquals(expectedResult, root.getChildren());
+
+        assertTrue(file1.toIoFile().delete());
+
+        assertEquals(newArrayList(file2), root.getChildren());
+    }
+
     @Test
     public void getsChildrenWithFilter() throws Exception {
         VirtualFile root = getRoot();
@@ -1398,6 +1418,17 @@ public class LocalVirtualFileTest {
         verify(archiver).compress(any(OutputStream.class), any(VirtualFileFilter.class));
     }
 
+    @Test
+    public void compressesFolderToZipArchiveInSpecifiedOutput() throws Exception {
+        VirtualFile folder = getRoot().createFolder(generateFolderName());
+        Archiver archiver = mock(Archiver.class);
+        when(archiverFactory.createArchiver(eq(folder), eq("zip"))).thenReturn(archiver);
+        OutputStream zipOutput = new ByteArrayOutputStream();
+        VirtualFileFilter filter = VirtualFileFilter.ACCEPT_ALL;
+        folder.zip(zipOutput, filter);
+        verify(archiver).compress(zipOutput, filter);
+    }
+
     @Test
     public void failsZipFile() throws Exception {
         VirtualFile root = getRoot();
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file.event;
+
+import org.eclipse.che.api.core.notification.EventService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.System.currentTimeMillis;
+import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.MODIFIED;
+import static org.eclipse.che.api.vfs.impl.file.event.LoEvent.ItemType.FILE;
+import static org.eclipse.che.api.vfs.impl.file.event.LoEvent.newInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link LoEventQueueHolder}
+ */
+public class LoEventQueueHolderTest {
+    private EventService               eventService;
+    private List<LoEventsDroppedEvent> droppedEvents;
+
+    @Before
+    public void setUp() throws Exception {
+        eventService = new EventService();
+        droppedEvents = new ArrayList<>();
+        eventService.subscribe(droppedEvents::add, LoEventsDroppedEvent.class);
+    }
+
+    @Test
+    public void shouldDropEventWhenQueueIsFull() throws Exception {
+        final LoEventQueueHolder holder = new LoEventQueueHolder(eventService, 1, 10);
+
+        holder.put(getLoEvent("/file1", currentTimeMillis()));
+        holder.put(getLoEvent("/file2", currentTimeMillis()));
+
+        assertEquals(1, holder.size());
+        assertEquals(1, holder.getDroppedEvents());
+        assertEquals("/file1", holder.poll(10).get().getPath());
+        assertFalse(holder.poll(10).isPresent());
+    }
+
+    @Test
+    public void shouldMeasureLagOfOldestEvent() throws Exception {
+        final LoEventQueueHolder holder = new LoEventQueueHolder(eventService, 10, 10);
+        assertEquals(0, holder.getLagMillis());
+
+        holder.put(getLoEvent("/file1", currentTimeMillis() - 1_000));
+        holder.put(getLoEvent("/file2", currentTimeMillis()));
+
+        assertTrue(holder.getLagMillis() >= 1_000);
+        assertEquals(2, holder.size());
+    }
+
+    @Test
+    public void shouldNotWaitForFreeSpaceAfterEventIsDroppedUntilQueueIsDrained() throws Exception {
+        final LoEventQueueHolder holder = new LoEventQueueHolder(eventService, 1, 200);
+        holder.put(getLoEvent("/file1", currentTimeMillis()));
+        holder.put(getLoEvent("/file2", currentTimeMillis()));
+
+        final long start = currentTimeMillis();
+        holder.put(getLoEvent("/file3", currentTimeMillis()));
+        holder.put(getLoEvent("/file4", currentTimeMillis()));
+
+        assertTrue(currentTimeMillis() - start < 200);
+        assertEquals(3, holder.getDroppedEvents());
+    }
+
+    @Test
+    public void shouldPublishDroppedEventsWhenQueueIsDrained() throws Exception {
+        final LoEventQueueHolder holder = new LoEventQueueHolder(eventService, 2, 10);
+        holder.put(getLoEvent("/file1", currentTimeMillis()));
+        holder.put(getLoEvent("/file2", currentTimeMillis()));
+        holder.put(getLoEvent("/file3", currentTimeMillis()));
+
+        holder.poll(10);
+        assertTrue(droppedEvents.isEmpty());
+
+        holder.poll(10);
+        assertEquals(1, droppedEvents.size());
+        assertEquals(1, droppedEvents.get(0).getDroppedEvents());
+
+        holder.put(getLoEvent("/file4", currentTimeMillis()));
+        holder.poll(10);
+        assertEquals(1, droppedEvents.size());
+    }
+
+    private LoEvent getLoEvent(String path, long time) {
+        return newInstance().withName(path.substring(1))
+                            .withPath(path)
+                            .withEventType(MODIFIED)
+                            .withItemType(FILE)
+                            .withTime(time);
+    }
+}
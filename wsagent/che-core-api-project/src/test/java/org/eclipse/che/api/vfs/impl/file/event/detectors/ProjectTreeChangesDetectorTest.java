@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.impl.file.event.detectors;
+
+import org.eclipse.che.api.core.jsonrpc.RequestTransmitter;
+import org.eclipse.che.api.core.websocket.impl.WebSocketSessionRegistry;
+import org.eclipse.che.api.project.shared.dto.event.ProjectTreeStatusUpdateDto;
+import org.eclipse.che.api.vfs.impl.file.event.EventTreeNode;
+import org.eclipse.che.api.vfs.impl.file.event.LoEvent;
+import org.eclipse.che.commons.schedule.executor.ThreadPullLauncher;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.websocket.Session;
+
+import static java.lang.System.currentTimeMillis;
+import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.CREATED;
+import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.MODIFIED;
+import static org.eclipse.che.api.vfs.impl.file.event.EventTreeHelper.addEventAndCreatePrecedingNodes;
+import static org.eclipse.che.api.vfs.impl.file.event.EventTreeNode.newRootInstance;
+import static org.eclipse.che.api.vfs.impl.file.event.LoEvent.ItemType.FILE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Test for {@link ProjectTreeChangesDetector}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ProjectTreeChangesDetectorTest {
+    private static final String METHOD = "event:project-tree-status-changed";
+
+    @Mock
+    private RequestTransmitter transmitter;
+    @Mock
+    private ThreadPullLauncher launcher;
+
+    private WebSocketSessionRegistry   sessionRegistry;
+    private ProjectTreeChangesDetector detector;
+    private Runnable                   transmission;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionRegistry = new WebSocketSessionRegistry();
+        for (String endpointId : new String[] {"first", "second", "third"}) {
+            sessionRegistry.add(endpointId, mock(Session.class));
+        }
+        detector = new ProjectTreeChangesDetector(transmitter, launcher, sessionRegistry);
+        detector.postConstruct();
+
+        final ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(launcher).scheduleWithFixedDelay(captor.capture(), anyLong(), anyLong(), any());
+        transmission = captor.getValue();
+    }
+
+    @Test
+    public void shouldCollapseChangesOfSeveralTreesToCommonFolder() throws Exception {
+        detector.detect(tree("/project/node_modules/a/index.js", "/project/node_modules/b/index.js"));
+        detector.detect(tree("/project/node_modules/c/package.json"));
+
+        transmission.run();
+
+        final ArgumentCaptor<ProjectTreeStatusUpdateDto> captor = ArgumentCaptor.forClass(ProjectTreeStatusUpdateDto.class);
+        verify(transmitter).broadcast(eq(METHOD), captor.capture());
+        assertEquals("/project/node_modules", captor.getValue().getPath());
+        assertEquals(MODIFIED, captor.getValue().getType());
+
+        transmission.run();
+
+        verify(transmitter).broadcast(anyString(), any());
+    }
+
+    @Test
+    public void shouldTransmitChangesCollectedWhileSuspendedAfterResume() throws Exception {
+        detector.suspend();
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verifyZeroInteractions(transmitter);
+
+        detector.resume();
+        transmission.run();
+
+        final ArgumentCaptor<ProjectTreeStatusUpdateDto> captor = ArgumentCaptor.forClass(ProjectTreeStatusUpdateDto.class);
+        verify(transmitter).broadcast(eq(METHOD), captor.capture());
+        assertEquals("/project/src", captor.getValue().getPath());
+    }
+
+    @Test
+    public void shouldNotifyOnlySubscribedEndpointsWithMatchingPaths() throws Exception {
+        detector.subscribe("first", "/project/src");
+        detector.subscribe("second", "/other");
+        detector.subscribe("third", "/project/src/main/java/");
+
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verify(transmitter).transmitNotification(eq("first"), eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter).transmitNotification(eq("third"), eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter, never()).transmitNotification(eq("second"), anyString(), any());
+        verify(transmitter, never()).broadcast(anyString(), any());
+    }
+
+    @Test
+    public void shouldBroadcastWhenAllSubscriptionsAreCancelled() throws Exception {
+        detector.subscribe("first", "/project");
+        detector.unsubscribe("first", "/project/");
+
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verify(transmitter).broadcast(eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter, never()).transmitNotification(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void shouldNotifyEndpointsWithoutSubscriptionsAboutAllChanges() throws Exception {
+        detector.subscribe("first", "/other");
+
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verify(transmitter).transmitNotification(eq("second"), eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter).transmitNotification(eq("third"), eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter, never()).transmitNotification(eq("first"), anyString(), any());
+    }
+
+    @Test
+    public void shouldRemoveSubscriptionsWhenSessionIsClosed() throws Exception {
+        detector.subscribe("first", "/project/src");
+        sessionRegistry.remove("first");
+        sessionRegistry.remove("second");
+        sessionRegistry.remove("third");
+
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verify(transmitter).broadcast(eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+        verify(transmitter, never()).transmitNotification(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void shouldNotSubscribeEndpointWhoseSessionIsClosed() throws Exception {
+        sessionRegistry.remove("first");
+        detector.subscribe("first", "/project/src");
+
+        detector.detect(tree("/project/src/Main.java"));
+        transmission.run();
+
+        verify(transmitter).broadcast(eq(METHOD), any(ProjectTreeStatusUpdateDto.class));
+    }
+
+    private EventTreeNode tree(String... paths) {
+        final EventTreeNode root = newRootInstance();
+        for (String path : paths) {
+            addEventAndCreatePrecedingNodes(root, LoEvent.newInstance()
+                                                         .withName(path.substring(path.lastIndexOf('/') + 1))
+                                                         .withPath(path)
+                                                         .withEventType(CREATED)
+                                                         .withItemType(FILE)
+                                                         .withTime(currentTimeMillis()));
+        }
+        return root;
+    }
+}
@@ -11,14 +11,28 @@
 package org.eclipse.che.api.vfs.search.impl;
 
 import com.google.common.base.Optional;
-
+import com.google.common.collect.ImmutableMap;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.eclipse.che.api.vfs.ArchiverFactory;
 import org.eclipse.che.api.vfs.VirtualFile;
 import org.eclipse.che.api.vfs.VirtualFileFilter;
 import org.eclipse.che.api.vfs.VirtualFileSystem;
 import org.eclipse.che.api.vfs.impl.memory.MemoryVirtualFileSystem;
 import org.eclipse.che.api.vfs.search.QueryExpression;
+import org.eclipse.che.api.vfs.search.SearchOccurrence;
 import org.eclipse.che.api.vfs.search.SearchResult;
+import org.eclipse.che.api.vfs.search.SearchResultEntry;
 import org.eclipse.che.commons.lang.IoUtil;
 import org.eclipse.che.commons.lang.NameGenerator;
 import org.junit.After;
@@ -27,10 +41,18 @@ import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 
 import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -307,6 +329,347 @@ public class FSLuceneSearcherTest {
         assertTrue(Collections.disjoint(firstPage.getFilePaths(), lastPage.getFilePaths()));
     }
 
+    @Test
+    public void keepsIndexWhenSearcherClosed() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[2]);
+        searcher.init(virtualFileSystem);
+
+        searcher.close();
+
+        assertTrue(indexDirectory.exists());
+        searcher = new FSLuceneSearcher(indexDirectory, filter, closeCallback);
+        searcher.init(virtualFileSystem);
+        List<String> paths = searcher.search(new QueryExpression().setText("be")).getFilePaths();
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+    }
+
+    @Test
+    public void reconcilesExistedIndexWithVirtualFilesystemOnInit() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        VirtualFile updated = folder.createFile("xxx.txt", TEST_CONTENT[2]);
+        VirtualFile removed = folder.createFile("yyy.txt", TEST_CONTENT[2]);
+        searcher.init(virtualFileSystem);
+        searcher.close();
+
+        updated.updateContent(TEST_CONTENT[1]);
+        removed.delete();
+        folder.createFile("zzz.txt", TEST_CONTENT[0]);
+        searcher = new FSLuceneSearcher(indexDirectory, filter, closeCallback);
+        searcher.init(virtualFileSystem);
+
+        assertTrue(searcher.search(new QueryExpression().setText("be")).getFilePaths().isEmpty());
+        assertEquals(newArrayList("/folder/xxx.txt"), searcher.search(new QueryExpression().setText("should")).getFilePaths());
+        assertEquals(newArrayList("/folder/zzz.txt"), searcher.search(new QueryExpression().setText("spaceflight")).getFilePaths());
+    }
+
+    @Test
+    public void doesNotIndexAgainFilesThatAreNotChangedSinceIndexWasCompleted() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile file = virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[2]);
+        writeIndex(LuceneSearcher.INDEX_STATE_COMPLETE, file, "ghost");
+
+        searcher.init(virtualFileSystem);
+
+        List<String> paths = searcher.search(new QueryExpression().setText("ghost")).getFilePaths();
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+    }
+
+    @Test
+    public void rebuildsIndexThatIsNotCompleted() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile file = virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[2]);
+        writeIndex(LuceneSearcher.INDEX_STATE_PARTIAL, file, "ghost");
+
+        searcher.init(virtualFileSystem);
+
+        assertTrue(searcher.search(new QueryExpression().setText("ghost")).getFilePaths().isEmpty());
+        List<String> paths = searcher.search(new QueryExpression().setText("be")).getFilePaths();
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+    }
+
+    @Test
+    public void doesNotIndexContentOfBinaryFiles() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        folder.createFile("xxx.txt", TEST_CONTENT[2]);
+        folder.createFile("xxx.bin", TEST_CONTENT[2] + '\0');
+        searcher.init(virtualFileSystem);
+
+        List<String> paths = searcher.search(new QueryExpression().setText("be")).getFilePaths();
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+        paths = searcher.search(new QueryExpression().setName("xxx.bin")).getFilePaths();
+        assertEquals(newArrayList("/folder/xxx.bin"), paths);
+    }
+
+    @Test
+    public void indexesTreeWithFewThreadsAndSmallQueue() throws Exception {
+        searcher = new FSLuceneSearcher(indexDirectory, filter, closeCallback, new LuceneIndexSettings(4, 3, 1, 2));
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        for (int i = 0; i < 20; i++) {
+            VirtualFile folder = virtualFileSystem.getRoot().createFolder(String.format("folder%02d/sub", i));
+            for (int j = 0; j < 20; j++) {
+                folder.createFile(String.format("file%02d", j), TEST_CONTENT[j % TEST_CONTENT.length]);
+            }
+        }
+        searcher.init(virtualFileSystem);
+
+        assertEquals(100, searcher.search(new QueryExpression().setText("mission")).getTotalHits());
+        assertEquals(400, searcher.search(new QueryExpression().setName("file*")).getTotalHits());
+    }
+
+    @Test(timeout = 60_000)
+    public void indexesTreesAddedConcurrently() throws Exception {
+        searcher = new FSLuceneSearcher(indexDirectory, filter, closeCallback, new LuceneIndexSettings(1, 1, 1, 2));
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        searcher.init(virtualFileSystem);
+        List<VirtualFile> folders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            VirtualFile folder = virtualFileSystem.getRoot().createFolder(String.format("folder%02d", i));
+            for (int j = 0; j < 20; j++) {
+                folder.createFile(String.format("file%02d", j), TEST_CONTENT[j % TEST_CONTENT.length]);
+            }
+            folders.add(folder);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(folders.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (VirtualFile folder : folders) {
+                futures.add(executor.submit(() -> {
+                    searcher.add(folder);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40, searcher.search(new QueryExpression().setText("mission")).getTotalHits());
+        assertEquals(160, searcher.search(new QueryExpression().setName("file*")).getTotalHits());
+    }
+
+    @Test
+    public void findsOccurrencesOfSearchedTextWithLinesAndOffsets() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[0] + '\n' + TEST_CONTENT[3]);
+        searcher.init(virtualFileSystem);
+
+        List<SearchResultEntry> results = searcher.search(new QueryExpression().setText("apollo OR mission")).getResults();
+
+        assertEquals(1, results.size());
+        List<SearchOccurrence> occurrences = results.get(0).getOccurrences();
+        assertEquals(2, occurrences.size());
+        assertEquals("Apollo", occurrences.get(0).getPhrase());
+        assertEquals(1, occurrences.get(0).getLineNumber());
+        assertEquals(0, occurrences.get(0).getStartOffset());
+        assertEquals(6, occurrences.get(0).getEndOffset());
+        assertEquals(TEST_CONTENT[0], occurrences.get(0).getLineContent());
+        int missionOffset = TEST_CONTENT[0].length() + 1 + TEST_CONTENT[3].indexOf("mission");
+        assertEquals("mission", occurrences.get(1).getPhrase());
+        assertEquals(2, occurrences.get(1).getLineNumber());
+        assertEquals(missionOffset, occurrences.get(1).getStartOffset());
+        assertEquals(missionOffset + 7, occurrences.get(1).getEndOffset());
+        assertEquals(TEST_CONTENT[3], occurrences.get(1).getLineContent());
+    }
+
+    @Test
+    public void findsOccurrencesOfPhraseAndWildcard() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[2]);
+        searcher.init(virtualFileSystem);
+
+        List<SearchOccurrence> occurrences = searcher.search(new QueryExpression().setText("\"not to\""))
+                                                     .getResults().get(0).getOccurrences();
+        assertEquals(1, occurrences.size());
+        assertEquals("not to", occurrences.get(0).getPhrase());
+        assertEquals(TEST_CONTENT[2].indexOf("not to"), occurrences.get(0).getStartOffset());
+
+        occurrences = searcher.search(new QueryExpression().setText("b*")).getResults().get(0).getOccurrences();
+        assertEquals(2, occurrences.size());
+        assertEquals("be", occurrences.get(0).getPhrase());
+        assertEquals("be", occurrences.get(1).getPhrase());
+    }
+
+    @Test
+    public void doesNotFindOccurrencesWhenTextIsNotSearched() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        virtualFileSystem.getRoot().createFolder("folder").createFile("xxx.txt", TEST_CONTENT[2]);
+        searcher.init(virtualFileSystem);
+
+        List<SearchResultEntry> results = searcher.search(new QueryExpression().setName("xxx.txt")).getResults();
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).getOccurrences().isEmpty());
+    }
+
+    @Test
+    public void retrievesPagesWithCursorWhenFilesAreAddedBetweenPages() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        for (int i = 0; i < 100; i++) {
+            virtualFileSystem.getRoot().createFile(String.format("file%02d", i), TEST_CONTENT[i % TEST_CONTENT.length]);
+        }
+        searcher.init(virtualFileSystem);
+
+        SearchResult firstPage = searcher.search(new QueryExpression().setText("spaceflight").setMaxItems(10));
+        QueryExpression nextPageQueryExpression = firstPage.getNextPageQueryExpression().get();
+        assertEquals("/file36", firstPage.getFilePaths().get(9));
+        assertEquals(LuceneSearcher.pathToCursor("/file36"), nextPageQueryExpression.getSearchAfter());
+
+        // files that precede the cursor do not shift the next page
+        searcher.add(virtualFileSystem.getRoot().createFile("a", TEST_CONTENT[0]));
+        nextPageQueryExpression.setMaxItems(100);
+        SearchResult lastPage = searcher.search(nextPageQueryExpression);
+
+        assertEquals(15, lastPage.getFilePaths().size());
+        assertEquals("/file40", lastPage.getFilePaths().get(0));
+        assertFalse(lastPage.getNextPageQueryExpression().isPresent());
+    }
+
+    @Test
+    public void searchesLiteralThatSpansFewWords() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        folder.createFile("xxx.txt", TEST_CONTENT[0]);
+        folder.createFile("yyy.txt", TEST_CONTENT[3]);
+        searcher.init(virtualFileSystem);
+
+        SearchResult result = searcher.search(new QueryExpression().setText("MAN SPACEFL").setMode(QueryExpression.Mode.LITERAL));
+
+        assertEquals(newArrayList("/folder/xxx.txt"), result.getFilePaths());
+        SearchOccurrence occurrence = result.getResults().get(0).getOccurrences().get(0);
+        assertEquals("man spacefl", occurrence.getPhrase());
+        assertEquals(TEST_CONTENT[0].indexOf("man spacefl"), occurrence.getStartOffset());
+    }
+
+    @Test
+    public void searchesLiteralShorterThanTrigram() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        folder.createFile("xxx.txt", TEST_CONTENT[2]);
+        folder.createFile("yyy.txt", TEST_CONTENT[0]);
+        searcher.init(virtualFileSystem);
+
+        List<String> paths = searcher.search(new QueryExpression().setText("be").setMode(QueryExpression.Mode.LITERAL)).getFilePaths();
+
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+    }
+
+    @Test
+    public void searchesRegularExpression() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        for (int i = 0; i < TEST_CONTENT.length; i++) {
+            folder.createFile("file" + i, TEST_CONTENT[i]);
+        }
+        searcher.init(virtualFileSystem);
+
+        SearchResult result = searcher.search(new QueryExpression().setText("early \\d{4},").setMode(QueryExpression.Mode.REGEX));
+        assertEquals(newArrayList("/folder/file3"), result.getFilePaths());
+        assertEquals("early 1961,", result.getResults().get(0).getOccurrences().get(0).getPhrase());
+
+        List<String> paths = searcher.search(new QueryExpression().setText("twice|^to be").setMode(QueryExpression.Mode.REGEX))
+                                     .getFilePaths();
+        assertEquals(newArrayList("/folder/file1"), paths);
+
+        paths = searcher.search(new QueryExpression().setText("(?i)^to be").setMode(QueryExpression.Mode.REGEX)).getFilePaths();
+        assertEquals(newArrayList("/folder/file2"), paths);
+    }
+
+    @Test
+    public void searchesLiteralInFilesIndexedWithoutTrigrams() throws Exception {
+        searcher = new FSLuceneSearcher(indexDirectory, filter, closeCallback, new LuceneIndexSettings(1, 10, 16, 10, false));
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        VirtualFile folder = virtualFileSystem.getRoot().createFolder("folder");
+        folder.createFile("xxx.txt", TEST_CONTENT[2]);
+        folder.createFile("yyy.txt", TEST_CONTENT[1]);
+        searcher.init(virtualFileSystem);
+
+        List<String> paths = searcher.search(new QueryExpression().setText("not to").setMode(QueryExpression.Mode.LITERAL)).getFilePaths();
+
+        assertEquals(newArrayList("/folder/xxx.txt"), paths);
+    }
+
+    @Test
+    public void retrievesPagesOfLiteralSearch() throws Exception {
+        VirtualFileSystem virtualFileSystem = virtualFileSystem();
+        for (int i = 0; i < 1000; i++) {
+            virtualFileSystem.getRoot().createFile(String.format("file%03d", i), TEST_CONTENT[i % TEST_CONTENT.length]);
+        }
+        searcher.init(virtualFileSystem);
+
+        SearchResult firstPage = searcher.search(new QueryExpression().setText("flight mile")
+                                                                      .setMode(QueryExpression.Mode.LITERAL)
+                                                                      .setMaxItems(100));
+        assertEquals(100, firstPage.getFilePaths().size());
+        assertEquals("/file396", firstPage.getFilePaths().get(99));
+
+        QueryExpression nextPageQueryExpression = firstPage.getNextPageQueryExpression().get();
+        nextPageQueryExpression.setMaxItems(1000);
+        SearchResult lastPage = searcher.search(nextPageQueryExpression);
+
+        assertEquals(150, lastPage.getFilePaths().size());
+        assertEquals("/file400", lastPage.getFilePaths().get(0));
+        assertFalse(lastPage.getNextPageQueryExpression().isPresent());
+    }
+
+    @Test
+    public void findsMatchesInContentThatIsReadInFewWindows() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("line ").append(i).append(" to be or not\n");
+        }
+        Pattern pattern = Pattern.compile("^line \\d+ to|not$|b[a-z ]+", Pattern.MULTILINE);
+        List<int[]> expected = new ArrayList<>();
+        Matcher matcher = pattern.matcher(content);
+        while (matcher.find()) {
+            expected.add(new int[]{matcher.start(), matcher.end()});
+        }
+
+        List<int[]> offsets = LuceneSearcher.findOffsets(new StringReader(content.toString()), pattern, 32, 12);
+
+        assertEquals(OccurrencesFinder.MAX_OCCURRENCES, offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            assertArrayEquals(expected.get(i), offsets.get(i));
+        }
+    }
+
+    @Test
+    public void findsMatchesThatCrossBoundaryOfWindows() throws Exception {
+        Pattern pattern = Pattern.compile("x+y");
+
+        List<int[]> offsets = LuceneSearcher.findOffsets(new StringReader("aaaaaaxxyaaxy"), pattern, 8, 3);
+
+        assertEquals(2, offsets.size());
+        assertArrayEquals(new int[]{6, 9}, offsets.get(0));
+        assertArrayEquals(new int[]{11, 13}, offsets.get(1));
+    }
+
+    /** Writes index with single document that matches the file by path, modification date and length but has different text. */
+    private void writeIndex(String state, VirtualFile file, String text) throws Exception {
+        try (IndexWriter writer = new IndexWriter(FSDirectory.open(indexDirectory.toPath()),
+                                                  new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+            Document doc = new Document();
+            doc.add(new StringField(LuceneSearcher.PATH_FIELD, file.getPath().toString(), Field.Store.YES));
+            doc.add(new SortedDocValuesField(LuceneSearcher.PATH_FIELD, new BytesRef(file.getPath().toString())));
+            doc.add(new StringField(LuceneSearcher.NAME_FIELD, file.getName(), Field.Store.YES));
+            doc.add(new StoredField(LuceneSearcher.MODIFIED_FIELD, file.getLastModificationDate()));
+            doc.add(new StoredField(LuceneSearcher.LENGTH_FIELD, file.getLength()));
+            doc.add(new TextField(LuceneSearcher.TEXT_FIELD, text, Field.Store.NO));
+            writer.addDocument(doc);
+            // file is not considered as modified right before commit
+            writer.setCommitData(ImmutableMap.of(LuceneSearcher.INDEX_STATE_KEY, state,
+                                                 LuceneSearcher.INDEX_FORMAT_KEY, LuceneSearcher.INDEX_FORMAT,
+                                                 LuceneSearcher.INDEX_TIMESTAMP_KEY,
+                                                 Long.toString(System.currentTimeMillis() + 60_000)));
+            writer.commit();
+        }
+    }
+
     private VirtualFileSystem virtualFileSystem() throws Exception {
         return new MemoryVirtualFileSystem(mock(ArchiverFactory.class), null);
     }
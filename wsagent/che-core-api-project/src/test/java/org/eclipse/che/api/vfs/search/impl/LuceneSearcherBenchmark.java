@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.eclipse.che.api.vfs.ArchiverFactory;
+import org.eclipse.che.api.vfs.VirtualFileFilter;
+import org.eclipse.che.api.vfs.VirtualFileSystem;
+import org.eclipse.che.api.vfs.impl.file.LocalVirtualFileSystem;
+import org.eclipse.che.api.vfs.search.QueryExpression;
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.NameGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures indexing of generated tree of {@link #FILES} files located on the local filesystem
+ * with different number of index threads, and substring search with wildcard query compared
+ * to literal search that uses trigram index.
+ *
+ * <p>It is not executed by the regular build, run it explicitly with
+ * {@code mvn test -Dtest=LuceneSearcherBenchmark}.
+ */
+public class LuceneSearcherBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(LuceneSearcherBenchmark.class);
+
+    private static final int FILES            = 200_000;
+    private static final int FILES_PER_FOLDER = 50;
+    private static final int FOLDERS_PER_TIER = 20;
+    private static final int WORDS_PER_FILE   = 200;
+    private static final int ITERATIONS       = 10;
+
+    private static final String[] WORDS = {"apollo", "mission", "spaceflight", "milestone", "ascent", "orbit", "lunar", "module"};
+
+    private static File              root;
+    private static VirtualFileSystem virtualFileSystem;
+
+    @BeforeClass
+    public static void generateTree() throws Exception {
+        File targetDir = new File(Thread.currentThread().getContextClassLoader().getResource(".").getPath()).getParentFile();
+        root = new File(targetDir, NameGenerator.generate("index-benchmark-", 4));
+
+        final long start = System.nanoTime();
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < FILES; i++) {
+            final File folder = new File(root, folderPath(i / FILES_PER_FOLDER));
+            if (i % FILES_PER_FOLDER == 0) {
+                Files.createDirectories(folder.toPath());
+            }
+            content.setLength(0);
+            for (int j = 0; j < WORDS_PER_FILE; j++) {
+                content.append(WORDS[(i + j) % WORDS.length]).append(j % 10 == 9 ? '\n' : ' ');
+            }
+            content.append("file").append(i);
+            Files.write(new File(folder, "file" + i + ".txt").toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        LOG.info("Generated {} files in {} ms", FILES, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        virtualFileSystem = new LocalVirtualFileSystem(root, mock(ArchiverFactory.class), null, null);
+    }
+
+    @AfterClass
+    public static void removeTree() throws Exception {
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void indexWithSingleThread() throws Exception {
+        measure(new LuceneIndexSettings(1, 1000, 16, 10));
+    }
+
+    @Test
+    public void indexWithFourThreads() throws Exception {
+        measure(new LuceneIndexSettings(4, 1000, 16, 10));
+    }
+
+    @Test
+    public void indexWithFourThreadsAndLargeRamBuffer() throws Exception {
+        measure(new LuceneIndexSettings(4, 1000, 64, 10));
+    }
+
+    @Test
+    public void searchSubstring() throws Exception {
+        final File indexDirectory = new File(root.getParentFile(), NameGenerator.generate("index-", 4));
+        final FSLuceneSearcher searcher = new FSLuceneSearcher(indexDirectory, mock(VirtualFileFilter.class), null,
+                                                               LuceneIndexSettings.DEFAULT);
+        try {
+            searcher.init(virtualFileSystem);
+            // there are no files with greater numbers that start with the same digits
+            final QueryExpression wildcard = new QueryExpression().setText("*le54321*");
+            final QueryExpression literal = new QueryExpression().setText("le54321").setMode(QueryExpression.Mode.LITERAL);
+            measureSearch("wildcard", searcher, wildcard);
+            measureSearch("trigram literal", searcher, literal);
+        } finally {
+            searcher.close();
+            IoUtil.deleteRecursive(indexDirectory);
+        }
+    }
+
+    private void measureSearch(String name, FSLuceneSearcher searcher, QueryExpression query) throws Exception {
+        long total = 0;
+        // the first iteration is a warm up
+        for (int i = 0; i <= ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            assertEquals(newArrayList("/root/dir2/dir14/dir6/file54321.txt"), searcher.search(query).getFilePaths());
+            if (i > 0) {
+                total += System.nanoTime() - start;
+            }
+        }
+        LOG.info("Substring search with {} query: average {} ms", name, TimeUnit.NANOSECONDS.toMillis(total / ITERATIONS));
+    }
+
+    private void measure(LuceneIndexSettings settings) throws Exception {
+        final File indexDirectory = new File(root.getParentFile(), NameGenerator.generate("index-", 4));
+        final FSLuceneSearcher searcher = new FSLuceneSearcher(indexDirectory, mock(VirtualFileFilter.class), null, settings);
+        try {
+            final long start = System.nanoTime();
+            searcher.init(virtualFileSystem);
+            final long elapsed = System.nanoTime() - start;
+
+            assertEquals(1, searcher.search(new QueryExpression().setText("file" + (FILES - 1))).getTotalHits());
+            LOG.info("Indexed {} files with {} threads and {} MB RAM buffer in {} ms",
+                     FILES,
+                     settings.getIndexThreads(),
+                     settings.getRamBufferSizeMb(),
+                     TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } finally {
+            searcher.close();
+            IoUtil.deleteRecursive(indexDirectory);
+        }
+    }
+
+    /** Returns path of the folder, folders are nested so that each of them has at most {@link #FOLDERS_PER_TIER} sub-folders. */
+    private static String folderPath(int folder) {
+        final StringBuilder path = new StringBuilder();
+        for (int i = folder; i > 0; i /= FOLDERS_PER_TIER) {
+            path.insert(0, "/dir" + i % FOLDERS_PER_TIER);
+        }
+        return path.length() == 0 ? "root" : "root" + path;
+    }
+}
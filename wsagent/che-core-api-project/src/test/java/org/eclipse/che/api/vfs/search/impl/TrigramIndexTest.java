@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.search.impl;
+
+import org.junit.Test;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrigramIndexTest {
+    @Test
+    public void splitsTextOnLowerCasedTrigrams() throws Exception {
+        assertEquals(newLinkedHashSet(newArrayList("to ", "o b", " be")), TrigramIndex.trigrams("To Be"));
+    }
+
+    @Test
+    public void textShorterThanTrigramHasNoTrigrams() throws Exception {
+        assertTrue(TrigramIndex.trigrams("be").isEmpty());
+    }
+
+    @Test
+    public void findsLiteralsOfRegularExpression() throws Exception {
+        assertEquals(newArrayList("early ", ","), TrigramIndex.requiredLiterals("early \\d{4},"));
+        assertEquals(newArrayList("a.b", "x"), TrigramIndex.requiredLiterals("a\\.b[cd]+x"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("^foo(baz|qux)?bar$"));
+        assertEquals(newArrayList("a+b"), TrigramIndex.requiredLiterals("\\Qa+b\\E"));
+    }
+
+    @Test
+    public void optionalCharactersAreNotPartOfLiterals() throws Exception {
+        assertEquals(newArrayList("colo", "r"), TrigramIndex.requiredLiterals("colou?r"));
+        assertEquals(newArrayList("ab", "d"), TrigramIndex.requiredLiterals("abc*d"));
+        assertEquals(newArrayList("ab", "d"), TrigramIndex.requiredLiterals("abc{0,2}?d"));
+        assertEquals(newArrayList("abc", "d"), TrigramIndex.requiredLiterals("abc{1,2}d"));
+    }
+
+    @Test
+    public void charactersOfEscapeSequencesAreNotPartOfLiterals() throws Exception {
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("foo\\x20bar"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("foo\\x{1F600}bar"));
+        assertEquals(newArrayList("caf", "bar"), TrigramIndex.requiredLiterals("caf\\u00e9bar"));
+        assertEquals(newArrayList("foo", "9bar"), TrigramIndex.requiredLiterals("foo\\0409bar"));
+        assertEquals(newArrayList("foo", "8bar"), TrigramIndex.requiredLiterals("foo\\0778bar"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("foo\\cMbar"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("(?<w>o)foo\\k<w>bar"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("foo\\p{Lu}bar"));
+        assertEquals(newArrayList("foo", "bar"), TrigramIndex.requiredLiterals("foo\\pLbar"));
+    }
+
+    @Test
+    public void regularExpressionWithAlternationOrCommentsHasNoLiterals() throws Exception {
+        assertTrue(TrigramIndex.requiredLiterals("twice|^to be").isEmpty());
+        assertTrue(TrigramIndex.requiredLiterals("(?x) to be").isEmpty());
+    }
+}
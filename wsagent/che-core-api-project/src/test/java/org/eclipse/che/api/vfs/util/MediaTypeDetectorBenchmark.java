@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.util;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.metadata.Metadata;
+import org.eclipse.che.api.vfs.ArchiverFactory;
+import org.eclipse.che.api.vfs.VirtualFile;
+import org.eclipse.che.api.vfs.VirtualFileSystem;
+import org.eclipse.che.api.vfs.impl.file.LocalVirtualFileSystem;
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.NameGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures per file cost of media type detection of {@link #FILES} generated files of different kinds with Tika
+ * configuration created for each file, as {@code MediaTypeFilter} did it before, compared to {@link MediaTypeDetector}
+ * with empty and filled cache.
+ *
+ * <p>It is not executed by the regular build, run it explicitly with
+ * {@code mvn test -Dtest=MediaTypeDetectorBenchmark}.
+ */
+public class MediaTypeDetectorBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(MediaTypeDetectorBenchmark.class);
+
+    private static final int      FILES      = 5_000;
+    private static final String[] NAMES      = {"Source%d.java", "readme%d.txt", "script%d", "picture%d.png", "data%d.dat"};
+    private static final byte[]   PNG_HEADER = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static File              root;
+    private static List<VirtualFile> files;
+
+    @BeforeClass
+    public static void generateFiles() throws Exception {
+        File targetDir = new File(Thread.currentThread().getContextClassLoader().getResource(".").getPath()).getParentFile();
+        root = new File(targetDir, NameGenerator.generate("media-type-benchmark-", 4));
+        Files.createDirectories(root.toPath());
+
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("line of the text file ").append(i).append('\n');
+        }
+        final byte[] textContent = text.toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] binaryContent = new byte[4096];
+        for (int i = 0; i < binaryContent.length; i++) {
+            binaryContent[i] = (byte)(i * 31);
+        }
+        final byte[] pngContent = binaryContent.clone();
+        System.arraycopy(PNG_HEADER, 0, pngContent, 0, PNG_HEADER.length);
+
+        for (int i = 0; i < FILES; i++) {
+            final String name = String.format(NAMES[i % NAMES.length], i);
+            final byte[] content = name.endsWith(".png") ? pngContent : name.endsWith(".dat") ? binaryContent : textContent;
+            Files.write(new File(root, name).toPath(), content);
+        }
+
+        final VirtualFileSystem virtualFileSystem = new LocalVirtualFileSystem(root, mock(ArchiverFactory.class), null, null);
+        files = new ArrayList<>(virtualFileSystem.getRoot().getChildren());
+    }
+
+    @AfterClass
+    public static void removeFiles() throws Exception {
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void detect() throws Exception {
+        long start = System.nanoTime();
+        for (VirtualFile file : files) {
+            try (InputStream content = file.getContent()) {
+                new TikaConfig().getDetector().detect(content, new Metadata());
+            }
+        }
+        LOG.info("Tika configuration per file: {} us per file", perFile(start));
+
+        final MediaTypeDetector detector = new MediaTypeDetector(MediaTypeDetector.MAX_CACHED_FILES);
+        start = System.nanoTime();
+        for (VirtualFile file : files) {
+            detector.detect(file);
+        }
+        LOG.info("Detector with empty cache: {} us per file", perFile(start));
+
+        start = System.nanoTime();
+        for (VirtualFile file : files) {
+            detector.detect(file);
+        }
+        LOG.info("Detector with filled cache: {} us per file", perFile(start));
+    }
+
+    private static long perFile(long start) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / FILES;
+    }
+}
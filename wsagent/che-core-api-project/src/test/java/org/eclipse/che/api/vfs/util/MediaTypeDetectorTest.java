@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.util;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+import org.eclipse.che.api.vfs.Path;
+import org.eclipse.che.api.vfs.VirtualFile;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(DataProviderRunner.class)
+public class MediaTypeDetectorTest {
+
+    @DataProvider
+    public static Object[][] testData() throws Exception {
+        return new Object[][]{
+                {"Test.java", "public class Test {}".getBytes(), "text/x-java"},
+                {"picture.png", new byte[10], "image/png"},
+                {"archive", new byte[]{'P', 'K', 3, 4, 0, 0}, "application/zip"},
+                {"picture.bin", new byte[]{(byte)0x89, 'P', 'N', 'G', 0, 0}, "image/png"},
+                {"README", "to be or not to be".getBytes(), "text/plain"},
+                {"unknown.dat", "\u043f\u0440\u0438\u0432\u0435\u0442".getBytes("UTF-8"), "text/plain"},
+                {"zeros.bin", new byte[10], "application/octet-stream"}
+        };
+    }
+
+    private MediaTypeDetector mediaTypeDetector;
+
+    @Before
+    public void setUp() throws Exception {
+        mediaTypeDetector = new MediaTypeDetector(10);
+    }
+
+    @UseDataProvider("testData")
+    @Test
+    public void detectsMediaType(String name, byte[] content, String expectedType) throws Exception {
+        VirtualFile file = mockFile(name, content, 1);
+
+        assertEquals(expectedType, mediaTypeDetector.detect(file).toString());
+    }
+
+    @Test
+    public void doesNotReadContentWhenTypeIsKnownByName() throws Exception {
+        VirtualFile file = mockFile("Test.java", new byte[10], 1);
+
+        mediaTypeDetector.detect(file);
+
+        verify(file, never()).getContent();
+    }
+
+    @Test
+    public void readsContentAgainOnlyWhenFileIsModified() throws Exception {
+        VirtualFile file = mockFile("file", "to be or not to be".getBytes(), 1);
+
+        mediaTypeDetector.detect(file);
+        mediaTypeDetector.detect(file);
+        verify(file, times(1)).getContent();
+
+        when(file.getLastModificationDate()).thenReturn(2L);
+        when(file.getContent()).thenReturn(new ByteArrayInputStream(new byte[]{'P', 'K', 3, 4}));
+
+        assertEquals("application/zip", mediaTypeDetector.detect(file).toString());
+        verify(file, times(2)).getContent();
+    }
+
+    private static VirtualFile mockFile(String name, byte[] content, long modified) throws Exception {
+        VirtualFile file = mock(VirtualFile.class);
+        when(file.getName()).thenReturn(name);
+        when(file.getPath()).thenReturn(Path.of("/project/" + name));
+        when(file.getLastModificationDate()).thenReturn(modified);
+        when(file.getLength()).thenReturn((long)content.length);
+        when(file.getContent()).thenReturn(new ByteArrayInputStream(content));
+        return file;
+    }
+}
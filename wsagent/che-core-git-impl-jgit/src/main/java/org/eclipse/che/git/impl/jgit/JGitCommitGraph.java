@@ -0,0 +1,494 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Commits of a repository reachable from its references with their parents, commit times and generation numbers.
+ *
+ * <p>Commits are numbered in the order they are added to the graph, parents of a commit are always added before the
+ * commit itself. Generation number of a commit without parents is 1, generation of other commits is greater by one
+ * than the max generation of their parents, so a commit can't be an ancestor of a commit with smaller or equal generation.
+ *
+ * <p>Graph is updated when references of the repository are changed, only commits that are not in the graph yet
+ * are read. Commits that become unreachable are kept in the graph, they don't affect results of the queries because
+ * queries start from the given commits.
+ *
+ * <p>History of a commit is listed in the same order as {@link RevWalk} lists it by default, newer commits first.
+ * Orders of the recently listed histories, sets of commits reachable from the recently checked commits and files
+ * histories that are listed so far are kept in memory, so subsequent pages of the same history are listed without
+ * walking it from the beginning.
+ */
+final class JGitCommitGraph {
+    /** Max number of kept histories, sets of reachable commits and files histories, each of them. */
+    static final int MAX_CACHED_WALKS = 16;
+
+    private final Map<AnyObjectId, Integer> indexes;
+    private final Set<ObjectId>             tips;
+    private final Map<Long, int[]>          histories;
+    private final Map<Integer, BitSet>      reachable;
+    private final Map<String, FileHistory>  fileHistories;
+
+    private Map<String, ObjectId> refs;
+    private ObjectId[]            ids;
+    private int[][]               parents;
+    private int[]                 commitTimes;
+    private int[]                 generations;
+    private int                   size;
+
+    JGitCommitGraph() {
+        indexes = new HashMap<>();
+        tips = new HashSet<>();
+        histories = lru();
+        reachable = lru();
+        fileHistories = lru();
+        refs = Collections.emptyMap();
+        ids = new ObjectId[1024];
+        parents = new int[1024][];
+        commitTimes = new int[1024];
+        generations = new int[1024];
+    }
+
+    /** Reads commits that are reachable from the references of the repository but are not in the graph yet. */
+    synchronized void update(Repository repository) throws IOException {
+        final Map<String, ObjectId> currentRefs = new HashMap<>();
+        for (Ref ref : repository.getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+            if (ref.getObjectId() != null) {
+                currentRefs.put(ref.getName(), ref.getObjectId());
+            }
+        }
+        if (currentRefs.equals(refs)) {
+            return;
+        }
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+            final Set<ObjectId> currentTips = new HashSet<>();
+            for (ObjectId id : new HashSet<>(currentRefs.values())) {
+                final RevObject object;
+                try {
+                    object = walk.peel(walk.parseAny(id));
+                } catch (MissingObjectException e) {
+                    // broken reference, it is not listed by git either
+                    continue;
+                }
+                if (object instanceof RevCommit) {
+                    currentTips.add(object.copy());
+                    if (!indexes.containsKey(object)) {
+                        walk.markStart((RevCommit)object);
+                    }
+                }
+            }
+            for (ObjectId tip : tips) {
+                try {
+                    walk.markUninteresting(walk.parseCommit(tip));
+                } catch (MissingObjectException e) {
+                    // pruned after the reference was moved, its ancestors are stopped by other tips or read again
+                }
+            }
+            for (RevCommit commit : walk) {
+                if (!indexes.containsKey(commit)) {
+                    add(commit);
+                }
+            }
+            tips.clear();
+            tips.addAll(currentTips);
+        }
+        refs = currentRefs;
+    }
+
+    /** Returns number of commits in the graph. */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the first commit is reachable from the second one, every commit is reachable from itself.
+     * Commits that are not in the graph are not reachable from any commit.
+     */
+    synchronized boolean isAncestor(AnyObjectId ancestor, AnyObjectId descendant) {
+        final Integer a = indexes.get(ancestor);
+        final Integer d = indexes.get(descendant);
+        if (a == null || d == null) {
+            return false;
+        }
+        if (a.equals(d)) {
+            return true;
+        }
+        return generations[a] < generations[d] && reachableFrom(d).get(a);
+    }
+
+    /**
+     * Checks which of the tips each of the commits is reachable from, the same as {@link #isAncestor} does for each
+     * pair of a commit and a tip. Each tip is walked once and only down to the oldest generation of the commits,
+     * the walks are not kept in memory.
+     *
+     * @return sets of indexes of the tips for each of the commits, in the order of the commits
+     */
+    synchronized BitSet[] reachableFrom(List<? extends AnyObjectId> commits, List<? extends AnyObjectId> tips) {
+        final BitSet[] result = new BitSet[commits.size()];
+        final Map<Integer, List<Integer>> positions = new HashMap<>();
+        int minGeneration = Integer.MAX_VALUE;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new BitSet(tips.size());
+            final Integer commit = indexes.get(commits.get(i));
+            if (commit != null) {
+                positions.computeIfAbsent(commit, key -> new ArrayList<>()).add(i);
+                minGeneration = Math.min(minGeneration, generations[commit]);
+            }
+        }
+        if (positions.isEmpty()) {
+            return result;
+        }
+
+        final Map<Integer, Integer> walkedTips = new HashMap<>();
+        final BitSet seen = new BitSet(size);
+        final int[] stack = new int[size];
+        for (int j = 0; j < tips.size(); j++) {
+            final Integer tip = indexes.get(tips.get(j));
+            if (tip == null || generations[tip] < minGeneration) {
+                continue;
+            }
+            final Integer walked = walkedTips.putIfAbsent(tip, j);
+            if (walked != null) {
+                // e.g. local and remote branches that point to the same commit
+                for (BitSet tipsOfCommit : result) {
+                    tipsOfCommit.set(j, tipsOfCommit.get(walked));
+                }
+                continue;
+            }
+            seen.clear();
+            int top = 0;
+            stack[top++] = tip;
+            seen.set(tip);
+            while (top > 0) {
+                final int commit = stack[--top];
+                final List<Integer> commitPositions = positions.get(commit);
+                if (commitPositions != null) {
+                    for (int i : commitPositions) {
+                        result[i].set(j);
+                    }
+                }
+                for (int parent : parents[commit]) {
+                    // ancestors of the commits with smaller generations can't be any of the commits
+                    if (!seen.get(parent) && generations[parent] >= minGeneration) {
+                        seen.set(parent);
+                        stack[top++] = parent;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists the page of the history.
+     *
+     * @param until
+     *         commit which history is listed
+     * @param since
+     *         commits reachable from this commit are excluded from the history, may be {@code null}
+     * @param paths
+     *         if not empty only commits that change files under the given paths are listed, history is simplified
+     *         the same way as {@link RevWalk} simplifies it with a tree filter: commit that changes files is the
+     *         commit that differs from each of its parents, only the parent with the same files is followed from a
+     *         merge commit
+     * @param skip
+     *         number of skipped commits
+     * @param maxCount
+     *         max number of listed commits, negative number means no limit
+     * @param repository
+     *         repository that is used to read trees of commits when paths are given
+     * @return identifiers of the listed commits
+     */
+    synchronized List<ObjectId> log(AnyObjectId until,
+                                    AnyObjectId since,
+                                    Collection<String> paths,
+                                    int skip,
+                                    int maxCount,
+                                    Repository repository) throws IOException {
+        final Integer tip = indexes.get(until);
+        if (tip == null) {
+            return Collections.emptyList();
+        }
+        final Integer excluded = since == null ? null : indexes.get(since);
+        final int from = Math.max(0, skip);
+        final int to = maxCount < 0 || maxCount > Integer.MAX_VALUE - from ? Integer.MAX_VALUE : from + maxCount;
+
+        final int[] listed;
+        final int count;
+        if (paths.isEmpty()) {
+            final int[] history = history(tip, excluded == null ? -1 : excluded);
+            listed = history;
+            count = Math.min(history.length, to);
+        } else {
+            final String key = tip + ":" + excluded + ":" + String.join("\n", new TreeSet<>(paths));
+            FileHistory fileHistory = fileHistories.get(key);
+            if (fileHistory == null) {
+                fileHistory = new FileHistory(tip, excluded == null ? -1 : excluded, paths);
+                fileHistories.put(key, fileHistory);
+            }
+            fileHistory.listUntil(to, repository);
+            listed = fileHistory.commits;
+            count = Math.min(fileHistory.size, to);
+        }
+
+        final List<ObjectId> page = new ArrayList<>();
+        for (int i = from; i < count; i++) {
+            page.add(ids[listed[i]]);
+        }
+        return page;
+    }
+
+    private void add(RevCommit commit) {
+        if (size == ids.length) {
+            final int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            commitTimes = Arrays.copyOf(commitTimes, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        final int index = size++;
+        final int[] commitParents = new int[commit.getParentCount()];
+        int parentCount = 0;
+        int generation = 0;
+        for (RevCommit parent : commit.getParents()) {
+            final Integer parentIndex = indexes.get(parent);
+            // parents of shallow commits are not available
+            if (parentIndex != null) {
+                commitParents[parentCount++] = parentIndex;
+                generation = Math.max(generation, generations[parentIndex]);
+            }
+        }
+        ids[index] = commit.copy();
+        parents[index] = parentCount == commitParents.length ? commitParents : Arrays.copyOf(commitParents, parentCount);
+        commitTimes[index] = commit.getCommitTime();
+        generations[index] = generation + 1;
+        indexes.put(ids[index], index);
+    }
+
+    private BitSet reachableFrom(int commit) {
+        BitSet result = reachable.get(commit);
+        if (result == null) {
+            result = new BitSet(size);
+            final int[] stack = new int[size];
+            int top = 0;
+            stack[top++] = commit;
+            result.set(commit);
+            while (top > 0) {
+                for (int parent : parents[stack[--top]]) {
+                    if (!result.get(parent)) {
+                        result.set(parent);
+                        stack[top++] = parent;
+                    }
+                }
+            }
+            reachable.put(commit, result);
+        }
+        return result;
+    }
+
+    /**
+     * Lists commits reachable from the tip in the order of {@link RevWalk}: the newest commit of the queue of
+     * pending commits goes first, commits with the same time are taken in the order they are queued.
+     */
+    private int[] history(int tip, int since) {
+        final long key = (long)tip << 32 | since & 0xFFFFFFFFL;
+        int[] result = histories.get(key);
+        if (result == null) {
+            final BitSet seen = since < 0 ? new BitSet(size) : (BitSet)reachableFrom(since).clone();
+            final PriorityQueue<long[]> queue = newQueue();
+            result = new int[16];
+            int count = 0;
+            long sequence = 0;
+            if (!seen.get(tip)) {
+                seen.set(tip);
+                queue.add(new long[]{commitTimes[tip], sequence++, tip});
+            }
+            while (!queue.isEmpty()) {
+                final int commit = (int)queue.poll()[2];
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = commit;
+                for (int parent : parents[commit]) {
+                    if (!seen.get(parent)) {
+                        seen.set(parent);
+                        queue.add(new long[]{commitTimes[parent], sequence++, parent});
+                    }
+                }
+            }
+            result = Arrays.copyOf(result, count);
+            histories.put(key, result);
+        }
+        return result;
+    }
+
+    /** Queue of pending commits, entries are {commit time, sequence number, commit}. */
+    private static PriorityQueue<long[]> newQueue() {
+        return new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+    }
+
+    private static <K, V> Map<K, V> lru() {
+        return new LinkedHashMap<K, V>(MAX_CACHED_WALKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MAX_CACHED_WALKS;
+            }
+        };
+    }
+
+    /**
+     * Commits of a history that change the given files, the history is walked up to the requested commit only.
+     * Unlike the whole history it can't be taken from {@link #history(int, int)} because simplification of merge
+     * commits skips the side branches that don't change the files.
+     */
+    private class FileHistory {
+        final BitSet                excluded;
+        final BitSet                seen;
+        final BitSet                roots;
+        final PriorityQueue<long[]> queue;
+        final TreeFilter            pathFilter;
+        final TreeFilter            diffFilter;
+
+        int[] commits = new int[16];
+        int   size;
+        int[] followed;
+        long  sequence;
+
+        FileHistory(int tip, int since, Collection<String> paths) {
+            this.excluded = since < 0 ? new BitSet() : reachableFrom(since);
+            this.seen = (BitSet)excluded.clone();
+            this.roots = new BitSet();
+            this.queue = newQueue();
+            this.pathFilter = PathFilterGroup.createFromStrings(paths);
+            this.diffFilter = AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF);
+            enqueue(tip);
+        }
+
+        void listUntil(int count, Repository repository) throws IOException {
+            if (size >= count || queue.isEmpty()) {
+                return;
+            }
+            try (RevWalk walk = new RevWalk(repository);
+                 TreeWalk treeWalk = new TreeWalk(repository)) {
+                treeWalk.setRecursive(true);
+                while (size < count && !queue.isEmpty()) {
+                    final int commit = (int)queue.poll()[2];
+                    final boolean changes = changesFiles(commit, walk, treeWalk);
+                    if (changes) {
+                        if (size == commits.length) {
+                            commits = Arrays.copyOf(commits, size * 2);
+                        }
+                        commits[size++] = commit;
+                    }
+                    for (int parent : followed) {
+                        enqueue(parent);
+                    }
+                }
+            }
+        }
+
+        private void enqueue(int commit) {
+            if (!seen.get(commit)) {
+                seen.set(commit);
+                queue.add(new long[]{commitTimes[commit], sequence++, commit});
+            }
+        }
+
+        /** Checks whether the commit changes the files and sets parents of the commit that are followed. */
+        private boolean changesFiles(int commit, RevWalk walk, TreeWalk treeWalk) throws IOException {
+            final ObjectId tree = walk.parseCommit(ids[commit]).getTree();
+            final int[] commitParents = roots.get(commit) ? new int[0] : parents[commit];
+            followed = commitParents;
+            if (commitParents.length == 0) {
+                // the first commit changes all the files it has
+                treeWalk.reset(tree);
+                treeWalk.setFilter(pathFilter);
+                return treeWalk.next();
+            }
+
+            final ObjectId[] trees = new ObjectId[commitParents.length + 1];
+            for (int i = 0; i < commitParents.length; i++) {
+                trees[i] = walk.parseCommit(ids[commitParents[i]]).getTree();
+            }
+            trees[commitParents.length] = tree;
+            treeWalk.reset(trees);
+            treeWalk.setFilter(diffFilter);
+            if (commitParents.length == 1) {
+                return treeWalk.next();
+            }
+
+            final int[] changes = new int[commitParents.length];
+            final int[] additions = new int[commitParents.length];
+            while (treeWalk.next()) {
+                final int mode = treeWalk.getRawMode(commitParents.length);
+                for (int i = 0; i < commitParents.length; i++) {
+                    final int parentMode = treeWalk.getRawMode(i);
+                    if (mode != parentMode || !treeWalk.idEqual(i, commitParents.length)) {
+                        changes[i]++;
+                        if (parentMode == 0 && mode != 0) {
+                            additions[i]++;
+                        }
+                    }
+                }
+            }
+            boolean sameAsExcluded = false;
+            for (int i = 0; i < commitParents.length; i++) {
+                if (changes[i] == 0) {
+                    if (excluded.get(commitParents[i])) {
+                        sameAsExcluded = true;
+                        continue;
+                    }
+                    // files came from this parent, the other branches are not interesting
+                    followed = new int[]{commitParents[i]};
+                    return false;
+                }
+                if (changes[i] == additions[i]) {
+                    // the files are not in this parent so history of the parent is not interesting
+                    roots.set(commitParents[i]);
+                }
+            }
+            return !sameAsExcluded;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.eclipse.jgit.lib.Repository;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Keeps {@link JGitCommitGraph commit graphs} of the repositories, graph is dropped when it is not used
+ * for {@link #EXPIRE_AFTER_ACCESS_MIN} minutes.
+ *
+ * @since 5.0
+ */
+@Singleton
+public class JGitCommitGraphCache {
+    static final long EXPIRE_AFTER_ACCESS_MIN = 30;
+
+    private final Cache<Path, JGitCommitGraph> graphs;
+
+    public JGitCommitGraphCache() {
+        graphs = CacheBuilder.newBuilder().expireAfterAccess(EXPIRE_AFTER_ACCESS_MIN, MINUTES).build();
+    }
+
+    /** Returns commit graph of the repository that is updated with the current references of the repository. */
+    JGitCommitGraph getCommitGraph(Repository repository) throws IOException {
+        final JGitCommitGraph graph;
+        try {
+            graph = graphs.get(repository.getDirectory().toPath().toAbsolutePath().normalize(), JGitCommitGraph::new);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        graph.update(repository);
+        return graph;
+    }
+}
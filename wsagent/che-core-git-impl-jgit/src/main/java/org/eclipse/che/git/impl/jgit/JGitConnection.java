@@ -159,6 +159,7 @@ import java.net.URISyntaxException;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -254,6 +255,9 @@ class JGitConnection implements GitConnection {
     private final GitUserResolver   userResolver;
     private final Repository        repository;
 
+    private JGitStatusCache      statusCache;
+    private JGitCommitGraphCache commitGraphCache;
+
     @Inject
     JGitConnection(Repository repository, CredentialsLoader credentialsLoader, SshKeyProvider sshKeyProvider,
                    GitUserResolver userResolver) {
@@ -711,6 +715,9 @@ class JGitConnection implements GitConnection {
     /** @see org.eclipse.che.api.git.GitConnection#log(LogParams) */
     @Override
     public LogPage log(LogParams params) throws GitException {
+        if (commitGraphCache != null) {
+            return logCommitGraph(params);
+        }
         LogCommand logCommand = getGit().log();
         try {
             setRevisionRange(logCommand, params);
@@ -728,7 +735,7 @@ class JGitConnection implements GitConnection {
             List<Revision> commits = new ArrayList<>();
             while (revIterator.hasNext()) {
                 RevCommit commit = revIterator.next();
-                Revision revision = getRevision(commit, filePath);
+                Revision revision = getRevision(commit, filePath, getBranchesOfCommit(commit, ListMode.ALL));
                 commits.add(revision);
             }
             return new LogPage(commits);
@@ -743,7 +750,56 @@ class JGitConnection implements GitConnection {
         }
     }
 
-    private Revision getRevision(RevCommit commit, String filePath) throws GitAPIException, IOException {
+    /** Lists the log with the help of the commit graph, it doesn't walk the history from the beginning for each page. */
+    private LogPage logCommitGraph(LogParams params) throws GitException {
+        try {
+            JGitCommitGraph commitGraph = commitGraphCache.getCommitGraph(repository);
+            ObjectId since = null;
+            ObjectId until = null;
+            String revisionRangeSince = params.getRevisionRangeSince();
+            String revisionRangeUntil = params.getRevisionRangeUntil();
+            if (revisionRangeSince != null && revisionRangeUntil != null) {
+                since = repository.resolve(revisionRangeSince);
+                until = repository.resolve(revisionRangeUntil);
+            }
+            if (until == null) {
+                until = repository.resolve(Constants.HEAD);
+                if (until == null) {
+                    throw new GitException(ERROR_LOG_NO_HEAD_EXISTS, ErrorCodes.INIT_COMMIT_WAS_NOT_PERFORMED);
+                }
+            }
+            List<String> paths = new ArrayList<>();
+            if (params.getFileFilter() != null) {
+                paths.addAll(params.getFileFilter());
+            }
+            String filePath = params.getFilePath();
+            if (!isNullOrEmpty(filePath)) {
+                paths.add(filePath);
+            }
+
+            List<ObjectId> page = commitGraph.log(until, since, paths, params.getSkip(), params.getMaxCount(), repository);
+            List<Ref> branches = page.isEmpty() ? Collections.emptyList() : getGit().branchList().setListMode(ListMode.ALL).call();
+            List<ObjectId> branchTips = branches.stream().map(Ref::getObjectId).collect(Collectors.toList());
+            BitSet[] branchesOfCommits = commitGraph.reachableFrom(page, branchTips);
+            List<Revision> commits = new ArrayList<>(page.size());
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                for (int i = 0; i < page.size(); i++) {
+                    RevCommit commit = revWalk.parseCommit(page.get(i));
+                    List<Branch> commitBranches = branchesOfCommits[i].stream()
+                                                                      .mapToObj(branches::get)
+                                                                      .map(branch -> newDto(Branch.class).withName(branch.getName()))
+                                                                      .collect(Collectors.toList());
+                    commits.add(getRevision(commit, filePath, commitBranches));
+                }
+            }
+            return new LogPage(commits);
+        } catch (GitAPIException | IOException exception) {
+            LOG.error("Failed to retrieve log. ", exception);
+            throw new GitException(exception);
+        }
+    }
+
+    private Revision getRevision(RevCommit commit, String filePath, List<Branch> branches) throws IOException {
         List<String> commitParentsList = Stream.of(commit.getParents())
                                                .map(RevCommit::getName)
                                                .collect(Collectors.toList());
@@ -753,7 +809,7 @@ class JGitConnection implements GitConnection {
                                      .withCommitTime((long)commit.getCommitTime() * 1000)
                                      .withCommitter(getCommitCommitter(commit))
                                      .withAuthor(getCommitAuthor(commit))
-                                     .withBranches(getBranchesOfCommit(commit, ListMode.ALL))
+                                     .withBranches(branches)
                                      .withCommitParent(commitParentsList)
                                      .withDiffCommitFile(getCommitDiffFiles(commit, filePath));
     }
@@ -1462,6 +1518,9 @@ class JGitConnection implements GitConnection {
             throw new GitException("Not a git repository");
         }
         String branchName = getCurrentBranch();
+        if (statusCache != null) {
+            return new JGitStatusImpl(branchName, statusCache.getStatus(repository), format);
+        }
         return new JGitStatusImpl(branchName, getGit().status(), format);
     }
 
@@ -1591,6 +1650,16 @@ class JGitConnection implements GitConnection {
         this.lineConsumerFactory = lineConsumerFactory;
     }
 
+    /** Status is taken from the given cache instead of walking the whole working tree, see {@link JGitStatusCache}. */
+    void setStatusCache(JGitStatusCache statusCache) {
+        this.statusCache = statusCache;
+    }
+
+    /** Log is listed with the help of the commit graphs kept by the given cache, see {@link JGitCommitGraph}. */
+    void setCommitGraphCache(JGitCommitGraphCache commitGraphCache) {
+        this.commitGraphCache = commitGraphCache;
+    }
+
 
     private Git getGit() {
         if (git != null) {
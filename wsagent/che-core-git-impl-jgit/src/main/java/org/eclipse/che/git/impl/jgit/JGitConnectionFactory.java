@@ -17,8 +17,6 @@ import org.eclipse.che.api.git.GitConnectionFactory;
 import org.eclipse.che.api.git.exception.GitException;
 import org.eclipse.che.api.git.GitUserResolver;
 import org.eclipse.che.plugin.ssh.key.script.SshKeyProvider;
-import org.eclipse.jgit.internal.storage.file.FileRepository;
-import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.transport.UserAgent;
 
@@ -28,7 +26,6 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.File;
-import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 
@@ -41,15 +38,34 @@ public class JGitConnectionFactory extends GitConnectionFactory {
 
     private static final String USER_AGENT = "git/2.1.0";
 
-    private final CredentialsLoader credentialsLoader;
-    private final SshKeyProvider    sshKeyProvider;
-    private final GitUserResolver   userResolver;
+    private final CredentialsLoader    credentialsLoader;
+    private final SshKeyProvider       sshKeyProvider;
+    private final GitUserResolver      userResolver;
+    private final JGitRepositoryCache  repositoryCache;
+    private final JGitStatusCache      statusCache;
+    private final JGitCommitGraphCache commitGraphCache;
 
-    @Inject
+    /**
+     * Creates factory that opens repository anew for each connection and computes status by walking the working tree,
+     * status can't be cached without notifications about changed files.
+     */
     public JGitConnectionFactory(CredentialsLoader credentialsLoader, SshKeyProvider sshKeyProvider, GitUserResolver userResolver) throws GitException {
+        this(credentialsLoader, sshKeyProvider, userResolver, new JGitRepositoryCache(0), null, new JGitCommitGraphCache());
+    }
+
+    @Inject
+    public JGitConnectionFactory(CredentialsLoader credentialsLoader,
+                                 SshKeyProvider sshKeyProvider,
+                                 GitUserResolver userResolver,
+                                 JGitRepositoryCache repositoryCache,
+                                 JGitStatusCache statusCache,
+                                 JGitCommitGraphCache commitGraphCache) throws GitException {
         this.credentialsLoader = credentialsLoader;
         this.sshKeyProvider = sshKeyProvider;
         this.userResolver = userResolver;
+        this.repositoryCache = repositoryCache;
+        this.statusCache = statusCache;
+        this.commitGraphCache = commitGraphCache;
 
         UserAgent.set(USER_AGENT);
         // Install the all-trusting trust manager
@@ -78,20 +94,14 @@ public class JGitConnectionFactory extends GitConnectionFactory {
 
     @Override
     public JGitConnection getConnection(File workDir, LineConsumerFactory outputPublisherFactory) throws GitException {
-        Repository gitRepo = createRepository(workDir);
+        Repository gitRepo = repositoryCache.acquire(workDir);
         JGitConnection conn = new JGitConnection(gitRepo, credentialsLoader, sshKeyProvider, userResolver);
         conn.setOutputLineConsumerFactory(outputPublisherFactory);
+        conn.setStatusCache(statusCache);
+        conn.setCommitGraphCache(commitGraphCache);
         return conn;
     }
 
-    private static Repository createRepository(File workDir) throws GitException {
-        try {
-            return new FileRepository(new File(workDir, Constants.DOT_GIT));
-        } catch (IOException e) {
-            throw new GitException(e.getMessage(), e);
-        }
-    }
-
     @Override
     public CredentialsLoader getCredentialsLoader() {
         return credentialsLoader;
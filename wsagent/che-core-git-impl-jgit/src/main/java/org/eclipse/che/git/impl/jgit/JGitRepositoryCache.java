@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.git.exception.GitException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps opened repositories so that subsequent connections to the same working directory
+ * reuse already read configuration, references and pack indexes.
+ *
+ * <p>Repositories are reference counted by JGit: the cache holds one reference of each cached
+ * repository and every caller of {@link #acquire(File)} holds another one that must be released
+ * with {@link Repository#close()}. The repository is closed when the last reference is released,
+ * so the repository that is evicted from the cache while it is in use stays usable until it is
+ * released by the callers.
+ *
+ * <p>Repository is evicted when it is not acquired during the idle timeout or when it is
+ * invalidated with {@link #invalidate(File)}. Only existing repositories are cached, repository
+ * that is going to be initialized or cloned is always opened anew.
+ *
+ * <p>Sizes of the JGit caches of pack data shared by all the repositories are configured
+ * when the cache is created by the injector.
+ *
+ * @since 5.0
+ */
+@Singleton
+public class JGitRepositoryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(JGitRepositoryCache.class);
+
+    private static final long MB = 1024 * 1024;
+
+    private final long                        idleTimeoutMillis;
+    private final Map<Path, CachedRepository> repositories;
+
+    private ScheduledExecutorService evictionExecutor;
+
+    /**
+     * @param idleTimeoutSec
+     *         repository is evicted when it is not acquired during this time, zero disables caching
+     * @param packedGitLimitMb
+     *         memory available for caching of pack data of all the repositories
+     * @param packedGitOpenFiles
+     *         max number of pack files that are kept open
+     * @param deltaBaseCacheLimitMb
+     *         memory available for caching of delta bases, it is used by each thread reading objects
+     * @param streamFileThresholdMb
+     *         objects larger than this size are streamed instead of being loaded in memory
+     */
+    @Inject
+    public JGitRepositoryCache(@Named("git.repository_cache.idle_timeout_sec") long idleTimeoutSec,
+                               @Named("git.window_cache.packed_git_limit_mb") int packedGitLimitMb,
+                               @Named("git.window_cache.packed_git_open_files") int packedGitOpenFiles,
+                               @Named("git.window_cache.delta_base_cache_limit_mb") int deltaBaseCacheLimitMb,
+                               @Named("git.window_cache.stream_file_threshold_mb") int streamFileThresholdMb) {
+        this(idleTimeoutSec);
+        final WindowCacheConfig config = new WindowCacheConfig();
+        config.setPackedGitLimit(packedGitLimitMb * MB);
+        config.setPackedGitOpenFiles(packedGitOpenFiles);
+        config.setDeltaBaseCacheLimit((int)(deltaBaseCacheLimitMb * MB));
+        config.setStreamFileThreshold((int)(streamFileThresholdMb * MB));
+        config.install();
+    }
+
+    /**
+     * Creates cache that uses default sizes of JGit caches of pack data.
+     *
+     * @param idleTimeoutSec
+     *         repository is evicted when it is not acquired during this time, zero disables caching
+     */
+    public JGitRepositoryCache(long idleTimeoutSec) {
+        this.idleTimeoutMillis = SECONDS.toMillis(idleTimeoutSec);
+        this.repositories = new HashMap<>();
+    }
+
+    @PostConstruct
+    void start() {
+        if (idleTimeoutMillis > 0) {
+            evictionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("JGitRepositoryCache-%d")
+                                                                                                     .setDaemon(true)
+                                                                                                     .build());
+            final long period = Math.max(1, idleTimeoutMillis / 2);
+            evictionExecutor.scheduleWithFixedDelay(() -> evictIdle(System.currentTimeMillis()), period, period, MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+        }
+        final List<CachedRepository> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(repositories.values());
+            repositories.clear();
+        }
+        evicted.forEach(cached -> cached.repository.close());
+    }
+
+    /**
+     * Returns repository of the given working directory, the caller must release it with {@link Repository#close()}.
+     *
+     * @throws GitException
+     *         if repository can't be opened
+     */
+    public Repository acquire(File workDir) throws GitException {
+        final File gitDir = new File(workDir, Constants.DOT_GIT);
+        if (idleTimeoutMillis <= 0 || !RepositoryCache.FileKey.isGitRepository(gitDir, FS.DETECTED)) {
+            return open(gitDir);
+        }
+        final Path key = keyOf(workDir);
+        synchronized (this) {
+            CachedRepository cached = repositories.get(key);
+            if (cached == null) {
+                cached = new CachedRepository(open(gitDir));
+                repositories.put(key, cached);
+            }
+            cached.lastAcquired = System.currentTimeMillis();
+            cached.repository.incrementOpen();
+            return cached.repository;
+        }
+    }
+
+    /**
+     * Evicts repository of the given working directory, e.g. when its git directory is removed or replaced.
+     * Next {@link #acquire(File)} opens the repository anew.
+     */
+    public void invalidate(File workDir) {
+        final CachedRepository cached;
+        synchronized (this) {
+            cached = repositories.remove(keyOf(workDir));
+        }
+        if (cached != null) {
+            LOG.debug("Repository {} is invalidated", workDir);
+            cached.repository.close();
+        }
+    }
+
+    /** Evicts repositories that are not acquired since {@code now - idleTimeout}. */
+    void evictIdle(long now) {
+        final List<CachedRepository> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<CachedRepository> it = repositories.values().iterator(); it.hasNext(); ) {
+                final CachedRepository cached = it.next();
+                if (now - cached.lastAcquired >= idleTimeoutMillis) {
+                    evicted.add(cached);
+                    it.remove();
+                }
+            }
+        }
+        evicted.forEach(cached -> cached.repository.close());
+    }
+
+    /** Returns number of cached repositories. */
+    synchronized int size() {
+        return repositories.size();
+    }
+
+    private static Path keyOf(File workDir) {
+        return workDir.toPath().toAbsolutePath().normalize();
+    }
+
+    private static Repository open(File gitDir) throws GitException {
+        try {
+            return new FileRepository(gitDir);
+        } catch (IOException e) {
+            throw new GitException(e.getMessage(), e);
+        }
+    }
+
+    private static class CachedRepository {
+        final Repository repository;
+
+        long lastAcquired;
+
+        CachedRepository(Repository repository) {
+            this.repository = repository;
+        }
+    }
+}
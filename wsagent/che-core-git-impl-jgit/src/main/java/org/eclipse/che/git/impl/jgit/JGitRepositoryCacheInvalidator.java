@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import com.google.common.annotations.Beta;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.VirtualFileSystemProvider;
+import org.eclipse.che.api.vfs.impl.file.event.EventTreeNode;
+import org.eclipse.che.api.vfs.impl.file.event.HiEvent;
+import org.eclipse.che.api.vfs.impl.file.event.HiEventDetector;
+import org.slf4j.Logger;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
+import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.CREATED;
+import static org.eclipse.che.api.project.shared.dto.event.FileWatcherEventType.DELETED;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Invalidates repositories of {@link JGitRepositoryCache} when their git directories are created or
+ * deleted, or when pack files are added or removed e.g. by garbage collection run by native git.
+ * Status of the repository cached by {@link JGitStatusCache} is forgotten when its git directory is
+ * created or deleted.
+ * <p>
+ * Other changes of the git directory are not tracked, cached repository finds out that its
+ * configuration or references are modified by itself.
+ * </p>
+ * <p>
+ * It never generates high level events.
+ * </p>
+ *
+ * @since 5.0
+ */
+@Beta
+public class JGitRepositoryCacheInvalidator implements HiEventDetector<Void> {
+    private static final Logger LOG = getLogger(JGitRepositoryCacheInvalidator.class);
+
+    private static final String GIT_DIR  = "/.git";
+    private static final String PACK_DIR = GIT_DIR + "/objects/pack/";
+
+    private final VirtualFileSystemProvider virtualFileSystemProvider;
+    private final JGitRepositoryCache       repositoryCache;
+    private final JGitStatusCache           statusCache;
+
+    @Inject
+    public JGitRepositoryCacheInvalidator(VirtualFileSystemProvider virtualFileSystemProvider,
+                                          JGitRepositoryCache repositoryCache,
+                                          JGitStatusCache statusCache) {
+        this.virtualFileSystemProvider = virtualFileSystemProvider;
+        this.repositoryCache = repositoryCache;
+        this.statusCache = statusCache;
+    }
+
+    @Override
+    public Optional<HiEvent<Void>> detect(EventTreeNode eventTreeNode) {
+        final List<String> paths = eventTreeNode.stream()
+                                                .filter(node -> node.modificationOccurred() && node.getPath() != null)
+                                                .filter(node -> node.getEvents().containsValue(CREATED)
+                                                                || node.getEvents().containsValue(DELETED))
+                                                .map(EventTreeNode::getPath)
+                                                .collect(toList());
+        paths.stream()
+             .map(this::getWorkDirPath)
+             .filter(Optional::isPresent)
+             .distinct()
+             .forEach(workDirPath -> invalidate(workDirPath.get(), repositoryCache::invalidate));
+        paths.stream()
+             .filter(path -> path.endsWith(GIT_DIR))
+             .map(path -> path.substring(0, path.length() - GIT_DIR.length()))
+             .distinct()
+             .forEach(workDirPath -> invalidate(workDirPath, statusCache::invalidate));
+        return empty();
+    }
+
+    private Optional<String> getWorkDirPath(String path) {
+        if (path.endsWith(GIT_DIR)) {
+            return Optional.of(path.substring(0, path.length() - GIT_DIR.length()));
+        }
+        final int packDir = path.indexOf(PACK_DIR);
+        if (packDir >= 0) {
+            return Optional.of(path.substring(0, packDir));
+        }
+        return empty();
+    }
+
+    private void invalidate(String workDirPath, Consumer<File> invalidator) {
+        try {
+            final File root = virtualFileSystemProvider.getVirtualFileSystem().getRoot().toIoFile();
+            invalidator.accept(new File(root, workDirPath));
+        } catch (ServerException e) {
+            LOG.error("Can't invalidate repository {}", workDirPath, e);
+        }
+    }
+}
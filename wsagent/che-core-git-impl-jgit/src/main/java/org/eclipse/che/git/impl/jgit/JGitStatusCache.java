@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import org.eclipse.che.api.git.exception.GitException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps status of the repositories so that the working tree is not walked each time the status is requested.
+ *
+ * <p>Status of a repository is computed by full scan when it is requested for the first time. After that
+ * only files reported by {@link #filesChanged(Collection)} or {@link #filesModified(Collection)} are checked
+ * against the index and HEAD tree.
+ * Status is computed by full scan again when the index or HEAD of the repository is changed, when
+ * an ignore file is changed, when too many files are changed at once or when it is requested by
+ * {@link #rescan(Collection)} or {@link #rescanAll()}.
+ *
+ * @since 5.0
+ */
+@Singleton
+public class JGitStatusCache {
+    private static final Logger LOG = LoggerFactory.getLogger(JGitStatusCache.class);
+
+    /** When more files are changed between two status requests the status is computed by full scan. */
+    static final int MAX_CHANGED_FILES = 1000;
+
+    private static final String GIT_DIR     = Constants.DOT_GIT + '/';
+    private static final String INDEX_FILE  = GIT_DIR + "index";
+    private static final String HEAD_FILE   = GIT_DIR + Constants.HEAD;
+    private static final String IGNORE_FILE = Constants.DOT_GIT_IGNORE;
+
+    /** Kinds of changes of a file, single file may have several kinds of changes, e.g. staged and modified. */
+    public enum Change {
+        ADDED,
+        CHANGED,
+        REMOVED,
+        MISSING,
+        MODIFIED,
+        UNTRACKED,
+        UNTRACKED_FOLDER,
+        CONFLICTING
+    }
+
+    private final JGitRepositoryCache                  repositoryCache;
+    private final ConcurrentMap<Path, RepositoryStatus> statuses;
+
+    @Inject
+    public JGitStatusCache(JGitRepositoryCache repositoryCache) {
+        this.repositoryCache = repositoryCache;
+        this.statuses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns changes of the files of the repository, the files that are not listed are not changed.
+     *
+     * @throws GitException
+     *         if status can't be computed
+     */
+    public SortedMap<String, Set<Change>> getStatus(Repository repository) throws GitException {
+        final RepositoryStatus status = statuses.computeIfAbsent(keyOf(repository.getWorkTree()), key -> new RepositoryStatus());
+        synchronized (status.refreshLock) {
+            status.refresh(repository);
+            return new TreeMap<>(status.files);
+        }
+    }
+
+    /**
+     * Checks the given files in the repositories that have cached status.
+     *
+     * @return changes of status of each repository: files which status is changed mapped to their new changes,
+     * files that became unchanged are mapped to empty set
+     */
+    public Map<File, SortedMap<String, Set<Change>>> filesChanged(Collection<File> files) {
+        final Map<File, SortedMap<String, Set<Change>>> result = new HashMap<>();
+        for (Map.Entry<Path, RepositoryStatus> entry : statuses.entrySet()) {
+            final Path workDir = entry.getKey();
+            final RepositoryStatus status = entry.getValue();
+            boolean changed = false;
+            for (File file : files) {
+                final Path path = keyOf(file);
+                if (path.startsWith(workDir) && !path.equals(workDir)) {
+                    changed |= status.fileChanged(workDir.relativize(path).toString().replace(File.separatorChar, '/'));
+                }
+            }
+            if (changed) {
+                final SortedMap<String, Set<Change>> diff = refresh(workDir.toFile(), status);
+                if (!diff.isEmpty()) {
+                    result.put(workDir.toFile(), diff);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks the given files to be checked by the next status request without checking them now. It is used when
+     * the files are known to be modified before the file watcher reports them, e.g. when they are saved by the client.
+     */
+    public void filesModified(Collection<File> files) {
+        for (Map.Entry<Path, RepositoryStatus> entry : statuses.entrySet()) {
+            final Path workDir = entry.getKey();
+            for (File file : files) {
+                final Path path = keyOf(file);
+                if (path.startsWith(workDir) && !path.equals(workDir)) {
+                    entry.getValue().fileChanged(workDir.relativize(path).toString().replace(File.separatorChar, '/'));
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the repositories that contain the given files to be checked by full scan, e.g. when the files are
+     * folders which changes are not reported by the file watcher.
+     */
+    public void rescan(Collection<File> files) {
+        for (Map.Entry<Path, RepositoryStatus> entry : statuses.entrySet()) {
+            final Path workDir = entry.getKey();
+            for (File file : files) {
+                if (keyOf(file).startsWith(workDir)) {
+                    entry.getValue().rescan();
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Marks all the repositories to be checked by full scan, e.g. when changes of the files may be not reported. */
+    public void rescanAll() {
+        statuses.values().forEach(RepositoryStatus::rescan);
+    }
+
+    /**
+     * Checks the files marked by {@link #filesModified(Collection)}, {@link #rescan(Collection)} or {@link #rescanAll()}
+     * since the previous check.
+     *
+     * @return changes of status of each repository, the same as {@link #filesChanged(Collection)}
+     */
+    public Map<File, SortedMap<String, Set<Change>>> refreshModified() {
+        final Map<File, SortedMap<String, Set<Change>>> result = new HashMap<>();
+        for (Map.Entry<Path, RepositoryStatus> entry : statuses.entrySet()) {
+            if (entry.getValue().takeCheckRequest()) {
+                final SortedMap<String, Set<Change>> diff = refresh(entry.getKey().toFile(), entry.getValue());
+                if (!diff.isEmpty()) {
+                    result.put(entry.getKey().toFile(), diff);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Forgets status of the repository, e.g. when the repository is removed. */
+    public void invalidate(File workDir) {
+        statuses.remove(keyOf(workDir));
+    }
+
+    private SortedMap<String, Set<Change>> refresh(File workDir, RepositoryStatus status) {
+        if (!new File(workDir, Constants.DOT_GIT).exists()) {
+            statuses.remove(keyOf(workDir), status);
+            return Collections.emptySortedMap();
+        }
+        Repository repository = null;
+        try {
+            repository = repositoryCache.acquire(workDir);
+            synchronized (status.refreshLock) {
+                return status.refresh(repository);
+            }
+        } catch (GitException e) {
+            LOG.warn("Can't update status of repository {}", workDir, e);
+            // the status is computed anew by the next status request
+            statuses.remove(keyOf(workDir), status);
+            return Collections.emptySortedMap();
+        } finally {
+            if (repository != null) {
+                repository.close();
+            }
+        }
+    }
+
+    private static Path keyOf(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Status of a single repository. Files that have to be checked are guarded by the instance itself,
+     * so they are collected while the status is being refreshed under the {@link #refreshLock}.
+     */
+    private static class RepositoryStatus {
+        final Object                       refreshLock  = new Object();
+        final Set<String>                  changedFiles = new HashSet<>();
+        final TreeMap<String, Set<Change>> files        = new TreeMap<>();
+
+        boolean      fullScan = true;
+        boolean      checkRequested;
+        boolean      scanned;
+        FileSnapshot index;
+        ObjectId     head;
+
+        /** Returns {@code true} if status of the file has to be checked. */
+        synchronized boolean fileChanged(String path) {
+            if (path.equals(INDEX_FILE) || path.equals(HEAD_FILE)) {
+                // index and HEAD are compared with their snapshots by the refresh
+                checkRequested = true;
+                return true;
+            }
+            if (path.equals(Constants.DOT_GIT)) {
+                fullScan = true;
+                return false;
+            }
+            if (path.startsWith(GIT_DIR)) {
+                return false;
+            }
+            if (path.equals(IGNORE_FILE) || path.endsWith('/' + IGNORE_FILE)) {
+                fullScan = true;
+            } else if (!fullScan) {
+                changedFiles.add(path);
+                fullScan = changedFiles.size() > MAX_CHANGED_FILES;
+            }
+            checkRequested = true;
+            return true;
+        }
+
+        synchronized void rescan() {
+            fullScan = true;
+            checkRequested = true;
+        }
+
+        /** Returns {@code true} if the status has to be refreshed and resets the request. */
+        synchronized boolean takeCheckRequest() {
+            final boolean requested = checkRequested;
+            checkRequested = false;
+            return requested;
+        }
+
+        /** Updates status and returns files which status is changed, must be called under the {@link #refreshLock}. */
+        SortedMap<String, Set<Change>> refresh(Repository repository) throws GitException {
+            final File indexFile = repository.getIndexFile();
+            final ObjectId currentHead;
+            try {
+                currentHead = repository.resolve(Constants.HEAD);
+            } catch (IOException e) {
+                throw new GitException(e.getMessage(), e);
+            }
+            final Set<String> paths;
+            synchronized (this) {
+                if (index == null || index.isModified(indexFile) || !Objects.equals(head, currentHead)) {
+                    fullScan = true;
+                }
+                if (!fullScan && changedFiles.isEmpty()) {
+                    return Collections.emptySortedMap();
+                }
+                paths = fullScan ? Collections.emptySet() : new TreeSet<>(changedFiles);
+                changedFiles.clear();
+                checkRequested = false;
+                fullScan = false;
+                // taken before the walk, so modification of the index during the walk causes another full scan
+                index = FileSnapshot.save(indexFile);
+                head = currentHead;
+            }
+
+            final StatusCommand command = Git.wrap(repository).status();
+            paths.forEach(command::addPath);
+            final org.eclipse.jgit.api.Status gitStatus;
+            try {
+                gitStatus = command.call();
+            } catch (GitAPIException e) {
+                synchronized (this) {
+                    fullScan = true;
+                }
+                throw new GitException(e.getMessage(), e);
+            }
+
+            final Map<String, Set<Change>> checked = new HashMap<>();
+            addAll(checked, gitStatus.getAdded(), Change.ADDED);
+            addAll(checked, gitStatus.getChanged(), Change.CHANGED);
+            addAll(checked, gitStatus.getRemoved(), Change.REMOVED);
+            addAll(checked, gitStatus.getMissing(), Change.MISSING);
+            addAll(checked, gitStatus.getModified(), Change.MODIFIED);
+            addAll(checked, gitStatus.getUntracked(), Change.UNTRACKED);
+            addAll(checked, gitStatus.getUntrackedFolders(), Change.UNTRACKED_FOLDER);
+            addAll(checked, gitStatus.getConflicting(), Change.CONFLICTING);
+
+            final Map<String, Set<Change>> previous = new HashMap<>();
+            if (paths.isEmpty()) {
+                previous.putAll(files);
+                files.clear();
+            } else {
+                for (String path : paths) {
+                    final SortedMap<String, Set<Change>> underPath = files.subMap(path, path + Character.MAX_VALUE);
+                    underPath.entrySet().removeIf(e -> {
+                        final boolean affected = e.getKey().equals(path) || e.getKey().startsWith(path + '/');
+                        if (affected) {
+                            previous.put(e.getKey(), e.getValue());
+                        }
+                        return affected;
+                    });
+                }
+            }
+            final SortedMap<String, Set<Change>> diff = new TreeMap<>();
+            if (scanned) {
+                previous.forEach((path, changes) -> {
+                    if (!changes.equals(checked.get(path))) {
+                        diff.put(path, checked.getOrDefault(path, Collections.emptySet()));
+                    }
+                });
+                checked.forEach((path, changes) -> {
+                    // files out of the checked paths, e.g. untracked parent folder, may be reported again
+                    if (!previous.containsKey(path) && !changes.equals(files.get(path))) {
+                        diff.put(path, changes);
+                    }
+                });
+            }
+            files.putAll(checked);
+            scanned = true;
+            return diff;
+        }
+
+        private static void addAll(Map<String, Set<Change>> files, Set<String> paths, Change change) {
+            for (String path : paths) {
+                files.computeIfAbsent(path, key -> EnumSet.noneOf(Change.class)).add(change);
+            }
+        }
+    }
+}
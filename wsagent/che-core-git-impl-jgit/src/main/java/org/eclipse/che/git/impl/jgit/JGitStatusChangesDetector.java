@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.jsonrpc.RequestTransmitter;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.project.server.notification.ProjectItemModifiedEvent;
+import org.eclipse.che.api.project.shared.dto.event.GitStatusChangedEventDto;
+import org.eclipse.che.api.vfs.VirtualFileSystemProvider;
+import org.eclipse.che.api.vfs.impl.file.event.EventTreeNode;
+import org.eclipse.che.api.vfs.impl.file.event.HiEvent;
+import org.eclipse.che.api.vfs.impl.file.event.HiEventDetector;
+import org.eclipse.che.api.vfs.impl.file.event.LoEventsDroppedEvent;
+import org.eclipse.che.git.impl.jgit.JGitStatusCache.Change;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Collections.emptySet;
+import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
+import static org.eclipse.che.dto.server.DtoFactory.newDto;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Reports changed files to {@link JGitStatusCache} and broadcasts changes of git status of the repositories.
+ * <p>
+ * It never generates high level events, changes of the status are sent to the clients as
+ * {@link GitStatusChangedEventDto}.
+ * </p>
+ * <p>
+ * Files modified through the project API are reported to {@link JGitStatusCache} as soon as they are modified
+ * so that status requested before the file watcher notices the modification is still up to date.
+ * </p>
+ * <p>
+ * Status is refreshed by a single thread, not by the thread that detects the events, at most once per
+ * {@link #REFRESH_DELAY_MS}, all the files changed in the meantime are checked together. Repositories are
+ * scanned in full when the file watcher dropped events or when files which changes are not reported by
+ * the file watcher, see {@code vfs.index_filter_matcher}, are changed.
+ * </p>
+ *
+ * @since 5.0
+ */
+@Beta
+@Singleton
+public class JGitStatusChangesDetector implements HiEventDetector<Void> {
+    private static final Logger LOG = getLogger(JGitStatusChangesDetector.class);
+
+    private static final String OUTGOING_METHOD = "event:git-status-changed";
+
+    /** Delay between the first reported change and refresh of the status. */
+    static final long REFRESH_DELAY_MS = 500;
+
+    private final VirtualFileSystemProvider virtualFileSystemProvider;
+    private final JGitStatusCache           statusCache;
+    private final RequestTransmitter        transmitter;
+    private final EventService              eventService;
+    private final Set<PathMatcher>          excludeMatchers;
+    private final EventSubscriber<ProjectItemModifiedEvent> projectItemModifiedSubscriber;
+    private final EventSubscriber<LoEventsDroppedEvent>     eventsDroppedSubscriber;
+    private final ScheduledExecutorService  refresher;
+    private final AtomicBoolean             refreshScheduled;
+    /** Paths of the changed files and folders which are not checked yet. */
+    private final Set<String>               pendingPaths;
+    /** Paths of the folders mapped to names of their children which changes are not reported by the file watcher. */
+    private final ConcurrentMap<String, Set<String>> excludedChildren;
+
+    @Inject
+    public JGitStatusChangesDetector(VirtualFileSystemProvider virtualFileSystemProvider,
+                                     JGitStatusCache statusCache,
+                                     RequestTransmitter transmitter,
+                                     EventService eventService,
+                                     @Named("vfs.index_filter_matcher") Set<PathMatcher> excludeMatchers) {
+        this.virtualFileSystemProvider = virtualFileSystemProvider;
+        this.statusCache = statusCache;
+        this.transmitter = transmitter;
+        this.eventService = eventService;
+        this.excludeMatchers = excludeMatchers;
+        this.projectItemModifiedSubscriber = this::itemModified;
+        this.eventsDroppedSubscriber = this::eventsDropped;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("JGitStatusRefresher-%d")
+                                                                                              .setDaemon(true)
+                                                                                              .build());
+        this.refreshScheduled = new AtomicBoolean();
+        this.pendingPaths = ConcurrentHashMap.newKeySet();
+        this.excludedChildren = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        eventService.subscribe(projectItemModifiedSubscriber, ProjectItemModifiedEvent.class);
+        eventService.subscribe(eventsDroppedSubscriber, LoEventsDroppedEvent.class);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        eventService.unsubscribe(projectItemModifiedSubscriber, ProjectItemModifiedEvent.class);
+        eventService.unsubscribe(eventsDroppedSubscriber, LoEventsDroppedEvent.class);
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public Optional<HiEvent<Void>> detect(EventTreeNode eventTreeNode) {
+        final boolean changed = eventTreeNode.stream()
+                                             .filter(node -> node.modificationOccurred() && node.getPath() != null)
+                                             .map(node -> pendingPaths.add(node.getPath()))
+                                             .reduce(false, Boolean::logicalOr);
+        if (changed) {
+            scheduleRefresh();
+        }
+        return empty();
+    }
+
+    private void itemModified(ProjectItemModifiedEvent event) {
+        final File root = getRoot();
+        if (root == null) {
+            return;
+        }
+        final List<File> files = new ArrayList<>(2);
+        files.add(new File(root, event.getPath()));
+        if (event.getOldPath() != null) {
+            files.add(new File(root, event.getOldPath()));
+        }
+        statusCache.filesModified(files);
+        pendingPaths.add(event.getPath());
+        if (event.getOldPath() != null) {
+            pendingPaths.add(event.getOldPath());
+        }
+        scheduleRefresh();
+    }
+
+    private void eventsDropped(LoEventsDroppedEvent event) {
+        statusCache.rescanAll();
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                refresher.schedule(this::refresh, REFRESH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                refreshScheduled.set(false);
+                LOG.warn("Can't schedule refresh of git status", e);
+            }
+        }
+    }
+
+    private void refresh() {
+        // changes reported after this point are checked by the next refresh
+        refreshScheduled.set(false);
+        final File root = getRoot();
+        if (root == null) {
+            return;
+        }
+        final Set<String> paths = new HashSet<>(pendingPaths);
+        pendingPaths.removeAll(paths);
+
+        final List<File> files = new ArrayList<>(paths.size());
+        final List<File> excluded = new ArrayList<>();
+        for (String path : paths) {
+            final File file = new File(root, path);
+            files.add(file);
+            if (isExcluded(path) || excludedChildrenChanged(path, file)) {
+                excluded.add(file);
+            }
+        }
+        try {
+            statusCache.filesModified(files);
+            statusCache.rescan(excluded);
+            final String rootPath = root.toPath().toAbsolutePath().normalize().toString();
+            for (Map.Entry<File, SortedMap<String, Set<Change>>> entry : statusCache.refreshModified().entrySet()) {
+                final String path = entry.getKey().getPath().substring(rootPath.length()).replace(File.separatorChar, '/');
+                transmitter.broadcast(OUTGOING_METHOD, toDto(path.isEmpty() ? "/" : path, entry.getValue()));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Can't update git status", e);
+        }
+    }
+
+    private boolean isExcluded(String path) {
+        final Path relativePath = Paths.get(path.startsWith("/") ? path.substring(1) : path);
+        return excludeMatchers.stream().anyMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    /**
+     * Content of the excluded children of the folder is not watched, so only their creation or removal is noticed
+     * as a change of the folder. Returns {@code true} if the set of such children differs from the previously seen.
+     */
+    private boolean excludedChildrenChanged(String path, File file) {
+        final String[] names = file.list();
+        final Set<String> excluded = new HashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                final String childPath = path.endsWith("/") ? path + name : path + '/' + name;
+                if (new File(file, name).isDirectory() && isExcluded(childPath)) {
+                    excluded.add(childPath);
+                }
+            }
+        }
+        final Set<String> previous = excluded.isEmpty() ? excludedChildren.remove(path) : excludedChildren.put(path, excluded);
+        return !excluded.equals(previous == null ? emptySet() : previous);
+    }
+
+    private File getRoot() {
+        try {
+            return virtualFileSystemProvider.getVirtualFileSystem().getRoot().toIoFile();
+        } catch (ServerException e) {
+            LOG.error("Can't update git status", e);
+            return null;
+        }
+    }
+
+    private static GitStatusChangedEventDto toDto(String path, SortedMap<String, Set<Change>> files) {
+        return newDto(GitStatusChangedEventDto.class).withPath(path)
+                                                     .withFiles(new ArrayList<>(files.keySet()))
+                                                     .withAdded(filesWith(files, Change.ADDED))
+                                                     .withChanged(filesWith(files, Change.CHANGED))
+                                                     .withRemoved(filesWith(files, Change.REMOVED))
+                                                     .withMissing(filesWith(files, Change.MISSING))
+                                                     .withModified(filesWith(files, Change.MODIFIED))
+                                                     .withUntracked(filesWith(files, Change.UNTRACKED))
+                                                     .withUntrackedFolders(filesWith(files, Change.UNTRACKED_FOLDER))
+                                                     .withConflicting(filesWith(files, Change.CONFLICTING));
+    }
+
+    private static List<String> filesWith(SortedMap<String, Set<Change>> files, Change change) {
+        return files.entrySet()
+                    .stream()
+                    .filter(entry -> entry.getValue().contains(change))
+                    .map(Map.Entry::getKey)
+                    .collect(toList());
+    }
+}
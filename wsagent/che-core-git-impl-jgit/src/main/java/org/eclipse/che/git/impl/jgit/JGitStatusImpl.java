@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.lang.System.lineSeparator;
 
@@ -77,6 +79,59 @@ public class JGitStatusImpl implements Status, InfoPage {
         conflicting = new ArrayList<>(gitStatus.getConflicting());
     }
 
+    /**
+     * @param branchName
+     *         current repository branch name
+     * @param files
+     *         changed files of the repository mapped to their changes, see {@link JGitStatusCache}
+     * @param format
+     *         the output format for the status
+     */
+    JGitStatusImpl(String branchName, Map<String, Set<JGitStatusCache.Change>> files, StatusFormat format) {
+        this.branchName = branchName;
+        this.format = format;
+
+        added = new ArrayList<>();
+        changed = new ArrayList<>();
+        removed = new ArrayList<>();
+        missing = new ArrayList<>();
+        modified = new ArrayList<>();
+        untracked = new ArrayList<>();
+        untrackedFolders = new ArrayList<>();
+        conflicting = new ArrayList<>();
+        files.forEach((file, changes) -> changes.forEach(change -> {
+            switch (change) {
+                case ADDED:
+                    added.add(file);
+                    break;
+                case CHANGED:
+                    changed.add(file);
+                    break;
+                case REMOVED:
+                    removed.add(file);
+                    break;
+                case MISSING:
+                    missing.add(file);
+                    break;
+                case MODIFIED:
+                    modified.add(file);
+                    break;
+                case UNTRACKED:
+                    untracked.add(file);
+                    break;
+                case UNTRACKED_FOLDER:
+                    untrackedFolders.add(file);
+                    break;
+                case CONFLICTING:
+                    conflicting.add(file);
+                    break;
+            }
+        }));
+        // the same as Status#isClean of JGit
+        clean = added.isEmpty() && changed.isEmpty() && removed.isEmpty() && missing.isEmpty() && modified.isEmpty()
+                && untracked.isEmpty() && conflicting.isEmpty();
+    }
+
     @Override
     public void writeTo(OutputStream out) throws IOException {
         StringBuilder status = new StringBuilder();
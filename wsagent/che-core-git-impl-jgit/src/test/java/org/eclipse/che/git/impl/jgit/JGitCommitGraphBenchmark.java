@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Measures listing of the first {@link #PAGES} pages of the history of {@link #COMMITS} generated commits
+ * with {@link LogCommand} that skips the previous pages compared to {@link JGitCommitGraph}.
+ *
+ * <p>It is not executed by the regular build, run it explicitly with
+ * {@code mvn test -Dtest=JGitCommitGraphBenchmark}.
+ */
+public class JGitCommitGraphBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(JGitCommitGraphBenchmark.class);
+
+    private static final int    COMMITS           = 50_000;
+    private static final int    FILES             = 100;
+    private static final int    COMMITS_PER_MERGE = 20;
+    private static final int    PAGES             = 50;
+    private static final int    PAGE_SIZE         = 30;
+    private static final String PATH              = "file7.txt";
+
+    private static File       workDir;
+    private static Repository repository;
+
+    @BeforeClass
+    public static void generateHistory() throws Exception {
+        workDir = Files.createTempDirectory("commit-graph-benchmark").toFile();
+        repository = Git.init().setBare(true).setDirectory(workDir).call().getRepository();
+
+        final long start = System.nanoTime();
+        final ObjectId[] blobs = new ObjectId[FILES];
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId head = null;
+            ObjectId side = null;
+            for (int i = 0; i < COMMITS; i++) {
+                final int file = i % FILES;
+                blobs[file] = inserter.insert(Constants.OBJ_BLOB, ("content" + i).getBytes(StandardCharsets.UTF_8));
+                final TreeFormatter tree = new TreeFormatter();
+                for (int j = 0; j < FILES; j++) {
+                    if (blobs[j] != null) {
+                        tree.append("file" + j + ".txt", FileMode.REGULAR_FILE, blobs[j]);
+                    }
+                }
+                final CommitBuilder commit = new CommitBuilder();
+                final PersonIdent ident = new PersonIdent(new PersonIdent("user", "user@codenvy.com"),
+                                                          new Date(1_000_000_000_000L + i * 1000L),
+                                                          TimeZone.getDefault());
+                commit.setAuthor(ident);
+                commit.setCommitter(ident);
+                commit.setMessage("commit " + i);
+                commit.setTreeId(inserter.insert(tree));
+                // odd commits go to the side branch that is merged every few commits and started again from the merge
+                if (i == 0) {
+                    head = side = inserter.insert(commit);
+                } else if (i % COMMITS_PER_MERGE == 0) {
+                    commit.setParentIds(head, side);
+                    head = side = inserter.insert(commit);
+                } else if (i % 2 == 1) {
+                    commit.setParentId(side);
+                    side = inserter.insert(commit);
+                } else {
+                    commit.setParentId(head);
+                    head = inserter.insert(commit);
+                }
+            }
+            inserter.flush();
+            final RefUpdate refUpdate = repository.updateRef(Constants.R_HEADS + "master");
+            refUpdate.setNewObjectId(head);
+            refUpdate.forceUpdate();
+        }
+        LOG.info("Generated {} commits in {} ms", COMMITS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @AfterClass
+    public static void removeRepository() {
+        repository.close();
+        IoUtil.deleteRecursive(workDir);
+    }
+
+    @Test
+    public void listHistory() throws Exception {
+        compare(Collections.emptyList());
+    }
+
+    @Test
+    public void listFileHistory() throws Exception {
+        compare(Collections.singletonList(PATH));
+    }
+
+    private void compare(List<String> paths) throws Exception {
+        final ObjectId head = repository.resolve(Constants.HEAD);
+
+        long start = System.nanoTime();
+        final List<List<ObjectId>> expected = new ArrayList<>();
+        try (Git git = Git.wrap(repository)) {
+            for (int page = 0; page < PAGES; page++) {
+                final LogCommand logCommand = git.log().setSkip(page * PAGE_SIZE).setMaxCount(PAGE_SIZE);
+                paths.forEach(logCommand::addPath);
+                final List<ObjectId> ids = new ArrayList<>();
+                for (RevCommit commit : logCommand.call()) {
+                    ids.add(commit.copy());
+                }
+                expected.add(ids);
+            }
+        }
+        LOG.info("Listed {} pages of history of {} with log command in {} ms",
+                 PAGES, paths, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        start = System.nanoTime();
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+        LOG.info("Built graph of {} commits in {} ms", graph.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        start = System.nanoTime();
+        final List<List<ObjectId>> actual = new ArrayList<>();
+        for (int page = 0; page < PAGES; page++) {
+            actual.add(graph.log(head, null, paths, page * PAGE_SIZE, PAGE_SIZE, repository));
+        }
+        LOG.info("Listed {} pages of history of {} with commit graph in {} ms",
+                 PAGES, paths, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        assertEquals(actual, expected);
+    }
+}
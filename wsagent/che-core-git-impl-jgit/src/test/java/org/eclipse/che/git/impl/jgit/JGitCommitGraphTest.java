@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link JGitCommitGraph}
+ */
+public class JGitCommitGraphTest {
+
+    private File       workDir;
+    private Git        git;
+    private Repository repository;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("commit-graph").toFile();
+        git = Git.init().setDirectory(workDir).call();
+        repository = git.getRepository();
+        // two branches merged twice, some commits have the same time
+        for (int i = 0; i < 60; i++) {
+            if (i == 10 || i == 35) {
+                git.checkout().setCreateBranch(true).setName("feature" + i).call();
+            } else if (i == 25 || i == 50) {
+                git.checkout().setName("master").call();
+                git.merge()
+                   .include(repository.resolve("feature" + (i - 15)))
+                   .setFastForward(MergeCommand.FastForwardMode.NO_FF)
+                   .setMessage("merge " + i)
+                   .call();
+                continue;
+            }
+            commit("file" + i % 3 + ".txt", "content" + i, i % 4 == 0 ? 0 : i);
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        git.close();
+        IoUtil.deleteRecursive(workDir);
+    }
+
+    @DataProvider(name = "pages")
+    public Object[][] pages() {
+        return new Object[][]{{null, 0, -1}, {null, 5, 10}, {null, 40, 100}, {"file1.txt", 0, 5}, {"file1.txt", 7, 5}, {"file2.txt", 3, -1}};
+    }
+
+    @Test(dataProvider = "pages")
+    public void shouldListHistoryInTheSameOrderAsLogCommand(String path, int skip, int maxCount) throws Exception {
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+
+        final LogCommand logCommand = git.log().setSkip(skip).setMaxCount(maxCount);
+        if (path != null) {
+            logCommand.addPath(path);
+        }
+        final List<String> paths = path == null ? Collections.emptyList() : Collections.singletonList(path);
+
+        assertEquals(graph.log(repository.resolve("HEAD"), null, paths, skip, maxCount, repository), ids(logCommand.call()));
+    }
+
+    @Test
+    public void shouldExcludeCommitsReachableFromSinceCommit() throws Exception {
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+        final ObjectId since = repository.resolve("HEAD~20");
+        final ObjectId until = repository.resolve("HEAD");
+
+        assertEquals(graph.log(until, since, Collections.emptyList(), 0, -1, repository), ids(git.log().addRange(since, until).call()));
+    }
+
+    @Test
+    public void shouldCheckAncestry() throws Exception {
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+
+        assertTrue(graph.isAncestor(repository.resolve("feature10"), repository.resolve("master")));
+        assertTrue(graph.isAncestor(repository.resolve("master"), repository.resolve("master")));
+        assertFalse(graph.isAncestor(repository.resolve("master"), repository.resolve("feature10")));
+        assertFalse(graph.isAncestor(repository.resolve("feature35~1"), repository.resolve("feature10")));
+    }
+
+    @Test
+    public void shouldFindTipsCommitsAreReachableFrom() throws Exception {
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+        final List<ObjectId> commits = new ArrayList<>();
+        final List<ObjectId> tips = new ArrayList<>();
+        for (String revision : new String[]{"master", "feature10", "feature35", "feature35~1", "master~3", "feature10~2"}) {
+            commits.add(repository.resolve(revision));
+            tips.add(repository.resolve(revision));
+        }
+
+        final BitSet[] reachable = graph.reachableFrom(commits, tips);
+
+        for (int i = 0; i < commits.size(); i++) {
+            for (int j = 0; j < tips.size(); j++) {
+                assertEquals(reachable[i].get(j), graph.isAncestor(commits.get(i), tips.get(j)), i + " from " + j);
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadOnlyNewCommitsWhenReferencesAreChanged() throws Exception {
+        final JGitCommitGraph graph = new JGitCommitGraph();
+        graph.update(repository);
+        final int size = graph.size();
+
+        final RevCommit commit = commit("file0.txt", "changed", 100);
+        graph.update(repository);
+
+        assertEquals(graph.size(), size + 1);
+        assertEquals(graph.log(repository.resolve("HEAD"), null, Collections.emptyList(), 0, 1, repository),
+                     Collections.singletonList(commit));
+    }
+
+    private RevCommit commit(String file, String content, int time) throws Exception {
+        Files.write(new File(workDir, file).toPath(), content.getBytes());
+        git.add().addFilepattern(file).call();
+        final PersonIdent ident = new PersonIdent(new PersonIdent("user", "user@codenvy.com"),
+                                                  new Date(1_000_000_000_000L + time * 1000L),
+                                                  TimeZone.getDefault());
+        return git.commit().setMessage(file + " " + content).setAuthor(ident).setCommitter(ident).call();
+    }
+
+    private static List<ObjectId> ids(Iterable<RevCommit> commits) {
+        final List<ObjectId> ids = new ArrayList<>();
+        commits.forEach(commit -> ids.add(commit.copy()));
+        return ids;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.jgit.lib.Repository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Test class for {@link JGitRepositoryCache}
+ */
+public class JGitRepositoryCacheTest {
+
+    private File                workDir;
+    private JGitRepositoryCache repositoryCache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("repository-cache").toFile();
+        final Repository repository = new JGitRepositoryCache(0).acquire(workDir);
+        repository.create();
+        repository.close();
+        repositoryCache = new JGitRepositoryCache(60);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        repositoryCache.stop();
+        IoUtil.deleteRecursive(workDir);
+    }
+
+    @Test
+    public void shouldReuseRepositoryOfTheSameWorkDir() throws Exception {
+        final Repository first = repositoryCache.acquire(workDir);
+        first.close();
+        final Repository second = repositoryCache.acquire(new File(workDir, "folder/.."));
+        second.close();
+
+        assertSame(second, first);
+        assertEquals(repositoryCache.size(), 1);
+    }
+
+    @Test
+    public void shouldNotCacheRepositoryThatDoesNotExist() throws Exception {
+        final File emptyDir = new File(workDir, "empty");
+        Files.createDirectory(emptyDir.toPath());
+
+        final Repository first = repositoryCache.acquire(emptyDir);
+        first.close();
+        final Repository second = repositoryCache.acquire(emptyDir);
+        second.close();
+
+        assertNotSame(second, first);
+        assertEquals(repositoryCache.size(), 0);
+    }
+
+    @Test
+    public void shouldOpenRepositoryAgainAfterInvalidation() throws Exception {
+        final Repository first = repositoryCache.acquire(workDir);
+        first.close();
+
+        repositoryCache.invalidate(workDir);
+        final Repository second = repositoryCache.acquire(workDir);
+        second.close();
+
+        assertNotSame(second, first);
+    }
+
+    @Test
+    public void shouldEvictIdleRepositories() throws Exception {
+        repositoryCache.acquire(workDir).close();
+
+        repositoryCache.evictIdle(System.currentTimeMillis() + 30_000);
+        assertEquals(repositoryCache.size(), 1);
+
+        repositoryCache.evictIdle(System.currentTimeMillis() + 60_000);
+        assertEquals(repositoryCache.size(), 0);
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.git.impl.jgit;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.eclipse.che.git.impl.jgit.JGitStatusCache.Change.CHANGED;
+import static org.eclipse.che.git.impl.jgit.JGitStatusCache.Change.MODIFIED;
+import static org.eclipse.che.git.impl.jgit.JGitStatusCache.Change.UNTRACKED;
+import static org.eclipse.che.git.impl.jgit.JGitStatusCache.Change.UNTRACKED_FOLDER;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link JGitStatusCache}
+ */
+public class JGitStatusCacheTest {
+
+    private File                workDir;
+    private JGitRepositoryCache repositoryCache;
+    private JGitStatusCache     statusCache;
+    private Repository          repository;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("status-cache").toFile();
+        try (Git git = Git.init().setDirectory(workDir).call()) {
+            write("a.txt", "a");
+            write("b.txt", "b");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("init").call();
+        }
+        // just written index is racily clean, it would make the cache to scan the whole tree on each request
+        assertTrue(new File(workDir, ".git/index").setLastModified(System.currentTimeMillis() - 10_000));
+        repositoryCache = new JGitRepositoryCache(60);
+        statusCache = new JGitStatusCache(repositoryCache);
+        repository = repositoryCache.acquire(workDir);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        repository.close();
+        repositoryCache.stop();
+        IoUtil.deleteRecursive(workDir);
+    }
+
+    @Test
+    public void shouldCheckOnlyReportedFiles() throws Exception {
+        assertTrue(statusCache.getStatus(repository).isEmpty());
+
+        write("a.txt", "changed");
+        write("b.txt", "changed");
+        statusCache.filesChanged(singletonList(new File(workDir, "a.txt")));
+
+        assertEquals(statusCache.getStatus(repository), ImmutableMap.of("a.txt", EnumSet.of(MODIFIED)));
+    }
+
+    @Test
+    public void shouldReturnChangesOfStatus() throws Exception {
+        statusCache.getStatus(repository);
+
+        write("a.txt", "changed");
+        Files.createDirectory(new File(workDir, "folder").toPath());
+        write("folder/c.txt", "c");
+
+        assertEquals(statusCache.filesChanged(asList(new File(workDir, "a.txt"),
+                                                     new File(workDir, "folder"),
+                                                     new File(workDir, "folder/c.txt"))),
+                     ImmutableMap.of(workDir.getAbsoluteFile(),
+                                     ImmutableMap.of("a.txt", EnumSet.of(MODIFIED),
+                                                     "folder", EnumSet.of(UNTRACKED_FOLDER),
+                                                     "folder/c.txt", EnumSet.of(UNTRACKED))));
+
+        write("a.txt", "a");
+
+        assertEquals(statusCache.filesChanged(singletonList(new File(workDir, "a.txt"))).get(workDir.getAbsoluteFile()),
+                     ImmutableMap.of("a.txt", Collections.emptySet()));
+    }
+
+    @Test
+    public void shouldCheckModifiedFilesOnNextStatusRequest() throws Exception {
+        statusCache.getStatus(repository);
+
+        write("b.txt", "changed");
+        statusCache.filesModified(singletonList(new File(workDir, "b.txt")));
+
+        assertEquals(statusCache.getStatus(repository), ImmutableMap.of("b.txt", EnumSet.of(MODIFIED)));
+    }
+
+    @Test
+    public void shouldRefreshModifiedFilesOnce() throws Exception {
+        statusCache.getStatus(repository);
+
+        write("b.txt", "changed");
+        statusCache.filesModified(singletonList(new File(workDir, "b.txt")));
+
+        assertEquals(statusCache.refreshModified(),
+                     ImmutableMap.of(workDir.getAbsoluteFile(), ImmutableMap.of("b.txt", EnumSet.of(MODIFIED))));
+        assertTrue(statusCache.refreshModified().isEmpty());
+    }
+
+    @Test
+    public void shouldScanWholeTreeWhenRescanIsRequested() throws Exception {
+        statusCache.getStatus(repository);
+
+        write("a.txt", "changed");
+        statusCache.rescanAll();
+
+        assertEquals(statusCache.refreshModified(),
+                     ImmutableMap.of(workDir.getAbsoluteFile(), ImmutableMap.of("a.txt", EnumSet.of(MODIFIED))));
+    }
+
+    @Test
+    public void shouldForgetStatusOfRemovedRepository() throws Exception {
+        statusCache.getStatus(repository);
+
+        IoUtil.deleteRecursive(new File(workDir, ".git"));
+
+        write("a.txt", "changed");
+
+        assertTrue(statusCache.filesChanged(singletonList(new File(workDir, "a.txt"))).isEmpty());
+    }
+
+    @Test
+    public void shouldScanWholeTreeWhenIndexIsChanged() throws Exception {
+        statusCache.getStatus(repository);
+
+        write("a.txt", "changed");
+        write("b.txt", "changed");
+        try (Repository other = repositoryCache.acquire(workDir)) {
+            Git.wrap(other).add().addFilepattern("a.txt").call();
+        }
+
+        assertEquals(statusCache.getStatus(repository), ImmutableMap.of("a.txt", EnumSet.of(CHANGED),
+                                                                        "b.txt", EnumSet.of(MODIFIED)));
+    }
+
+    private void write(String path, String content) throws Exception {
+        Files.write(new File(workDir, path).toPath(), content.getBytes());
+    }
+}
@@ -28,16 +28,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.lang.String.format;
 
 /**
  * Launch agent script asynchronously over target instance and wait when it run.
- * The policy of checking if agent is run might be different for agents.
+ * The policy of checking if agent is run might be different for agents,
+ * checks are scheduled by {@link AgentReadinessMonitor}.
  *
  * @see Agent#getScript()
  * @see AgentLaunchingChecker
@@ -55,15 +59,18 @@ public abstract class AbstractAgentLauncher implements AgentLauncher {
                                                                     .build());
 
     private final AgentLaunchingChecker agentLaunchingChecker;
+    private final AgentReadinessMonitor readinessMonitor;
     private final long                  agentPingDelayMs;
     private final long                  agentMaxStartTimeMs;
 
     public AbstractAgentLauncher(long agentMaxStartTimeMs,
                                  long agentPingDelayMs,
-                                 AgentLaunchingChecker agentLaunchingChecker) {
+                                 AgentLaunchingChecker agentLaunchingChecker,
+                                 AgentReadinessMonitor readinessMonitor) {
         this.agentPingDelayMs = agentPingDelayMs;
         this.agentMaxStartTimeMs = agentMaxStartTimeMs;
         this.agentLaunchingChecker = agentLaunchingChecker;
+        this.readinessMonitor = readinessMonitor;
     }
 
     @Override
@@ -71,25 +78,36 @@ public abstract class AbstractAgentLauncher implements AgentLauncher {
         if (isNullOrEmpty(agent.getScript())) {
             return;
         }
-        try {
-            final InstanceProcess process = start(machine, agent);
-            LOG.debug("Waiting for agent {} is launched. Workspace ID:{}", agent.getId(), machine.getWorkspaceId());
+        final InstanceProcess process = start(machine, agent);
+        LOG.debug("Waiting for agent {} is launched. Workspace ID:{}", agent.getId(), machine.getWorkspaceId());
 
-            final long pingStartTimestamp = System.currentTimeMillis();
-            while (System.currentTimeMillis() - pingStartTimestamp < agentMaxStartTimeMs) {
-                if (agentLaunchingChecker.isLaunched(agent, process, machine)) {
-                    return;
-                } else {
-                    Thread.sleep(agentPingDelayMs);
-                }
+        final CompletableFuture<Void> ready =
+                readinessMonitor.awaitReady(getAgentId(),
+                                            machine.getWorkspaceId(),
+                                            machine.getId(),
+                                            () -> agentLaunchingChecker.isLaunched(agent, process, machine),
+                                            agentPingDelayMs,
+                                            agentMaxStartTimeMs);
+        try {
+            ready.get();
+            return;
+        } catch (InterruptedException e) {
+            ready.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ServerException(format("Launching agent %s is interrupted", agent.getName()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServerException) {
+                throw new ServerException(((ServerException)e.getCause()).getServiceError());
             }
+            if (!(e.getCause() instanceof TimeoutException)) {
+                LOG.error(e.getCause().getLocalizedMessage(), e.getCause());
+            }
+        }
 
+        try {
             process.kill();
         } catch (MachineException e) {
             throw new ServerException(e.getServiceError());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new ServerException(format("Launching agent %s is interrupted", agent.getName()));
         }
 
         final String errMsg = format("Fail launching agent %s. Workspace ID:%s", agent.getName(), machine.getWorkspaceId());
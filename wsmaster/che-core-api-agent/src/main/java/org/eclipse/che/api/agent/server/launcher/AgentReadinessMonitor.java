@@ -0,0 +1,423 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.agent.server.launcher;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.machine.server.event.InstanceStateEvent;
+import org.eclipse.che.api.machine.shared.dto.event.MachineProcessEvent;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Waits until agents launched in machines become ready.
+ *
+ * <p>Readiness checks of all the launching agents are triggered by a single scheduler
+ * thread, so waiting for an agent does not keep a thread sleeping between checks.
+ * The checks themselves may block on I/O, so they are run by a separate bounded pool
+ * configured by {@code che.workspace.agent.readiness_check_threads}. A check which
+ * does not return in {@link #CHECK_TIMEOUT_MS} is interrupted and counted as not ready.
+ * The first check is performed immediately, then the delay between checks grows
+ * exponentially starting from {@link #INITIAL_CHECK_DELAY_MS} up to the ping delay
+ * of the agent.
+ *
+ * <p>A check is also performed as soon as something happens in the machine of the agent:
+ * a process is started or stopped there (see {@link MachineProcessEvent}) or the
+ * infrastructure reports it with {@link #signal(String)}, e.g. when a port of the machine
+ * is opened. Checks of agents of the machine that died are failed immediately.
+ *
+ * <p>Time to ready is collected per agent, see {@link #getStatistics()}.
+ */
+@Singleton
+public class AgentReadinessMonitor {
+    private static final Logger LOG = LoggerFactory.getLogger(AgentReadinessMonitor.class);
+
+    static final long INITIAL_CHECK_DELAY_MS = 50;
+    static final long CHECK_TIMEOUT_MS       = 10_000;
+
+    private final ScheduledThreadPoolExecutor              executor;
+    private final ThreadPoolExecutor                       checkExecutor;
+    private final long                                     checkTimeoutNanos;
+    private final ConcurrentMap<String, Set<PendingCheck>> pending;
+    private final ConcurrentMap<String, Statistics>        statistics;
+
+    @Inject
+    public AgentReadinessMonitor(EventService eventService,
+                                 @Named("che.workspace.agent.readiness_check_threads") int threads) {
+        this(eventService, threads, CHECK_TIMEOUT_MS);
+    }
+
+    AgentReadinessMonitor(EventService eventService, int threads, long checkTimeoutMs) {
+        this.pending = new ConcurrentHashMap<>();
+        this.statistics = new ConcurrentHashMap<>();
+        this.checkTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(checkTimeoutMs);
+        this.executor = new ScheduledThreadPoolExecutor(1,
+                                                        new ThreadFactoryBuilder().setNameFormat("AgentReadinessMonitor-%d")
+                                                                                  .setUncaughtExceptionHandler(
+                                                                                          LoggingUncaughtExceptionHandler.getInstance())
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+        this.executor.setRemoveOnCancelPolicy(true);
+        // each pending check has at most one check queued or running, so the queue is bounded by the pending checks
+        this.checkExecutor = new ThreadPoolExecutor(threads,
+                                                    threads,
+                                                    60,
+                                                    TimeUnit.SECONDS,
+                                                    new LinkedBlockingQueue<>(),
+                                                    new ThreadFactoryBuilder().setNameFormat("AgentReadinessCheck-%d")
+                                                                              .setUncaughtExceptionHandler(
+                                                                                      LoggingUncaughtExceptionHandler.getInstance())
+                                                                              .setDaemon(true)
+                                                                              .build());
+        this.checkExecutor.allowCoreThreadTimeOut(true);
+        eventService.subscribe(new MachineProcessEventSubscriber());
+        eventService.subscribe(new MachineStateEventSubscriber());
+    }
+
+    /**
+     * Starts checking readiness of the agent.
+     *
+     * @param agentId
+     *         identifier of the agent, used to group statistics
+     * @param workspaceId
+     *         identifier of the workspace the agent is launched in
+     * @param machineId
+     *         identifier of the machine the agent is launched in
+     * @param check
+     *         readiness check of the agent, it is interrupted if it doesn't return in {@link #CHECK_TIMEOUT_MS}
+     * @param maxCheckDelayMs
+     *         the max delay between two checks
+     * @param maxStartTimeMs
+     *         time after which waiting is failed with {@link TimeoutException}
+     * @return future which is completed when the agent is ready, or failed when
+     * the check throws an exception, the agent is not ready in time or the machine died
+     */
+    public CompletableFuture<Void> awaitReady(String agentId,
+                                              String workspaceId,
+                                              String machineId,
+                                              ReadinessCheck check,
+                                              long maxCheckDelayMs,
+                                              long maxStartTimeMs) {
+        final PendingCheck pendingCheck = new PendingCheck(agentId,
+                                                           workspaceId,
+                                                           machineId,
+                                                           check,
+                                                           maxCheckDelayMs,
+                                                           maxStartTimeMs);
+        pending.computeIfAbsent(machineId, id -> ConcurrentHashMap.newKeySet()).add(pendingCheck);
+        pendingCheck.future.whenComplete((result, error) -> {
+            remove(pendingCheck);
+            record(pendingCheck, error);
+        });
+        pendingCheck.execute();
+        return pendingCheck.future;
+    }
+
+    /**
+     * Checks readiness of the agents launched in the machine right away,
+     * should be called when something that may affect agents happens in the machine.
+     *
+     * @param machineId
+     *         identifier of the machine
+     */
+    public void signal(String machineId) {
+        final Set<PendingCheck> checks = pending.get(machineId);
+        if (checks != null) {
+            checks.forEach(PendingCheck::execute);
+        }
+    }
+
+    /** Returns the number of agents which readiness is being checked. */
+    public int getPendingCount() {
+        return pending.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /** Returns time to ready statistics grouped by agent identifier. */
+    public Map<String, Statistics> getStatistics() {
+        return new HashMap<>(statistics);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        checkExecutor.shutdownNow();
+        for (Set<PendingCheck> checks : pending.values()) {
+            checks.forEach(check -> check.future.completeExceptionally(
+                    new ServerException("Agent readiness monitor is shut down")));
+        }
+    }
+
+    private void fail(String machineId, String message) {
+        final Set<PendingCheck> checks = pending.get(machineId);
+        if (checks != null) {
+            checks.forEach(check -> check.future.completeExceptionally(new ServerException(message)));
+        }
+    }
+
+    private void remove(PendingCheck check) {
+        check.cancelScheduled();
+        pending.computeIfPresent(check.machineId, (id, checks) -> {
+            checks.remove(check);
+            return checks.isEmpty() ? null : checks;
+        });
+    }
+
+    private void record(PendingCheck check, Throwable error) {
+        if (error instanceof CancellationException) {
+            return;
+        }
+        final Statistics agentStatistics = statistics.computeIfAbsent(check.agentId, id -> new Statistics());
+        if (error == null) {
+            final long timeToReadyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - check.startNanos);
+            agentStatistics.ready(timeToReadyMs);
+            LOG.info("Agent {} is ready in {} ms. Workspace ID:{}", check.agentId, timeToReadyMs, check.workspaceId);
+        } else {
+            agentStatistics.failed();
+        }
+    }
+
+    /** Check of agent readiness. */
+    @FunctionalInterface
+    public interface ReadinessCheck {
+        /** Returns true if the agent is ready, false if it should be checked again later. */
+        boolean isReady() throws ServerException;
+    }
+
+    private class PendingCheck {
+        final String                  agentId;
+        final String                  workspaceId;
+        final String                  machineId;
+        final ReadinessCheck          check;
+        final long                    maxDelayNanos;
+        final long                    startNanos;
+        final long                    deadlineNanos;
+        final CompletableFuture<Void> future;
+
+        private long               nextDelayNanos;
+        private long               generation;
+        private long               runs;
+        private boolean            running;
+        private boolean            signalled;
+        private ScheduledFuture<?> scheduled;
+        private ScheduledFuture<?> timeout;
+
+        PendingCheck(String agentId,
+                     String workspaceId,
+                     String machineId,
+                     ReadinessCheck check,
+                     long maxDelayMs,
+                     long maxStartTimeMs) {
+            this.agentId = agentId;
+            this.workspaceId = workspaceId;
+            this.machineId = machineId;
+            this.check = check;
+            this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+            this.nextDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(INITIAL_CHECK_DELAY_MS, maxDelayMs));
+            this.startNanos = System.nanoTime();
+            this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maxStartTimeMs);
+            this.future = new CompletableFuture<>();
+        }
+
+        /** Performs the check as soon as possible, or once more right after the running one. */
+        synchronized void execute() {
+            if (future.isDone()) {
+                return;
+            }
+            if (running) {
+                signalled = true;
+            } else {
+                schedule(0);
+            }
+        }
+
+        synchronized void cancelScheduled() {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+
+        /** Replaces the scheduled check, must be called while holding this check's monitor. */
+        private void schedule(long delayNanos) {
+            cancelScheduled();
+            final long current = ++generation;
+            try {
+                scheduled = executor.schedule(() -> start(current), delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(new ServerException("Agent readiness monitor is shut down"));
+            }
+        }
+
+        /** Submits the check to the check pool, the scheduler thread only waits for the check to time out. */
+        private synchronized void start(long scheduledGeneration) {
+            // the check was rescheduled after this run had been scheduled
+            if (scheduledGeneration != generation || running || future.isDone()) {
+                return;
+            }
+            running = true;
+            scheduled = null;
+            final long run = ++runs;
+            try {
+                final Future<?> checkFuture = checkExecutor.submit(() -> run(run));
+                timeout = executor.schedule(() -> {
+                    if (finish(run, false)) {
+                        LOG.warn("Readiness check of agent {} is not completed in {} ms. Workspace ID:{}",
+                                 agentId,
+                                 TimeUnit.NANOSECONDS.toMillis(checkTimeoutNanos),
+                                 workspaceId);
+                        checkFuture.cancel(true);
+                    }
+                }, checkTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                running = false;
+                future.completeExceptionally(new ServerException("Agent readiness monitor is shut down"));
+            }
+        }
+
+        private void run(long run) {
+            boolean ready = false;
+            try {
+                ready = check.isReady();
+            } catch (ServerException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            finish(run, ready);
+        }
+
+        /**
+         * Completes the run of the check and schedules the next one if the agent is not ready yet.
+         *
+         * @return false if the run is already completed, i.e. it is timed out or it has completed in time
+         */
+        private boolean finish(long run, boolean ready) {
+            synchronized (this) {
+                if (!running || run != runs) {
+                    return false;
+                }
+                running = false;
+                if (timeout != null) {
+                    timeout.cancel(false);
+                    timeout = null;
+                }
+            }
+
+            final long now = System.nanoTime();
+            if (ready) {
+                future.complete(null);
+            } else if (now - deadlineNanos >= 0) {
+                future.completeExceptionally(new TimeoutException(format("Agent %s is not ready in %d ms",
+                                                                         agentId,
+                                                                         TimeUnit.NANOSECONDS.toMillis(now - startNanos))));
+            }
+
+            synchronized (this) {
+                // signalled while the monitor was released
+                if (future.isDone() || running || scheduled != null) {
+                    return true;
+                }
+                if (signalled) {
+                    signalled = false;
+                    schedule(0);
+                } else {
+                    schedule(Math.min(nextDelayNanos, deadlineNanos - now));
+                    nextDelayNanos = Math.min(nextDelayNanos * 2, maxDelayNanos);
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Time to ready statistics of a single agent. */
+    public static class Statistics {
+        private final AtomicLong ready  = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong sumMs  = new AtomicLong();
+        private final AtomicLong maxMs  = new AtomicLong();
+
+        void ready(long timeToReadyMs) {
+            ready.incrementAndGet();
+            sumMs.addAndGet(timeToReadyMs);
+            maxMs.accumulateAndGet(timeToReadyMs, Math::max);
+        }
+
+        void failed() {
+            failed.incrementAndGet();
+        }
+
+        /** Returns the number of times the agent became ready. */
+        public long getReadyCount() {
+            return ready.get();
+        }
+
+        /** Returns the number of times the agent failed to become ready, including timeouts. */
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        /** Returns the average time to ready in milliseconds. */
+        public long getAverageMs() {
+            final long count = ready.get();
+            return count == 0 ? 0 : sumMs.get() / count;
+        }
+
+        /** Returns the max time to ready in milliseconds. */
+        public long getMaxMs() {
+            return maxMs.get();
+        }
+    }
+
+    private class MachineProcessEventSubscriber implements EventSubscriber<MachineProcessEvent> {
+        @Override
+        public void onEvent(MachineProcessEvent event) {
+            signal(event.getMachineId());
+        }
+    }
+
+    private class MachineStateEventSubscriber implements EventSubscriber<InstanceStateEvent> {
+        @Override
+        public void onEvent(InstanceStateEvent event) {
+            fail(event.getMachineId(), format("Machine %s of workspace %s is not running anymore",
+                                              event.getMachineId(),
+                                              event.getWorkspaceId()));
+        }
+    }
+}
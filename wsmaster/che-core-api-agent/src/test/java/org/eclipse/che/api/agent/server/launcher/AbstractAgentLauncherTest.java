@@ -12,6 +12,8 @@ package org.eclipse.che.api.agent.server.launcher;
 
 import org.eclipse.che.api.agent.shared.model.Agent;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.machine.server.event.InstanceStateEvent;
 import org.eclipse.che.api.machine.server.exception.MachineException;
 import org.eclipse.che.api.machine.server.model.impl.CommandImpl;
 import org.eclipse.che.api.machine.server.spi.Instance;
@@ -19,6 +21,7 @@ import org.eclipse.che.api.machine.server.spi.InstanceProcess;
 import org.mockito.Mock;
 import org.mockito.stubbing.Answer;
 import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
@@ -52,11 +55,13 @@ public class AbstractAgentLauncherTest {
     @Mock
     private AgentLaunchingChecker agentChecker;
 
+    private AgentReadinessMonitor readinessMonitor;
     private AbstractAgentLauncher launcher;
 
     @BeforeMethod
     public void setUp() throws Exception {
-        launcher = spy(new TestAgentLauncher(500, 100, agentChecker));
+        readinessMonitor = new AgentReadinessMonitor(new EventService(), 1);
+        launcher = spy(new TestAgentLauncher(500, 100, agentChecker, readinessMonitor));
 
         when(agent.getScript()).thenReturn("script content");
         doReturn(process).when(launcher).start(any(Instance.class), any(Agent.class));
@@ -65,6 +70,11 @@ public class AbstractAgentLauncherTest {
                                      any(Instance.class))).thenReturn(true);
     }
 
+    @AfterMethod
+    public void tearDown() throws Exception {
+        readinessMonitor.shutdown();
+    }
+
     @Test
     public void shouldBeAbleToCheckAgentState() throws Exception {
         // when
@@ -129,7 +139,7 @@ public class AbstractAgentLauncherTest {
     @Test(expectedExceptions = ServerException.class, expectedExceptionsMessageRegExp = "Fail launching agent .*. Workspace ID:.*")
     public void shouldNotCheckIfAgentIsLaunchedMoreThanAgentMaxStartTime() throws Exception {
         // given
-        launcher = spy(new TestAgentLauncher(200, 100, agentChecker));
+        launcher = spy(new TestAgentLauncher(200, 100, agentChecker, readinessMonitor));
         doReturn(process).when(launcher).start(any(Instance.class), any(Agent.class));
         when(agentChecker.isLaunched(any(Agent.class),
                                      any(InstanceProcess.class),
@@ -152,7 +162,7 @@ public class AbstractAgentLauncherTest {
     @Test
     public void shouldNotCheckMoreFrequentThanAgentCheckDelay() throws Exception {
         // given
-        launcher = spy(new TestAgentLauncher(200, 10, agentChecker));
+        launcher = spy(new TestAgentLauncher(200, 10, agentChecker, readinessMonitor));
         doReturn(process).when(launcher).start(any(Instance.class), any(Agent.class));
         // record time of each check of agent state
         ArrayList<Long> checkTimestamps = new ArrayList<>(5);
@@ -196,12 +206,13 @@ public class AbstractAgentLauncherTest {
 
     @Test
     public void shouldSetBackInterruptedFlagIfThreadWasInterrupted() throws Exception {
+        final Thread launchingThread = Thread.currentThread();
         try {
             // imitate interruption of launching thread
             when(agentChecker.isLaunched(any(Agent.class),
                                          any(InstanceProcess.class),
                                          any(Instance.class))).thenAnswer(invocationOnMock -> {
-                Thread.currentThread().interrupt();
+                launchingThread.interrupt();
                 return false;
             });
 
@@ -218,11 +229,12 @@ public class AbstractAgentLauncherTest {
 
     @Test(expectedExceptions = ServerException.class, expectedExceptionsMessageRegExp = "Launching agent .* is interrupted")
     public void shouldThrowServerExceptionIfAgentCheckWasInterrupted() throws Exception {
+        final Thread launchingThread = Thread.currentThread();
         try {
             when(agentChecker.isLaunched(any(Agent.class),
                                          any(InstanceProcess.class),
                                          any(Instance.class))).thenAnswer(invocationOnMock -> {
-                Thread.currentThread().interrupt();
+                launchingThread.interrupt();
                 return false;
             });
 
@@ -234,6 +246,45 @@ public class AbstractAgentLauncherTest {
         }
     }
 
+    @Test(expectedExceptions = ServerException.class, expectedExceptionsMessageRegExp = "Fail launching agent .*. Workspace ID:.*")
+    public void shouldKillAgentProcessIfAgentIsNotLaunchedInTime() throws Exception {
+        // given
+        launcher = spy(new TestAgentLauncher(200, 100, agentChecker, readinessMonitor));
+        doReturn(process).when(launcher).start(any(Instance.class), any(Agent.class));
+        when(agentChecker.isLaunched(any(Agent.class),
+                                     any(InstanceProcess.class),
+                                     any(Instance.class))).thenReturn(false);
+
+        try {
+            // when
+            launcher.launch(machine, agent);
+        } finally {
+            // then
+            verify(process).kill();
+        }
+    }
+
+    @Test(expectedExceptions = ServerException.class, expectedExceptionsMessageRegExp = "Machine machineId of workspace .* is not running anymore")
+    public void shouldFailLaunchingIfMachineDies() throws Exception {
+        // given
+        final EventService eventService = new EventService();
+        readinessMonitor.shutdown();
+        readinessMonitor = new AgentReadinessMonitor(eventService, 1);
+        launcher = spy(new TestAgentLauncher(10_000, 1_000, agentChecker, readinessMonitor));
+        doReturn(process).when(launcher).start(any(Instance.class), any(Agent.class));
+        when(machine.getId()).thenReturn("machineId");
+        when(machine.getWorkspaceId()).thenReturn("workspaceId");
+        when(agentChecker.isLaunched(any(Agent.class),
+                                     any(InstanceProcess.class),
+                                     any(Instance.class))).thenAnswer(invocationOnMock -> {
+            eventService.publish(new InstanceStateEvent("machineId", "workspaceId", InstanceStateEvent.Type.DIE));
+            return false;
+        });
+
+        // when
+        launcher.launch(machine, agent);
+    }
+
     @Test
     public void shouldStartMachineProcessWithAgentScriptExecution() throws Exception {
         // given
@@ -253,8 +304,9 @@ public class AbstractAgentLauncherTest {
     private static class TestAgentLauncher extends AbstractAgentLauncher {
         public TestAgentLauncher(long agentMaxStartTimeMs,
                                  long agentPingDelayMs,
-                                 AgentLaunchingChecker agentLaunchingChecker) {
-            super(agentMaxStartTimeMs, agentPingDelayMs, agentLaunchingChecker);
+                                 AgentLaunchingChecker agentLaunchingChecker,
+                                 AgentReadinessMonitor readinessMonitor) {
+            super(agentMaxStartTimeMs, agentPingDelayMs, agentLaunchingChecker, readinessMonitor);
         }
 
         @Override
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.agent.server.launcher;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.machine.server.event.InstanceStateEvent;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests for {@link AgentReadinessMonitor}.
+ */
+public class AgentReadinessMonitorTest {
+    private static final String AGENT_ID     = "agent";
+    private static final String WORKSPACE_ID = "workspace";
+    private static final String MACHINE_ID   = "machine";
+
+    private EventService          eventService;
+    private AgentReadinessMonitor monitor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        eventService = new EventService();
+        monitor = new AgentReadinessMonitor(eventService, 2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        monitor.shutdown();
+    }
+
+    @Test
+    public void shouldCompleteWhenAgentIsReadyAndRecordTimeToReady() throws Exception {
+        final AtomicInteger checks = new AtomicInteger();
+
+        monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> checks.incrementAndGet() == 3, 100, 10_000)
+               .get(5, TimeUnit.SECONDS);
+
+        assertEquals(checks.get(), 3);
+        assertEquals(monitor.getPendingCount(), 0);
+        assertEquals(monitor.getStatistics().get(AGENT_ID).getReadyCount(), 1);
+        assertEquals(monitor.getStatistics().get(AGENT_ID).getFailedCount(), 0);
+    }
+
+    @Test
+    public void shouldCheckAgentRightAfterSignalOfItsMachine() throws Exception {
+        final CountDownLatch firstCheck = new CountDownLatch(1);
+        final AtomicInteger checks = new AtomicInteger();
+        final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> {
+            firstCheck.countDown();
+            return checks.incrementAndGet() > 1;
+        }, 60_000, 60_000);
+        assertTrue(firstCheck.await(5, TimeUnit.SECONDS));
+
+        monitor.signal(MACHINE_ID);
+
+        // the next scheduled check is in a minute, so the agent can be ready only because of the signal
+        ready.get(5, TimeUnit.SECONDS);
+        assertEquals(checks.get(), 2);
+    }
+
+    @Test
+    public void shouldFailWhenAgentIsNotReadyInTime() throws Exception {
+        final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> false, 10, 100);
+
+        try {
+            ready.get(5, TimeUnit.SECONDS);
+            fail("Agent must not be ready");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(monitor.getStatistics().get(AGENT_ID).getFailedCount(), 1);
+    }
+
+    @Test
+    public void shouldInterruptCheckWhichIsNotCompletedInTimeAndCheckAgain() throws Exception {
+        final AgentReadinessMonitor monitor = new AgentReadinessMonitor(eventService, 1, 100);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger checks = new AtomicInteger();
+        try {
+            final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> {
+                if (checks.incrementAndGet() == 1) {
+                    try {
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return true;
+                }
+                return true;
+            }, 10, 60_000);
+
+            ready.get(5, TimeUnit.SECONDS);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            assertEquals(checks.get(), 2);
+        } finally {
+            monitor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFailWhenCheckThrowsException() throws Exception {
+        final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> {
+            throw new ServerException("check failed");
+        }, 10, 10_000);
+
+        try {
+            ready.get(5, TimeUnit.SECONDS);
+            fail("Agent must not be ready");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServerException);
+            assertEquals(e.getCause().getMessage(), "check failed");
+        }
+    }
+
+    @Test
+    public void shouldFailWhenMachineOfAgentDies() throws Exception {
+        final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> false, 60_000, 60_000);
+
+        eventService.publish(new InstanceStateEvent(MACHINE_ID, WORKSPACE_ID, InstanceStateEvent.Type.DIE));
+
+        try {
+            ready.get(5, TimeUnit.SECONDS);
+            fail("Agent must not be ready");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServerException);
+        }
+        assertEquals(monitor.getPendingCount(), 0);
+    }
+
+    @Test
+    public void shouldNotCheckCancelledAgent() throws Exception {
+        final AtomicInteger checks = new AtomicInteger();
+        final CompletableFuture<Void> ready = monitor.awaitReady(AGENT_ID, WORKSPACE_ID, MACHINE_ID, () -> {
+            checks.incrementAndGet();
+            return false;
+        }, 10, 60_000);
+
+        ready.cancel(false);
+        final int checksAfterCancel = checks.get();
+        Thread.sleep(100);
+
+        assertTrue(checks.get() <= checksAfterCancel + 1);
+        assertEquals(monitor.getPendingCount(), 0);
+    }
+}
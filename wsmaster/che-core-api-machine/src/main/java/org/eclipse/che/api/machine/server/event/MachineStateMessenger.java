@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.che.api.machine.server.event;
 
+import org.eclipse.che.api.core.notification.AsyncEventSubscriber.OverflowPolicy;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.machine.shared.dto.event.MachineStatusEvent;
@@ -29,6 +30,7 @@ import static org.eclipse.che.api.machine.shared.Constants.ENVIRONMENT_STATUS_CH
 
 /**
  * Send machine state events using websocket channel to the clients
+ * <p>Events are sent asynchronously, so publishers don't wait for the clients.
  *
  * @author Alexander Garagatyi
  */
@@ -36,6 +38,10 @@ import static org.eclipse.che.api.machine.shared.Constants.ENVIRONMENT_STATUS_CH
 public class MachineStateMessenger implements EventSubscriber<MachineStatusEvent> {
     private static final Logger LOG = LoggerFactory.getLogger(MachineStateMessenger.class);
 
+    /** Events of different workspaces are sent concurrently, events of the same workspace are sent in order. */
+    private static final int EVENT_PARTITIONS     = 4;
+    private static final int EVENT_QUEUE_CAPACITY = 1000;
+
     private final EventService eventService;
 
     @Inject
@@ -57,7 +63,12 @@ public class MachineStateMessenger implements EventSubscriber<MachineStatusEvent
 
     @PostConstruct
     private void subscribe() {
-        eventService.subscribe(this);
+        eventService.subscribeAsync(this,
+                                    MachineStatusEvent.class,
+                                    EVENT_PARTITIONS,
+                                    EVENT_QUEUE_CAPACITY,
+                                    OverflowPolicy.BLOCK,
+                                    MachineStatusEvent::getWorkspaceId);
     }
 
     @PreDestroy
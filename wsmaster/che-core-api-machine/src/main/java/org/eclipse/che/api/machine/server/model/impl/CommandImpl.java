@@ -11,6 +11,8 @@
 package org.eclipse.che.api.machine.server.model.impl;
 
 import org.eclipse.che.api.core.model.machine.Command;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
@@ -49,6 +51,7 @@ public class CommandImpl implements Command {
     @Column(name = "type", nullable = false)
     private String type;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "command_attributes", joinColumns = @JoinColumn(name = "command_id"))
     @MapKeyColumn(name = "name")
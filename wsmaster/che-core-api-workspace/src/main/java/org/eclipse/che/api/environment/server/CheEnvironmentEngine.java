@@ -12,6 +12,8 @@ package org.eclipse.che.api.environment.server;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.eclipse.che.api.agent.server.AgentRegistry;
 import org.eclipse.che.api.agent.server.exception.AgentException;
@@ -34,6 +36,7 @@ import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.core.util.AbstractLineConsumer;
 import org.eclipse.che.api.core.util.LineConsumer;
 import org.eclipse.che.api.core.util.MessageConsumer;
+import org.eclipse.che.api.core.util.lineconsumer.BatchingLineConsumer;
 import org.eclipse.che.api.core.util.lineconsumer.ConcurrentCompositeLineConsumer;
 import org.eclipse.che.api.core.util.lineconsumer.ConcurrentFileLineConsumer;
 import org.eclipse.che.api.environment.server.exception.EnvironmentException;
@@ -58,7 +61,9 @@ import org.eclipse.che.api.machine.server.spi.SnapshotDao;
 import org.eclipse.che.api.machine.server.util.RecipeDownloader;
 import org.eclipse.che.api.machine.shared.dto.event.MachineStatusEvent;
 import org.eclipse.che.commons.lang.concurrent.CloseableLock;
+import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.eclipse.che.commons.lang.concurrent.StripedLocks;
+import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
 import org.eclipse.che.api.workspace.server.model.impl.ExtendedMachineImpl;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.lang.IoUtil;
@@ -75,15 +80,29 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toList;
 import static org.eclipse.che.api.machine.server.event.InstanceStateEvent.Type.DIE;
 import static org.eclipse.che.api.machine.server.event.InstanceStateEvent.Type.OOM;
@@ -116,6 +135,8 @@ public class CheEnvironmentEngine {
     private final Pattern                        recipeApiPattern;
     private final ContainerNameGenerator         containerNameGenerator;
     private final AgentRegistry                  agentRegistry;
+    private final int                            machineStartParallelism;
+    private final ExecutorService                machineStartExecutor;
 
     private volatile boolean isPreDestroyInvoked;
 
@@ -124,6 +145,8 @@ public class CheEnvironmentEngine {
                                 MachineInstanceProviders machineInstanceProviders,
                                 @Named("che.workspace.logs") String machineLogsDir,
                                 @Named("che.workspace.default_memory_mb") int defaultMachineMemorySizeMB,
+                                @Named("che.workspace.machine_start_parallelism") int machineStartParallelism,
+                                @Named("che.workspace.machine_start_threads") int machineStartThreads,
                                 EventService eventService,
                                 EnvironmentParser environmentParser,
                                 DefaultServicesStartStrategy startStrategy,
@@ -151,6 +174,18 @@ public class CheEnvironmentEngine {
                                                 apiEndpoint.substring(apiEndpoint.indexOf(":")) +
                                                 "/recipe/.*$)|(^/recipe/.*$)");
         this.containerNameGenerator = containerNameGenerator;
+        this.machineStartParallelism = machineStartParallelism;
+        if (machineStartParallelism > 1) {
+            // shared by all the environments, so it limits the number of machines starting on this server
+            this.machineStartExecutor = Executors.newFixedThreadPool(
+                    machineStartThreads,
+                    new ThreadFactoryBuilder().setNameFormat("CheEnvironmentEngine-MachineStarter-%d")
+                                              .setUncaughtExceptionHandler(LoggingUncaughtExceptionHandler.getInstance())
+                                              .setDaemon(true)
+                                              .build());
+        } else {
+            this.machineStartExecutor = null;
+        }
 
         eventService.subscribe(new MachineCleaner());
     }
@@ -549,9 +584,13 @@ public class CheEnvironmentEngine {
 
         List<String> servicesOrder = startStrategy.order(internalEnv);
 
+        // links and volumes_from are replaced with container names by normalization
+        Map<String, Set<String>> dependencies = startStrategy.dependencies(internalEnv);
+
         normalizeNames(internalEnv);
 
         EnvironmentHolder environmentHolder = new EnvironmentHolder(servicesOrder,
+                                                                    dependencies,
                                                                     internalEnv,
                                                                     messageConsumer,
                                                                     EnvStatus.STARTING,
@@ -706,6 +745,12 @@ public class CheEnvironmentEngine {
 
     /**
      * Starts all machine from machine queue of environment.
+     *
+     * <p>If {@code che.workspace.machine_start_parallelism} is greater than 1, machines
+     * which do not depend on each other are started concurrently, machine is started as soon
+     * as all the machines it depends on are running. Otherwise machines are started one by one
+     * in the order of the queue. Concurrent starts of all the environments share at most
+     * {@code che.workspace.machine_start_threads} threads, the other starts wait for a free thread.
      */
     private void startEnvironmentQueue(String namespace,
                                        String workspaceId,
@@ -719,6 +764,7 @@ public class CheEnvironmentEngine {
         // Config will be null only if there are no machines left in the queue
         String envName;
         MessageConsumer<MachineLogMessage> envLogger;
+        Map<String, Set<String>> dependencies;
         try (CloseableLock lock = stripedLocks.acquireReadLock(workspaceId)) {
             EnvironmentHolder environmentHolder = environments.get(workspaceId);
             if (environmentHolder == null) {
@@ -726,120 +772,35 @@ public class CheEnvironmentEngine {
             }
             envName = environmentHolder.name;
             envLogger = environmentHolder.logger;
+            dependencies = environmentHolder.dependencies;
         }
 
         try {
             machineProvider.createNetwork(networkId);
 
-            String machineName = queuePeekOrFail(workspaceId);
-            while (machineName != null) {
-                boolean isDev = devMachineName.equals(machineName);
-                // Environment start is failed when any machine start is failed, so if any error
-                // occurs during machine creation then environment start fail is reported and
-                // start resources such as queue and descriptor must be cleaned up
-                String creator = EnvironmentContext.getCurrent().getSubject().getUserId();
-
-                CheServiceImpl service;
-                try (CloseableLock lock = stripedLocks.acquireReadLock(workspaceId)) {
-                    EnvironmentHolder environmentHolder = environments.get(workspaceId);
-                    if (environmentHolder == null) {
-                        throw new ServerException("Environment start is interrupted.");
-                    }
-                    service = environmentHolder.environment.getServices().get(machineName);
-                }
-                // should not happen
-                if (service == null) {
-                    LOG.error("Start of machine with name {} in workspace {} failed. Machine not found in start queue",
-                              machineName, workspaceId);
-                    throw new ServerException(
-                            format("Environment of workspace with ID '%s' failed due to internal error", workspaceId));
-                }
-
-                final String finalMachineName = machineName;
-                // needed to reuse startInstance method and
-                // create machine instances by different implementation-specific providers
-                MachineStarter machineStarter = (machineLogger, machineSource) -> {
-                    CheServiceImpl serviceWithNormalizedSource = normalizeServiceSource(service, machineSource);
-                    return machineProvider.startService(namespace,
-                                                        workspaceId,
-                                                        envName,
-                                                        finalMachineName,
-                                                        isDev,
-                                                        networkId,
-                                                        serviceWithNormalizedSource,
-                                                        machineLogger);
-                };
-
-                MachineImpl machine =
-                        MachineImpl.builder()
-                                   .setConfig(MachineConfigImpl.builder()
-                                                               .setDev(isDev)
-                                                               .setLimits(new MachineLimitsImpl(
-                                                                       bytesToMB(service.getMemLimit())))
-                                                               .setType("docker")
-                                                               .setName(machineName)
-                                                               .setEnvVariables(service.getEnvironment())
-                                                               .build())
-                                   .setId(service.getId())
-                                   .setWorkspaceId(workspaceId)
-                                   .setStatus(MachineStatus.CREATING)
-                                   .setEnvName(envName)
-                                   .setOwner(creator)
-                                   .build();
-
-                Instance instance = startInstance(recover,
-                                                  envLogger,
-                                                  machine,
-                                                  machineStarter);
-
-                // Machine destroying is an expensive operation which must be
-                // performed outside of the lock, this section checks if
-                // the environment wasn't stopped while it is starting and sets
-                // polled flag to true if the environment wasn't stopped.
-                // Also polls the proceeded machine configuration from the queue
-                boolean queuePolled = false;
-                try (CloseableLock lock = stripedLocks.acquireWriteLock(workspaceId)) {
-                    ensurePreDestroyIsNotExecuted();
-                    EnvironmentHolder environmentHolder = environments.get(workspaceId);
-                    if (environmentHolder != null) {
-                        final Queue<String> queue = environmentHolder.startQueue;
-                        if (queue != null) {
-                            queue.poll();
-                            queuePolled = true;
-                        }
-                    }
-                }
-
-                // If machine config is not polled from the queue
-                // then environment was stopped and newly created machine
-                // must be destroyed
-                if (!queuePolled) {
-                    try {
-                        eventService.publish(newDto(MachineStatusEvent.class)
-                                                     .withEventType(MachineStatusEvent.EventType.DESTROYING)
-                                                     .withDev(isDev)
-                                                     .withMachineName(machineName)
-                                                     .withMachineId(instance.getId())
-                                                     .withWorkspaceId(workspaceId));
-
-                        instance.destroy();
-
-                        removeMachine(workspaceId, instance.getId());
-
-                        eventService.publish(newDto(MachineStatusEvent.class)
-                                                     .withEventType(MachineStatusEvent.EventType.DESTROYED)
-                                                     .withDev(isDev)
-                                                     .withMachineName(machineName)
-                                                     .withMachineId(instance.getId())
-                                                     .withWorkspaceId(workspaceId));
-                    } catch (MachineException e) {
-                        LOG.error(e.getLocalizedMessage(), e);
-                    }
-                    throw new ServerException("Workspace '" + workspaceId +
-                                              "' start interrupted. Workspace stopped before all its machines started");
+            if (machineStartParallelism > 1) {
+                startQueueInParallel(namespace,
+                                     workspaceId,
+                                     devMachineName,
+                                     networkId,
+                                     recover,
+                                     envName,
+                                     envLogger,
+                                     dependencies);
+            } else {
+                String machineName = queuePeekOrFail(workspaceId);
+                while (machineName != null) {
+                    startQueuedMachine(namespace,
+                                       workspaceId,
+                                       machineName,
+                                       devMachineName,
+                                       networkId,
+                                       recover,
+                                       envName,
+                                       envLogger);
+
+                    machineName = queuePeekOrFail(workspaceId);
                 }
-
-                machineName = queuePeekOrFail(workspaceId);
             }
         } catch (RuntimeException | ServerException e) {
             EnvironmentHolder env;
@@ -856,6 +817,256 @@ public class CheEnvironmentEngine {
         }
     }
 
+    /**
+     * Starts machines from the queue concurrently respecting dependencies between them,
+     * at most {@code machineStartParallelism} machines are starting at the same time.
+     * If start of any machine fails, starts of the other machines are cancelled and the method
+     * returns when they are finished, so the caller can safely destroy the started machines.
+     */
+    private void startQueueInParallel(String namespace,
+                                      String workspaceId,
+                                      String devMachineName,
+                                      String networkId,
+                                      boolean recover,
+                                      String envName,
+                                      MessageConsumer<MachineLogMessage> envLogger,
+                                      Map<String, Set<String>> dependencies)
+            throws ServerException,
+                   EnvironmentException {
+        List<String> pending = queueCopyOrFail(workspaceId);
+        Set<String> started = new HashSet<>();
+        Map<Future<Instance>, MachineStartTask> starting = new HashMap<>();
+        CompletionService<Instance> completionService = new ExecutorCompletionService<>(machineStartExecutor);
+        try {
+            while (!pending.isEmpty() || !starting.isEmpty()) {
+                for (Iterator<String> it = pending.iterator(); it.hasNext() && starting.size() < machineStartParallelism; ) {
+                    String machineName = it.next();
+                    if (started.containsAll(dependencies.getOrDefault(machineName, emptySet()))) {
+                        it.remove();
+                        Callable<Instance> start = () -> startQueuedMachine(namespace,
+                                                                            workspaceId,
+                                                                            machineName,
+                                                                            devMachineName,
+                                                                            networkId,
+                                                                            recover,
+                                                                            envName,
+                                                                            envLogger);
+                        MachineStartTask task = new MachineStartTask(machineName, ThreadLocalPropagateContext.wrap(start));
+                        starting.put(completionService.submit(task), task);
+                    }
+                }
+                // should not happen, circular dependencies are rejected by start strategy
+                if (starting.isEmpty()) {
+                    throw new ServerException(format("Machines '%s' of workspace '%s' can't be started, their dependencies are not met",
+                                                     pending, workspaceId));
+                }
+
+                Future<Instance> future = completionService.take();
+                String machineName = starting.remove(future).machineName;
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ServerException) {
+                        throw (ServerException)cause;
+                    } else if (cause instanceof EnvironmentException) {
+                        throw (EnvironmentException)cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }
+                    throw new ServerException(format("Start of machine '%s' failed. %s", machineName, cause.getLocalizedMessage()),
+                                              cause);
+                }
+                started.add(machineName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Workspace '" + workspaceId + "' start interrupted.");
+        } finally {
+            // start of a machine failed, machines that are still starting are rolled back by their tasks
+            for (MachineStartTask task : starting.values()) {
+                task.cancel();
+            }
+            for (MachineStartTask task : starting.values()) {
+                task.awaitFinish();
+            }
+        }
+    }
+
+    /**
+     * Start of a machine which is run by {@link #machineStartExecutor}.
+     * Unlike {@link Future#cancel(boolean)}, cancellation of the task allows to wait
+     * until the interrupted start is actually finished.
+     */
+    private static class MachineStartTask implements Callable<Instance> {
+        final String machineName;
+
+        private final Callable<Instance> start;
+        private final CountDownLatch     finished;
+
+        private Thread  thread;
+        private boolean cancelled;
+
+        MachineStartTask(String machineName, Callable<Instance> start) {
+            this.machineName = machineName;
+            this.start = start;
+            this.finished = new CountDownLatch(1);
+        }
+
+        @Override
+        public Instance call() throws Exception {
+            synchronized (this) {
+                if (cancelled) {
+                    throw new CancellationException("Start of machine '" + machineName + "' is cancelled");
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                return start.call();
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                finished.countDown();
+            }
+        }
+
+        /** Interrupts the start if it is running, the task does nothing if it is not started yet. */
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            } else {
+                finished.countDown();
+            }
+        }
+
+        /** Waits until the start is finished or it is known that it won't run. */
+        void awaitFinish() {
+            Uninterruptibles.awaitUninterruptibly(finished);
+        }
+    }
+
+    /**
+     * Starts machine from the queue of environment and removes it from the queue.
+     */
+    private Instance startQueuedMachine(String namespace,
+                                        String workspaceId,
+                                        String machineName,
+                                        String devMachineName,
+                                        String networkId,
+                                        boolean recover,
+                                        String envName,
+                                        MessageConsumer<MachineLogMessage> envLogger)
+            throws ServerException,
+                   EnvironmentException {
+        boolean isDev = devMachineName.equals(machineName);
+        // Environment start is failed when any machine start is failed, so if any error
+        // occurs during machine creation then environment start fail is reported and
+        // start resources such as queue and descriptor must be cleaned up
+        String creator = EnvironmentContext.getCurrent().getSubject().getUserId();
+
+        CheServiceImpl service;
+        try (CloseableLock lock = stripedLocks.acquireReadLock(workspaceId)) {
+            EnvironmentHolder environmentHolder = environments.get(workspaceId);
+            if (environmentHolder == null) {
+                throw new ServerException("Environment start is interrupted.");
+            }
+            service = environmentHolder.environment.getServices().get(machineName);
+        }
+        // should not happen
+        if (service == null) {
+            LOG.error("Start of machine with name {} in workspace {} failed. Machine not found in start queue",
+                      machineName, workspaceId);
+            throw new ServerException(
+                    format("Environment of workspace with ID '%s' failed due to internal error", workspaceId));
+        }
+
+        // needed to reuse startInstance method and
+        // create machine instances by different implementation-specific providers
+        MachineStarter machineStarter = (machineLogger, machineSource) -> {
+            CheServiceImpl serviceWithNormalizedSource = normalizeServiceSource(service, machineSource);
+            return machineProvider.startService(namespace,
+                                                workspaceId,
+                                                envName,
+                                                machineName,
+                                                isDev,
+                                                networkId,
+                                                serviceWithNormalizedSource,
+                                                machineLogger);
+        };
+
+        MachineImpl machine =
+                MachineImpl.builder()
+                           .setConfig(MachineConfigImpl.builder()
+                                                       .setDev(isDev)
+                                                       .setLimits(new MachineLimitsImpl(
+                                                               bytesToMB(service.getMemLimit())))
+                                                       .setType("docker")
+                                                       .setName(machineName)
+                                                       .setEnvVariables(service.getEnvironment())
+                                                       .build())
+                           .setId(service.getId())
+                           .setWorkspaceId(workspaceId)
+                           .setStatus(MachineStatus.CREATING)
+                           .setEnvName(envName)
+                           .setOwner(creator)
+                           .build();
+
+        Instance instance = startInstance(recover,
+                                          envLogger,
+                                          machine,
+                                          machineStarter);
+
+        // Machine destroying is an expensive operation which must be
+        // performed outside of the lock, this section checks if
+        // the environment wasn't stopped while it is starting and sets
+        // polled flag to true if the environment wasn't stopped.
+        // Also removes the proceeded machine configuration from the queue
+        boolean queuePolled = false;
+        try (CloseableLock lock = stripedLocks.acquireWriteLock(workspaceId)) {
+            ensurePreDestroyIsNotExecuted();
+            EnvironmentHolder environmentHolder = environments.get(workspaceId);
+            if (environmentHolder != null) {
+                final Queue<String> queue = environmentHolder.startQueue;
+                if (queue != null) {
+                    queue.remove(machineName);
+                    queuePolled = true;
+                }
+            }
+        }
+
+        // If machine config is not polled from the queue
+        // then environment was stopped and newly created machine
+        // must be destroyed
+        if (!queuePolled) {
+            try {
+                eventService.publish(newDto(MachineStatusEvent.class)
+                                             .withEventType(MachineStatusEvent.EventType.DESTROYING)
+                                             .withDev(isDev)
+                                             .withMachineName(machineName)
+                                             .withMachineId(instance.getId())
+                                             .withWorkspaceId(workspaceId));
+
+                instance.destroy();
+
+                removeMachine(workspaceId, instance.getId());
+
+                eventService.publish(newDto(MachineStatusEvent.class)
+                                             .withEventType(MachineStatusEvent.EventType.DESTROYED)
+                                             .withDev(isDev)
+                                             .withMachineName(machineName)
+                                             .withMachineId(instance.getId())
+                                             .withWorkspaceId(workspaceId));
+            } catch (MachineException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            throw new ServerException("Workspace '" + workspaceId +
+                                      "' start interrupted. Workspace stopped before all its machines started");
+        }
+        return instance;
+    }
+
     private Instance startInstance(boolean recover,
                                    MessageConsumer<MachineLogMessage> environmentLogger,
                                    MachineImpl machine,
@@ -1083,6 +1294,27 @@ public class CheEnvironmentEngine {
         }
     }
 
+    /**
+     * Gets copy of the queue associated with the given {@code workspaceId}.
+     *
+     * @throws ServerException
+     *         if queue doesn't exist which means that {@link #stop(String)} executed
+     *         before all the machines started
+     * @throws ServerException
+     *         if pre destroy has been invoked before queue copy retrieved
+     */
+    private List<String> queueCopyOrFail(String workspaceId) throws ServerException {
+        try (CloseableLock lock = stripedLocks.acquireReadLock(workspaceId)) {
+            ensurePreDestroyIsNotExecuted();
+            EnvironmentHolder environmentHolder = environments.get(workspaceId);
+            if (environmentHolder == null || environmentHolder.startQueue == null) {
+                throw new ServerException("Workspace " + workspaceId +
+                                          " start interrupted. Workspace was stopped before all its machines were started");
+            }
+            return new ArrayList<>(environmentHolder.startQueue);
+        }
+    }
+
     /**
      * Destroys provided machines and associated network.
      */
@@ -1140,6 +1372,9 @@ public class CheEnvironmentEngine {
     @SuppressWarnings("unused")
     void cleanup() {
         isPreDestroyInvoked = true;
+        if (machineStartExecutor != null) {
+            machineStartExecutor.shutdownNow();
+        }
         final java.io.File[] files = machineLogsDir.listFiles();
         if (files != null && files.length > 0) {
             for (java.io.File f : files) {
@@ -1155,12 +1390,12 @@ public class CheEnvironmentEngine {
                                           String machineName) throws ServerException {
         createMachineLogsDir(machineId);
 
-        LineConsumer lineConsumer = new AbstractLineConsumer() {
+        LineConsumer lineConsumer = new BatchingLineConsumer(new AbstractLineConsumer() {
             @Override
             public void writeLine(String line) throws IOException {
                 environmentLogger.consume(new MachineLogMessageImpl(machineName, line));
             }
-        };
+        });
         try {
             return new ConcurrentCompositeLineConsumer(new ConcurrentFileLineConsumer(getMachineLogsFile(machineId)),
                                                        lineConsumer);
@@ -1231,6 +1466,7 @@ public class CheEnvironmentEngine {
 
     private static class EnvironmentHolder {
         final Queue<String>                      startQueue;
+        final Map<String, Set<String>>           dependencies;
         final CheServicesEnvironmentImpl         environment;
         final MessageConsumer<MachineLogMessage> logger;
         final String                             name;
@@ -1240,12 +1476,14 @@ public class CheEnvironmentEngine {
         EnvStatus      status;
 
         EnvironmentHolder(List<String> startQueue,
+                          Map<String, Set<String>> dependencies,
                           CheServicesEnvironmentImpl environment,
                           MessageConsumer<MachineLogMessage> envLogger,
                           EnvStatus envStatus,
                           String name,
                           String networkId) {
             this.startQueue = new ArrayDeque<>(startQueue);
+            this.dependencies = dependencies;
             this.machines = new CopyOnWriteArrayList<>();
             this.logger = envLogger;
             this.status = envStatus;
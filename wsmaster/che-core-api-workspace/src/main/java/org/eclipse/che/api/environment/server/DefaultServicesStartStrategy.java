@@ -46,6 +46,18 @@ public class DefaultServicesStartStrategy {
         return sortByWeight(weights);
     }
 
+    /**
+     * Resolves dependencies of machines in an environment, so machine can be started
+     * as soon as all the machines it depends on are started.
+     *
+     * @return mapping of names of machines to the names of machines they depend on
+     * @throws IllegalArgumentException
+     *         if dependencies of machines are not valid
+     */
+    public Map<String, Set<String>> dependencies(CheServicesEnvironmentImpl composeEnvironment) throws IllegalArgumentException {
+        return buildDependencies(composeEnvironment.getServices());
+    }
+
     /**
      * Returns mapping of names of machines to its weights in dependency graph.
      *
@@ -58,33 +70,7 @@ public class DefaultServicesStartStrategy {
         HashMap<String, Integer> weights = new HashMap<>();
 
         // create machines dependency graph
-        Map<String, Set<String>> dependencies = new HashMap<>(services.size());
-        for (Map.Entry<String, CheServiceImpl> serviceEntry : services.entrySet()) {
-            CheServiceImpl service = serviceEntry.getValue();
-
-            Set<String> machineDependencies = Sets.newHashSetWithExpectedSize(service.getDependsOn().size() +
-                                                                              service.getLinks().size() +
-                                                                              service.getVolumesFrom().size());
-
-            for (String dependsOn : service.getDependsOn()) {
-                checkDependency(dependsOn, serviceEntry.getKey(), services, "A machine can not depend on itself");
-                machineDependencies.add(dependsOn);
-            }
-
-            // links also counts as dependencies
-            for (String link : service.getLinks()) {
-                String dependency = getServiceFromLink(link);
-                checkDependency(dependency, serviceEntry.getKey(), services, "A machine can not link to itself");
-                machineDependencies.add(dependency);
-            }
-            // volumesFrom also counts as dependencies
-            for (String volumesFrom : service.getVolumesFrom()) {
-                String dependency = getServiceFromVolumesFrom(volumesFrom);
-                checkDependency(dependency, serviceEntry.getKey(), services, "A machine can not contain 'volumes_from' to itself");
-                machineDependencies.add(dependency);
-            }
-            dependencies.put(serviceEntry.getKey(), machineDependencies);
-        }
+        Map<String, Set<String>> dependencies = buildDependencies(services);
 
         // Find weight of each machine in graph.
         // Weight of machine is calculated as sum of all weights of machines it depends on.
@@ -124,6 +110,37 @@ public class DefaultServicesStartStrategy {
         return weights;
     }
 
+    private Map<String, Set<String>> buildDependencies(Map<String, CheServiceImpl> services) throws IllegalArgumentException {
+        Map<String, Set<String>> dependencies = new HashMap<>(services.size());
+        for (Map.Entry<String, CheServiceImpl> serviceEntry : services.entrySet()) {
+            CheServiceImpl service = serviceEntry.getValue();
+
+            Set<String> machineDependencies = Sets.newHashSetWithExpectedSize(service.getDependsOn().size() +
+                                                                              service.getLinks().size() +
+                                                                              service.getVolumesFrom().size());
+
+            for (String dependsOn : service.getDependsOn()) {
+                checkDependency(dependsOn, serviceEntry.getKey(), services, "A machine can not depend on itself");
+                machineDependencies.add(dependsOn);
+            }
+
+            // links also counts as dependencies
+            for (String link : service.getLinks()) {
+                String dependency = getServiceFromLink(link);
+                checkDependency(dependency, serviceEntry.getKey(), services, "A machine can not link to itself");
+                machineDependencies.add(dependency);
+            }
+            // volumesFrom also counts as dependencies
+            for (String volumesFrom : service.getVolumesFrom()) {
+                String dependency = getServiceFromVolumesFrom(volumesFrom);
+                checkDependency(dependency, serviceEntry.getKey(), services, "A machine can not contain 'volumes_from' to itself");
+                machineDependencies.add(dependency);
+            }
+            dependencies.put(serviceEntry.getKey(), machineDependencies);
+        }
+        return dependencies;
+    }
+
     /**
      * Parses link content into depends_on field representation - removes column and further chars
      */
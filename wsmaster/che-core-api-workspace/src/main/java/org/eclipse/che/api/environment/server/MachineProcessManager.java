@@ -20,15 +20,16 @@ import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.model.machine.Command;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.util.CompositeLineConsumer;
-import org.eclipse.che.api.core.util.FileLineConsumer;
 import org.eclipse.che.api.core.util.LineConsumer;
 import org.eclipse.che.commons.lang.concurrent.LoggingUncaughtExceptionHandler;
 import org.eclipse.che.api.core.util.WebsocketLineConsumer;
+import org.eclipse.che.api.core.util.lineconsumer.BatchingLineConsumer;
 import org.eclipse.che.api.machine.server.exception.MachineException;
 import org.eclipse.che.api.machine.server.spi.Instance;
 import org.eclipse.che.api.machine.server.spi.InstanceProcess;
 import org.eclipse.che.api.machine.shared.dto.event.MachineProcessEvent;
 import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.che.commons.lang.IoUtil;
 import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,13 +41,16 @@ import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.eclipse.che.dto.server.DtoFactory.newDto;
 
 /**
@@ -60,26 +64,50 @@ import static org.eclipse.che.dto.server.DtoFactory.newDto;
 public class MachineProcessManager {
     private static final Logger LOG = LoggerFactory.getLogger(MachineProcessManager.class);
 
-    private final File                 machineLogsDir;
-    private final CheEnvironmentEngine environmentEngine;
-    private final EventService         eventService;
+    /** Size of the process log segment, see {@link ProcessLog}. */
+    static final long PROCESS_LOG_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private final File                  machineLogsDir;
+    private final CheEnvironmentEngine  environmentEngine;
+    private final EventService          eventService;
+    private final long                  processLogMaxSize;
+    private final long                  processLogMaxAgeMs;
+    private final boolean               compressProcessLogs;
+    private final Map<File, ProcessLog> activeProcessLogs;
+    private final ScheduledExecutorService processLogsFlusher;
 
     @VisibleForTesting
     final ExecutorService executor;
 
     @Inject
     public MachineProcessManager(@Named("che.workspace.logs") String machineLogsDir,
+                                 @Named("che.workspace.process_logs.max_size_mb") long processLogMaxSizeMb,
+                                 @Named("che.workspace.process_logs.max_age_hours") long processLogMaxAgeHours,
+                                 @Named("che.workspace.process_logs.compress") boolean compressProcessLogs,
                                  EventService eventService,
                                  CheEnvironmentEngine environmentEngine) {
         this.eventService = eventService;
         this.machineLogsDir = new File(machineLogsDir);
         this.environmentEngine = environmentEngine;
+        this.processLogMaxSize = processLogMaxSizeMb * 1024 * 1024;
+        this.processLogMaxAgeMs = HOURS.toMillis(processLogMaxAgeHours);
+        this.compressProcessLogs = compressProcessLogs;
+        this.activeProcessLogs = new ConcurrentHashMap<>();
 
         executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("MachineProcessManager-%d")
                                                                            .setUncaughtExceptionHandler(
                                                                                    LoggingUncaughtExceptionHandler.getInstance())
                                                                            .setDaemon(false)
                                                                            .build());
+        processLogsFlusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("MachineProcessLogsFlusher")
+                                          .setUncaughtExceptionHandler(LoggingUncaughtExceptionHandler.getInstance())
+                                          .setDaemon(true)
+                                          .build());
+        processLogsFlusher.scheduleWithFixedDelay(this::flushProcessLogs,
+                                                  ProcessLog.FLUSH_INTERVAL_MS,
+                                                  ProcessLog.FLUSH_INTERVAL_MS,
+                                                  MILLISECONDS);
     }
 
     /**
@@ -143,6 +171,7 @@ public class MachineProcessManager {
                     processLogger.close();
                 } catch (IOException ignored) {
                 }
+                activeProcessLogs.remove(getProcessLogsDir(machineId, pid));
             }
         }));
         return instanceProcess;
@@ -207,31 +236,134 @@ public class MachineProcessManager {
      *         if other error occur
      */
     public Reader getProcessLogReader(String machineId, int pid) throws NotFoundException, MachineException {
-        final File processLogsFile = getProcessLogsFile(machineId, pid);
-        if (processLogsFile.isFile()) {
-            try {
-                return Files.newBufferedReader(processLogsFile.toPath(), Charset.defaultCharset());
-            } catch (IOException e) {
-                throw new MachineException(
-                        String.format("Unable read log file for process '%s' of machine '%s'. %s", pid, machineId, e.getMessage()));
+        return getProcessLogReader(machineId, pid, 0, -1);
+    }
+
+    /**
+     * Gets reader of the lines of the process log.
+     *
+     * @param machineId
+     *         machine id whose process reader will be returned
+     * @param pid
+     *         process id
+     * @param from
+     *         number of the first line to read, lines are counted from 0
+     * @param limit
+     *         max number of lines to read, negative value means all the lines
+     * @return reader for specified process on machine
+     * @throws NotFoundException
+     *         if logs of the process are not available
+     * @throws MachineException
+     *         if other error occur
+     */
+    public Reader getProcessLogReader(String machineId, int pid, long from, long limit) throws NotFoundException,
+                                                                                               MachineException {
+        final File processLogsDir = getProcessLogsDir(machineId, pid);
+        final ProcessLog processLog = activeProcessLogs.get(processLogsDir);
+        try {
+            if (processLog != null) {
+                return processLog.read(from, limit);
+            }
+            if (processLogsDir.isDirectory()) {
+                return ProcessLog.read(processLogsDir, from, limit);
+            }
+        } catch (IOException e) {
+            throw new MachineException(
+                    String.format("Unable read log file for process '%s' of machine '%s'. %s", pid, machineId, e.getMessage()));
+        }
+        throw new NotFoundException(String.format("Logs for process '%s' of machine '%s' are not available", pid, machineId));
+    }
+
+    /**
+     * Gets reader of the last lines of the process log.
+     *
+     * @param machineId
+     *         machine id whose process reader will be returned
+     * @param pid
+     *         process id
+     * @param lines
+     *         number of the last lines to read
+     * @return reader for specified process on machine
+     * @throws NotFoundException
+     *         if logs of the process are not available
+     * @throws MachineException
+     *         if other error occur
+     */
+    public Reader getProcessLogTailReader(String machineId, int pid, long lines) throws NotFoundException, MachineException {
+        final File processLogsDir = getProcessLogsDir(machineId, pid);
+        final ProcessLog processLog = activeProcessLogs.get(processLogsDir);
+        try {
+            if (processLog != null) {
+                return processLog.readTail(lines);
+            }
+            if (processLogsDir.isDirectory()) {
+                return ProcessLog.readTail(processLogsDir, lines);
             }
+        } catch (IOException e) {
+            throw new MachineException(
+                    String.format("Unable read log file for process '%s' of machine '%s'. %s", pid, machineId, e.getMessage()));
         }
         throw new NotFoundException(String.format("Logs for process '%s' of machine '%s' are not available", pid, machineId));
     }
 
-    private File getProcessLogsFile(String machineId, int pid) {
+    private File getProcessLogsDir(String machineId, int pid) {
         return new File(new File(machineLogsDir, machineId), Integer.toString(pid));
     }
 
-    private FileLineConsumer getProcessFileLogger(String machineId, int pid) throws MachineException {
+    private ProcessLog getProcessFileLogger(String machineId, int pid) throws MachineException {
+        removeExpiredProcessLogs();
+        final File processLogsDir = getProcessLogsDir(machineId, pid);
         try {
-            return new FileLineConsumer(getProcessLogsFile(machineId, pid));
+            // log of the previous process with the same id might be written as a single file
+            if (processLogsDir.isFile() && !processLogsDir.delete()) {
+                throw new IOException("Unable remove previous log " + processLogsDir);
+            }
+            final ProcessLog processLog = new ProcessLog(processLogsDir,
+                                                         PROCESS_LOG_SEGMENT_SIZE,
+                                                         processLogMaxSize,
+                                                         compressProcessLogs);
+            activeProcessLogs.put(processLogsDir, processLog);
+            return processLog;
         } catch (IOException e) {
             throw new MachineException(
                     String.format("Unable create log file for process '%s' of machine '%s'. %s", pid, machineId, e.getMessage()));
         }
     }
 
+    /** Writes buffered lines of the active process logs, so lines of the quiet processes are available for reading. */
+    private void flushProcessLogs() {
+        for (ProcessLog processLog : activeProcessLogs.values()) {
+            try {
+                processLog.flushIfStale();
+            } catch (IOException e) {
+                LOG.warn("Unable flush process log {}. Error: {}", processLog.getDir(), e.getMessage());
+            }
+        }
+    }
+
+    /** Removes logs of the finished processes that were not modified longer than the max age of the process logs. */
+    private void removeExpiredProcessLogs() {
+        final File[] machineDirs = machineLogsDir.listFiles(File::isDirectory);
+        if (machineDirs == null) {
+            return;
+        }
+        final long expirationTime = System.currentTimeMillis() - processLogMaxAgeMs;
+        for (File machineDir : machineDirs) {
+            // logs written as single files by the previous versions are removed the same way
+            final File[] processLogsDirs = machineDir.listFiles(file -> file.getName().matches("\\d+"));
+            if (processLogsDirs == null) {
+                continue;
+            }
+            for (File processLogsDir : processLogsDirs) {
+                if (processLogsDir.lastModified() < expirationTime
+                    && !activeProcessLogs.containsKey(processLogsDir)
+                    && !IoUtil.deleteRecursive(processLogsDir)) {
+                    LOG.warn("Unable delete expired logs {}", processLogsDir);
+                }
+            }
+        }
+    }
+
     @VisibleForTesting
     LineConsumer getProcessLogger(String machineId, int pid, String outputChannel) throws MachineException {
         return getLogger(getProcessFileLogger(machineId, pid), outputChannel);
@@ -239,7 +371,7 @@ public class MachineProcessManager {
 
     private LineConsumer getLogger(LineConsumer fileLogger, String outputChannel) throws MachineException {
         if (outputChannel != null) {
-            return new CompositeLineConsumer(fileLogger, new WebsocketLineConsumer(outputChannel));
+            return new CompositeLineConsumer(fileLogger, new BatchingLineConsumer(new WebsocketLineConsumer(outputChannel)));
         }
         return fileLogger;
     }
@@ -264,6 +396,7 @@ public class MachineProcessManager {
     private void cleanup() {
         boolean interrupted = false;
 
+        processLogsFlusher.shutdownNow();
         executor.shutdown();
 
         try {
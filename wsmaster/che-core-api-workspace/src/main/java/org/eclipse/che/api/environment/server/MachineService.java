@@ -26,7 +26,6 @@ import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.machine.Machine;
 import org.eclipse.che.api.core.rest.Service;
 import org.eclipse.che.api.machine.server.DtoConverter;
-import org.eclipse.che.api.machine.server.exception.MachineException;
 import org.eclipse.che.api.machine.shared.dto.CommandDto;
 import org.eclipse.che.api.machine.shared.dto.MachineConfigDto;
 import org.eclipse.che.api.machine.shared.dto.MachineDto;
@@ -38,6 +37,7 @@ import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -274,8 +274,11 @@ public class MachineService extends Service {
     @GET
     @Path("/{machineId}/process/{pid}/logs")
     @Produces(MediaType.TEXT_PLAIN)
-    @ApiOperation(value = "Get logs of machine process")
+    @ApiOperation(value = "Get logs of machine process",
+                  notes = "Returns all the lines of the log by default. Use 'from' and 'limit' to get the page of the log " +
+                          "or 'tail' to get the last lines of the log")
     @ApiResponses({@ApiResponse(code = 200, message = "The response contains logs"),
+                   @ApiResponse(code = 400, message = "Invalid range of the lines is specified"),
                    @ApiResponse(code = 404, message = "Machine or process with specified ID does not exist"),
                    @ApiResponse(code = 500, message = "Internal server error occurred")})
     public void getProcessLogs(@ApiParam(value = "Workspace ID")
@@ -287,14 +290,34 @@ public class MachineService extends Service {
                                @ApiParam(value = "Process ID")
                                @PathParam("pid")
                                int pid,
+                               @ApiParam(value = "Number of the first line to return, lines are counted from 0")
+                               @DefaultValue("0")
+                               @QueryParam("from")
+                               long from,
+                               @ApiParam(value = "Max number of lines to return, all the lines are returned when it is negative")
+                               @DefaultValue("-1")
+                               @QueryParam("limit")
+                               long limit,
+                               @ApiParam(value = "Number of the last lines to return, overrides 'from' and 'limit'")
+                               @QueryParam("tail")
+                               Long tail,
                                @Context
                                HttpServletResponse httpServletResponse)
             throws NotFoundException,
                    ForbiddenException,
+                   BadRequestException,
                    ServerException,
                    IOException {
+        if (from < 0) {
+            throw new BadRequestException("Number of the first line must not be negative");
+        }
+        if (tail != null && tail < 0) {
+            throw new BadRequestException("Number of the last lines must not be negative");
+        }
 
-        addProcessLogsToResponse(machineId, pid, httpServletResponse);
+        final Reader logsReader = tail != null ? machineProcessManager.getProcessLogTailReader(machineId, pid, tail)
+                                               : machineProcessManager.getProcessLogReader(machineId, pid, from, limit);
+        addProcessLogsToResponse(logsReader, httpServletResponse);
     }
 
     /**
@@ -318,10 +341,8 @@ public class MachineService extends Service {
         }
     }
 
-    private void addProcessLogsToResponse(String machineId, int pid, HttpServletResponse httpServletResponse) throws IOException,
-                                                                                                                     NotFoundException,
-                                                                                                                     MachineException {
-        try (Reader logsReader = machineProcessManager.getProcessLogReader(machineId, pid)) {
+    private void addProcessLogsToResponse(Reader reader, HttpServletResponse httpServletResponse) throws IOException {
+        try (Reader logsReader = reader) {
             // Response is written directly to the servlet request stream
             httpServletResponse.setContentType("text/plain");
             CharStreams.copy(logsReader, httpServletResponse.getWriter());
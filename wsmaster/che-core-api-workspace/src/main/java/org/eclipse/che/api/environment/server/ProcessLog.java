@@ -0,0 +1,508 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.environment.server;
+
+import com.google.common.io.ByteStreams;
+
+import org.eclipse.che.api.core.util.LineConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Log of the machine process stored in the directory as a sequence of segments. Lines are counted from 0 and each
+ * segment is named after the number of its first line. Sealed segment has index file with the number of its lines and
+ * byte offsets of each {@link #INDEX_INTERVAL}-th line, so reading from any line or the tail of the log skips at most
+ * {@link #INDEX_INTERVAL} lines. Index of the segment that is being written is kept in memory. Segment which has
+ * no index file, e.g. the last one of the log that was not closed because the server was stopped, is scanned
+ * when the log is read.
+ * <p>
+ * Lines are buffered and written to the disk when the buffer is full, when {@link #FLUSH_INTERVAL_MS} passed since
+ * the previous write, see {@link #flushIfStale()}, or before the log is read, so noisy processes don't cause a write
+ * to the disk per line.
+ * <p>
+ * Sealed segments may be compressed with gzip. The oldest segments are removed when size of the log exceeds the limit,
+ * their lines are not available anymore.
+ *
+ * @since 5.0
+ */
+class ProcessLog implements LineConsumer {
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessLog.class);
+
+    static final int  INDEX_INTERVAL    = 1024;
+    static final long FLUSH_INTERVAL_MS = 1000;
+
+    private static final int    BUFFER_SIZE               = 64 * 1024;
+    private static final String SEGMENT_SUFFIX            = ".log";
+    private static final String COMPRESSED_SEGMENT_SUFFIX = ".log.gz";
+    private static final String INDEX_SUFFIX              = ".idx";
+
+    private final File    dir;
+    private final long    segmentSize;
+    private final long    maxSize;
+    private final boolean compressSegments;
+
+    private OutputStream output;
+    private long         segmentFirstLine;
+    private long         segmentLines;
+    private long         segmentBytes;
+    private List<Long>   segmentIndex;
+    private long         lastFlush;
+    private boolean      open;
+
+    /**
+     * Creates log in the given directory.
+     *
+     * @param dir
+     *         directory for the log segments, it is created if doesn't exist, segments of the previous log in it
+     *         are removed
+     * @param segmentSize
+     *         size of the segment in bytes after which the segment is sealed and the next one is started
+     * @param maxSize
+     *         max size of all the segments in bytes
+     * @param compressSegments
+     *         compress sealed segments or not
+     */
+    ProcessLog(File dir, long segmentSize, long maxSize, boolean compressSegments) throws IOException {
+        if (!(dir.isDirectory() || dir.mkdirs())) {
+            throw new IOException("Unable create directory " + dir);
+        }
+        removeSegments(dir);
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.compressSegments = compressSegments;
+        openSegment(0);
+        open = true;
+    }
+
+    File getDir() {
+        return dir;
+    }
+
+    @Override
+    public synchronized void writeLine(String line) throws IOException {
+        if (!open) {
+            return;
+        }
+        final byte[] bytes = ((line == null ? "" : line) + '\n').getBytes(UTF_8);
+        if (segmentLines % INDEX_INTERVAL == 0) {
+            segmentIndex.add(segmentBytes);
+        }
+        output.write(bytes);
+        segmentBytes += bytes.length;
+        segmentLines++;
+        if (segmentBytes >= segmentSize) {
+            final long nextSegmentFirstLine = segmentFirstLine + segmentLines;
+            sealSegment();
+            openSegment(nextSegmentFirstLine);
+            removeOldestSegments();
+        } else if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MS) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered lines to the disk if {@link #FLUSH_INTERVAL_MS} passed since the previous write. Lines are flushed
+     * by {@link #writeLine(String)} only when the next line comes, so it should be called periodically for the lines
+     * of the quiet process to not stay in the buffer.
+     */
+    synchronized void flushIfStale() throws IOException {
+        if (open && System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MS) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (open) {
+            open = false;
+            sealSegment();
+            removeOldestSegments();
+        }
+    }
+
+    /**
+     * Returns reader of the lines of the log.
+     *
+     * @param from
+     *         number of the first line to read, if the line was removed the reading starts from the first available line
+     * @param limit
+     *         max number of lines to read, negative value means all the lines
+     */
+    Reader read(long from, long limit) throws IOException {
+        return read(getSegments(), from, limit);
+    }
+
+    /** Returns reader of the given number of the last lines of the log. */
+    Reader readTail(long lines) throws IOException {
+        return readTail(getSegments(), lines);
+    }
+
+    /** Returns reader of the lines of closed log in the given directory, see {@link #read(long, long)}. */
+    static Reader read(File dir, long from, long limit) throws IOException {
+        return read(readSegments(dir, null), from, limit);
+    }
+
+    /** Returns reader of the last lines of closed log in the given directory, see {@link #readTail(long)}. */
+    static Reader readTail(File dir, long lines) throws IOException {
+        return readTail(readSegments(dir, null), lines);
+    }
+
+    private static Reader readTail(List<Segment> segments, long lines) {
+        if (segments.isEmpty()) {
+            return read(segments, 0, 0);
+        }
+        final Segment last = segments.get(segments.size() - 1);
+        return read(segments, Math.max(0, last.firstLine + last.lines - lines), lines);
+    }
+
+    private static Reader read(List<Segment> segments, long from, long limit) {
+        final List<Segment> toRead = new ArrayList<>();
+        long available = 0;
+        for (Segment segment : segments) {
+            if (segment.firstLine + segment.lines > from) {
+                toRead.add(segment);
+                available += segment.lines - Math.max(0, from - segment.firstLine);
+            }
+        }
+        return new LinesReader(toRead, from, limit < 0 ? available : Math.min(limit, available));
+    }
+
+    private synchronized List<Segment> getSegments() throws IOException {
+        if (!open) {
+            return readSegments(dir, null);
+        }
+        flush();
+        final long[] index = new long[segmentIndex.size()];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = segmentIndex.get(i);
+        }
+        return readSegments(dir, new Segment(dir, segmentFirstLine, segmentLines, index));
+    }
+
+    private void flush() throws IOException {
+        output.flush();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    private void openSegment(long firstLine) throws IOException {
+        output = new BufferedOutputStream(new FileOutputStream(getSegmentFile(dir, firstLine, SEGMENT_SUFFIX)), BUFFER_SIZE);
+        segmentFirstLine = firstLine;
+        segmentLines = 0;
+        segmentBytes = 0;
+        segmentIndex = new ArrayList<>();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    private void sealSegment() throws IOException {
+        output.close();
+        try (DataOutputStream indexOutput = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(getSegmentFile(dir, segmentFirstLine, INDEX_SUFFIX))))) {
+            indexOutput.writeLong(segmentLines);
+            indexOutput.writeInt(segmentIndex.size());
+            for (long offset : segmentIndex) {
+                indexOutput.writeLong(offset);
+            }
+        }
+        if (compressSegments && segmentLines > 0) {
+            compress(segmentFirstLine);
+        }
+    }
+
+    private void compress(long firstLine) throws IOException {
+        final File segmentFile = getSegmentFile(dir, firstLine, SEGMENT_SUFFIX);
+        final File compressedFile = getSegmentFile(dir, firstLine, COMPRESSED_SEGMENT_SUFFIX);
+        final File tmpFile = new File(dir, compressedFile.getName() + ".tmp");
+        try (InputStream input = new FileInputStream(segmentFile);
+             OutputStream compressed = new GZIPOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE)) {
+            ByteStreams.copy(input, compressed);
+        }
+        // readers which opened the segment before keep reading it, the others find the compressed one
+        if (!tmpFile.renameTo(compressedFile) || !segmentFile.delete()) {
+            LOG.warn("Unable replace log segment {} with compressed one", segmentFile);
+        }
+    }
+
+    private void removeOldestSegments() throws IOException {
+        final Segment active = open ? new Segment(dir, segmentFirstLine, segmentLines, new long[0]) : null;
+        final List<Segment> sealed = readSegments(dir, active);
+        sealed.remove(active);
+        long size = open ? segmentBytes : 0;
+        for (Segment segment : sealed) {
+            size += segment.getSize();
+        }
+        // the segment that is being written or the last one of the closed log is never removed
+        final int removable = open ? sealed.size() : sealed.size() - 1;
+        for (int i = 0; i < removable && size > maxSize; i++) {
+            final Segment oldest = sealed.get(i);
+            size -= oldest.getSize();
+            oldest.delete();
+        }
+    }
+
+    /** Removes segments of the log that was written in the directory before, e.g. by the process with the same id. */
+    private static void removeSegments(File dir) throws IOException {
+        final File[] files = dir.listFiles((parent, name) -> name.endsWith(INDEX_SUFFIX)
+                                                             || name.endsWith(SEGMENT_SUFFIX)
+                                                             || name.endsWith(COMPRESSED_SEGMENT_SUFFIX)
+                                                             || name.endsWith(COMPRESSED_SEGMENT_SUFFIX + ".tmp"));
+        if (files == null) {
+            throw new FileNotFoundException("Log directory " + dir + " doesn't exist");
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                throw new IOException("Unable remove segment of the previous log " + file);
+            }
+        }
+    }
+
+    /**
+     * Reads sealed segments of the log and adds the given one that is being written, ordered by the first line.
+     * Segments which have no index file and are not being written are scanned.
+     */
+    private static List<Segment> readSegments(File dir, Segment active) throws IOException {
+        final Map<Long, Segment> segments = new TreeMap<>();
+        if (active != null) {
+            segments.put(active.firstLine, active);
+        }
+        final File[] files = dir.listFiles((parent, name) -> name.endsWith(INDEX_SUFFIX) || name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new FileNotFoundException("Log directory " + dir + " doesn't exist");
+        }
+        final List<Long> unindexed = new ArrayList<>();
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                unindexed.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                continue;
+            }
+            final long firstLine = Long.parseLong(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                final long lines = input.readLong();
+                final long[] index = new long[input.readInt()];
+                for (int i = 0; i < index.length; i++) {
+                    index[i] = input.readLong();
+                }
+                segments.put(firstLine, new Segment(dir, firstLine, lines, index));
+            } catch (FileNotFoundException e) {
+                // removed by the retention
+            }
+        }
+        for (long firstLine : unindexed) {
+            if (!segments.containsKey(firstLine)) {
+                try {
+                    segments.put(firstLine, scanSegment(dir, firstLine));
+                } catch (FileNotFoundException e) {
+                    // removed by the retention or replaced with the compressed one which has index
+                }
+            }
+        }
+        return new ArrayList<>(segments.values());
+    }
+
+    /** Counts lines of the segment which has no index file and builds its index the same way the writer does. */
+    private static Segment scanSegment(File dir, long firstLine) throws IOException {
+        final List<Long> index = new ArrayList<>();
+        long lines = 0;
+        long offset = 0;
+        boolean lineStart = true;
+        try (InputStream input = new FileInputStream(getSegmentFile(dir, firstLine, SEGMENT_SUFFIX))) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, offset++) {
+                    if (lineStart && lines % INDEX_INTERVAL == 0) {
+                        index.add(offset);
+                    }
+                    lineStart = buffer[i] == '\n';
+                    if (lineStart) {
+                        lines++;
+                    }
+                }
+            }
+        }
+        // partially written last line is not counted, readers skip it
+        final long[] offsets = new long[index.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = index.get(i);
+        }
+        return new Segment(dir, firstLine, lines, offsets);
+    }
+
+    private static File getSegmentFile(File dir, long firstLine, String suffix) {
+        return new File(dir, String.format("%019d%s", firstLine, suffix));
+    }
+
+    private static class Segment {
+        final File   dir;
+        final long   firstLine;
+        final long   lines;
+        final long[] index;
+
+        Segment(File dir, long firstLine, long lines, long[] index) {
+            this.dir = dir;
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.index = index;
+        }
+
+        /** Opens content of the segment positioned at the start of the given line of the log. */
+        InputStream open(long line) throws IOException {
+            final long lineInSegment = Math.max(0, line - firstLine);
+            InputStream input;
+            try {
+                input = new FileInputStream(getSegmentFile(dir, firstLine, SEGMENT_SUFFIX));
+            } catch (FileNotFoundException e) {
+                input = new GZIPInputStream(new FileInputStream(getSegmentFile(dir, firstLine, COMPRESSED_SEGMENT_SUFFIX)),
+                                            BUFFER_SIZE);
+            }
+            input = new BufferedInputStream(input, BUFFER_SIZE);
+            final int indexEntry = (int)(lineInSegment / INDEX_INTERVAL);
+            if (indexEntry < index.length) {
+                ByteStreams.skipFully(input, index[indexEntry]);
+                for (long i = (long)indexEntry * INDEX_INTERVAL; i < lineInSegment; i++) {
+                    skipLine(input);
+                }
+            }
+            return input;
+        }
+
+        long getSize() {
+            return getSegmentFile(dir, firstLine, SEGMENT_SUFFIX).length()
+                   + getSegmentFile(dir, firstLine, COMPRESSED_SEGMENT_SUFFIX).length();
+        }
+
+        void delete() {
+            for (String suffix : new String[] {INDEX_SUFFIX, SEGMENT_SUFFIX, COMPRESSED_SEGMENT_SUFFIX}) {
+                final File file = getSegmentFile(dir, firstLine, suffix);
+                if (file.exists() && !file.delete()) {
+                    LOG.warn("Unable delete log segment {}", file);
+                }
+            }
+        }
+
+        private static void skipLine(InputStream input) throws IOException {
+            int b;
+            while ((b = input.read()) != -1 && b != '\n') {
+                // skip
+            }
+        }
+    }
+
+    /**
+     * Reads lines of the segments, line separators are read as {@code '\n'} only so lines written with {@code '\r'}
+     * inside are counted the same way as they were counted by the writer.
+     */
+    private static class LinesReader extends Reader {
+        private final Iterator<Segment>     segments;
+        private final ByteArrayOutputStream lineBuffer;
+
+        private long        nextLine;
+        private long        remaining;
+        private InputStream current;
+        private String      line;
+        private int         position;
+
+        LinesReader(List<Segment> segments, long from, long remaining) {
+            this.segments = segments.iterator();
+            this.lineBuffer = new ByteArrayOutputStream();
+            this.nextLine = from;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < length) {
+                if (line == null || position == line.length()) {
+                    if (!readLine()) {
+                        break;
+                    }
+                }
+                final int count = Math.min(length - read, line.length() - position);
+                line.getChars(position, position + count, buffer, offset + read);
+                position += count;
+                read += count;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private boolean readLine() throws IOException {
+            while (remaining > 0) {
+                if (current == null) {
+                    if (!segments.hasNext()) {
+                        return false;
+                    }
+                    final Segment segment = segments.next();
+                    nextLine = Math.max(nextLine, segment.firstLine);
+                    try {
+                        current = segment.open(nextLine);
+                    } catch (FileNotFoundException e) {
+                        // removed by the retention
+                        continue;
+                    }
+                }
+                lineBuffer.reset();
+                int b;
+                while ((b = current.read()) != -1 && b != '\n') {
+                    lineBuffer.write(b);
+                }
+                if (b == -1) {
+                    current.close();
+                    current = null;
+                    continue;
+                }
+                lineBuffer.write('\n');
+                line = new String(lineBuffer.toByteArray(), UTF_8);
+                position = 0;
+                nextLine++;
+                remaining--;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -66,8 +66,8 @@ public class TemporaryWorkspaceRemover {
     @VisibleForTesting
     void removeTemporaryWs() throws ServerException {
         final int count = 100;
-        int skip = 0;
-        List<WorkspaceImpl> workspaces = workspaceDao.getWorkspaces(true, skip, count);
+        // workspaces are paginated by id, so removing the workspaces of a page doesn't shift the next page
+        List<WorkspaceImpl> workspaces = workspaceDao.getWorkspaces(true, null, count);
         while (!workspaces.isEmpty()) {
             for (WorkspaceImpl workspace : workspaces) {
                 try {
@@ -76,8 +76,8 @@ public class TemporaryWorkspaceRemover {
                     LOG.error("Unable to cleanup temporary workspace {}. Reason is {}",workspace.getId(), e.getLocalizedMessage());
                 }
             }
-            skip = skip + count;
-            workspaces = workspaceDao.getWorkspaces(true, skip, count);
+            final String lastId = workspaces.get(workspaces.size() - 1).getId();
+            workspaces = workspaceDao.getWorkspaces(true, lastId, count);
         }
     }
 
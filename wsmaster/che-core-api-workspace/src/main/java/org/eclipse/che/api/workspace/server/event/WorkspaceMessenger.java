@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.che.api.workspace.server.event;
 
+import org.eclipse.che.api.core.notification.AsyncEventSubscriber.OverflowPolicy;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.workspace.shared.dto.event.WorkspaceStatusEvent;
@@ -26,6 +27,7 @@ import javax.inject.Singleton;
 
 /**
  * Send workspace events using websocket channel to the clients
+ * <p>Events are sent asynchronously, so publishers don't wait for the clients.
  *
  * @author Alexander Garagatyi
  */
@@ -33,6 +35,10 @@ import javax.inject.Singleton;
 public class WorkspaceMessenger implements EventSubscriber<WorkspaceStatusEvent> {
     private static final Logger LOG = LoggerFactory.getLogger(WorkspaceMessenger.class);
 
+    /** Events of different workspaces are sent concurrently, events of the same workspace are sent in order. */
+    private static final int EVENT_PARTITIONS     = 4;
+    private static final int EVENT_QUEUE_CAPACITY = 1000;
+
     private final EventService eventService;
 
     @Inject
@@ -54,7 +60,12 @@ public class WorkspaceMessenger implements EventSubscriber<WorkspaceStatusEvent>
 
     @PostConstruct
     private void subscribe() {
-        eventService.subscribe(this);
+        eventService.subscribeAsync(this,
+                                    WorkspaceStatusEvent.class,
+                                    EVENT_PARTITIONS,
+                                    EVENT_QUEUE_CAPACITY,
+                                    OverflowPolicy.BLOCK,
+                                    WorkspaceStatusEvent::getWorkspaceId);
     }
 
     @PreDestroy
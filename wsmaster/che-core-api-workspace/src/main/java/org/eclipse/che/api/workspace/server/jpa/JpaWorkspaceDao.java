@@ -44,6 +44,10 @@ import static java.util.stream.Collectors.toList;
 /**
  * JPA based implementation of {@link WorkspaceDao}.
  *
+ * <p>Eager relationships of the workspace entities are batch fetched,
+ * so loading a list of workspaces costs a query per relationship
+ * instead of a query per relationship of each workspace.
+ *
  * @author Yevhenii Voevodin
  */
 @Singleton
@@ -181,6 +185,28 @@ public class JpaWorkspaceDao implements WorkspaceDao {
         }
     }
 
+    @Override
+    @Transactional
+    public List<WorkspaceImpl> getWorkspaces(boolean isTemporary, String afterId, int maxItems) throws ServerException {
+        checkArgument(maxItems >= 0, "The number of items to return can't be negative.");
+        if (afterId == null) {
+            return getWorkspaces(isTemporary, 0, maxItems);
+        }
+        try {
+            return managerProvider.get()
+                                  .createNamedQuery("Workspace.getByTemporaryAfterId", WorkspaceImpl.class)
+                                  .setParameter("temporary", isTemporary)
+                                  .setParameter("afterId", afterId)
+                                  .setMaxResults(maxItems)
+                                  .getResultList()
+                                  .stream()
+                                  .map(WorkspaceImpl::new)
+                                  .collect(toList());
+        } catch (RuntimeException x) {
+            throw new ServerException(x.getLocalizedMessage(), x);
+        }
+    }
+
     @Transactional
     protected void doCreate(WorkspaceImpl workspace) {
         if (workspace.getConfig() != null) {
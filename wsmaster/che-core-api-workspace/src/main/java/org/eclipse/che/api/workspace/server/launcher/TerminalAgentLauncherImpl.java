@@ -11,6 +11,7 @@
 package org.eclipse.che.api.workspace.server.launcher;
 
 import org.eclipse.che.api.agent.server.launcher.AbstractAgentLauncher;
+import org.eclipse.che.api.agent.server.launcher.AgentReadinessMonitor;
 import org.eclipse.che.api.agent.server.launcher.ProcessIsLaunchedChecker;
 import org.eclipse.che.api.agent.server.model.impl.AgentImpl;
 import org.eclipse.che.api.agent.shared.model.Agent;
@@ -37,8 +38,12 @@ public class TerminalAgentLauncherImpl extends AbstractAgentLauncher {
     @Inject
     public TerminalAgentLauncherImpl(@Named("che.agent.dev.max_start_time_ms") long agentMaxStartTimeMs,
                                      @Named("che.agent.dev.ping_delay_ms") long agentPingDelayMs,
-                                     @Named("machine.terminal_agent.run_command") String runCommand) {
-        super(agentMaxStartTimeMs, agentPingDelayMs, new ProcessIsLaunchedChecker("che-websocket-terminal"));
+                                     @Named("machine.terminal_agent.run_command") String runCommand,
+                                     AgentReadinessMonitor readinessMonitor) {
+        super(agentMaxStartTimeMs,
+              agentPingDelayMs,
+              new ProcessIsLaunchedChecker("che-websocket-terminal"),
+              readinessMonitor);
         this.runCommand = runCommand;
     }
 
@@ -12,6 +12,7 @@ package org.eclipse.che.api.workspace.server.launcher;
 
 import org.eclipse.che.api.agent.server.WsAgentPingRequestFactory;
 import org.eclipse.che.api.agent.server.launcher.AgentLauncher;
+import org.eclipse.che.api.agent.server.launcher.AgentReadinessMonitor;
 import org.eclipse.che.api.agent.shared.model.Agent;
 import org.eclipse.che.api.core.ApiException;
 import org.eclipse.che.api.core.BadRequestException;
@@ -33,6 +34,8 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static org.eclipse.che.api.workspace.shared.Constants.WS_AGENT_PROCESS_NAME;
@@ -52,6 +55,7 @@ public class WsAgentLauncherImpl implements AgentLauncher {
 
     private final Provider<MachineProcessManager> machineProcessManagerProvider;
     private final WsAgentPingRequestFactory       wsAgentPingRequestFactory;
+    private final AgentReadinessMonitor           readinessMonitor;
     private final long                            wsAgentMaxStartTimeMs;
     private final long                            wsAgentPingDelayMs;
     private final String                          pingTimedOutErrorMessage;
@@ -63,9 +67,11 @@ public class WsAgentLauncherImpl implements AgentLauncher {
                                @Nullable @Named("machine.ws_agent.run_command") String wsAgentRunCommand,
                                @Named("che.workspace.agent.dev.max_start_time_ms") long wsAgentMaxStartTimeMs,
                                @Named("che.workspace.agent.dev.ping_delay_ms") long wsAgentPingDelayMs,
-                               @Named("che.workspace.agent.dev.ping_timeout_error_msg") String pingTimedOutErrorMessage) {
+                               @Named("che.workspace.agent.dev.ping_timeout_error_msg") String pingTimedOutErrorMessage,
+                               AgentReadinessMonitor readinessMonitor) {
         this.machineProcessManagerProvider = machineProcessManagerProvider;
         this.wsAgentPingRequestFactory = wsAgentPingRequestFactory;
+        this.readinessMonitor = readinessMonitor;
         this.wsAgentMaxStartTimeMs = wsAgentMaxStartTimeMs;
         this.wsAgentPingDelayMs = wsAgentPingDelayMs;
         this.pingTimedOutErrorMessage = pingTimedOutErrorMessage;
@@ -105,24 +111,33 @@ public class WsAgentLauncherImpl implements AgentLauncher {
                                                      command,
                                                      getWsAgentProcessOutputChannel(machine.getWorkspaceId()));
 
-            final long pingStartTimestamp = System.currentTimeMillis();
-            LOG.debug("Starts pinging ws agent. Workspace ID:{}. Url:{}. Timestamp:{}",
-                      machine.getWorkspaceId(),
-                      wsAgentPingUrl,
-                      pingStartTimestamp);
-
-            while (System.currentTimeMillis() - pingStartTimestamp < wsAgentMaxStartTimeMs) {
-                if (pingWsAgent(wsAgentPingRequest)) {
-                    return;
-                } else {
-                    Thread.sleep(wsAgentPingDelayMs);
-                }
-            }
         } catch (BadRequestException | ServerException | NotFoundException e) {
             throw new ServerException(e.getServiceError());
+        }
+
+        final long pingStartTimestamp = System.currentTimeMillis();
+        LOG.debug("Starts pinging ws agent. Workspace ID:{}. Url:{}. Timestamp:{}",
+                  machine.getWorkspaceId(),
+                  wsAgentPingUrl,
+                  pingStartTimestamp);
+
+        final CompletableFuture<Void> ready = readinessMonitor.awaitReady(getAgentId(),
+                                                                          machine.getWorkspaceId(),
+                                                                          machine.getId(),
+                                                                          () -> pingWsAgent(wsAgentPingRequest),
+                                                                          wsAgentPingDelayMs,
+                                                                          wsAgentMaxStartTimeMs);
+        try {
+            ready.get();
+            return;
         } catch (InterruptedException e) {
+            ready.cancel(false);
             Thread.currentThread().interrupt();
             throw new ServerException("Ws agent pinging is interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServerException) {
+                throw new ServerException(((ServerException)e.getCause()).getServiceError());
+            }
         }
         LOG.error("Fail pinging ws agent. Workspace ID:{}. Url:{}. Timestamp:{}", machine.getWorkspaceId(), wsAgentPingUrl);
         throw new ServerException(pingTimedOutErrorMessage);
@@ -12,6 +12,8 @@ package org.eclipse.che.api.workspace.server.model.impl;
 
 import org.eclipse.che.api.core.model.workspace.ExtendedMachine;
 import org.eclipse.che.api.core.model.workspace.ServerConf2;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 import javax.persistence.CascadeType;
 import javax.persistence.CollectionTable;
@@ -44,12 +46,14 @@ public class ExtendedMachineImpl implements ExtendedMachine {
     @Column(name = "id")
     private Long id;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "externalmachine_agents",
                      joinColumns = @JoinColumn(name = "externalmachine_id"))
     @Column(name = "agents")
     private List<String> agents;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "externalmachine_attributes",
                      joinColumns = @JoinColumn(name = "externalmachine_id"))
@@ -57,6 +61,7 @@ public class ExtendedMachineImpl implements ExtendedMachine {
     @Column(name = "attributes")
     private Map<String, String> attributes;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JoinColumn(name = "servers_id")
     @MapKeyColumn(name = "servers_key")
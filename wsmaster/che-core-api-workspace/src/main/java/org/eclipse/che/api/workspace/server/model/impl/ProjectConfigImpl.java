@@ -13,6 +13,8 @@ package org.eclipse.che.api.workspace.server.model.impl;
 
 import org.eclipse.che.api.core.model.project.ProjectConfig;
 import org.eclipse.che.api.core.model.project.SourceStorage;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 import javax.persistence.CascadeType;
 import javax.persistence.CollectionTable;
@@ -66,15 +68,18 @@ public class ProjectConfigImpl implements ProjectConfig {
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "source_id")
     private SourceStorageImpl source;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "projectconfig_mixins", joinColumns = @JoinColumn(name = "projectconfig_id"))
     @Column(name = "mixins")
     private List<String> mixins;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JoinColumn(name = "dbattributes_id")
     @MapKey(name = "name")
@@ -264,6 +269,7 @@ public class ProjectConfigImpl implements ProjectConfig {
         @Column(name = "name")
         private String name;
 
+        @BatchFetch(BatchFetchType.IN)
         @ElementCollection(fetch = FetchType.EAGER)
         @CollectionTable(name = "projectattribute_values", joinColumns = @JoinColumn(name = "projectattribute_id"))
         @Column(name = "values")
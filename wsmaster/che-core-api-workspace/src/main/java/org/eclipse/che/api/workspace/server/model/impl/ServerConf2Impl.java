@@ -11,6 +11,8 @@
 package org.eclipse.che.api.workspace.server.model.impl;
 
 import org.eclipse.che.api.core.model.workspace.ServerConf2;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
@@ -44,6 +46,7 @@ public class ServerConf2Impl implements ServerConf2 {
     @Column(name = "protocol")
     private String protocol;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "serverconf_properties",
                      joinColumns = @JoinColumn(name = "serverconf_id"))
@@ -16,6 +16,8 @@ import org.eclipse.che.api.core.model.workspace.Environment;
 import org.eclipse.che.api.core.model.workspace.WorkspaceConfig;
 import org.eclipse.che.api.machine.server.model.impl.CommandImpl;
 import org.eclipse.che.commons.annotation.Nullable;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -65,14 +67,17 @@ public class WorkspaceConfigImpl implements WorkspaceConfig {
     @Column(name = "defaultenv", nullable = false)
     private String defaultEnv;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JoinColumn(name = "commands_id")
     private List<CommandImpl> commands;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JoinColumn(name = "projects_id")
     private List<ProjectConfigImpl> projects;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JoinColumn(name = "environments_id")
     @MapKeyColumn(name = "environments_key")
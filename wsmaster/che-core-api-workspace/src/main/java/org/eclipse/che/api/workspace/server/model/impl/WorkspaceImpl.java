@@ -19,6 +19,8 @@ import org.eclipse.che.api.core.model.workspace.WorkspaceStatus;
 import org.eclipse.che.api.machine.server.model.impl.SnapshotImpl;
 import org.eclipse.che.api.workspace.server.jpa.WorkspaceEntityListener;
 import org.eclipse.che.commons.lang.NameGenerator;
+import org.eclipse.persistence.annotations.BatchFetch;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.eclipse.persistence.descriptors.DescriptorEvent;
 import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
 
@@ -62,7 +64,12 @@ import java.util.Objects;
                 @NamedQuery(name = "Workspace.getAll",
                             query = "SELECT w FROM Workspace w"),
                 @NamedQuery(name = "Workspace.getByTemporary",
-                            query = "SELECT w FROM Workspace w WHERE w.isTemporary = :temporary")
+                            query = "SELECT w FROM Workspace w WHERE w.isTemporary = :temporary ORDER BY w.id"),
+                @NamedQuery(name = "Workspace.getByTemporaryAfterId",
+                            query = "SELECT w " +
+                                    "FROM Workspace w " +
+                                    "WHERE w.isTemporary = :temporary AND w.id > :afterId " +
+                                    "ORDER BY w.id")
 
         }
 )
@@ -85,10 +92,12 @@ public class WorkspaceImpl implements Workspace {
     @Column(name = "name")
     private String name;
 
+    @BatchFetch(BatchFetchType.IN)
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "config_id")
     private WorkspaceConfigImpl config;
 
+    @BatchFetch(BatchFetchType.IN)
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "workspace_attributes", joinColumns = @JoinColumn(name = "workspace_id"))
     @MapKeyColumn(name = "attributes_key")
@@ -98,6 +107,7 @@ public class WorkspaceImpl implements Workspace {
     @Column(name = "istemporary")
     private boolean isTemporary;
 
+    @BatchFetch(BatchFetchType.IN)
     @ManyToOne
     @JoinColumn(name = "accountid", nullable = false)
     private AccountImpl account;
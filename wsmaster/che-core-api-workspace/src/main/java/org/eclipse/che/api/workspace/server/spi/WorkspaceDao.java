@@ -161,4 +161,27 @@ public interface WorkspaceDao {
      *         when {@code maxItems} or {@code skipCount} is negative
      */
     List<WorkspaceImpl> getWorkspaces(boolean isTemporary, int skipCount, int maxItems) throws ServerException;
+
+    /**
+     * Gets workspaces by temporary attribute ordered by their identifiers.
+     * Unlike {@link #getWorkspaces(boolean, int, int)} the page is located by the identifier
+     * of the last workspace of the previous page, so the result is not affected by
+     * workspaces created or removed while iterating.
+     *
+     * @param isTemporary
+     *         When {@code true}, only temporary workspaces should be retrieved.
+     *         When {@code false}, only non-temporary workspaces should be retrieved.
+     * @param afterId
+     *         identifier of the last workspace of the previous page,
+     *         or {@code null} to get the first page
+     * @param maxItems
+     *         the maximum number of workspaces to return
+     * @return list of workspaces with identifiers greater than {@code afterId}
+     * or empty list if no workspaces were found
+     * @throws ServerException
+     *         when any other error occurs during workspaces fetching
+     * @throws IllegalArgumentException
+     *         when {@code maxItems} is negative
+     */
+    List<WorkspaceImpl> getWorkspaces(boolean isTemporary, String afterId, int maxItems) throws ServerException;
 }
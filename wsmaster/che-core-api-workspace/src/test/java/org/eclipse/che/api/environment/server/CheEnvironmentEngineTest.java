@@ -15,6 +15,7 @@ import org.eclipse.che.api.agent.shared.model.Agent;
 import org.eclipse.che.api.agent.shared.model.AgentKey;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.machine.Machine;
 import org.eclipse.che.api.core.model.machine.MachineLogMessage;
 import org.eclipse.che.api.core.model.machine.MachineStatus;
@@ -64,6 +65,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -81,6 +87,7 @@ import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -88,6 +95,7 @@ import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * @author Alexander Garagatyi
@@ -131,6 +139,8 @@ public class CheEnvironmentEngineTest {
                                               machineInstanceProviders,
                                               "/tmp",
                                               DEFAULT_MACHINE_MEM_LIMIT_MB,
+                                              1,
+                                              10,
                                               eventService,
                                               environmentParser,
                                               new DefaultServicesStartStrategy(),
@@ -247,6 +257,151 @@ public class CheEnvironmentEngineTest {
         assertEquals(machines, expectedMachines);
     }
 
+    @Test
+    public void shouldStartIndependentMachinesConcurrentlyWhenParallelStartIsEnabled() throws Exception {
+        // given
+        engine = createEngine(3);
+        EnvironmentImpl env = createEnv();
+        CheServicesEnvironmentImpl cheServicesEnv = createCheServicesEnv();
+        cheServicesEnv.getServices().put("machine3", new CheServiceImpl().withBuild(new CheServiceBuildContextImpl().withContext("image")));
+        cheServicesEnv.getServices().get("dev-machine").setDependsOn(asList("machine2", "machine3"));
+        // independent machines wait for each other, so environment starts only if they are started concurrently
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        List<String> startedMachines = new CopyOnWriteArrayList<>();
+        when(machineProvider.startService(anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyBoolean(),
+                                          anyString(),
+                                          any(CheServiceImpl.class),
+                                          any(LineConsumer.class)))
+                .thenAnswer(invocationOnMock -> {
+                    Object[] arguments = invocationOnMock.getArguments();
+                    String machineName = (String)arguments[3];
+                    if (!machineName.equals("dev-machine")) {
+                        barrier.await(5, TimeUnit.SECONDS);
+                    }
+                    startedMachines.add(machineName);
+                    return spy(new NoOpMachineInstance(createMachine((String)arguments[1],
+                                                                     (String)arguments[2],
+                                                                     (CheServiceImpl)arguments[6],
+                                                                     machineName,
+                                                                     (boolean)arguments[4])));
+                });
+        when(environmentParser.parse(env)).thenReturn(cheServicesEnv);
+
+        // when
+        List<Instance> machines = engine.start("wsId", "env-1", env, false, messageConsumer);
+
+        // then
+        assertEquals(machines.size(), 3);
+        assertEquals(startedMachines.get(2), "dev-machine");
+    }
+
+    @Test
+    public void shouldDestroyStartedMachinesIfMachineStartFailsWhenParallelStartIsEnabled() throws Exception {
+        // given
+        engine = createEngine(3);
+        EnvironmentImpl env = createEnv();
+        CheServicesEnvironmentImpl cheServicesEnv = createCheServicesEnv();
+        cheServicesEnv.getServices().get("dev-machine").setDependsOn(singletonList("machine2"));
+        cheServicesEnv.getServices().put("machine3", new CheServiceImpl().withBuild(new CheServiceBuildContextImpl().withContext("image")));
+        List<Instance> startedMachines = new CopyOnWriteArrayList<>();
+        when(machineProvider.startService(anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyBoolean(),
+                                          anyString(),
+                                          any(CheServiceImpl.class),
+                                          any(LineConsumer.class)))
+                .thenAnswer(invocationOnMock -> {
+                    Object[] arguments = invocationOnMock.getArguments();
+                    String machineName = (String)arguments[3];
+                    if (machineName.equals("machine2")) {
+                        throw new ServerException("test exception");
+                    }
+                    Instance instance = spy(new NoOpMachineInstance(createMachine((String)arguments[1],
+                                                                                  (String)arguments[2],
+                                                                                  (CheServiceImpl)arguments[6],
+                                                                                  machineName,
+                                                                                  (boolean)arguments[4])));
+                    startedMachines.add(instance);
+                    return instance;
+                });
+        when(environmentParser.parse(env)).thenReturn(cheServicesEnv);
+
+        // when
+        try {
+            engine.start("wsId", "env-1", env, false, messageConsumer);
+            fail("Environment start should fail");
+        } catch (ServerException e) {
+            // then
+            assertEquals(e.getLocalizedMessage(), "test exception");
+        }
+        verify(machineProvider, never()).startService(anyString(),
+                                                      anyString(),
+                                                      anyString(),
+                                                      eq("dev-machine"),
+                                                      anyBoolean(),
+                                                      anyString(),
+                                                      any(CheServiceImpl.class),
+                                                      any(LineConsumer.class));
+        // machines which are still starting are destroyed by their start tasks
+        for (Instance instance : startedMachines) {
+            verify(instance, timeout(1000)).destroy();
+        }
+        verify(machineProvider).destroyNetwork(anyString());
+    }
+
+    @Test
+    public void shouldWaitForCancelledMachineStartsIfMachineStartFailsWhenParallelStartIsEnabled() throws Exception {
+        // given
+        engine = createEngine(3);
+        EnvironmentImpl env = createEnv();
+        CheServicesEnvironmentImpl cheServicesEnv = createCheServicesEnv();
+        cheServicesEnv.getServices().get("dev-machine").setDependsOn(singletonList("machine2"));
+        cheServicesEnv.getServices().put("machine3", new CheServiceImpl().withBuild(new CheServiceBuildContextImpl().withContext("image")));
+        CountDownLatch machine3Starting = new CountDownLatch(1);
+        AtomicBoolean machine3StartFinished = new AtomicBoolean();
+        when(machineProvider.startService(anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyString(),
+                                          anyBoolean(),
+                                          anyString(),
+                                          any(CheServiceImpl.class),
+                                          any(LineConsumer.class)))
+                .thenAnswer(invocationOnMock -> {
+                    String machineName = (String)invocationOnMock.getArguments()[3];
+                    if (machineName.equals("machine2")) {
+                        assertTrue(machine3Starting.await(5, TimeUnit.SECONDS));
+                        throw new ServerException("test exception");
+                    }
+                    machine3Starting.countDown();
+                    try {
+                        // start of the machine is interrupted when the other machine fails
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+                        throw new ServerException("machine3 start is not interrupted");
+                    } finally {
+                        machine3StartFinished.set(true);
+                    }
+                });
+        when(environmentParser.parse(env)).thenReturn(cheServicesEnv);
+
+        // when
+        try {
+            engine.start("wsId", "env-1", env, false, messageConsumer);
+            fail("Environment start should fail");
+        } catch (ServerException e) {
+            // then
+            assertEquals(e.getLocalizedMessage(), "test exception");
+        }
+        assertTrue(machine3StartFinished.get());
+        verify(machineProvider).destroyNetwork(anyString());
+    }
+
     @Test
     public void shouldSetDefaultRamToMachinesWithoutRamOnEnvironmentStart() throws Exception {
         // given
@@ -989,6 +1144,24 @@ public class CheEnvironmentEngineTest {
         assertEquals(serviceToNormalizeLinks.getLinks().get(0), containerNameToLink + ':' + AliasToServiceToLink);
     }
 
+    private CheEnvironmentEngine createEngine(int machineStartParallelism) {
+        return new CheEnvironmentEngine(snapshotDao,
+                                        machineInstanceProviders,
+                                        "/tmp",
+                                        DEFAULT_MACHINE_MEM_LIMIT_MB,
+                                        machineStartParallelism,
+                                        10,
+                                        eventService,
+                                        environmentParser,
+                                        new DefaultServicesStartStrategy(),
+                                        machineProvider,
+                                        infrastructureProvisioner,
+                                        API_ENDPOINT,
+                                        recipeDownloader,
+                                        containerNameGenerator,
+                                        agentRegistry);
+    }
+
     private List<Instance> startEnv() throws Exception {
         EnvironmentImpl env = createEnv();
         CheServicesEnvironmentImpl cheServicesEnv = createCheServicesEnv();
@@ -73,6 +73,9 @@ public class MachineProcessManagerTest {
         final String machineLogsDir = targetDir().resolve("logs-dir").toString();
         IoUtil.deleteRecursive(new File(machineLogsDir));
         manager = spy(new MachineProcessManager(machineLogsDir,
+                                                256,
+                                                72,
+                                                false,
                                                 eventService,
                                                 environmentEngine));
 
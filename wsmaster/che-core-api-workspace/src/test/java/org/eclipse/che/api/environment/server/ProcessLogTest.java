@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.environment.server;
+
+import com.google.common.io.CharStreams;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProcessLog}
+ */
+public class ProcessLogTest {
+    private static final long SEGMENT_SIZE = 16 * 1024;
+    private static final long MAX_SIZE     = 1024 * 1024;
+
+    private File dir;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("process-log-").toFile();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        IoUtil.deleteRecursive(dir);
+    }
+
+    @Test
+    public void readsLinesOfActiveLog() throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, false);
+        writeLines(log, 0, 10);
+
+        assertEquals(read(log.read(0, -1)), lines(0, 10));
+        assertEquals(read(log.read(3, 2)), lines(3, 5));
+        assertEquals(read(log.readTail(4)), lines(6, 10));
+        log.close();
+    }
+
+    @Test(dataProvider = "compression")
+    public void readsPagesOfSealedSegments(boolean compress) throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, compress);
+        writeLines(log, 0, 20_000);
+        log.close();
+
+        assertEquals(read(ProcessLog.read(dir, 0, -1)), lines(0, 20_000));
+        assertEquals(read(ProcessLog.read(dir, 5_000, 3_000)), lines(5_000, 8_000));
+        assertEquals(read(ProcessLog.read(dir, 19_990, 100)), lines(19_990, 20_000));
+        assertEquals(read(ProcessLog.readTail(dir, 2_500)), lines(17_500, 20_000));
+        assertEquals(read(ProcessLog.read(dir, 20_000, 10)), "");
+    }
+
+    @DataProvider(name = "compression")
+    public static Object[][] compression() {
+        return new Object[][] {{false}, {true}};
+    }
+
+    @Test
+    public void readsLinesAcrossActiveAndSealedSegments() throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, true);
+        writeLines(log, 0, 5_000);
+
+        assertEquals(read(log.read(1_500, 3_000)), lines(1_500, 4_500));
+        assertEquals(read(log.readTail(1_000)), lines(4_000, 5_000));
+        log.close();
+    }
+
+    @Test
+    public void readsLinesOfSegmentWithoutIndex() throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, true);
+        writeLines(log, 0, 5_000);
+        // flushes the active segment, it has no index file until the log is closed
+        read(log.read(0, 0));
+
+        assertEquals(read(ProcessLog.read(dir, 0, -1)), lines(0, 5_000));
+        assertEquals(read(ProcessLog.read(dir, 4_000, 500)), lines(4_000, 4_500));
+        assertEquals(read(ProcessLog.readTail(dir, 1_500)), lines(3_500, 5_000));
+        log.close();
+    }
+
+    @Test
+    public void removesOldestSegmentsWhenLogExceedsMaxSize() throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, SEGMENT_SIZE * 3, false);
+        writeLines(log, 0, 20_000);
+        log.close();
+
+        final String content = read(ProcessLog.read(dir, 0, -1));
+        assertFalse(content.startsWith("line 0\n"));
+        assertTrue(content.endsWith("line 19999\n"));
+        assertEquals(read(ProcessLog.readTail(dir, 10)), lines(19_990, 20_000));
+    }
+
+    @Test
+    public void flushesBufferedLinesWhenFlushIntervalPassed() throws Exception {
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, false);
+        writeLines(log, 0, 10);
+        log.flushIfStale();
+        assertEquals(read(ProcessLog.read(dir, 0, -1)), "");
+
+        Thread.sleep(ProcessLog.FLUSH_INTERVAL_MS);
+        log.flushIfStale();
+
+        assertEquals(read(ProcessLog.read(dir, 0, -1)), lines(0, 10));
+        log.close();
+    }
+
+    @Test
+    public void removesSegmentsOfPreviousLogInDirectory() throws Exception {
+        final ProcessLog previous = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, true);
+        writeLines(previous, 0, 5_000);
+        previous.close();
+
+        final ProcessLog log = new ProcessLog(dir, SEGMENT_SIZE, MAX_SIZE, true);
+        writeLines(log, 0, 10);
+        log.close();
+
+        assertEquals(read(ProcessLog.read(dir, 0, -1)), lines(0, 10));
+        assertEquals(dir.list().length, 2);
+    }
+
+    private static void writeLines(ProcessLog log, int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            log.writeLine("line " + i);
+        }
+    }
+
+    private static String lines(int from, int to) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String read(Reader reader) throws Exception {
+        try (Reader r = reader) {
+            return CharStreams.toString(r);
+        }
+    }
+}
@@ -12,7 +12,6 @@ package org.eclipse.che.api.workspace.server;
 
 import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
 import org.eclipse.che.api.workspace.server.spi.WorkspaceDao;
-import org.mockito.ArgumentMatcher;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
@@ -26,7 +25,7 @@ import java.util.List;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Matchers.intThat;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
@@ -49,38 +48,28 @@ public class TemporaryWorkspaceRemoverTest {
     @Test
     public void shouldRemoveTemporaryWorkspaces() throws Exception {
         doNothing().when(workspaceDao).remove(anyString());
-        // As we want to check pagination, we return items 100 when skip count is 0 or 100,
-        // return 50 items when skip count is 200, and return empty list when skip count is 300.
-        doReturn(createEntities(100)).when(workspaceDao).getWorkspaces(eq(true), intThat(new ArgumentMatcher<Integer>() {
-            @Override
-            public boolean matches(Object argument) {
-                return ((int)argument) < 200;
-            }
-        }), anyInt());
-        doReturn(createEntities(50)).when(workspaceDao).getWorkspaces(eq(true), intThat(new ArgumentMatcher<Integer>() {
-            @Override
-            public boolean matches(Object argument) {
-                return ((int)argument) == 200;
-            }
-        }), anyInt());
-        doReturn(Collections.emptyList()).when(workspaceDao).getWorkspaces(eq(true), intThat(new ArgumentMatcher<Integer>() {
-            @Override
-            public boolean matches(Object argument) {
-                return ((int)argument) > COUNT_OF_WORKSPACES;
-            }
-        }), anyInt());
+        // As we want to check pagination, we return 100 items for the first and the second page,
+        // 50 items for the third page and empty list for the page after the last item.
+        doReturn(createEntities(0, 100)).when(workspaceDao).getWorkspaces(eq(true), (String)isNull(), anyInt());
+        doReturn(createEntities(100, 100)).when(workspaceDao).getWorkspaces(eq(true), eq(id(99)), anyInt());
+        doReturn(createEntities(200, 50)).when(workspaceDao).getWorkspaces(eq(true), eq(id(199)), anyInt());
+        doReturn(Collections.emptyList()).when(workspaceDao).getWorkspaces(eq(true), eq(id(249)), anyInt());
 
         remover.removeTemporaryWs();
 
         verify(workspaceDao, times(COUNT_OF_WORKSPACES)).remove(anyString());
     }
 
-    private List<WorkspaceImpl> createEntities(int number) {
+    private List<WorkspaceImpl> createEntities(int from, int number) {
         List<WorkspaceImpl> wsList = new ArrayList<>();
-        for (int i = 0; i < number; i++) {
-            wsList.add(new WorkspaceImpl("id" + i, null, null));
+        for (int i = from; i < from + number; i++) {
+            wsList.add(new WorkspaceImpl(id(i), null, null));
         }
         return  wsList;
     }
 
+    private static String id(int i) {
+        return String.format("id%03d", i);
+    }
+
 }
@@ -108,6 +108,8 @@ public class WorkspaceRuntimeIntegrationTest {
                                                                           machineInstanceProviders,
                                                                           "/tmp",
                                                                           2000,
+                                                                          1,
+                                                                          10,
                                                                           eventService,
                                                                           environmentParser,
                                                                           new DefaultServicesStartStrategy(),
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.workspace.server.jpa;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import org.eclipse.che.account.spi.AccountImpl;
+import org.eclipse.che.api.workspace.server.model.impl.ProjectConfigImpl;
+import org.eclipse.che.api.workspace.server.model.impl.WorkspaceImpl;
+import org.eclipse.che.commons.test.db.H2JpaCleaner;
+import org.eclipse.che.commons.test.tck.JpaCleaner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.che.api.workspace.server.spi.tck.WorkspaceDaoTest.createWorkspace;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Measures listing of workspaces over H2 database seeded with {@link #WORKSPACES} workspaces.
+ *
+ * <p>It is not executed by the regular build, run it explicitly with
+ * {@code mvn test -Dtest=JpaWorkspaceDaoBenchmark}.
+ */
+public class JpaWorkspaceDaoBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(JpaWorkspaceDaoBenchmark.class);
+
+    private static final int WORKSPACES = 10_000;
+    private static final int ACCOUNTS   = 100;
+    private static final int PAGE_SIZE  = 100;
+    private static final int ITERATIONS = 5;
+
+    private EntityManager   manager;
+    private JpaWorkspaceDao workspaceDao;
+    private JpaCleaner      cleaner;
+
+    @BeforeClass
+    public void seed() {
+        final Injector injector = Guice.createInjector(new WorkspaceTckModule());
+        manager = injector.getInstance(EntityManager.class);
+        workspaceDao = injector.getInstance(JpaWorkspaceDao.class);
+        cleaner = injector.getInstance(H2JpaCleaner.class);
+
+        final long start = System.nanoTime();
+        manager.getTransaction().begin();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            manager.persist(new AccountImpl(accountId(i), namespace(i), "test"));
+        }
+        manager.getTransaction().commit();
+        for (int i = 0; i < WORKSPACES; i += PAGE_SIZE) {
+            manager.getTransaction().begin();
+            for (int j = i; j < i + PAGE_SIZE; j++) {
+                final AccountImpl account = manager.find(AccountImpl.class, accountId(j % ACCOUNTS));
+                final WorkspaceImpl workspace = createWorkspace(String.format("workspace%05d", j), account, "name" + j);
+                workspace.getConfig().getProjects().forEach(ProjectConfigImpl::prePersistAttributes);
+                manager.persist(workspace);
+            }
+            manager.getTransaction().commit();
+            manager.clear();
+        }
+        LOG.info("Seeded {} workspaces in {} ms", WORKSPACES, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @AfterClass
+    public void cleanup() {
+        // drops the in-memory database
+        cleaner.clean();
+    }
+
+    @Test
+    public void getByNamespace() throws Exception {
+        measure("getByNamespace", () -> {
+            int count = 0;
+            for (int i = 0; i < ACCOUNTS; i++) {
+                count += workspaceDao.getByNamespace(namespace(i)).size();
+            }
+            return count;
+        });
+    }
+
+    @Test
+    public void getAllWorkspaces() throws Exception {
+        measure("getWorkspaces(userId)", () -> workspaceDao.getWorkspaces("user").size());
+    }
+
+    @Test
+    public void getWorkspacesPageBySkipCount() throws Exception {
+        measure("getWorkspaces(isTemporary, skipCount, maxItems)", () -> {
+            int count = 0;
+            List<WorkspaceImpl> page;
+            while (!(page = workspaceDao.getWorkspaces(false, count, PAGE_SIZE)).isEmpty()) {
+                count += page.size();
+            }
+            return count;
+        });
+    }
+
+    @Test
+    public void getWorkspacesPageAfterId() throws Exception {
+        measure("getWorkspaces(isTemporary, afterId, maxItems)", () -> {
+            int count = 0;
+            String afterId = null;
+            List<WorkspaceImpl> page;
+            while (!(page = workspaceDao.getWorkspaces(false, afterId, PAGE_SIZE)).isEmpty()) {
+                count += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            return count;
+        });
+    }
+
+    private void measure(String name, Callable<Integer> operation) throws Exception {
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        // the first iteration is a warm up
+        for (int i = 0; i <= ITERATIONS; i++) {
+            // nothing should be served from the caches, so each iteration hits the database
+            manager.clear();
+            manager.getEntityManagerFactory().getCache().evictAll();
+
+            final long start = System.nanoTime();
+            assertEquals(operation.call().intValue(), WORKSPACES);
+            final long elapsed = System.nanoTime() - start;
+            if (i > 0) {
+                total += elapsed;
+                min = Math.min(min, elapsed);
+            }
+        }
+        LOG.info("{}: average {} ms, min {} ms",
+                 name,
+                 TimeUnit.NANOSECONDS.toMillis(total / ITERATIONS),
+                 TimeUnit.NANOSECONDS.toMillis(min));
+    }
+
+    private static String accountId(int i) {
+        return "account" + i;
+    }
+
+    private static String namespace(int i) {
+        return "namespace" + i;
+    }
+}
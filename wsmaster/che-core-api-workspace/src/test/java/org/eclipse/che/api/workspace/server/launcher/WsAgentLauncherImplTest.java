@@ -11,12 +11,14 @@
 package org.eclipse.che.api.workspace.server.launcher;
 
 import org.eclipse.che.api.agent.server.WsAgentPingRequestFactory;
+import org.eclipse.che.api.agent.server.launcher.AgentReadinessMonitor;
 import org.eclipse.che.api.agent.shared.model.Agent;
 import org.eclipse.che.api.core.BadRequestException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.model.machine.Command;
 import org.eclipse.che.api.core.model.machine.Server;
+import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.rest.HttpJsonRequest;
 import org.eclipse.che.api.core.rest.HttpJsonRequestFactory;
 import org.eclipse.che.api.core.rest.HttpJsonResponse;
@@ -32,6 +34,7 @@ import org.eclipse.che.commons.test.mockito.answer.SelfReturningAnswer;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
@@ -85,16 +88,19 @@ public class WsAgentLauncherImplTest {
     @Mock
     private Agent                     agent;
 
-    private HttpJsonRequest     pingRequest;
-    private WsAgentLauncherImpl wsAgentLauncher;
+    private HttpJsonRequest       pingRequest;
+    private AgentReadinessMonitor readinessMonitor;
+    private WsAgentLauncherImpl   wsAgentLauncher;
 
     @BeforeMethod
     public void setUp() throws Exception {
+        readinessMonitor = new AgentReadinessMonitor(new EventService(), 1);
         wsAgentLauncher = new WsAgentLauncherImpl(() -> machineProcessManager,
                                                   wsAgentPingRequestFactory, null,
                                                   WS_AGENT_MAX_START_TIME_MS,
                                                   WS_AGENT_PING_DELAY_MS,
-                                                  WS_AGENT_TIMED_OUT_MESSAGE
+                                                  WS_AGENT_TIMED_OUT_MESSAGE,
+                                                  readinessMonitor
         );
         pingRequest = Mockito.mock(HttpJsonRequest.class, new SelfReturningAnswer());
         when(agent.getScript()).thenReturn("script");
@@ -108,6 +114,11 @@ public class WsAgentLauncherImplTest {
         when(pingResponse.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
     }
 
+    @AfterMethod
+    public void tearDown() throws Exception {
+        readinessMonitor.shutdown();
+    }
+
     @Test
     public void shouldStartWsAgentUsingMachineExec() throws Exception {
         wsAgentLauncher.launch(machine, agent);
@@ -47,6 +47,7 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.toList;
 import static org.testng.Assert.assertEquals;
@@ -221,6 +222,37 @@ public class WorkspaceDaoTest {
         workspaceDao.getWorkspaces(true, -2, 0);
     }
 
+    @Test
+    public void shouldGetWorkspacesByTemporaryPageByPage() throws Exception {
+        final List<WorkspaceImpl> firstPage = workspaceDao.getWorkspaces(false, null, 2);
+        assertEquals(firstPage, asList(workspaces[0], workspaces[1]));
+
+        final List<WorkspaceImpl> secondPage = workspaceDao.getWorkspaces(false, workspaces[1].getId(), 2);
+        assertEquals(secondPage, asList(workspaces[2], workspaces[3]));
+
+        final List<WorkspaceImpl> lastPage = workspaceDao.getWorkspaces(false, workspaces[3].getId(), 2);
+        assertEquals(lastPage, singletonList(workspaces[4]));
+
+        assertTrue(workspaceDao.getWorkspaces(false, workspaces[4].getId(), 2).isEmpty());
+    }
+
+    @Test
+    public void shouldNotShiftNextPageWhenWorkspacesOfPreviousPageAreRemoved() throws Exception {
+        final List<WorkspaceImpl> firstPage = workspaceDao.getWorkspaces(false, null, 2);
+        for (WorkspaceImpl workspace : firstPage) {
+            workspaceDao.remove(workspace.getId());
+        }
+
+        final List<WorkspaceImpl> secondPage = workspaceDao.getWorkspaces(false, firstPage.get(1).getId(), 2);
+
+        assertEquals(secondPage, asList(workspaces[2], workspaces[3]));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldThrowIllegalArgumentExceptionOnNegativeLimitWhenGettingPageAfterId() throws Exception {
+        workspaceDao.getWorkspaces(true, "workspace-0", -2);
+    }
+
     @Test
     public void shouldPublicRemoveWorkspaceEventAfterRemoveWorkspace() throws Exception {
         final boolean[] isNotified = new boolean[] {false};
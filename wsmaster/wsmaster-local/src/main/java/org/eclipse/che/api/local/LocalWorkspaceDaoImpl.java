@@ -39,7 +39,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static java.util.Comparator.comparing;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
@@ -175,6 +177,20 @@ public class LocalWorkspaceDaoImpl implements WorkspaceDao {
         return  stream.collect(toList());
     }
 
+    @Override
+    public synchronized List<WorkspaceImpl> getWorkspaces(boolean isTemporary, String afterId, int maxItems) throws ServerException {
+        checkArgument(maxItems >= 0, "The number of items to return can't be negative.");
+        Stream<WorkspaceImpl> stream = workspaces.values()
+                                                 .stream()
+                                                 .filter(ws -> ws.isTemporary() == isTemporary)
+                                                 .filter(ws -> afterId == null || ws.getId().compareTo(afterId) > 0)
+                                                 .sorted(comparing(WorkspaceImpl::getId));
+        if (maxItems != 0) {
+            stream = stream.limit(maxItems);
+        }
+        return stream.map(ws -> new WorkspaceImpl(ws, ws.getAccount())).collect(toList());
+    }
+
 
     private Optional<WorkspaceImpl> find(String name, String owner) {
         return workspaces.values()